@@ -0,0 +1,59 @@
+package com.pg85.otg.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pg85.otg.generator.noise.NoiseGeneratorPerlinOctaves;
+
+/**
+ * Benchmarks the octave noise used by the terrain generator, with the sizes
+ * and scales ChunkProviderOTG uses for a single chunk of a world with the
+ * default height. Each operation is one chunk's worth of noise.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class NoiseBenchmark
+{
+    private static final int NOISE_SIZE = 5;
+    private static final int NOISE_HEIGHT = 33;
+    private static final double TERRAIN_SCALE = 684.412D;
+
+    private NoiseGeneratorPerlinOctaves noise3D;
+    private NoiseGeneratorPerlinOctaves noise2D;
+    private double[] noise3DArray;
+    private double[] noise2DArray;
+    private int chunkIndex = 0;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1234);
+        this.noise3D = new NoiseGeneratorPerlinOctaves(random, 16);
+        this.noise2D = new NoiseGeneratorPerlinOctaves(random, 16);
+    }
+
+    @Benchmark
+    public double[] noise3D()
+    {
+        int index = this.chunkIndex++;
+        this.noise3DArray = this.noise3D.Noise3D(this.noise3DArray, (index % WorldState.ROW_LENGTH) * 4, 0, (index / WorldState.ROW_LENGTH) * 4, NOISE_SIZE, NOISE_HEIGHT, NOISE_SIZE, TERRAIN_SCALE, TERRAIN_SCALE, TERRAIN_SCALE);
+        return this.noise3DArray;
+    }
+
+    @Benchmark
+    public double[] noise2D()
+    {
+        int index = this.chunkIndex++;
+        this.noise2DArray = this.noise2D.Noise2D(this.noise2DArray, (index % WorldState.ROW_LENGTH) * 4, (index / WorldState.ROW_LENGTH) * 4, NOISE_SIZE, NOISE_SIZE, 200.0D, 200.0D);
+        return this.noise2DArray;
+    }
+}
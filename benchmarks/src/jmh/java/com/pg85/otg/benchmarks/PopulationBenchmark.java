@@ -0,0 +1,56 @@
+package com.pg85.otg.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Benchmarks populating chunks: resources, BO2/BO3 custom objects and, for
+ * presets with IsOTGPlus enabled, plotting and spawning BO4
+ * CustomStructures. Each operation populates one chunk, the four chunks
+ * being populated are generated before the operation starts.
+ *
+ * Vanilla trees and structures can't be placed without Minecraft, so
+ * they're skipped.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class PopulationBenchmark
+{
+    private ChunkCoordinate chunkCoord;
+
+    @Setup(Level.Invocation)
+    public void generateChunks(WorldState state)
+    {
+        this.chunkCoord = state.nextChunk();
+        if (this.chunkCoord.getChunkX() == 0)
+        {
+            // Starting a new row, chunks of the previous rows aren't
+            // needed anymore.
+            state.world.unloadAllChunks();
+        }
+        for (int x = 0; x <= 1; x++)
+        {
+            for (int z = 0; z <= 1; z++)
+            {
+                state.world.getOrGenerateChunk(ChunkCoordinate.fromChunkCoords(this.chunkCoord.getChunkX() + x, this.chunkCoord.getChunkZ() + z));
+            }
+        }
+    }
+
+    @Benchmark
+    public void populate(WorldState state)
+    {
+        state.world.getObjectSpawner().populate(this.chunkCoord);
+    }
+}
@@ -0,0 +1,110 @@
+package com.pg85.otg.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pg85.otg.benchmarks.headless.HeadlessChunkBuffer;
+import com.pg85.otg.benchmarks.headless.HeadlessHeightMap;
+import com.pg85.otg.configuration.biome.BiomeConfig;
+import com.pg85.otg.generator.GeneratingChunk;
+import com.pg85.otg.generator.biome.OutputType;
+import com.pg85.otg.generator.noise.NoiseGeneratorPerlinMesaBlocks;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Benchmarks the surface generators of the biomes on their own. The terrain
+ * of a set of chunks is built once from their heightmaps: stone up to the
+ * terrain height and water up to the water height, which is what the surface
+ * generators see in ChunkProviderOTG. Each operation copies the terrain of
+ * the next chunk into a buffer and runs the surface generator of each column
+ * on it. Scores are in chunks per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class SurfaceGeneratorBenchmark
+{
+    private static final int CHUNK_COUNT = 64;
+
+    private HeadlessChunkBuffer[] terrain;
+    private BiomeConfig[][] biomes;
+    private byte[][] waterLevel;
+    private double[][] surfaceNoise;
+    private HeadlessChunkBuffer[] chunkBuffers;
+    private Random random;
+    private int chunkIndex = 0;
+
+    @Setup
+    public void setUp(WorldState state)
+    {
+        this.terrain = new HeadlessChunkBuffer[CHUNK_COUNT];
+        this.biomes = new BiomeConfig[CHUNK_COUNT][];
+        this.waterLevel = new byte[CHUNK_COUNT][];
+        this.surfaceNoise = new double[CHUNK_COUNT][];
+        this.chunkBuffers = new HeadlessChunkBuffer[CHUNK_COUNT];
+        this.random = new Random(state.seed);
+
+        NoiseGeneratorPerlinMesaBlocks surfaceNoiseGen = new NoiseGeneratorPerlinMesaBlocks(new Random(state.seed), 4);
+        ChunkCoordinate chunkCoord;
+        HeadlessHeightMap heightMap;
+        BiomeConfig biomeConfig;
+        int[] biomeArray;
+        for (int i = 0; i < CHUNK_COUNT; i++)
+        {
+            chunkCoord = state.nextChunk();
+            heightMap = new HeadlessHeightMap(state.world, chunkCoord);
+            biomeArray = state.world.getBiomeGenerator().getBiomes(null, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), ChunkCoordinate.CHUNK_X_SIZE, ChunkCoordinate.CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
+            this.terrain[i] = new HeadlessChunkBuffer(chunkCoord);
+            this.chunkBuffers[i] = new HeadlessChunkBuffer(chunkCoord);
+            this.biomes[i] = new BiomeConfig[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE];
+            this.waterLevel[i] = new byte[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE];
+            for (int x = 0; x < ChunkCoordinate.CHUNK_X_SIZE; x++)
+            {
+                for (int z = 0; z < ChunkCoordinate.CHUNK_Z_SIZE; z++)
+                {
+                    biomeConfig = state.world.getBiomeByOTGIdOrNull(biomeArray[x + z * ChunkCoordinate.CHUNK_X_SIZE]).getBiomeConfig();
+                    this.biomes[i][x + z * ChunkCoordinate.CHUNK_X_SIZE] = biomeConfig;
+                    this.waterLevel[i][z + x * ChunkCoordinate.CHUNK_Z_SIZE] = (byte) biomeConfig.waterLevelMax;
+                    for (int y = 0; y <= heightMap.getTerrainHeight(x, z); y++)
+                    {
+                        this.terrain[i].setBlock(x, y, z, biomeConfig.stoneBlock.parseForWorld(state.world));
+                    }
+                    for (int y = heightMap.getTerrainHeight(x, z) + 1; y <= heightMap.getWaterHeight(x, z); y++)
+                    {
+                        this.terrain[i].setBlock(x, y, z, biomeConfig.waterBlock.parseForWorld(state.world));
+                    }
+                }
+            }
+            this.surfaceNoise[i] = surfaceNoiseGen.getRegion(null, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), ChunkCoordinate.CHUNK_X_SIZE, ChunkCoordinate.CHUNK_Z_SIZE, 0.0625D, 0.0625D, 1.0D);
+        }
+    }
+
+    @Benchmark
+    public HeadlessChunkBuffer surface(WorldState state)
+    {
+        int i = this.chunkIndex++ % CHUNK_COUNT;
+        ChunkCoordinate chunkCoord = this.terrain[i].getChunkCoordinate();
+        HeadlessChunkBuffer chunkBuffer = this.chunkBuffers[i];
+        chunkBuffer.copyFrom(this.terrain[i]);
+
+        GeneratingChunk generatingChunk = new GeneratingChunk(this.random, this.waterLevel[i], this.surfaceNoise[i], state.world.getHeightCap());
+        BiomeConfig biomeConfig;
+        for (int x = 0; x < ChunkCoordinate.CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < ChunkCoordinate.CHUNK_Z_SIZE; z++)
+            {
+                biomeConfig = this.biomes[i][x + z * ChunkCoordinate.CHUNK_X_SIZE];
+                biomeConfig.surfaceAndGroundControl.spawn(state.world, generatingChunk, chunkBuffer, biomeConfig, chunkCoord.getBlockX() + x, chunkCoord.getBlockZ() + z);
+            }
+        }
+        return chunkBuffer;
+    }
+}
@@ -0,0 +1,49 @@
+package com.pg85.otg.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import com.pg85.otg.benchmarks.headless.HeadlessChunkBuffer;
+import com.pg85.otg.generator.biome.OutputType;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Benchmarks the stages of generating a chunk's terrain. Each operation is
+ * one new chunk, so the scores are in chunks per second.
+ *
+ * <ul>
+ * <li>biomeLayers: the biome layer stack, without the biome cache.</li>
+ * <li>biomes: the cached biome generator, as used by the terrain generator.</li>
+ * <li>terrain: the complete terrain, with surface blocks, caves and ravines.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TerrainBenchmark
+{
+    @Benchmark
+    public int[] biomeLayers(WorldState state)
+    {
+        ChunkCoordinate chunkCoord = state.nextChunk();
+        return state.world.getBiomeGenerator().unwrap().getBiomes(null, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), ChunkCoordinate.CHUNK_X_SIZE, ChunkCoordinate.CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
+    }
+
+    @Benchmark
+    public int[] biomes(WorldState state)
+    {
+        ChunkCoordinate chunkCoord = state.nextChunk();
+        return state.world.getBiomeGenerator().getBiomes(null, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), ChunkCoordinate.CHUNK_X_SIZE, ChunkCoordinate.CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
+    }
+
+    @Benchmark
+    public HeadlessChunkBuffer terrain(WorldState state)
+    {
+        HeadlessChunkBuffer chunkBuffer = new HeadlessChunkBuffer(state.nextChunk());
+        state.world.getChunkProvider().generateWithoutStructures(chunkBuffer);
+        return chunkBuffer;
+    }
+}
@@ -0,0 +1,48 @@
+package com.pg85.otg.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pg85.otg.benchmarks.headless.HeadlessEngine;
+import com.pg85.otg.benchmarks.headless.HeadlessWorld;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * A headless world for the given preset. Presets are read from the Presets
+ * folder in the "otg.benchmark.root" folder, a preset that doesn't exist is
+ * created with the default biomes. The same preset and seed always generate
+ * the same chunks, so results can be compared between releases.
+ *
+ * Each call to {@link #nextChunk()} returns a chunk that hasn't been
+ * returned before, walking through the world row by row, so the benchmarks
+ * measure generating new chunks instead of reading caches.
+ */
+@State(Scope.Thread)
+public class WorldState
+{
+    static final int ROW_LENGTH = 32;
+
+    @Param({"Default"})
+    public String preset;
+
+    @Param({"1234"})
+    public long seed;
+
+    public HeadlessWorld world;
+
+    private int chunkIndex = 0;
+
+    @Setup
+    public void setUp()
+    {
+        this.world = HeadlessEngine.start().getOrCreateWorld(this.preset, this.seed);
+    }
+
+    public ChunkCoordinate nextChunk()
+    {
+        int index = this.chunkIndex++;
+        return ChunkCoordinate.fromChunkCoords(index % ROW_LENGTH, index / ROW_LENGTH);
+    }
+}
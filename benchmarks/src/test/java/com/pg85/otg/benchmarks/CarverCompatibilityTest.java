@@ -0,0 +1,140 @@
+package com.pg85.otg.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.pg85.otg.benchmarks.headless.HeadlessChunkBuffer;
+import com.pg85.otg.benchmarks.headless.HeadlessEngine;
+import com.pg85.otg.benchmarks.headless.HeadlessHeightMap;
+import com.pg85.otg.benchmarks.headless.HeadlessWorld;
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.configuration.world.WorldConfig;
+import com.pg85.otg.generator.terrain.CavesGen;
+import com.pg85.otg.generator.terrain.RavinesGen;
+import com.pg85.otg.generator.terrain.TerrainGenBase;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.materials.MaterialHelper;
+import com.pg85.otg.util.minecraft.defaults.DefaultMaterial;
+
+/**
+ * Checks that the caves and ravines carved from cached carve paths are
+ * identical to the ones carved by walking the paths again for every chunk,
+ * as {@link LegacyCavesGen} and {@link LegacyRavinesGen} do.
+ */
+public class CarverCompatibilityTest
+{
+    private static final int AREA_SIZE = 16;
+    private static final long SEED = 1234;
+
+    @Test
+    public void cachedPathsCarveIdenticalChunks()
+    {
+        HeadlessWorld world = HeadlessEngine.start().getOrCreateWorld("Default", SEED);
+        WorldConfig worldConfig = world.getConfigs().getWorldConfig();
+
+        TerrainGenBase caves = new CavesGen(worldConfig, world);
+        TerrainGenBase ravines = new RavinesGen(worldConfig, world);
+        LegacyTerrainGenBase legacyCaves = new LegacyCavesGen(worldConfig, world);
+        LegacyTerrainGenBase legacyRavines = new LegacyRavinesGen(worldConfig, world);
+
+        int carvedBlocks = 0;
+        // Carve every chunk twice, the second time all paths are cached
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int chunkX = 0; chunkX < AREA_SIZE; chunkX++)
+            {
+                for (int chunkZ = 0; chunkZ < AREA_SIZE; chunkZ++)
+                {
+                    ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
+                    HeadlessChunkBuffer terrain = createTerrain(world, chunkCoord);
+
+                    HeadlessChunkBuffer expected = new HeadlessChunkBuffer(chunkCoord);
+                    expected.copyFrom(terrain);
+                    legacyCaves.generate(expected);
+                    legacyRavines.generate(expected);
+
+                    HeadlessChunkBuffer actual = new HeadlessChunkBuffer(chunkCoord);
+                    actual.copyFrom(terrain);
+                    caves.generate(actual);
+                    ravines.generate(actual);
+
+                    carvedBlocks += assertSameBlocks(chunkCoord, terrain, expected, actual);
+                }
+            }
+        }
+        assertTrue("Nothing was carved, the test doesn't cover anything", carvedBlocks > 0);
+    }
+
+    /**
+     * Creates uncarved terrain from the heightmap, with falling blocks below
+     * the surface and water above it where the heightmap has water.
+     */
+    private static HeadlessChunkBuffer createTerrain(HeadlessWorld world, ChunkCoordinate chunkCoord)
+    {
+        LocalMaterialData bedrock = MaterialHelper.toLocalMaterialData(DefaultMaterial.BEDROCK, 0);
+        LocalMaterialData stone = MaterialHelper.toLocalMaterialData(DefaultMaterial.STONE, 0);
+        LocalMaterialData gravel = MaterialHelper.toLocalMaterialData(DefaultMaterial.GRAVEL, 0);
+        LocalMaterialData grass = MaterialHelper.toLocalMaterialData(DefaultMaterial.GRASS, 0);
+        LocalMaterialData water = MaterialHelper.toLocalMaterialData(DefaultMaterial.STATIONARY_WATER, 0);
+
+        HeadlessHeightMap heightMap = new HeadlessHeightMap(world, chunkCoord);
+        HeadlessChunkBuffer chunk = new HeadlessChunkBuffer(chunkCoord);
+        for (int x = 0; x < ChunkCoordinate.CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < ChunkCoordinate.CHUNK_Z_SIZE; z++)
+            {
+                int terrainHeight = heightMap.getTerrainHeight(x, z);
+                int waterHeight = heightMap.getWaterHeight(x, z);
+                for (int y = 0; y <= terrainHeight; y++)
+                {
+                    if (y == 0)
+                    {
+                        chunk.setBlock(x, y, z, bedrock);
+                    }
+                    else if (y == terrainHeight)
+                    {
+                        chunk.setBlock(x, y, z, grass);
+                    }
+                    else if (y >= terrainHeight - 3)
+                    {
+                        chunk.setBlock(x, y, z, gravel);
+                    } else {
+                        chunk.setBlock(x, y, z, stone);
+                    }
+                }
+                for (int y = terrainHeight + 1; y <= waterHeight; y++)
+                {
+                    chunk.setBlock(x, y, z, water);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * @return The amount of blocks that were carved.
+     */
+    private static int assertSameBlocks(ChunkCoordinate chunkCoord, HeadlessChunkBuffer terrain, HeadlessChunkBuffer expected, HeadlessChunkBuffer actual)
+    {
+        int carvedBlocks = 0;
+        for (int x = 0; x < ChunkCoordinate.CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < ChunkCoordinate.CHUNK_Z_SIZE; z++)
+            {
+                for (int y = 0; y < PluginStandardValues.WORLD_HEIGHT; y++)
+                {
+                    LocalMaterialData expectedBlock = expected.getBlock(x, y, z);
+                    assertEquals("Block at " + x + "," + y + "," + z + " in chunk " + chunkCoord, expectedBlock, actual.getBlock(x, y, z));
+                    if (!expectedBlock.equals(terrain.getBlock(x, y, z)))
+                    {
+                        carvedBlocks++;
+                    }
+                }
+            }
+        }
+        return carvedBlocks;
+    }
+}
@@ -0,0 +1,62 @@
+package com.pg85.otg.benchmarks.headless;
+
+import com.pg85.otg.common.LocalBiome;
+import com.pg85.otg.configuration.biome.BiomeConfig;
+import com.pg85.otg.util.BiomeIds;
+
+/**
+ * Implementation of LocalBiome that only holds the BiomeConfig and ids of
+ * the biome.
+ */
+public class HeadlessBiome implements LocalBiome
+{
+    private final BiomeConfig biomeConfig;
+    private final BiomeIds biomeIds;
+
+    HeadlessBiome(BiomeConfig biomeConfig, BiomeIds biomeIds)
+    {
+        this.biomeConfig = biomeConfig;
+        this.biomeIds = biomeIds;
+    }
+
+    @Override
+    public boolean isCustom()
+    {
+        return true;
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.biomeConfig.getName();
+    }
+
+    @Override
+    public BiomeIds getIds()
+    {
+        return this.biomeIds;
+    }
+
+    @Override
+    public float getTemperatureAt(int x, int y, int z)
+    {
+        // Same as Minecraft, without the temperature noise
+        if (y > 64)
+        {
+            return this.biomeConfig.biomeTemperature - (y - 64) * 0.05F / 30.0F;
+        }
+        return this.biomeConfig.biomeTemperature;
+    }
+
+    @Override
+    public BiomeConfig getBiomeConfig()
+    {
+        return this.biomeConfig;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
@@ -0,0 +1,58 @@
+package com.pg85.otg.benchmarks.headless;
+
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.generator.ChunkBuffer;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.minecraft.defaults.DefaultMaterial;
+
+/**
+ * Implementation of {@link ChunkBuffer} that stores the blocks of a chunk in
+ * an array, used both for generating and as the chunk itself once it has
+ * been generated. Unset blocks are air.
+ */
+public class HeadlessChunkBuffer implements ChunkBuffer
+{
+    static final LocalMaterialData AIR = HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.AIR, 0);
+
+    private final ChunkCoordinate chunkCoord;
+    private final LocalMaterialData[] blocks = new LocalMaterialData[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE * PluginStandardValues.WORLD_HEIGHT];
+
+    public HeadlessChunkBuffer(ChunkCoordinate chunkCoord)
+    {
+        this.chunkCoord = chunkCoord;
+    }
+
+    @Override
+    public ChunkCoordinate getChunkCoordinate()
+    {
+        return this.chunkCoord;
+    }
+
+    @Override
+    public void setBlock(int blockX, int blockY, int blockZ, LocalMaterialData material)
+    {
+        this.blocks[getIndex(blockX, blockY, blockZ)] = material;
+    }
+
+    @Override
+    public LocalMaterialData getBlock(int blockX, int blockY, int blockZ)
+    {
+        LocalMaterialData material = this.blocks[getIndex(blockX, blockY, blockZ)];
+        return material == null ? AIR : material;
+    }
+
+    /**
+     * Copies all blocks of another chunk buffer into this one.
+     * @param other The chunk buffer to copy from.
+     */
+    public void copyFrom(HeadlessChunkBuffer other)
+    {
+        System.arraycopy(other.blocks, 0, this.blocks, 0, this.blocks.length);
+    }
+
+    private static int getIndex(int blockX, int blockY, int blockZ)
+    {
+        return (blockX << 12) | (blockZ << 8) | blockY;
+    }
+}
@@ -0,0 +1,161 @@
+package com.pg85.otg.benchmarks.headless;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.OTGEngine;
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.configuration.biome.BiomeConfigFinder.BiomeConfigStub;
+import com.pg85.otg.configuration.biome.BiomeLoadInstruction;
+import com.pg85.otg.configuration.dimensions.DimensionConfig;
+import com.pg85.otg.configuration.dimensions.DimensionsConfig;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.exception.InvalidConfigException;
+import com.pg85.otg.util.minecraft.defaults.DefaultBiome;
+import com.pg85.otg.util.minecraft.defaults.DefaultMaterial;
+
+/**
+ * Implementation of OTGEngine that runs without Minecraft, used by the
+ * benchmarks and tests. The OTG folder is read from the "otg.benchmark.root" system
+ * property, a temporary folder is used if it isn't set.
+ */
+public class HeadlessEngine extends OTGEngine
+{
+    public static final String ROOT_PROPERTY = "otg.benchmark.root";
+
+    private final File rootFolder;
+    private final HashMap<String, HeadlessWorld> worlds = new HashMap<String, HeadlessWorld>();
+
+    private HeadlessEngine(File rootFolder)
+    {
+        super(new HeadlessLogger());
+        this.rootFolder = rootFolder;
+    }
+
+    /**
+     * Starts the engine if it isn't running yet. There can only be one
+     * engine per JVM.
+     * @return The engine.
+     */
+    public static synchronized HeadlessEngine start()
+    {
+        if (OTG.getEngine() == null)
+        {
+            String root = System.getProperty(ROOT_PROPERTY);
+            File rootFolder;
+            if (root != null && root.trim().length() > 0)
+            {
+                rootFolder = new File(root);
+            } else {
+                rootFolder = new File(System.getProperty("java.io.tmpdir"), "otg-benchmarks");
+            }
+            rootFolder.mkdirs();
+            OTG.setEngine(new HeadlessEngine(rootFolder));
+
+            // Worlds are named after their preset, like Bukkit worlds
+            DimensionsConfig dimsConfig = new DimensionsConfig();
+            dimsConfig.Overworld = new DimensionConfig();
+            OTG.setDimensionsConfig(dimsConfig);
+        }
+        return (HeadlessEngine) OTG.getEngine();
+    }
+
+    /**
+     * Gets the world for the given preset, loading it the first time. If
+     * the preset doesn't exist, it is created with the default biomes.
+     * @param presetName The name of the preset.
+     * @param seed       The seed of the world.
+     * @return The world.
+     */
+    public synchronized HeadlessWorld getOrCreateWorld(String presetName, long seed)
+    {
+        HeadlessWorld world = this.worlds.get(presetName);
+        if (world == null)
+        {
+            world = new HeadlessWorld(presetName, seed, new File(getWorldsDirectory(), presetName), new File(new File(this.rootFolder, "saves"), presetName));
+            this.worlds.put(presetName, world);
+        }
+        return world;
+    }
+
+    @Override
+    public File getOTGRootFolder()
+    {
+        return this.rootFolder;
+    }
+
+    @Override
+    public File getGlobalObjectsDirectory()
+    {
+        return new File(this.getOTGRootFolder(), PluginStandardValues.BO_DirectoryName);
+    }
+
+    @Override
+    public File getWorldsDirectory()
+    {
+        return new File(this.getOTGRootFolder(), PluginStandardValues.PresetsDirectoryName);
+    }
+
+    @Override
+    public synchronized LocalWorld getWorld(String name)
+    {
+        return this.worlds.get(name);
+    }
+
+    @Override
+    public LocalWorld getUnloadedWorld(String name)
+    {
+        return null;
+    }
+
+    @Override
+    public synchronized ArrayList<LocalWorld> getAllWorlds()
+    {
+        return new ArrayList<LocalWorld>(this.worlds.values());
+    }
+
+    @Override
+    public LocalMaterialData readMaterial(String name) throws InvalidConfigException
+    {
+        return HeadlessMaterialData.ofString(name);
+    }
+
+    @Override
+    public LocalMaterialData toLocalMaterialData(DefaultMaterial defaultMaterial, int blockData)
+    {
+        return HeadlessMaterialData.ofDefaultMaterial(defaultMaterial, blockData);
+    }
+
+    @Override
+    public boolean isModLoaded(String mod)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean areEnoughBiomeIdsAvailableForPresets(ArrayList<String> presetNames)
+    {
+        return true;
+    }
+
+    @Override
+    public Collection<BiomeLoadInstruction> getDefaultBiomes()
+    {
+        // Loop through all default biomes and create the default
+        // settings for them
+        List<BiomeLoadInstruction> standardBiomes = new ArrayList<BiomeLoadInstruction>();
+        for (DefaultBiome defaultBiome : DefaultBiome.values())
+        {
+            standardBiomes.add(defaultBiome.getLoadInstructions(new HeadlessMojangSettings(defaultBiome.Id), HeadlessWorld.STANDARD_WORLD_HEIGHT));
+        }
+        return standardBiomes;
+    }
+
+    @Override
+    public void mergeVanillaBiomeMobSpawnSettings(BiomeConfigStub biomeConfigStub, String biomeResourceLocation) { }
+}
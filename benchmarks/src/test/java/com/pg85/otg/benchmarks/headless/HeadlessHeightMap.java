@@ -0,0 +1,73 @@
+package com.pg85.otg.benchmarks.headless;
+
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Terrain and water height of each column of a chunk, read from the chunk
+ * as generated by ChunkProviderOTG without structures. Used to build
+ * simplified terrain for the tests and benchmarks.
+ */
+public final class HeadlessHeightMap
+{
+    private final short[] terrainHeight = new short[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE];
+    private final short[] waterHeight = new short[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE];
+
+    public HeadlessHeightMap(HeadlessWorld world, ChunkCoordinate chunkCoord)
+    {
+        HeadlessChunkBuffer chunk = new HeadlessChunkBuffer(chunkCoord);
+        world.getChunkProvider().generateWithoutStructures(chunk);
+
+        LocalMaterialData material;
+        for (int x = 0; x < ChunkCoordinate.CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < ChunkCoordinate.CHUNK_Z_SIZE; z++)
+            {
+                int terrainHeight = -1;
+                int waterHeight = -1;
+                for (int y = PluginStandardValues.WORLD_HEIGHT - 1; y >= 0; y--)
+                {
+                    material = chunk.getBlock(x, y, z);
+                    if (material.isLiquid())
+                    {
+                        if (waterHeight == -1)
+                        {
+                            waterHeight = y;
+                        }
+                    }
+                    else if (material.isSolid())
+                    {
+                        terrainHeight = y;
+                        break;
+                    }
+                }
+                this.terrainHeight[z * ChunkCoordinate.CHUNK_X_SIZE + x] = (short) terrainHeight;
+                this.waterHeight[z * ChunkCoordinate.CHUNK_X_SIZE + x] = (short) waterHeight;
+            }
+        }
+    }
+
+    /**
+     * Gets the highest solid block in a column.
+     * @param x X position in the chunk, 0 <= x < 16.
+     * @param z Z position in the chunk, 0 <= z < 16.
+     * @return The y of the highest solid block, or -1 if there is none.
+     */
+    public int getTerrainHeight(int x, int z)
+    {
+        return this.terrainHeight[z * ChunkCoordinate.CHUNK_X_SIZE + x];
+    }
+
+    /**
+     * Gets the highest liquid block above the terrain in a column.
+     * @param x X position in the chunk, 0 <= x < 16.
+     * @param z Z position in the chunk, 0 <= z < 16.
+     * @return The y of the highest liquid block, or -1 if there is no
+     *         liquid above the terrain.
+     */
+    public int getWaterHeight(int x, int z)
+    {
+        return this.waterHeight[z * ChunkCoordinate.CHUNK_X_SIZE + x];
+    }
+}
@@ -0,0 +1,37 @@
+package com.pg85.otg.benchmarks.headless;
+
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.logging.LogMarker;
+import com.pg85.otg.logging.Logger;
+
+/**
+ * Implementation of {@link Logger} that prints to the standard error stream,
+ * so log messages don't end up in the benchmark results.
+ */
+public class HeadlessLogger extends Logger
+{
+    private final String logPrefix = "[" + PluginStandardValues.PLUGIN_NAME_SHORT + "] ";
+
+    @Override
+    public void log(LogMarker level, String message, Object... params)
+    {
+        if (minimumLevel.compareTo(level) < 0)
+        {
+            // Only log messages that we want to see...
+            return;
+        }
+
+        // Same "{}" placeholders as log4j
+        StringBuilder formatted = new StringBuilder(this.logPrefix).append(level).append(' ');
+        int start = 0;
+        int param = 0;
+        int index;
+        while (params != null && param < params.length && (index = message.indexOf("{}", start)) != -1)
+        {
+            formatted.append(message, start, index).append(params[param++]);
+            start = index + 2;
+        }
+        formatted.append(message.substring(start));
+        System.err.println(formatted);
+    }
+}
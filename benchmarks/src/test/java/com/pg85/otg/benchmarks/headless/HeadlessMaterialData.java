@@ -0,0 +1,330 @@
+package com.pg85.otg.benchmarks.headless;
+
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.exception.InvalidConfigException;
+import com.pg85.otg.util.helpers.BlockHelper;
+import com.pg85.otg.util.minecraft.defaults.DefaultMaterial;
+
+/**
+ * Implementation of LocalMaterialData that only knows the materials in
+ * {@link DefaultMaterial}, so it can be used without Minecraft. Follows
+ * BukkitMaterialData where possible. Unknown (modded) materials are parsed
+ * through the world's fallbacks, and become empty if there is no fallback.
+ */
+public class HeadlessMaterialData implements LocalMaterialData
+{
+    private static final String MINECRAFT_PREFIX = "minecraft:";
+
+    /**
+     * Block id and data, calculated as {@code blockId << 4 | blockData},
+     * -1 for unknown materials.
+     */
+    private int combinedBlockId;
+    private DefaultMaterial defaultMaterial;
+    private String rawEntry;
+    private boolean isBlank = false;
+    private boolean checkFallbacks;
+
+    private HeadlessMaterialData(int blockId, int blockData)
+    {
+        this.combinedBlockId = blockId << 4 | blockData;
+    }
+
+    private HeadlessMaterialData(String input)
+    {
+        this.combinedBlockId = -1;
+        this.rawEntry = input;
+        this.checkFallbacks = true;
+    }
+
+    public static HeadlessMaterialData getBlank()
+    {
+        HeadlessMaterialData material = new HeadlessMaterialData(null);
+        material.isBlank = true;
+        material.checkFallbacks = false;
+        return material;
+    }
+
+    public static LocalMaterialData ofString(String input) throws InvalidConfigException
+    {
+        // Used in BO4's as placeholder/detector block.
+        if(input.toLowerCase().equals("blank"))
+        {
+            return HeadlessMaterialData.getBlank();
+        }
+
+        String blockName = input;
+        int blockData = 0;
+
+        // Minecraft names, "minecraft:stone" or "minecraft:wool:1"
+        if(blockName.toLowerCase().startsWith(MINECRAFT_PREFIX))
+        {
+            blockName = blockName.substring(MINECRAFT_PREFIX.length());
+        }
+
+        // When there is a . or a : in the name, extract block data
+        int splitIndex = blockName.lastIndexOf(":");
+        if (splitIndex == -1)
+        {
+            splitIndex = blockName.lastIndexOf(".");
+        }
+        if (splitIndex != -1)
+        {
+            try
+            {
+                blockData = Integer.parseInt(blockName.substring(splitIndex + 1));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new InvalidConfigException("Unknown material: " + input);
+            }
+            if(blockData < 0 || blockData > 15)
+            {
+                throw new InvalidConfigException("Illegal block data for the block type, cannot use " + input);
+            }
+            blockName = blockName.substring(0, splitIndex);
+        }
+
+        DefaultMaterial defaultMaterial = DefaultMaterial.getMaterial(blockName);
+        if (defaultMaterial != DefaultMaterial.UNKNOWN_BLOCK)
+        {
+            return ofDefaultMaterial(defaultMaterial, blockData);
+        }
+
+        // Failed, try parsing later as a fallback.
+        return new HeadlessMaterialData(input);
+    }
+
+    public static HeadlessMaterialData ofIds(int id, int data)
+    {
+        return new HeadlessMaterialData(id, data);
+    }
+
+    public static HeadlessMaterialData ofDefaultMaterial(DefaultMaterial material, int data)
+    {
+        return ofIds(material.id, data);
+    }
+
+    @Override
+    public LocalMaterialData withBlockData(int i)
+    {
+        if (i == getBlockData())
+        {
+            return this;
+        }
+        return ofIds(getBlockId(), i);
+    }
+
+    @Override
+    public LocalMaterialData withDefaultBlockData()
+    {
+        return this.withBlockData(0);
+    }
+
+    @Override
+    public byte getBlockData()
+    {
+        return (byte) (this.combinedBlockId & 15);
+    }
+
+    @Override
+    public int getBlockId()
+    {
+        return this.combinedBlockId >> 4;
+    }
+
+    @Override
+    public String getName()
+    {
+        if(this.isBlank)
+        {
+            return "BLANK";
+        }
+        if(this.combinedBlockId == -1)
+        {
+            return "Unknown";
+        }
+        byte data = getBlockData();
+        return toDefaultMaterial().name() + (data == 0 ? "" : ":" + data);
+    }
+
+    @Override
+    public boolean isMaterial(DefaultMaterial material)
+    {
+        return material.id == getBlockId();
+    }
+
+    @Override
+    public boolean isLiquid()
+    {
+        return toDefaultMaterial().isLiquid();
+    }
+
+    @Override
+    public boolean isSolid()
+    {
+        return toDefaultMaterial().isSolid();
+    }
+
+    @Override
+    public boolean isEmptyOrAir()
+    {
+        return this.combinedBlockId == -1 || this.combinedBlockId == 0;
+    }
+
+    @Override
+    public boolean isAir()
+    {
+        return this.combinedBlockId == 0;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.combinedBlockId == -1;
+    }
+
+    @Override
+    public boolean canFall()
+    {
+        DefaultMaterial defaultMaterial = toDefaultMaterial();
+        return
+            defaultMaterial == DefaultMaterial.SAND ||
+            defaultMaterial == DefaultMaterial.GRAVEL ||
+            defaultMaterial == DefaultMaterial.ANVIL ||
+            defaultMaterial == DefaultMaterial.DRAGON_EGG ||
+            defaultMaterial == DefaultMaterial.CONCRETE_POWDER;
+    }
+
+    @Override
+    public boolean canSnowFallOn()
+    {
+        return toDefaultMaterial().canSnowFallOn();
+    }
+
+    @Override
+    public boolean isSmoothAreaAnchor(boolean allowWood, boolean ignoreWater)
+    {
+        DefaultMaterial defaultMaterial = this.toDefaultMaterial();
+        return
+            (
+                defaultMaterial.equals(DefaultMaterial.ICE) ||
+                defaultMaterial.equals(DefaultMaterial.PACKED_ICE) ||
+                defaultMaterial.equals(DefaultMaterial.FROSTED_ICE) ||
+                (
+                    isSolid() ||
+                    (
+                        !ignoreWater && isLiquid()
+                    )
+                )
+            ) &&
+            (
+                allowWood ||
+                !(
+                    defaultMaterial.equals(DefaultMaterial.LOG) ||
+                    defaultMaterial.equals(DefaultMaterial.LOG_2)
+                )
+            ) &&
+            !defaultMaterial.equals(DefaultMaterial.WATER_LILY);
+    }
+
+    @Override
+    public LocalMaterialData rotate()
+    {
+        return rotate(1);
+    }
+
+    @Override
+    public LocalMaterialData rotate(int rotateTimes)
+    {
+        DefaultMaterial defaultMaterial = toDefaultMaterial();
+        if (defaultMaterial != DefaultMaterial.UNKNOWN_BLOCK)
+        {
+            int newData = getBlockData();
+            for(int i = 0; i < rotateTimes; i++)
+            {
+                newData = BlockHelper.rotateData(defaultMaterial, newData);
+            }
+            if (newData != getBlockData())
+            {
+                return ofDefaultMaterial(defaultMaterial, newData);
+            }
+        }
+
+        // No changes, return object itself
+        return this;
+    }
+
+    @Override
+    public LocalMaterialData parseForWorld(LocalWorld world)
+    {
+        if (this.checkFallbacks)
+        {
+            this.checkFallbacks = false;
+            LocalMaterialData fallback = world.getConfigs().getWorldConfig().parseFallback(this.rawEntry);
+            if(fallback instanceof HeadlessMaterialData)
+            {
+                this.combinedBlockId = ((HeadlessMaterialData)fallback).combinedBlockId;
+                this.defaultMaterial = null;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DefaultMaterial toDefaultMaterial()
+    {
+        if(this.defaultMaterial == null)
+        {
+            if(this.combinedBlockId == -1)
+            {
+                this.defaultMaterial = DefaultMaterial.UNKNOWN_BLOCK;
+            } else {
+                this.defaultMaterial = DefaultMaterial.getMaterial(getBlockId());
+            }
+        }
+        return this.defaultMaterial;
+    }
+
+    @Override
+    public boolean isParsed()
+    {
+        return !this.checkFallbacks;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        // From 4096 to 69632 when there are 4096 block ids
+        return PluginStandardValues.SUPPORTED_BLOCK_IDS + this.combinedBlockId;
+    }
+
+    @Override
+    public int hashCodeWithoutBlockData()
+    {
+        // From 0 to 4095 when there are 4096 block ids
+        return getBlockId();
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof HeadlessMaterialData))
+        {
+            return false;
+        }
+        return this.combinedBlockId == ((HeadlessMaterialData) obj).combinedBlockId;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
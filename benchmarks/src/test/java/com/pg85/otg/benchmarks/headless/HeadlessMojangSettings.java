@@ -0,0 +1,151 @@
+package com.pg85.otg.benchmarks.headless;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.configuration.biome.settings.WeightedMobSpawnGroup;
+import com.pg85.otg.configuration.standard.MojangSettings;
+import com.pg85.otg.util.minecraft.defaults.DefaultMaterial;
+
+/**
+ * Vanilla settings of the default biomes, copied from Minecraft 1.12's
+ * Biomes class so default presets can be created without Minecraft. Mutated
+ * biomes use the settings of the biome they are a variant of, mob spawn
+ * lists are always empty.
+ */
+public final class HeadlessMojangSettings implements MojangSettings
+{
+    // Surface height, surface volatility, temperature, wetness, by biome id
+    private static final float[][] SETTINGS = {
+        {-1.0F, 0.1F, 0.5F, 0.5F},      // Ocean
+        {0.125F, 0.05F, 0.8F, 0.4F},    // Plains
+        {0.125F, 0.05F, 2.0F, 0.0F},    // Desert
+        {1.0F, 0.5F, 0.2F, 0.3F},       // Extreme Hills
+        {0.1F, 0.2F, 0.7F, 0.8F},       // Forest
+        {0.2F, 0.2F, 0.25F, 0.8F},      // Taiga
+        {-0.2F, 0.1F, 0.8F, 0.9F},      // Swampland
+        {-0.5F, 0.0F, 0.5F, 0.5F},      // River
+        {0.1F, 0.2F, 2.0F, 0.0F},       // Hell
+        {0.1F, 0.2F, 0.5F, 0.5F},       // Sky
+        {-1.0F, 0.1F, 0.0F, 0.5F},      // FrozenOcean
+        {-0.5F, 0.0F, 0.0F, 0.5F},      // FrozenRiver
+        {0.125F, 0.05F, 0.0F, 0.5F},    // Ice Plains
+        {0.45F, 0.3F, 0.0F, 0.5F},      // Ice Mountains
+        {0.2F, 0.3F, 0.9F, 1.0F},       // MushroomIsland
+        {0.0F, 0.025F, 0.9F, 1.0F},     // MushroomIslandShore
+        {0.0F, 0.025F, 0.8F, 0.4F},     // Beach
+        {0.45F, 0.3F, 2.0F, 0.0F},      // DesertHills
+        {0.45F, 0.3F, 0.7F, 0.8F},      // ForestHills
+        {0.45F, 0.3F, 0.25F, 0.8F},     // TaigaHills
+        {0.8F, 0.3F, 0.2F, 0.3F},       // Extreme Hills Edge
+        {0.1F, 0.2F, 0.95F, 0.9F},      // Jungle
+        {0.45F, 0.3F, 0.95F, 0.9F},     // JungleHills
+        {0.1F, 0.2F, 0.95F, 0.8F},      // JungleEdge
+        {-1.8F, 0.1F, 0.5F, 0.5F},      // Deep Ocean
+        {0.1F, 0.8F, 0.2F, 0.3F},       // Stone Beach
+        {0.0F, 0.025F, 0.05F, 0.3F},    // Cold Beach
+        {0.1F, 0.2F, 0.6F, 0.6F},       // Birch Forest
+        {0.45F, 0.3F, 0.6F, 0.6F},      // Birch Forest Hills
+        {0.1F, 0.2F, 0.7F, 0.8F},       // Roofed Forest
+        {0.2F, 0.2F, -0.5F, 0.4F},      // Cold Taiga
+        {0.45F, 0.3F, -0.5F, 0.4F},     // Cold Taiga Hills
+        {0.2F, 0.2F, 0.3F, 0.8F},       // Mega Taiga
+        {0.45F, 0.3F, 0.3F, 0.8F},      // Mega Taiga Hills
+        {1.0F, 0.5F, 0.2F, 0.3F},       // Extreme Hills+
+        {0.125F, 0.05F, 1.2F, 0.0F},    // Savanna
+        {1.5F, 0.025F, 1.0F, 0.0F},     // Savanna Plateau
+        {0.1F, 0.2F, 2.0F, 0.0F},       // Mesa
+        {1.5F, 0.025F, 2.0F, 0.0F},     // Mesa Plateau F
+        {1.5F, 0.025F, 2.0F, 0.0F},     // Mesa Plateau
+    };
+    private static final float[] DEFAULT_SETTINGS = {0.1F, 0.2F, 0.5F, 0.5F};
+
+    private final int biomeId;
+    private final float[] settings;
+
+    public HeadlessMojangSettings(int biomeId)
+    {
+        // Mutated biomes are 128 higher than the biome they're based on
+        this.biomeId = biomeId >= 128 ? biomeId - 128 : biomeId;
+        // Biomes like The Void use Minecraft's defaults
+        this.settings = this.biomeId >= 0 && this.biomeId < SETTINGS.length ? SETTINGS[this.biomeId] : DEFAULT_SETTINGS;
+    }
+
+    @Override
+    public float getTemperature()
+    {
+        return this.settings[2];
+    }
+
+    @Override
+    public float getWetness()
+    {
+        return this.settings[3];
+    }
+
+    @Override
+    public float getSurfaceHeight()
+    {
+        return this.settings[0];
+    }
+
+    @Override
+    public float getSurfaceVolatility()
+    {
+        return this.settings[1];
+    }
+
+    @Override
+    public LocalMaterialData getSurfaceBlock()
+    {
+        switch (this.biomeId)
+        {
+            case 2:
+            case 16:
+            case 17:
+            case 26:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.SAND, 0);
+            case 9:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.DIRT, 0);
+            case 14:
+            case 15:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.MYCEL, 0);
+            case 25:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.STONE, 0);
+            case 37:
+            case 38:
+            case 39:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.SAND, 1);
+            default:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.GRASS, 0);
+        }
+    }
+
+    @Override
+    public LocalMaterialData getGroundBlock()
+    {
+        switch (this.biomeId)
+        {
+            case 2:
+            case 16:
+            case 17:
+            case 26:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.SAND, 0);
+            case 25:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.STONE, 0);
+            case 37:
+            case 38:
+            case 39:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.STAINED_CLAY, 1);
+            default:
+                return HeadlessMaterialData.ofDefaultMaterial(DefaultMaterial.DIRT, 0);
+        }
+    }
+
+    @Override
+    public List<WeightedMobSpawnGroup> getMobSpawnGroup(EntityCategory entityCategory)
+    {
+        return new ArrayList<WeightedMobSpawnGroup>();
+    }
+}
@@ -0,0 +1,644 @@
+package com.pg85.otg.benchmarks.headless;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.common.LocalBiome;
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.common.PopulationArea;
+import com.pg85.otg.common.WorldSession;
+import com.pg85.otg.configuration.biome.BiomeConfig;
+import com.pg85.otg.configuration.biome.settings.ReplacedBlocksMatrix;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.configuration.world.WorldConfig;
+import com.pg85.otg.customobjects.SpawnableObject;
+import com.pg85.otg.customobjects.bofunctions.EntityFunction;
+import com.pg85.otg.customobjects.structures.CustomStructureCache;
+import com.pg85.otg.generator.ChunkBuffer;
+import com.pg85.otg.generator.ChunkProviderOTG;
+import com.pg85.otg.generator.ObjectSpawner;
+import com.pg85.otg.generator.biome.BiomeGenerator;
+import com.pg85.otg.network.ConfigProvider;
+import com.pg85.otg.network.ServerConfigProvider;
+import com.pg85.otg.util.BiomeIds;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.minecraft.defaults.BiomeRegistryNames;
+import com.pg85.otg.util.minecraft.defaults.DefaultBiome;
+import com.pg85.otg.util.minecraft.defaults.DefaultMaterial;
+import com.pg85.otg.util.minecraft.defaults.TreeType;
+
+/**
+ * Implementation of LocalWorld that keeps its chunks in memory, used to run
+ * the generator without Minecraft. Chunks are generated the first time
+ * they're accessed, the same way Minecraft generates chunks when OTG
+ * accesses them during population.
+ *
+ * Vanilla features that need Minecraft (trees, dungeons, fossils, default
+ * structures, mobs and entities) are not placed. Not thread-safe.
+ */
+public class HeadlessWorld implements LocalWorld
+{
+    public static final int MAX_BIOMES_COUNT = 4096;
+    public static final int MAX_SAVED_BIOMES_COUNT = 256;
+    public static final int STANDARD_WORLD_HEIGHT = 128;
+
+    private final String name;
+    private final long seed;
+    private final File worldSaveDir;
+    private final HashMap<String, LocalBiome> biomeNames = new HashMap<String, LocalBiome>();
+    private final HashMap<ChunkCoordinate, HeadlessChunkBuffer> chunks = new HashMap<ChunkCoordinate, HeadlessChunkBuffer>();
+
+    private final ServerConfigProvider settings;
+    private final WorldSession worldSession;
+    private final BiomeGenerator biomeGenerator;
+    private final ChunkProviderOTG chunkProvider;
+    private final ObjectSpawner objectSpawner;
+    private final CustomStructureCache structureCache;
+
+    private ChunkCoordinate chunkBeingPopulated;
+    private int blockEditDepth = 0;
+
+    HeadlessWorld(String name, long seed, File settingsDir, File worldSaveDir)
+    {
+        this.name = name;
+        this.seed = seed;
+        this.worldSaveDir = worldSaveDir;
+        this.worldSaveDir.mkdirs();
+
+        this.settings = new ServerConfigProvider(settingsDir, this, worldSaveDir);
+        this.worldSession = new HeadlessWorldSession(this);
+        this.biomeGenerator = OTG.getBiomeModeManager().createCached(this.settings.getWorldConfig().biomeMode, this);
+        this.chunkProvider = new ChunkProviderOTG(this.settings, this);
+        this.objectSpawner = new ObjectSpawner(this.settings, this);
+        this.structureCache = new CustomStructureCache(this);
+    }
+
+    public ChunkProviderOTG getChunkProvider()
+    {
+        return this.chunkProvider;
+    }
+
+    /**
+     * Gets the chunk at the given chunk coordinates, generating it if it
+     * doesn't exist yet.
+     */
+    public HeadlessChunkBuffer getOrGenerateChunk(ChunkCoordinate chunkCoord)
+    {
+        HeadlessChunkBuffer chunk = this.chunks.get(chunkCoord);
+        if (chunk == null)
+        {
+            chunk = new HeadlessChunkBuffer(chunkCoord);
+            this.chunkProvider.generate(chunk);
+            this.chunks.put(chunkCoord, chunk);
+        }
+        return chunk;
+    }
+
+    public boolean isChunkGenerated(ChunkCoordinate chunkCoord)
+    {
+        return this.chunks.containsKey(chunkCoord);
+    }
+
+    /**
+     * Removes all generated chunks, so they are generated again when
+     * accessed.
+     */
+    public void unloadAllChunks()
+    {
+        this.chunks.clear();
+    }
+
+    /**
+     * Gets the chunk with the given block, or null if it may not be accessed
+     * right now. Generates the chunk if needed, unless another area is being
+     * populated.
+     */
+    private HeadlessChunkBuffer getChunk(int x, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        ChunkCoordinate chunkCoord = ChunkCoordinate.fromBlockCoords(x, z);
+        if (chunkBeingPopulated == null || OTG.IsInAreaBeingPopulated(x, z, chunkBeingPopulated))
+        {
+            return getOrGenerateChunk(chunkCoord);
+        }
+        return this.chunks.get(chunkCoord);
+    }
+
+    // World properties
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public String getWorldSettingsName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public int getDimensionId()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getSeed()
+    {
+        return this.seed;
+    }
+
+    @Override
+    public File getWorldSaveDir()
+    {
+        return this.worldSaveDir;
+    }
+
+    @Override
+    public ConfigProvider getConfigs()
+    {
+        return this.settings;
+    }
+
+    @Override
+    public ObjectSpawner getObjectSpawner()
+    {
+        return this.objectSpawner;
+    }
+
+    @Override
+    public CustomStructureCache getStructureCache()
+    {
+        return this.structureCache;
+    }
+
+    @Override
+    public WorldSession getWorldSession()
+    {
+        return this.worldSession;
+    }
+
+    @Override
+    public void deleteWorldSessionData() { }
+
+    @Override
+    public int getHeightCap()
+    {
+        return this.settings.getWorldConfig().worldHeightCap;
+    }
+
+    @Override
+    public int getHeightScale()
+    {
+        return this.settings.getWorldConfig().worldHeightScale;
+    }
+
+    // Biomes
+
+    @Override
+    public BiomeGenerator getBiomeGenerator()
+    {
+        return this.biomeGenerator;
+    }
+
+    @Override
+    public LocalBiome createBiomeFor(BiomeConfig biomeConfig, BiomeIds biomeIds, ConfigProvider configProvider, boolean isReload)
+    {
+        // New biomes don't have a saved id yet, in Minecraft they'd be
+        // registered with their OTG id.
+        if (biomeIds.getSavedId() == -1)
+        {
+            biomeIds = new BiomeIds(biomeIds.getOTGBiomeId(), biomeIds.getOTGBiomeId());
+        }
+        HeadlessBiome biome = new HeadlessBiome(biomeConfig, biomeIds);
+        this.biomeNames.put(biome.getName(), biome);
+        return biome;
+    }
+
+    @Override
+    public int getMaxBiomesCount()
+    {
+        return MAX_BIOMES_COUNT;
+    }
+
+    @Override
+    public int getMaxSavedBiomesCount()
+    {
+        return MAX_SAVED_BIOMES_COUNT;
+    }
+
+    @Override
+    public ArrayList<LocalBiome> getAllBiomes()
+    {
+        ArrayList<LocalBiome> biomes = new ArrayList<LocalBiome>();
+        for(LocalBiome biome : this.settings.getBiomeArrayByOTGId())
+        {
+            if(biome != null)
+            {
+                biomes.add(biome);
+            }
+        }
+        return biomes;
+    }
+
+    @Override
+    public LocalBiome getBiomeByOTGIdOrNull(int id)
+    {
+        return this.settings.getBiomeByOTGIdOrNull(id);
+    }
+
+    @Override
+    public LocalBiome getFirstBiomeOrNull()
+    {
+        return this.biomeNames.size() > 0 ? this.biomeNames.values().iterator().next() : null;
+    }
+
+    @Override
+    public LocalBiome getBiomeByNameOrNull(String name)
+    {
+        return this.biomeNames.get(name);
+    }
+
+    @Override
+    public LocalBiome getBiome(int x, int z)
+    {
+        return getCalculatedBiome(x, z);
+    }
+
+    @Override
+    public String getSavedBiomeName(int x, int z)
+    {
+        BiomeConfig biomeConfig = getBiome(x, z).getBiomeConfig();
+        if(biomeConfig.replaceToBiomeName == null || biomeConfig.replaceToBiomeName.trim().length() == 0)
+        {
+            return biomeConfig.getName();
+        }
+        return biomeConfig.replaceToBiomeName;
+    }
+
+    @Override
+    public LocalBiome getCalculatedBiome(int x, int z)
+    {
+        return getBiomeByOTGIdOrNull(this.biomeGenerator.getBiome(x, z));
+    }
+
+    @Override
+    public int getRegisteredBiomeId(String resourceLocation)
+    {
+        // Only the vanilla biomes are registered
+        for (DefaultBiome defaultBiome : DefaultBiome.values())
+        {
+            if (resourceLocation.equals(BiomeRegistryNames.getRegistryNameForDefaultBiome(defaultBiome.Name)))
+            {
+                return defaultBiome.Id;
+            }
+        }
+        return -1;
+    }
+
+    // Default generators
+
+    @Override
+    public void prepareDefaultStructures(int chunkX, int chunkZ, boolean dry) { }
+
+    @Override
+    public boolean placeDungeon(Random rand, int x, int y, int z)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean placeFossil(Random rand, ChunkCoordinate chunkCoord)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean placeTree(TreeType type, Random rand, int x, int y, int z)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean placeDefaultStructures(Random rand, ChunkCoordinate chunkCoord)
+    {
+        return false;
+    }
+
+    @Override
+    public SpawnableObject getMojangStructurePart(String name)
+    {
+        return null;
+    }
+
+    @Override
+    public boolean chunkHasDefaultStructure(Random rand, ChunkCoordinate chunk)
+    {
+        return false;
+    }
+
+    // Mobs / entities
+
+    @Override
+    public void placePopulationMobs(LocalBiome biome, Random random, ChunkCoordinate chunkCoord) { }
+
+    @Override
+    public void spawnEntity(EntityFunction<?> entityData, ChunkCoordinate chunkBeingPopulated) { }
+
+    // Population start and end
+
+    @Override
+    public void startPopulation(ChunkCoordinate chunkCoord)
+    {
+        if (this.chunkBeingPopulated != null)
+        {
+            throw new IllegalStateException("Already being populated: " + this.chunkBeingPopulated);
+        }
+        this.chunkBeingPopulated = chunkCoord;
+    }
+
+    @Override
+    public void endPopulation()
+    {
+        if (this.chunkBeingPopulated == null)
+        {
+            throw new IllegalStateException("Not populating");
+        }
+        this.chunkBeingPopulated = null;
+    }
+
+    // Blocks are written straight into the chunk buffers, so there is
+    // nothing to do for block edit sessions except checking the nesting.
+
+    @Override
+    public void beginBlockEdits()
+    {
+        this.blockEditDepth++;
+    }
+
+    @Override
+    public void commitBlockEdits()
+    {
+        if (this.blockEditDepth == 0)
+        {
+            throw new IllegalStateException("No block edit session was started");
+        }
+        this.blockEditDepth--;
+    }
+
+    @Override
+    public PopulationArea getPopulationArea(ChunkCoordinate chunkBeingPopulated)
+    {
+        return new PopulationArea(this, chunkBeingPopulated);
+    }
+
+    // Blocks
+
+    @Override
+    public LocalMaterialData getMaterial(int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        if (y >= PluginStandardValues.WORLD_HEIGHT || y < PluginStandardValues.WORLD_DEPTH)
+        {
+            return null;
+        }
+        HeadlessChunkBuffer chunk = getChunk(x, z, chunkBeingPopulated);
+        if (chunk == null)
+        {
+            return null;
+        }
+        return chunk.getBlock(x & 0xF, y, z & 0xF);
+    }
+
+    @Override
+    public int getBlockAboveLiquidHeight(int x, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        int highestY = getHighestBlockYAt(x, z, false, true, false, false, false, chunkBeingPopulated);
+        if(highestY > 0)
+        {
+            highestY += 1;
+        } else {
+            highestY = -1;
+        }
+        return highestY;
+    }
+
+    @Override
+    public int getBlockAboveSolidHeight(int x, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        int highestY = getHighestBlockYAt(x, z, true, false, true, true, false, chunkBeingPopulated);
+        if(highestY > 0)
+        {
+            highestY += 1;
+        } else {
+            highestY = -1;
+        }
+        return highestY;
+    }
+
+    @Override
+    public int getHighestBlockAboveYAt(int x, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        return getHighestBlockYAt(x, z, true, true, false, false, false, chunkBeingPopulated) + 1;
+    }
+
+    @Override
+    public int getHighestBlockYAt(int x, int z, boolean findSolid, boolean findLiquid, boolean ignoreLiquid, boolean ignoreSnow, boolean ignoreLeaves, ChunkCoordinate chunkBeingPopulated)
+    {
+        HeadlessChunkBuffer chunk = getChunk(x, z, chunkBeingPopulated);
+        if (chunk == null)
+        {
+            return -1;
+        }
+
+        int internalX = x & 0xF;
+        int internalZ = z & 0xF;
+        LocalMaterialData material;
+        boolean isSolid;
+        boolean isLiquid;
+        for (int y = PluginStandardValues.WORLD_HEIGHT - 1; y >= 0; y--)
+        {
+            material = chunk.getBlock(internalX, y, internalZ);
+            if (material.isAir())
+            {
+                continue;
+            }
+            isLiquid = material.isLiquid();
+            isSolid =
+                material.isSolid() ||
+                (!ignoreLeaves && material.isMaterial(DefaultMaterial.LEAVES)) ||
+                (!ignoreLeaves && material.isMaterial(DefaultMaterial.LEAVES_2)) ||
+                (!ignoreSnow && material.isMaterial(DefaultMaterial.SNOW));
+            if(!(ignoreLiquid && isLiquid))
+            {
+                if((findSolid && isSolid) || (findLiquid && isLiquid))
+                {
+                    return y;
+                }
+                if((findSolid && isLiquid) || (findLiquid && isSolid))
+                {
+                    // Found an illegal block (liquid when looking for solid, or vice-versa)
+                    return -1;
+                }
+            }
+        }
+
+        // Can happen if this is a chunk filled with air
+        return -1;
+    }
+
+    @Override
+    public int getHeightMapHeight(int x, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        HeadlessChunkBuffer chunk = getChunk(x, z, chunkBeingPopulated);
+        if (chunk == null)
+        {
+            return -1;
+        }
+        int internalX = x & 0xF;
+        int internalZ = z & 0xF;
+        for (int y = PluginStandardValues.WORLD_HEIGHT - 1; y >= 0; y--)
+        {
+            if (!chunk.getBlock(internalX, y, internalZ).isAir())
+            {
+                return y + 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int getLightLevel(int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        if(y < PluginStandardValues.WORLD_DEPTH || y >= PluginStandardValues.WORLD_HEIGHT)
+        {
+            return -1;
+        }
+        if (getChunk(x, z, chunkBeingPopulated) == null)
+        {
+            return -1;
+        }
+        // Sky light as if it were day, there is no block light
+        return y >= getHeightMapHeight(x, z, chunkBeingPopulated) ? 15 : 0;
+    }
+
+    @Override
+    public void setBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, ChunkCoordinate chunkBeingPopulated)
+    {
+        if(y < PluginStandardValues.WORLD_DEPTH || y >= PluginStandardValues.WORLD_HEIGHT)
+        {
+            return;
+        }
+        if(chunkBeingPopulated == null || OTG.IsInAreaBeingPopulated(x, z, chunkBeingPopulated))
+        {
+            getOrGenerateChunk(ChunkCoordinate.fromBlockCoords(x, z)).setBlock(x & 0xF, y, z & 0xF, material);
+        }
+    }
+
+    @Override
+    public LocalMaterialData[] getBlockColumnInUnloadedChunk(int x, int z)
+    {
+        HeadlessChunkBuffer chunk = getOrGenerateChunk(ChunkCoordinate.fromBlockCoords(x, z));
+        LocalMaterialData[] column = new LocalMaterialData[PluginStandardValues.WORLD_HEIGHT];
+        for (int y = 0; y < PluginStandardValues.WORLD_HEIGHT; y++)
+        {
+            column[y] = chunk.getBlock(x & 0xF, y, z & 0xF);
+        }
+        return column;
+    }
+
+    @Override
+    public void replaceBlocks(ChunkCoordinate chunkCoord)
+    {
+        if (!this.settings.getWorldConfig().biomeConfigsHaveReplacement)
+        {
+            // Don't waste time here, ReplacedBlocks is empty everywhere
+            return;
+        }
+
+        replaceBlocks(getOrGenerateChunk(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + 1, chunkCoord.getChunkZ() + 1)));
+        replaceBlocks(getOrGenerateChunk(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX(), chunkCoord.getChunkZ() + 1)));
+        replaceBlocks(getOrGenerateChunk(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + 1, chunkCoord.getChunkZ())));
+        replaceBlocks(getOrGenerateChunk(chunkCoord));
+    }
+
+    private void replaceBlocks(HeadlessChunkBuffer chunk)
+    {
+        ChunkCoordinate chunkCoord = chunk.getChunkCoordinate();
+        ReplacedBlocksMatrix replacedBlocks;
+        LocalMaterialData[] replacements;
+        LocalMaterialData replacement;
+        LocalBiome biome;
+        int blockId;
+        for (int x = 0; x < ChunkCoordinate.CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < ChunkCoordinate.CHUNK_Z_SIZE; z++)
+            {
+                biome = getBiome(chunkCoord.getBlockX() + x, chunkCoord.getBlockZ() + z);
+                if (biome == null || !biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                {
+                    continue;
+                }
+                replacedBlocks = biome.getBiomeConfig().replacedBlocks;
+                for (int y = 0; y < PluginStandardValues.WORLD_HEIGHT; y++)
+                {
+                    replacements = replacedBlocks.getReplacements(y);
+                    if (replacements == null)
+                    {
+                        continue;
+                    }
+                    blockId = chunk.getBlock(x, y, z).getBlockId();
+                    if (blockId < replacements.length)
+                    {
+                        replacement = replacements[blockId];
+                        if (replacement != null)
+                        {
+                            chunk.setBlock(x, y, z, replacement);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Chunks
+
+    @Override
+    public boolean isInsidePregeneratedRegion(ChunkCoordinate chunk)
+    {
+        return false;
+    }
+
+    @Override
+    public ChunkCoordinate getSpawnChunk()
+    {
+        return ChunkCoordinate.fromChunkCoords(0, 0);
+    }
+
+    @Override
+    public boolean generateModdedCaveGen(int x, int z, ChunkBuffer chunkBuffer)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isInsideWorldBorder(ChunkCoordinate chunkCoordinate)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isOTGPlus()
+    {
+        WorldConfig worldConfig = this.settings.getWorldConfig();
+        return worldConfig != null && worldConfig.isOTGPlus;
+    }
+
+    @Override
+    public void updateSpawnPointY(ChunkCoordinate chunkBeingPopulated) { }
+}
@@ -381,14 +381,15 @@ public class OTG
         if(!file.exists())
         {
             try {                
+				// The blocks are compressed by writeToStream, the rest of the file isn't compressed.
 				ByteArrayOutputStream bos = new ByteArrayOutputStream();
 				DataOutputStream dos = new DataOutputStream(bos);
 				config.writeToStream(dos);
-				byte[] compressedBytes = com.pg85.otg.util.CompressionUtils.compress(bos.toByteArray());
 				dos.close();
+				byte[] bo4DataBytes = bos.toByteArray();
 				FileOutputStream fos = new FileOutputStream(file);
 				DataOutputStream dos2 = new DataOutputStream(fos);
-				dos2.write(compressedBytes, 0, compressedBytes.length);
+				dos2.write(bo4DataBytes, 0, bo4DataBytes.length);
 				dos2.close();
             }
             catch (FileNotFoundException e)
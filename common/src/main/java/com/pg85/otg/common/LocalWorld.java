@@ -190,6 +190,34 @@ public interface LocalWorld
      */
     public void endPopulation();
 
+    /**
+     * Starts a block edit session. Until the session is committed, blocks
+     * placed with {@link #setBlock(int, int, int, LocalMaterialData, NamedBinaryTag, ChunkCoordinate)}
+     * may be written without updating light or notifying clients, which is
+     * then done once for every edited chunk section by
+     * {@link #commitBlockEdits()}. Blocks can be read back as usual during
+     * the session. Sessions may be nested, only the outermost commit
+     * applies the updates.
+     * @see #commitBlockEdits()
+     */
+    public void beginBlockEdits();
+
+    /**
+     * Ends a block edit session, updating light and notifying clients for
+     * all edited chunk sections.
+     * @throws IllegalStateException If no session was started.
+     * @see #beginBlockEdits()
+     */
+    public void commitBlockEdits();
+
+    /**
+     * Gets a view of the area that is being populated, which resources use
+     * to read and write blocks without looking up the chunk for every block.
+     * @param chunkBeingPopulated The chunk being populated.
+     * @return The area, only valid while the chunk is being populated.
+     */
+    public PopulationArea getPopulationArea(ChunkCoordinate chunkBeingPopulated);
+
     // Blocks
         
     public LocalMaterialData getMaterial(int x, int y, int z, ChunkCoordinate chunkBeingPopulated);
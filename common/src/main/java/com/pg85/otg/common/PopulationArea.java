@@ -0,0 +1,96 @@
+package com.pg85.otg.common;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * View of the 2x2 chunks that may be edited while a chunk is populated, see
+ * {@link LocalWorld#getPopulationArea(ChunkCoordinate)}. Resources that
+ * read and write many blocks, like ore veins, use this instead of calling
+ * the world for every block.
+ *
+ * All methods take world coordinates. This implementation passes every
+ * call on to the world, platforms can override the methods to access the
+ * chunks inside the area directly. Coordinates outside the area are always
+ * passed on to the world.
+ */
+public class PopulationArea
+{
+	/**
+	 * Size of the area in blocks, on both the x and the z axis.
+	 */
+	public static final int SIZE = ChunkCoordinate.CHUNK_X_SIZE * 2;
+
+	protected final LocalWorld world;
+	protected final ChunkCoordinate chunkBeingPopulated;
+	protected final int minX;
+	protected final int minZ;
+
+	private LocalBiome[] biomes;
+
+	public PopulationArea(LocalWorld world, ChunkCoordinate chunkBeingPopulated)
+	{
+		this.world = world;
+		this.chunkBeingPopulated = chunkBeingPopulated;
+		this.minX = chunkBeingPopulated.getBlockX();
+		this.minZ = chunkBeingPopulated.getBlockZ();
+	}
+
+	public ChunkCoordinate getChunkBeingPopulated()
+	{
+		return this.chunkBeingPopulated;
+	}
+
+	/**
+	 * Gets whether the given column is inside the area, without looking up
+	 * the chunk. Same as {@link OTG#IsInAreaBeingPopulated(int, int, ChunkCoordinate)}.
+	 */
+	public boolean isInside(int x, int z)
+	{
+		return x >= this.minX && x < this.minX + SIZE && z >= this.minZ && z < this.minZ + SIZE;
+	}
+
+	public LocalMaterialData getMaterial(int x, int y, int z)
+	{
+		return this.world.getMaterial(x, y, z, this.chunkBeingPopulated);
+	}
+
+	public void setBlock(int x, int y, int z, LocalMaterialData material)
+	{
+		this.world.setBlock(x, y, z, material, null, this.chunkBeingPopulated);
+	}
+
+	public int getHeightMapHeight(int x, int z)
+	{
+		return this.world.getHeightMapHeight(x, z, this.chunkBeingPopulated);
+	}
+
+	public int getHighestBlockAboveYAt(int x, int z)
+	{
+		return this.world.getHighestBlockAboveYAt(x, z, this.chunkBeingPopulated);
+	}
+
+	/**
+	 * Gets the biome at the given column, see {@link LocalWorld#getBiome(int, int)}.
+	 * Biomes inside the area are only looked up once.
+	 */
+	public LocalBiome getBiome(int x, int z)
+	{
+		if (!isInside(x, z))
+		{
+			return this.world.getBiome(x, z);
+		}
+		if (this.biomes == null)
+		{
+			this.biomes = new LocalBiome[SIZE * SIZE];
+		}
+		int index = (x - this.minX) * SIZE + (z - this.minZ);
+		LocalBiome biome = this.biomes[index];
+		if (biome == null)
+		{
+			biome = this.world.getBiome(x, z);
+			this.biomes[index] = biome;
+		}
+		return biome;
+	}
+}
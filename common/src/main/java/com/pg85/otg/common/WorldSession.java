@@ -1,7 +1,8 @@
 package com.pg85.otg.common;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.pg85.otg.customobjects.bo3.BO3;
 import com.pg85.otg.customobjects.bo4.BO4;
@@ -64,80 +65,36 @@ public abstract class WorldSession
     	return structureInfo;
     }
 
-    public HashMap<String,ArrayList<ModDataFunction<?>>> getModDataForChunk(ChunkCoordinate chunkCoord)
+    /**
+     * @return The moddata of structures in the given chunk by mod id, the
+     *         map and lists must not be modified.
+     */
+    public Map<String, List<ModDataFunction<?>>> getModDataForChunk(ChunkCoordinate chunkCoord)
     {
-    	HashMap<String,ArrayList<ModDataFunction<?>>> result = new HashMap<String,ArrayList<ModDataFunction<?>>>();
-		if(world.getStructureCache().worldInfoChunks.containsKey(chunkCoord))
-		{
-			CustomStructure worldInfoChunk = world.getStructureCache().worldInfoChunks.get(chunkCoord);
-
-			if(worldInfoChunk != null)
-    		{
-    			for(ModDataFunction<?> modData : worldInfoChunk.modDataManager.modData)
-    			{
-    				if(ChunkCoordinate.fromBlockCoords(modData.x, modData.z).equals(chunkCoord)) // modData for all branches of the structure is stored, make sure the modData is in this chunk
-    				{
-	    				if(!result.containsKey(modData.modId))
-	    				{
-	    					result.put(modData.modId, new ArrayList<ModDataFunction<?>>());
-	    				}
-    					result.get(modData.modId).add(modData);
-    				}
-    			}
-			}
-    	}
-    	return result;
+    	return world.getStructureCache().getModDataInChunk(chunkCoord);
     }
 
-    public ArrayList<SpawnerFunction<?>> getSpawnersForChunk(ChunkCoordinate chunkCoord)
+    /**
+     * @return The spawners of structures in the given chunk, the list must
+     *         not be modified.
+     */
+    public List<SpawnerFunction<?>> getSpawnersForChunk(ChunkCoordinate chunkCoord)
     {
-    	ArrayList<SpawnerFunction<?>> result = new ArrayList<SpawnerFunction<?>>();
-		if(world.getStructureCache().worldInfoChunks.containsKey(chunkCoord))
-		{
-			CustomStructure worldInfoChunk = world.getStructureCache().worldInfoChunks.get(chunkCoord);
-
-			if(worldInfoChunk != null)
-    		{
-    			for(SpawnerFunction<?> spawnerData : worldInfoChunk.spawnerManager.spawnerData)
-    			{
-    				if(ChunkCoordinate.fromBlockCoords(spawnerData.x, spawnerData.z).equals(chunkCoord)) // spawnerData for all branches of the structure is stored, make sure the modData is in this chunk
-    				{
-    					result.add(spawnerData);
-    				}
-    			}
-    		}
-		}
-    	return result;
+    	return world.getStructureCache().getSpawnersInChunk(chunkCoord);
     }
 
-    public ArrayList<ParticleFunction<?>> getParticlesForChunk(ChunkCoordinate chunkCoord)
+    /**
+     * @return The particles of structures in the given chunk, the list must
+     *         not be modified.
+     */
+    public List<ParticleFunction<?>> getParticlesForChunk(ChunkCoordinate chunkCoord)
     {
-    	ArrayList<ParticleFunction<?>> result = new ArrayList<ParticleFunction<?>>();
-		if(world.getStructureCache().worldInfoChunks.containsKey(chunkCoord))
-		{
-			CustomStructure worldInfoChunk = world.getStructureCache().worldInfoChunks.get(chunkCoord);
-
-    		if(worldInfoChunk != null)
-    		{
-    			for(ParticleFunction<?> particleData : worldInfoChunk.particlesManager.particleData)
-    			{
-    				if(ChunkCoordinate.fromBlockCoords(particleData.x, particleData.z).equals(chunkCoord)) // paticleData for all branches of the structure is stored, make sure the modData is in this chunk
-    				{
-    					result.add(particleData);
-    				}
-    			}
-    		}
-    	}
-    	return result;
+    	return world.getStructureCache().getParticlesInChunk(chunkCoord);
     }
 
     public void removeParticles(ChunkCoordinate chunkCoord, ParticleFunction<?> particle)
     {
-		CustomStructure customObject = world.getStructureCache().worldInfoChunks.get(chunkCoord);
-		if(customObject != null && customObject.particlesManager.particleData.contains(particle))
-		{
-			customObject.particlesManager.particleData.remove(particle);
-		}
+		world.getStructureCache().removeParticle(chunkCoord, particle);
     }
     
 	public boolean isInsidePregeneratedRegion(ChunkCoordinate chunk)
@@ -33,6 +33,23 @@ public final class PluginConfig extends ConfigFile
 	 * Higher values make pre-generation faster but can cause lag and increased memory usage.
 	 */
 	public int pregeneratorMaxChunksPerTick = PluginStandardValues.PREGENERATOR_MAX_CHUNKS_PER_TICK.getDefaultValue();
+
+	/**
+	 * Forge only: The number of worker threads the pre-generator uses to generate terrain ahead
+	 * of the server thread, which only populates chunks. 0 disables the worker threads. Not used
+	 * in worlds where mods hook into terrain generation, those hooks must run on the server thread.
+	 */
+	public int pregeneratorWorkerThreads = PluginStandardValues.PREGENERATOR_WORKER_THREADS.getDefaultValue();
+
+	/**
+	 * Forge only: The maximum number of chunks the pre-generator's worker threads may generate ahead.
+	 */
+	public int pregeneratorWorkerQueueSize = PluginStandardValues.PREGENERATOR_WORKER_QUEUE_SIZE.getDefaultValue();
+
+	/**
+	 * The maximum size in megabytes of decoded .BO4Data files kept in memory, 0 disables the cache.
+	 */
+	public int bo4DataCacheSize = PluginStandardValues.BO4DATA_CACHE_SIZE.getDefaultValue();
     
     public enum LogLevels
     {
@@ -92,6 +109,9 @@ public final class PluginConfig extends ConfigFile
         this.biomeConfigExtension = reader.getSetting(BiomeStandardValues.BIOME_CONFIG_EXTENSION);
         this.spawnLog = reader.getSetting(PluginStandardValues.SPAWN_LOG);
         this.pregeneratorMaxChunksPerTick = reader.getSetting(PluginStandardValues.PREGENERATOR_MAX_CHUNKS_PER_TICK);
+        this.pregeneratorWorkerThreads = reader.getSetting(PluginStandardValues.PREGENERATOR_WORKER_THREADS);
+        this.pregeneratorWorkerQueueSize = reader.getSetting(PluginStandardValues.PREGENERATOR_WORKER_QUEUE_SIZE);
+        this.bo4DataCacheSize = reader.getSetting(PluginStandardValues.BO4DATA_CACHE_SIZE);
         
         this.developerMode = reader.getSetting(PluginStandardValues.DEVELOPER_MODE);
     }
@@ -150,6 +170,23 @@ public final class PluginConfig extends ConfigFile
         writer.putSetting(PluginStandardValues.PREGENERATOR_MAX_CHUNKS_PER_TICK, this.pregeneratorMaxChunksPerTick,
 		        "The number of chunks the pre-generator is allowed to generate for each server tick, shoul be between 1-5.",
 		        "Higher numbers make pre-generation faster but increase memory usage and will cause lag.");
+
+        writer.putSetting(PluginStandardValues.PREGENERATOR_WORKER_THREADS, this.pregeneratorWorkerThreads,
+		        "The number of worker threads the pre-generator uses to generate terrain ahead of the server thread, should be between 0-64.",
+		        "The server thread then only populates chunks. Set this to the number of spare cpu cores, 0 disables the worker threads.",
+		        "Worker threads are not used in worlds where mods hook into terrain generation (the ReplaceBiomeBlocks event or modded cave generators).",
+		        "Defaults to: 0");
+
+        writer.putSetting(PluginStandardValues.PREGENERATOR_WORKER_QUEUE_SIZE, this.pregeneratorWorkerQueueSize,
+		        "The maximum number of chunks the pre-generator's worker threads may generate ahead, should be between 16-4096.",
+		        "Higher numbers keep the worker threads busier but increase memory usage.",
+		        "Defaults to: 256");
+
+        writer.putSetting(PluginStandardValues.BO4DATA_CACHE_SIZE, this.bo4DataCacheSize,
+		        "The maximum size in megabytes of decoded .BO4Data files kept in memory, should be between 0-4096.",
+		        "Spawning a BO4 whose .BO4Data file is cached doesn't have to read and decompress the file again.",
+		        "Cached files are freed automatically when memory runs low, 0 disables the cache.",
+		        "Defaults to: 128");
     }
 
     public LogLevels getLogLevel()
@@ -104,6 +104,7 @@ public class BiomeConfig extends ConfigFile
 
     public List<ConfigFunction<BiomeConfig>> resourceSequence = new ArrayList<ConfigFunction<BiomeConfig>>();
     private List<CustomStructureGen> customStructures = new ArrayList<CustomStructureGen>(); // Used as a cache for fast querying, not saved
+    private final BitSet customStructureIds = new BitSet(); // Ids of the structures in customStructures, only modified while loading
     
     public boolean inheritSaplingResource;
     private Map<SaplingType, SaplingGen> saplingGrowers = new EnumMap<SaplingType, SaplingGen>(SaplingType.class);
@@ -219,7 +220,7 @@ public class BiomeConfig extends ConfigFile
             {
             	if(res instanceof CustomStructureGen)
             	{
-            		this.customStructures.add((CustomStructureGen)res);
+            		addCustomStructure((CustomStructureGen)res);
             	}
             }
         }
@@ -247,6 +248,24 @@ public class BiomeConfig extends ConfigFile
     {
     	return this.customStructures;
     }
+
+    /**
+     * Checks if any CustomStructure resource of this biome can spawn the structure.
+     * @param structureId The id of the structure's name, see {@link CustomStructureGen#getStructureId(String)}.
+     */
+    public boolean canSpawnCustomStructure(int structureId)
+    {
+    	return this.customStructureIds.get(structureId);
+    }
+
+    private void addCustomStructure(CustomStructureGen customStructure)
+    {
+    	this.customStructures.add(customStructure);
+    	for(String objectName : customStructure.objectNames)
+    	{
+    		this.customStructureIds.set(CustomStructureGen.getStructureId(objectName));
+    	}
+    }
     
     /**
      * This is a pretty weak map from -0.5 to ~-0.8 (min vanilla temperature)
@@ -437,7 +456,7 @@ public class BiomeConfig extends ConfigFile
                 }
                 if(res instanceof CustomStructureGen)
                 {
-            		this.customStructures.add((CustomStructureGen)res);
+            		addCustomStructure((CustomStructureGen)res);
                 }
             }
         }
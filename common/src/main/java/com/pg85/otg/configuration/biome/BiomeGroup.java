@@ -12,6 +12,7 @@ import com.pg85.otg.util.helpers.StringHelper;
 import com.pg85.otg.util.minecraft.defaults.DefaultBiome;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map.Entry;
 
 /**
@@ -226,7 +227,8 @@ public final class BiomeGroup extends ConfigFunction<WorldConfig>
         return false;
     }
 
-	HashMap<Integer, TreeMap<Integer, LocalBiome>> cachedDepthMapOrHigher = new HashMap<Integer, TreeMap<Integer, LocalBiome>>();
+	// Concurrent, the biome layers may be used by multiple threads at once
+	Map<Integer, TreeMap<Integer, LocalBiome>> cachedDepthMapOrHigher = new ConcurrentHashMap<Integer, TreeMap<Integer, LocalBiome>>();
     public SortedMap<Integer, LocalBiome> getDepthMapOrHigher(int depth)
     {    	
     	TreeMap<Integer, LocalBiome> map = cachedDepthMapOrHigher.get(new Integer(depth));
@@ -251,7 +253,7 @@ public final class BiomeGroup extends ConfigFunction<WorldConfig>
         return map;
     }
 
-    HashMap<Integer, TreeMap<Integer, LocalBiome>> cachedDepthMaps = new HashMap<Integer, TreeMap<Integer, LocalBiome>>();
+    Map<Integer, TreeMap<Integer, LocalBiome>> cachedDepthMaps = new ConcurrentHashMap<Integer, TreeMap<Integer, LocalBiome>>();
     SortedMap<Integer, LocalBiome> getDepthMap(int depth)
     {
     	TreeMap<Integer, LocalBiome> map = cachedDepthMaps.get(new Integer(depth));
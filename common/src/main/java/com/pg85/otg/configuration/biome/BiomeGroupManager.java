@@ -5,6 +5,7 @@ import com.pg85.otg.common.LocalWorld;
 import com.pg85.otg.logging.LogMarker;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages a collection of biome groups that are accesible by their name and
@@ -14,7 +15,6 @@ import java.util.*;
 public final class BiomeGroupManager
 {
     static final int MAX_BIOME_GROUP_COUNT = 127;
-    private int cumulativeGroupRarity = 0;
     private Map<String, BiomeGroup> nameToGroup = new LinkedHashMap<String, BiomeGroup>(4);
     private Map<Integer, BiomeGroup> idToGroup = new LinkedHashMap<Integer, BiomeGroup>(4);
 
@@ -112,7 +112,8 @@ public final class BiomeGroupManager
     }
 
     // TODO: Turn into array?
-    HashMap<Integer, TreeMap<Integer, BiomeGroup>> cachedGroupDepthMaps = new HashMap<Integer, TreeMap<Integer, BiomeGroup>>();
+    // Concurrent, the biome layers may be used by multiple threads at once
+    Map<Integer, TreeMap<Integer, BiomeGroup>> cachedGroupDepthMaps = new ConcurrentHashMap<Integer, TreeMap<Integer, BiomeGroup>>();
     public SortedMap<Integer, BiomeGroup> getGroupDepthMap(int depth)
     {
     	TreeMap<Integer, BiomeGroup> map = cachedGroupDepthMaps.get(new Integer(depth));
@@ -122,13 +123,13 @@ public final class BiomeGroupManager
     	}
     	
         map = new TreeMap<Integer, BiomeGroup>();
-        this.cumulativeGroupRarity = 0;
+        int cumulativeGroupRarity = 0;
         for (BiomeGroup group : getGroups())
         {
             if (group.getGenerationDepth() == depth)
             {
-                this.cumulativeGroupRarity += group.getGroupRarity();
-                map.put(this.cumulativeGroupRarity, group);
+                cumulativeGroupRarity += group.getGroupRarity();
+                map.put(cumulativeGroupRarity, group);
             }
         }
         if (cumulativeGroupRarity < map.size() * 100)
@@ -6,8 +6,10 @@ import com.pg85.otg.util.helpers.StringHelper;
 import com.pg85.otg.util.materials.MaterialHelper;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 public class ReplacedBlocksMatrix
@@ -106,6 +108,12 @@ public class ReplacedBlocksMatrix
      */
     private final int maxHeight;
     private List<ReplacedBlocksInstruction> instructions;
+
+    // Compiled instructions, see compileInstructions
+    private int[] bandsByY;
+    private LocalMaterialData[][] compiledInstructions;
+    private int minReplaceHeight;
+    private int maxReplaceHeight;
         
     public ReplacedBlocksMatrix(String setting, int maxHeight) throws InvalidConfigException
     {
@@ -174,8 +182,105 @@ public class ReplacedBlocksMatrix
 
         if (this.instructions.size() == 0)
         {
+            this.bandsByY = null;
+            this.compiledInstructions = null;
             return;
         }
+
+        compileInstructions();
+    }
+
+    /**
+     * Compiles the instructions into lookup tables. Heights are grouped into
+     * bands that have the same instructions, each band has a table with the
+     * replacement for each block id. If several instructions replace the
+     * same block id, the last one is used.
+     */
+    private void compileInstructions()
+    {
+        int minY = Integer.MAX_VALUE;
+        int maxY = -1;
+        for (ReplacedBlocksInstruction instruction : this.instructions)
+        {
+            if (instruction.getFrom() != null && instruction.getTo() != null)
+            {
+                minY = Math.min(minY, instruction.getMinHeight());
+                maxY = Math.max(maxY, instruction.getMaxHeight());
+            }
+        }
+
+        this.minReplaceHeight = minY;
+        this.maxReplaceHeight = maxY;
+        this.bandsByY = new int[maxY + 1];
+        ArrayList<LocalMaterialData[]> bands = new ArrayList<LocalMaterialData[]>();
+        HashMap<BitSet, Integer> bandsByInstructions = new HashMap<BitSet, Integer>();
+        for (int y = 0; y <= maxY; y++)
+        {
+            BitSet activeInstructions = new BitSet(this.instructions.size());
+            int maxBlockId = -1;
+            for (int i = 0; i < this.instructions.size(); i++)
+            {
+                ReplacedBlocksInstruction instruction = this.instructions.get(i);
+                if (instruction.getFrom() != null && instruction.getTo() != null && y >= instruction.getMinHeight() && y <= instruction.getMaxHeight())
+                {
+                    activeInstructions.set(i);
+                    maxBlockId = Math.max(maxBlockId, instruction.getFrom().getBlockId());
+                }
+            }
+            if (maxBlockId < 0)
+            {
+                this.bandsByY[y] = -1;
+                continue;
+            }
+
+            Integer band = bandsByInstructions.get(activeInstructions);
+            if (band == null)
+            {
+                LocalMaterialData[] replacements = new LocalMaterialData[maxBlockId + 1];
+                for (int i = activeInstructions.nextSetBit(0); i >= 0; i = activeInstructions.nextSetBit(i + 1))
+                {
+                    ReplacedBlocksInstruction instruction = this.instructions.get(i);
+                    replacements[instruction.getFrom().getBlockId()] = instruction.getTo();
+                }
+                band = bands.size();
+                bands.add(replacements);
+                bandsByInstructions.put(activeInstructions, band);
+            }
+            this.bandsByY[y] = band;
+        }
+        this.compiledInstructions = bands.toArray(new LocalMaterialData[bands.size()][]);
+    }
+
+    /**
+     * Gets whether any instruction replaces blocks between the given heights.
+     * Used to skip chunk sections that don't need replacing.
+     *
+     * @param minY Minimum height, inclusive.
+     * @param maxY Maximum height, inclusive.
+     * @return Whether any blocks may be replaced between the given heights.
+     */
+    public boolean hasReplaceSettingsBetween(int minY, int maxY)
+    {
+        return this.compiledInstructions != null && this.compiledInstructions.length > 0 && maxY >= this.minReplaceHeight && minY <= this.maxReplaceHeight;
+    }
+
+    /**
+     * Gets the replacements for the given height, indexed by the block id of
+     * the block to replace. Block ids outside the array or with a null
+     * entry are not replaced.
+     *
+     * @param y The height.
+     * @return The replacements, or null if no blocks are replaced at this
+     *         height. The array must not be modified.
+     */
+    public LocalMaterialData[] getReplacements(int y)
+    {
+        if (this.compiledInstructions == null || y < 0 || y >= this.bandsByY.length)
+        {
+            return null;
+        }
+        int band = this.bandsByY[y];
+        return band == -1 ? null : this.compiledInstructions[band];
     }
 
     public String toString()
@@ -30,6 +30,9 @@ public class PluginStandardValues extends Settings
     public static final Setting<Boolean> SPAWN_LOG = booleanSetting("SpawnLog", false);    
     public static final Setting<Boolean> DEVELOPER_MODE = booleanSetting("DeveloperMode", false);
     public static final Setting<Integer> PREGENERATOR_MAX_CHUNKS_PER_TICK = intSetting("PregeneratorMaxChunksPerTick", 2, 1, 5);
+    public static final Setting<Integer> PREGENERATOR_WORKER_THREADS = intSetting("PregeneratorWorkerThreads", 0, 0, 64);
+    public static final Setting<Integer> PREGENERATOR_WORKER_QUEUE_SIZE = intSetting("PregeneratorWorkerQueueSize", 256, 16, 4096);
+    public static final Setting<Integer> BO4DATA_CACHE_SIZE = intSetting("BO4DataCacheSize", 128, 0, 4096);
 	public static final String MOD_ID = "openterraingenerator";
 
 	/**
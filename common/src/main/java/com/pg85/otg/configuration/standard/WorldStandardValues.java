@@ -27,6 +27,7 @@ public class WorldStandardValues extends Settings
 	public static String DimensionsConfigFileName = "Config.yaml";
 	public static String DimensionsDataFileName = "Dimensions.txt";
 	public static String StructureDataFileName = "StructureData.txt";
+	public static String StructureDataDirectoryName = "StructureData";
 	public static String NullChunksFileName = "NullChunks.txt";
 	public static String SpawnedStructuresFileName = "SpawnedStructures.txt";
 	public static String ChunkProviderPopulatedChunksFileName = "ChunkProviderPopulatedChunks.txt";
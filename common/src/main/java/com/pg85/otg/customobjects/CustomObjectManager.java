@@ -3,6 +3,7 @@ package com.pg85.otg.customobjects;
 import com.pg85.otg.OTG;
 import com.pg85.otg.customobjects.bo2.BO2Loader;
 import com.pg85.otg.customobjects.bo3.BO3Loader;
+import com.pg85.otg.customobjects.bo4.BO4DataCache;
 import com.pg85.otg.customobjects.bo4.BO4Loader;
 import com.pg85.otg.logging.LogMarker;
 import java.io.File;
@@ -44,6 +45,8 @@ public class CustomObjectManager
     
     private final CustomObjectCollection globalCustomObjects;
 
+    private final BO4DataCache bo4DataCache;
+
     public CustomObjectManager()
     {
         // These are the actual lists, not just a copy.
@@ -56,6 +59,7 @@ public class CustomObjectManager
         registerCustomObjectLoader("bo4data", new BO4Loader());
 
         this.globalCustomObjects = new CustomObjectCollection();
+        this.bo4DataCache = new BO4DataCache(OTG.getPluginConfig().bo4DataCacheSize * 1024L * 1024L);
                
         if(!OTG.getPluginConfig().developerMode)
         {
@@ -81,6 +85,15 @@ public class CustomObjectManager
     public void reloadCustomObjectFiles()
     {
     	this.globalCustomObjects.reloadCustomObjectFiles();
+    	this.bo4DataCache.clear();
+    }
+
+    /**
+     * Gets the cache of decoded .BO4Data files, shared by all BO4's.
+     */
+    public BO4DataCache getBO4DataCache()
+    {
+    	return this.bo4DataCache;
     }
 
     /**
@@ -136,5 +149,6 @@ public class CustomObjectManager
             loader.onShutdown();
         }
         loaders.clear();
+        bo4DataCache.clear();
     }  
 }
@@ -1,7 +1,6 @@
 package com.pg85.otg.customobjects.bo3;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Random;
 
@@ -14,7 +13,6 @@ import com.pg85.otg.configuration.standard.PluginStandardValues;
 import com.pg85.otg.configuration.world.WorldConfig.ConfigMode;
 import com.pg85.otg.customobjects.bo3.BO3Settings.OutsideSourceBlock;
 import com.pg85.otg.customobjects.bo3.BO3Settings.SpawnHeightEnum;
-import com.pg85.otg.customobjects.bo3.bo3function.BO3BlockFunction;
 import com.pg85.otg.customobjects.bo3.bo3function.BO3EntityFunction;
 import com.pg85.otg.customobjects.bo3.bo3function.BO3ModDataFunction;
 import com.pg85.otg.customobjects.bo3.bo3function.BO3ParticleFunction;
@@ -109,54 +107,51 @@ public class BO3 implements StructuredCustomObject
     @Override
     public boolean spawnForced(LocalWorld world, Random random, Rotation rotation, int x, int y, int z)
     {
-        BO3BlockFunction[] blocks = settings.getBlocks(rotation.getRotationId());
+        int rotationId = rotation.getRotationId();
+        byte[] blocksX = settings.blocksX[rotationId];
+        short[] blocksY = settings.blocksY[rotationId];
+        byte[] blocksZ = settings.blocksZ[rotationId];
 
-        ArrayList<BO3BlockFunction> blocksToSpawn = new ArrayList<BO3BlockFunction>();
-
-        ObjectExtrusionHelper oeh = new ObjectExtrusionHelper(settings.extrudeMode, settings.extrudeThroughBlocks);
-        HashSet<ChunkCoordinate> chunks = new HashSet<ChunkCoordinate>();
-
-        LocalMaterialData localMaterial;
-        DefaultMaterial material;
-        for (BO3BlockFunction block : blocks)
+        BO3SpawnContext context = BO3SpawnContext.acquire();
+        try
         {
-        	localMaterial = world.getMaterial(x + block.x, y + block.y, z + block.z, null);
-            material = localMaterial.toDefaultMaterial();
-            
-            // Ignore blocks in the ground when checking spawn conditions
-            if (block.y >= 0)
+            context.reset(blocksX.length, settings.extrudeMode, settings.extrudeThroughBlocks);
+
+            LocalMaterialData localMaterial;
+            DefaultMaterial material;
+            for (int i = 0; i < blocksX.length; i++)
             {
-                // Do not spawn if non-tree blocks are in the way
-                if (!localMaterial.isAir() && material != DefaultMaterial.LOG && material != DefaultMaterial.LOG_2 && material != DefaultMaterial.LEAVES && material != DefaultMaterial.LEAVES_2 && material != DefaultMaterial.SAPLING)
+                localMaterial = world.getMaterial(x + blocksX[i], y + blocksY[i], z + blocksZ[i], null);
+                material = localMaterial.toDefaultMaterial();
+
+                // Ignore blocks in the ground when checking spawn conditions
+                if (blocksY[i] >= 0)
                 {
-                    return false;
+                    // Do not spawn if non-tree blocks are in the way
+                    if (!localMaterial.isAir() && material != DefaultMaterial.LOG && material != DefaultMaterial.LOG_2 && material != DefaultMaterial.LEAVES && material != DefaultMaterial.LEAVES_2 && material != DefaultMaterial.SAPLING)
+                    {
+                        return false;
+                    }
                 }
-            }
-            
-            // Only overwrite air
-            if (localMaterial.isAir())
-            {
-                chunks.add(ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z));
-                blocksToSpawn.add(block);
-            }
 
-            if (block instanceof BO3BlockFunction)
-            {
-                oeh.addBlock((BO3BlockFunction) block);
-            }
+                // Only overwrite air
+                if (localMaterial.isAir())
+                {
+                    context.addBlockToSpawn(i);
+                }
 
-        }
+                context.extrusionHelper.addBlock(i, blocksY[i]);
+            }
 
-        // Spawn
+            // Spawn
 
-        for (BO3BlockFunction block : blocksToSpawn)
-        {
-            block.spawn(world, random, x + block.x, y + block.y, z + block.z, null);
+            HashSet<ChunkCoordinate> chunks = spawnBlocks(context, world, random, rotationId, x, y, z, null);
+            context.extrusionHelper.extrude(world, settings, rotationId, x, y, z, null);
+            handleBO3Functions(null, world, random, rotation, x, y, z, chunks, null);
+        } finally {
+            context.release();
         }
 
-        oeh.extrude(world, random, x, y, z, null);
-        handleBO3Functions(null, world, random, rotation, x, y, z, chunks, null);
-
         return true;
     }
 
@@ -250,90 +245,106 @@ public class BO3 implements StructuredCustomObject
             }
     	}
 
-        BO3BlockFunction[] blocks = settings.getBlocks(rotation.getRotationId());
-        HashSet<ChunkCoordinate> loadedChunks = new HashSet<ChunkCoordinate>();
-        ChunkCoordinate chunkCoord;
-        for (BO3BlockFunction block : blocks)
+        byte[] blocksX = settings.blocksX[rotation.getRotationId()];
+        short[] blocksY = settings.blocksY[rotation.getRotationId()];
+        byte[] blocksZ = settings.blocksZ[rotation.getRotationId()];
+        if (blocksX.length > 0)
         {
-            if (y + block.y < PluginStandardValues.WORLD_DEPTH || y + block.y >= PluginStandardValues.WORLD_HEIGHT)
+            // Checking the bounds of the blocks is the same as checking each
+            // block, the area being populated is a rectangle.
+            if (y + settings.blocksMinY[rotation.getRotationId()] < PluginStandardValues.WORLD_DEPTH || y + settings.blocksMaxY[rotation.getRotationId()] >= PluginStandardValues.WORLD_HEIGHT)
             {
                 return false;
             }
-
-           	chunkCoord = ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z);
-        	if(!loadedChunks.contains(chunkCoord))
-    		{
-        		if(chunkBeingPopulated != null && !OTG.IsInAreaBeingPopulated(x + block.x, z + block.z, chunkBeingPopulated))
-        		//if(!world.chunkExists(x + block.x, y + block.y, z + block.z)) 
-	            {
-                    // Cannot spawn BO3, part of world is not loaded
-	                return false;
-	            }
-	            loadedChunks.add(chunkCoord);
-    		}
+            if (
+                chunkBeingPopulated != null &&
+                (
+                    !OTG.IsInAreaBeingPopulated(x + settings.blocksMinX[rotation.getRotationId()], z + settings.blocksMinZ[rotation.getRotationId()], chunkBeingPopulated) ||
+                    !OTG.IsInAreaBeingPopulated(x + settings.blocksMaxX[rotation.getRotationId()], z + settings.blocksMaxZ[rotation.getRotationId()], chunkBeingPopulated)
+                )
+            )
+            {
+                // Cannot spawn BO3, part of world is not loaded
+                return false;
+            }
         }
 
-        ArrayList<BO3BlockFunction> blocksToSpawn = new ArrayList<BO3BlockFunction>();
-
-        ObjectExtrusionHelper oeh = new ObjectExtrusionHelper(settings.extrudeMode, settings.extrudeThroughBlocks);
-        HashSet<ChunkCoordinate> chunks = new HashSet<ChunkCoordinate>();
-
-        int blocksOutsideSourceBlock = 0;
-        int maxBlocksOutsideSourceBlock = (int) Math.ceil(
-                blocks.length * (settings.maxPercentageOutsideSourceBlock / 100.0));
-        for (BO3BlockFunction block : blocks)
+        BO3SpawnContext context = BO3SpawnContext.acquire();
+        try
         {
-            if (
-        		(
-    				(
-						settings.maxPercentageOutsideSourceBlock < 100 && 
-						blocksOutsideSourceBlock <= maxBlocksOutsideSourceBlock
-					) || 
-    				settings.outsideSourceBlock == OutsideSourceBlock.dontPlace
-				) && 
-    			!settings.sourceBlocks.contains(world.getMaterial(x + block.x, y + block.y, z + block.z, chunkBeingPopulated))
-    		)
-            {
-                blocksOutsideSourceBlock++;
-                if (blocksOutsideSourceBlock > maxBlocksOutsideSourceBlock)
-                {
-                    // Too many blocks outside source block
-                    return false;
-                }
+            context.reset(blocksX.length, settings.extrudeMode, settings.extrudeThroughBlocks);
 
-                if (settings.outsideSourceBlock == OutsideSourceBlock.placeAnyway)
+            int blocksOutsideSourceBlock = 0;
+            int maxBlocksOutsideSourceBlock = (int) Math.ceil(
+                    blocksX.length * (settings.maxPercentageOutsideSourceBlock / 100.0));
+            for (int i = 0; i < blocksX.length; i++)
+            {
+                if (
+            		(
+        				(
+    						settings.maxPercentageOutsideSourceBlock < 100 && 
+    						blocksOutsideSourceBlock <= maxBlocksOutsideSourceBlock
+    					) || 
+        				settings.outsideSourceBlock == OutsideSourceBlock.dontPlace
+    				) && 
+        			!settings.sourceBlocks.contains(world.getMaterial(x + blocksX[i], y + blocksY[i], z + blocksZ[i], chunkBeingPopulated))
+        		)
                 {
-                    chunks.add(ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z));
-                    blocksToSpawn.add(block);
+                    blocksOutsideSourceBlock++;
+                    if (blocksOutsideSourceBlock > maxBlocksOutsideSourceBlock)
+                    {
+                        // Too many blocks outside source block
+                        return false;
+                    }
+
+                    if (settings.outsideSourceBlock == OutsideSourceBlock.placeAnyway)
+                    {
+                        context.addBlockToSpawn(i);
+                    }
+                } else {
+                    context.addBlockToSpawn(i);
                 }
-            } else {
-                chunks.add(ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z));
-                blocksToSpawn.add(block);
+                context.extrusionHelper.addBlock(i, blocksY[i]);
             }
-            if (block instanceof BO3BlockFunction)
+
+            // Call event
+            if (!OTG.fireCanCustomObjectSpawnEvent(this, world, x, y, z))
             {
-                oeh.addBlock((BO3BlockFunction) block);
+                // Cancelled
+                return false;
             }
-        }
 
-        // Call event
-        if (!OTG.fireCanCustomObjectSpawnEvent(this, world, x, y, z))
-        {
-            // Cancelled
-            return false;
+            // Spawn
+
+            HashSet<ChunkCoordinate> chunks = spawnBlocks(context, world, random, rotation.getRotationId(), x, y, z, chunkBeingPopulated);
+            context.extrusionHelper.extrude(world, settings, rotation.getRotationId(), x, y, z, chunkBeingPopulated);
+            handleBO3Functions(structure, world, random, rotation, x, y, z, chunks, chunkBeingPopulated);
+        } finally {
+            context.release();
         }
 
-        // Spawn
+        return true;
+    }
+
+    /**
+     * Spawns the blocks that were added to the context.
+     *
+     * @return The chunks the blocks were spawned in.
+     */
+    private HashSet<ChunkCoordinate> spawnBlocks(BO3SpawnContext context, LocalWorld world, Random random, int rotationId, int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        byte[] blocksX = settings.blocksX[rotationId];
+        short[] blocksY = settings.blocksY[rotationId];
+        byte[] blocksZ = settings.blocksZ[rotationId];
 
-        for (BO3BlockFunction block : blocksToSpawn)
+        HashSet<ChunkCoordinate> chunks = new HashSet<ChunkCoordinate>();
+        for (int i = 0; i < context.blocksToSpawnCount; i++)
         {
-            block.spawn(world, random, x + block.x, y + block.y, z + block.z, chunkBeingPopulated);
+            int index = context.blocksToSpawn[i];
+            chunks.add(ChunkCoordinate.fromBlockCoords(x + blocksX[index], z + blocksZ[index]));
+            settings.spawnBlock(world, random, rotationId, index, x + blocksX[index], y + blocksY[index], z + blocksZ[index], chunkBeingPopulated);
         }
-
-        oeh.extrude(world, random, x, y, z, chunkBeingPopulated);
-        handleBO3Functions(structure, world, random, rotation, x, y, z, chunks, chunkBeingPopulated);
-
-        return true;
+        return chunks;
     }
 
     public void handleBO3Functions(CustomStructure structure, LocalWorld world, Random random, Rotation rotation, int x, int y, int z, HashSet<ChunkCoordinate> chunks, ChunkCoordinate chunkBeingPopulated)
@@ -436,8 +447,9 @@ public class BO3 implements StructuredCustomObject
                     structure.particlesManager.particleData.addAll(existingObject.particlesManager.particleData);
                     structure.spawnerManager.spawnerData.addAll(existingObject.spawnerManager.spawnerData);
                 }
-                world.getStructureCache().worldInfoChunks.put(structureCoord, structure);
+                world.getStructureCache().putWorldInfoChunk(structureCoord, structure);
             }
+            world.getStructureCache().indexStructureFunctions(structure);
         } else {
             CustomStructure placeHolderStructure = new BO3CustomStructure(new BO3CustomStructureCoordinate(world, this, this.getName(), Rotation.NORTH, x, (short) 0, z));
             placeHolderStructure.modDataManager.modData.addAll(newModDataInObject);
@@ -453,8 +465,10 @@ public class BO3 implements StructuredCustomObject
                     existingObject.particlesManager.particleData.addAll(
                             placeHolderStructure.particlesManager.particleData);
                     existingObject.spawnerManager.spawnerData.addAll(placeHolderStructure.spawnerManager.spawnerData);
+                    world.getStructureCache().indexStructureFunctions(existingObject, structureCoord);
                 } else {
-                    world.getStructureCache().worldInfoChunks.put(structureCoord, placeHolderStructure);
+                    world.getStructureCache().putWorldInfoChunk(structureCoord, placeHolderStructure);
+                    world.getStructureCache().indexStructureFunctions(placeHolderStructure, structureCoord);
                 }
             }
         }
@@ -5,8 +5,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.common.LocalWorld;
 import com.pg85.otg.configuration.customobjects.CustomObjectConfigFile;
 import com.pg85.otg.configuration.customobjects.CustomObjectConfigFunction;
 import com.pg85.otg.configuration.io.SettingsReaderOTGPlus;
@@ -27,6 +29,7 @@ import com.pg85.otg.customobjects.bo3.checks.BO3Check;
 import com.pg85.otg.customobjects.bo3.checks.ModCheck;
 import com.pg85.otg.customobjects.bo3.checks.ModCheckNot;
 import com.pg85.otg.exception.InvalidConfigException;
+import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.bo3.BoundingBox;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
 import com.pg85.otg.util.materials.MaterialSet;
@@ -63,12 +66,12 @@ public class BO3Config extends CustomObjectConfigFile
 	// since that gives way too much overhead memory wise.
 	// We may have tens of millions of blocks, java doesn't handle lots of small
 	// classes well.
-	private byte[][] blocksX;
-	private short[][] blocksY;
-	private byte[][] blocksZ;
-	private LocalMaterialData[][] blocksMaterial;
+	byte[][] blocksX;
+	short[][] blocksY;
+	byte[][] blocksZ;
+	LocalMaterialData[][] blocksMaterial;
 	private String[] blocksMetaDataName;
-	private NamedBinaryTag[] blocksMetaDataTag;
+	NamedBinaryTag[] blocksMetaDataTag;
 
 	private LocalMaterialData[][][] randomBlocksBlocks;
 	private byte[][] randomBlocksBlockChances;
@@ -77,6 +80,16 @@ public class BO3Config extends CustomObjectConfigFile
 	private byte[] randomBlocksBlockCount;
 	//
 
+	// Bounds of the blocks for each rotation, relative to the spawn position.
+	// Used by BO3.trySpawnAt to check the height and the area being populated
+	// without looking at each block.
+	int[] blocksMinX = new int[4];
+	int[] blocksMaxX = new int[4];
+	int[] blocksMinY = new int[4];
+	int[] blocksMaxY = new int[4];
+	int[] blocksMinZ = new int[4];
+	int[] blocksMaxZ = new int[4];
+
 	BO3Check[][] bo3Checks = new BO3Check[4][];
 	int maxBranchDepth;
 	BO3BranchFunction[][] branches = new BO3BranchFunction[4][];
@@ -261,6 +274,36 @@ public class BO3Config extends CustomObjectConfigFile
 		return blocksOTGPlus;
 	}
 
+	/**
+	 * Spawns a block of this BO3, does the same as BO3BlockFunction.spawn and
+	 * BO3RandomBlockFunction.spawn without creating the block function.
+	 *
+	 * @param rotation The rotation id.
+	 * @param index    Index of the block in the block arrays.
+	 */
+	void spawnBlock(LocalWorld world, Random random, int rotation, int index, int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+	{
+		LocalMaterialData[] randomBlocks = this.randomBlocksBlocks[rotation][index];
+		if (randomBlocks != null)
+		{
+			byte[] blockChances = this.randomBlocksBlockChances[index];
+			NamedBinaryTag[] metaDataTags = this.randomBlocksMetaDataTags[index];
+			for (int i = 0; i < this.randomBlocksBlockCount[index]; i++)
+			{
+				if (random.nextInt(100) < blockChances[i])
+				{
+					randomBlocks[i].parseForWorld(world);
+					world.setBlock(x, y, z, randomBlocks[i], metaDataTags[i], chunkBeingPopulated);
+					break;
+				}
+			}
+		} else {
+			LocalMaterialData material = this.blocksMaterial[rotation][index];
+			material.parseForWorld(world);
+			world.setBlock(x, y, z, material, this.blocksMetaDataTag[index], chunkBeingPopulated);
+		}
+	}
+
 	protected BO3BranchFunction[] getbranches()
 	{
 		return this.branches[0];
@@ -762,6 +805,36 @@ public class BO3Config extends CustomObjectConfigFile
 				this.modDataFunctions[i][j] = this.modDataFunctions[i - 1][j].rotate();
 			}
 		}
+
+		calculateBlockBounds();
+	}
+
+	private void calculateBlockBounds()
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			int minX = Integer.MAX_VALUE;
+			int maxX = Integer.MIN_VALUE;
+			int minY = Integer.MAX_VALUE;
+			int maxY = Integer.MIN_VALUE;
+			int minZ = Integer.MAX_VALUE;
+			int maxZ = Integer.MIN_VALUE;
+			for (int h = 0; h < this.blocksX[i].length; h++)
+			{
+				minX = Math.min(minX, this.blocksX[i][h]);
+				maxX = Math.max(maxX, this.blocksX[i][h]);
+				minY = Math.min(minY, this.blocksY[i][h]);
+				maxY = Math.max(maxY, this.blocksY[i][h]);
+				minZ = Math.min(minZ, this.blocksZ[i][h]);
+				maxZ = Math.max(maxZ, this.blocksZ[i][h]);
+			}
+			this.blocksMinX[i] = minX;
+			this.blocksMaxX[i] = maxX;
+			this.blocksMinY[i] = minY;
+			this.blocksMaxY[i] = maxY;
+			this.blocksMinZ[i] = minZ;
+			this.blocksMaxZ[i] = maxZ;
+		}
 	}
 
 	public boolean parseModChecks()
@@ -0,0 +1,70 @@
+package com.pg85.otg.customobjects.bo3;
+
+import com.pg85.otg.customobjects.bo3.BO3Settings.ExtrudeMode;
+import com.pg85.otg.util.materials.MaterialSet;
+
+/**
+ * Scratch space for spawning BO3's, reused for every spawn attempt on a
+ * thread so that attempts that fail don't allocate anything. Blocks are
+ * referred to by their index in the block arrays of the BO3Config.
+ */
+final class BO3SpawnContext
+{
+    private static final ThreadLocal<BO3SpawnContext> contexts = new ThreadLocal<BO3SpawnContext>()
+    {
+        @Override
+        protected BO3SpawnContext initialValue()
+        {
+            return new BO3SpawnContext();
+        }
+    };
+
+    private boolean inUse;
+    final ObjectExtrusionHelper extrusionHelper = new ObjectExtrusionHelper();
+    int[] blocksToSpawn = new int[0];
+    int blocksToSpawnCount;
+
+    private BO3SpawnContext() { }
+
+    /**
+     * Gets the context of the current thread, call {@link #release()} when
+     * done with it.
+     */
+    static BO3SpawnContext acquire()
+    {
+        BO3SpawnContext context = contexts.get();
+        if (context.inUse)
+        {
+            // Spawning blocks can cause neighbouring chunks to be populated
+            // on the same thread, which may spawn another BO3.
+            return new BO3SpawnContext();
+        }
+        context.inUse = true;
+        return context;
+    }
+
+    void release()
+    {
+        this.inUse = false;
+    }
+
+    /**
+     * Prepares this context for a new spawn attempt.
+     *
+     * @param blockCount The amount of blocks in the BO3.
+     */
+    void reset(int blockCount, ExtrudeMode extrudeMode, MaterialSet extrudeThroughBlocks)
+    {
+        if (this.blocksToSpawn.length < blockCount)
+        {
+            this.blocksToSpawn = new int[blockCount];
+        }
+        this.blocksToSpawnCount = 0;
+        this.extrusionHelper.reset(extrudeMode, extrudeThroughBlocks, blockCount);
+    }
+
+    void addBlockToSpawn(int index)
+    {
+        this.blocksToSpawn[this.blocksToSpawnCount++] = index;
+    }
+}
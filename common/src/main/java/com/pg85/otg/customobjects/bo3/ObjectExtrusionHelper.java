@@ -1,15 +1,16 @@
 package com.pg85.otg.customobjects.bo3;
 
+import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.common.LocalWorld;
-import com.pg85.otg.customobjects.bo3.bo3function.BO3BlockFunction;
 import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.bo3.NamedBinaryTag;
 import com.pg85.otg.util.materials.MaterialSet;
 
-import java.util.ArrayList;
-import java.util.Random;
-
 /**
  * This class aids in the task of finding the blocks at the top or bottom of a collection of blocks
+ *
+ * Blocks are referred to by their index in the block arrays of the BO3Config, and instances are
+ * reused between spawn attempts (see {@link BO3SpawnContext}).
  */
 class ObjectExtrusionHelper
 {
@@ -33,19 +34,26 @@ class ObjectExtrusionHelper
      * These blocks are the blocks that are found to be at the location dictated by the extrudeMode, and will be
      * extruded until hitting a material not listed in extrudeThroughBlocks
      */
-    private ArrayList<BO3BlockFunction> blocksToExtrude = new ArrayList<BO3BlockFunction>();
+    private int[] blocksToExtrude = new int[0];
+    private int blocksToExtrudeCount;
 
     /**
-     * Constructor
+     * Prepares this helper for a new BO3.
      *
      * @param extrudeMode          The style of extrusion to perform
      * @param extrudeThroughBlocks The types of materials to allow extrusion to act upon
+     * @param blockCount           The amount of blocks in the BO3
      */
-    ObjectExtrusionHelper(BO3Settings.ExtrudeMode extrudeMode, MaterialSet extrudeThroughBlocks)
+    void reset(BO3Settings.ExtrudeMode extrudeMode, MaterialSet extrudeThroughBlocks, int blockCount)
     {
         this.extrudeMode = extrudeMode;
         this.extrudeThroughBlocks = extrudeThroughBlocks;
         blockExtrusionY = extrudeMode.getStartingHeight();
+        if (extrudeMode != BO3Settings.ExtrudeMode.None && blocksToExtrude.length < blockCount)
+        {
+            blocksToExtrude = new int[blockCount];
+        }
+        blocksToExtrudeCount = 0;
     }
 
     /**
@@ -53,24 +61,25 @@ class ObjectExtrusionHelper
      * otherwise, nothing happens. Any blocks added to the list that are on a level not optimal to the current level
      * will be purged to create the optimal list of blocks to extrude
      *
-     * @param block The block to add.
+     * @param index  Index of the block in the block arrays.
+     * @param blockY Y of the block, relative to the BO3.
      */
-    void addBlock(BO3BlockFunction block)
+    void addBlock(int index, int blockY)
     {
         if (extrudeMode != BO3Settings.ExtrudeMode.None)
         {
-            if (extrudeMode == BO3Settings.ExtrudeMode.BottomDown && block.y < blockExtrusionY)
+            if (extrudeMode == BO3Settings.ExtrudeMode.BottomDown && blockY < blockExtrusionY)
             {
-                blocksToExtrude.clear();
-                blockExtrusionY = block.y;
-            } else if (extrudeMode == BO3Settings.ExtrudeMode.TopUp && block.y > blockExtrusionY)
+                blocksToExtrudeCount = 0;
+                blockExtrusionY = blockY;
+            } else if (extrudeMode == BO3Settings.ExtrudeMode.TopUp && blockY > blockExtrusionY)
             {
-                blocksToExtrude.clear();
-                blockExtrusionY = block.y;
+                blocksToExtrudeCount = 0;
+                blockExtrusionY = blockY;
             }
-            if (block.y == blockExtrusionY)
+            if (blockY == blockExtrusionY)
             {
-                blocksToExtrude.add(block);
+                blocksToExtrude[blocksToExtrudeCount++] = index;
             }
         }
     }
@@ -79,31 +88,38 @@ class ObjectExtrusionHelper
      * This method takes the blocks that have been added to this and extrudes them individually until a block outside
      * of the extrudeThroughBlocks has been hit
      *
-     * @param world  The LocalWorld to extrude block in
-     * @param random The random generator to use to spawning
-     * @param x      The BO3 base X spawn location
-     * @param y      The BO3 base Y spawn location
-     * @param z      The BO3 base Z spawn location
+     * @param world    The LocalWorld to extrude block in
+     * @param config   The BO3Config the blocks were added from
+     * @param rotation The rotation id the blocks were added from
+     * @param x        The BO3 base X spawn location
+     * @param y        The BO3 base Y spawn location
+     * @param z        The BO3 base Z spawn location
      */
-    void extrude(LocalWorld world, Random random, int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    void extrude(LocalWorld world, BO3Config config, int rotation, int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
     {
-        for (BO3BlockFunction block : blocksToExtrude)
+        for (int i = 0; i < blocksToExtrudeCount; i++)
         {
+            int index = blocksToExtrude[i];
+            int blockX = x + config.blocksX[rotation][index];
+            int blockY = y + config.blocksY[rotation][index];
+            int blockZ = z + config.blocksZ[rotation][index];
+            LocalMaterialData material = config.blocksMaterial[rotation][index];
+            NamedBinaryTag metaDataTag = config.blocksMetaDataTag[index];
             if (extrudeMode == BO3Settings.ExtrudeMode.BottomDown)
             {
-                for (int yi = y + block.y - 1;
-                     yi > extrudeMode.getEndingHeight() && extrudeThroughBlocks.contains(world.getMaterial(x + block.x, yi, z + block.z, chunkBeingPopulated));
+                for (int yi = blockY - 1;
+                     yi > extrudeMode.getEndingHeight() && extrudeThroughBlocks.contains(world.getMaterial(blockX, yi, blockZ, chunkBeingPopulated));
                      --yi)
                 {
-                	world.setBlock(x + block.x, yi, z + block.z, block.material.parseForWorld(world), block.metaDataTag, chunkBeingPopulated);
+                	world.setBlock(blockX, yi, blockZ, material.parseForWorld(world), metaDataTag, chunkBeingPopulated);
                 }
             } else if (extrudeMode == BO3Settings.ExtrudeMode.TopUp)
             {
-                for (int yi = y + block.y + 1;
-                     yi < extrudeMode.getEndingHeight() && extrudeThroughBlocks.contains(world.getMaterial(x + block.x, yi, z + block.z, chunkBeingPopulated));
+                for (int yi = blockY + 1;
+                     yi < extrudeMode.getEndingHeight() && extrudeThroughBlocks.contains(world.getMaterial(blockX, yi, blockZ, chunkBeingPopulated));
                      ++yi)
                 {
-                	world.setBlock(x + block.x, yi, z + block.z, block.material.parseForWorld(world), block.metaDataTag, chunkBeingPopulated);
+                	world.setBlock(blockX, yi, blockZ, material.parseForWorld(world), metaDataTag, chunkBeingPopulated);
                 }
             }
         }
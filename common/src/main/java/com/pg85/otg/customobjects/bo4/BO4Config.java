@@ -4,6 +4,7 @@ import com.pg85.otg.OTG;
 import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.configuration.customobjects.CustomObjectConfigFile;
 import com.pg85.otg.configuration.customobjects.CustomObjectConfigFunction;
+import com.pg85.otg.configuration.io.FileSettingsReaderOTGPlus;
 import com.pg85.otg.configuration.io.SettingsReaderOTGPlus;
 import com.pg85.otg.configuration.io.SettingsWriterOTGPlus;
 import com.pg85.otg.configuration.standard.PluginStandardValues;
@@ -25,13 +26,16 @@ import com.pg85.otg.customobjects.bo3.BO3Settings;
 import com.pg85.otg.customobjects.bo3.BO3Settings.SpawnHeightEnum;
 import com.pg85.otg.exception.InvalidConfigException;
 import com.pg85.otg.logging.LogMarker;
+import com.pg85.otg.util.CompressionUtils;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
 import com.pg85.otg.util.bo3.Rotation;
 import com.pg85.otg.util.helpers.StreamHelper;
 import com.pg85.otg.util.materials.MaterialHelper;
 import com.pg85.otg.util.minecraft.defaults.DefaultStructurePart;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -42,6 +46,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.DataFormatException;
 
 public class BO4Config extends CustomObjectConfigFile
@@ -58,7 +64,8 @@ public class BO4Config extends CustomObjectConfigFile
 
     public SpawnHeightEnum spawnHeight;
         
-    private BO4BlockFunction[][] heightMap;
+    // Smoothing heightmaps, per master BO4 since they depend on its smoothing settings.
+    private final Map<String, BO4BlockFunction[][]> heightMaps = new ConcurrentHashMap<String, BO4BlockFunction[][]>();
     
     private boolean inheritedBO3Loaded;
     
@@ -82,6 +89,7 @@ public class BO4Config extends CustomObjectConfigFile
     private int maxY;
     private int minZ;
     private int maxZ;
+    private volatile int[][] rotatedBounds; // Collision bounds by rotation id, see getRotatedBounds
 
     private ArrayList<String> inheritedBO3s;
 
@@ -167,6 +175,12 @@ public class BO4Config extends CustomObjectConfigFile
        
     private boolean isCollidable = false;
     public boolean isBO4Data = false;
+    // The decompressed size of the .BO4Data file this config was read from
+    private int bo4DataSize = 0;
+    // Set when the blocks of the .BO4Data file couldn't be read, the .BO4
+    // file next to it is used instead if there is one.
+    private volatile boolean bo4DataUnreadable = false;
+    private volatile BO4Config bo4FallbackConfig;
        
     /**
      * Creates a BO3Config from a file.
@@ -262,6 +276,38 @@ public class BO4Config extends CustomObjectConfigFile
     	return maxZ + this.getZOffset(); // + zOffset makes sure that the value returned is never negative which is necessary for the collision detection code for CustomStructures in OTG (it assumes the furthest top and left blocks are at => 0 x or >= 0 z in the BO3)
     }
     
+    /**
+     * Gets the bounds used for collision detection when this BO4 is spawned
+     * with the given rotation, relative to the position of the branch:
+     * {minX, maxX, minY, maxY, minZ, maxZ}. The bounds are calculated once
+     * for each rotation, the returned array should not be modified.
+     * Threads that call this at the same time may each build the bounds,
+     * the array is only published once it's complete.
+     */
+    public int[] getRotatedBounds(Rotation rotation)
+    {
+    	int[][] rotatedBounds = this.rotatedBounds;
+    	if(rotatedBounds == null)
+    	{
+    		rotatedBounds = new int[Rotation.values().length][];
+    		for(Rotation boundsRotation : Rotation.values())
+    		{
+    			BO4CustomStructureCoordinate minRotated = BO4CustomStructureCoordinate.getRotatedBO3CoordsJustified(getminX(), getminY(), getminZ(), boundsRotation);
+    			BO4CustomStructureCoordinate maxRotated = BO4CustomStructureCoordinate.getRotatedBO3CoordsJustified(getmaxX(), getmaxY(), getmaxZ(), boundsRotation);
+    			rotatedBounds[boundsRotation.getRotationId()] = new int[] {
+    				Math.min(minRotated.getX(), maxRotated.getX()),
+    				Math.max(minRotated.getX(), maxRotated.getX()),
+    				Math.min(minRotated.getY(), maxRotated.getY()),
+    				Math.max(minRotated.getY(), maxRotated.getY()),
+    				Math.min(minRotated.getZ(), maxRotated.getZ()),
+    				Math.max(minRotated.getZ(), maxRotated.getZ())
+    			};
+    		}
+    		this.rotatedBounds = rotatedBounds;
+    	}
+    	return rotatedBounds[rotation.getRotationId()];
+    }
+
     public ArrayList<String> getInheritedBO3s()
     {
 		return this.inheritedBO3s;
@@ -269,115 +315,172 @@ public class BO4Config extends CustomObjectConfigFile
 
     public BO4BlockFunction[][] getSmoothingHeightMap(BO4 start)
     {
-    	return getSmoothingHeightMap(start, true);
+    	BO4BlockFunction[][] heightMap = this.heightMaps.get(start.getName());
+    	if(heightMap == null)
+    	{
+    		// Decoded .BO4Data files are shared via the BO4DataCache, so the
+    		// heightmap is only cached here and never on the decoded config.
+    		BO4Config bo4Config = this.isBO4Data ? getDecodedBO4Data() : null;
+    		if(bo4Config == null && this.blocks == null)
+    		{
+    			// The .BO4Data file is unreadable and there is no .BO4 file
+    			heightMap = new BO4BlockFunction[16][16];
+    		} else {
+    			heightMap = (bo4Config != null ? bo4Config : this).createSmoothingHeightMap(start);
+    		}
+    		this.heightMaps.put(start.getName(), heightMap);
+    	}
+    	return heightMap;
     }
     
-    private BO4BlockFunction[][] getSmoothingHeightMap(BO4 start, boolean fromFile)
+    private BO4BlockFunction[][] createSmoothingHeightMap(BO4 start)
     {
-    	// TODO: Caching the heightmap will mean this BO4 can only be used with 1 master BO4,
-    	// it won't pick up smoothing area settings if it is also used in another structure.
-    	if(this.heightMap == null)
+    	BO4BlockFunction[][] heightMap = new BO4BlockFunction[16][16];
+
+        // make heightmap containing the highest or lowest blocks in this chunk
+    	int blockIndex = 0;
+    	LocalMaterialData material;
+    	boolean isSmoothAreaAnchor;
+    	boolean isRandomBlock;
+    	int y;
+    	for(int x = 0; x < xSize; x++)
     	{
-    		if(this.isBO4Data && fromFile)
+    		for(int z = 0; z < zSize; z++)
     		{
-    			BO4Config bo4Config = null;
-				try
-				{
-					bo4Config = new BO4Config(this.reader, false);
-				}
-				catch (InvalidConfigException e)
-				{
-					e.printStackTrace();
-				}
-				if(bo4Config != null)
-				{
-					bo4Config.readFromBO4DataFile(true);
-					this.heightMap = bo4Config.getSmoothingHeightMap(start, false);
-					return this.heightMap;
-    			}
-    		}
-    		
-    		this.heightMap = new BO4BlockFunction[16][16];
-
-	        // make heightmap containing the highest or lowest blocks in this chunk
-    		int blockIndex = 0;
-    		LocalMaterialData material;
-    		boolean isSmoothAreaAnchor;
-    		boolean isRandomBlock;
-    		int y;
-	    	for(int x = 0; x < xSize; x++)
-	    	{
-	    		for(int z = 0; z < zSize; z++)
-	    		{
-	    			if(blocks[x][z] != null)
-	    			{
-	    				for(int i = 0; i < blocks[x][z].length; i++)
-	    				{
-	    					isSmoothAreaAnchor = false;
-	    					isRandomBlock = this.randomBlocksBlocks[blockIndex] != null;
-	    					y = blocks[x][z][i];
+    			if(blocks[x][z] != null)
+    			{
+    				for(int i = 0; i < blocks[x][z].length; i++)
+    				{
+    					isSmoothAreaAnchor = false;
+    					isRandomBlock = this.randomBlocksBlocks[blockIndex] != null;
+    					y = blocks[x][z][i];
 	    					
-				    		if(isRandomBlock)
-				    		{
-	        					for(LocalMaterialData randomMaterial : this.randomBlocksBlocks[blockIndex])
-		            			{
-	        						// TODO: Material should never be null, fix the code in RandomBlockFunction.load() that causes this.
-	        						if(randomMaterial == null)
-	        						{
-	        							continue;
-	        						}
-	        						if(randomMaterial.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater))
-	        						{
-	        							isSmoothAreaAnchor = true;
-	        							break;
-	        						}
-		            			}
-				    		}
-
-				    		material = this.blocksMaterial[blockIndex];
-	            			if(
-	            					isSmoothAreaAnchor ||
-	        						(
-	    								!isRandomBlock &&
-	    								material.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater)
-	    							)
-	        					)
-	                			{
-	    	            			if(
-	    	            				(!(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && y == getminY()) ||
-	    		        				((start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && (this.heightMap[x][z] == null || y > this.heightMap[x][z].y))
-	    	    					)
-	    	            			{
-	    	            				BO4BlockFunction blockFunction = null;
-	    	            				if(isRandomBlock)
-	    	            				{
-	    	            					blockFunction = new BO4RandomBlockFunction();
-	    	    			    			((BO4RandomBlockFunction)blockFunction).blocks = this.randomBlocksBlocks[blockIndex];
-	    	    			    			((BO4RandomBlockFunction)blockFunction).blockChances = this.randomBlocksBlockChances[blockIndex];
-	    	    			    			((BO4RandomBlockFunction)blockFunction).metaDataNames = this.randomBlocksMetaDataNames[blockIndex];
-	    	    			    			((BO4RandomBlockFunction)blockFunction).metaDataTags = this.randomBlocksMetaDataTags[blockIndex];
-	    	    			    			((BO4RandomBlockFunction)blockFunction).blockCount = this.randomBlocksBlockCount[blockIndex];
-	    	            				} else {
-	    	            					blockFunction = new BO4BlockFunction();
-	    	            				}
-	    	            				blockFunction.material = material;
-	    	            				blockFunction.x = x;
-	    	            				blockFunction.y = (short) y;
-	    	            				blockFunction.z = z;	    	            				
-	    	            				blockFunction.metaDataName = this.blocksMetaDataName[blockIndex];
-	    	            				blockFunction.metaDataTag = this.blocksMetaDataTag[blockIndex];
+			    		if(isRandomBlock)
+			    		{
+        					for(LocalMaterialData randomMaterial : this.randomBlocksBlocks[blockIndex])
+	            			{
+        						// TODO: Material should never be null, fix the code in RandomBlockFunction.load() that causes this.
+        						if(randomMaterial == null)
+        						{
+        							continue;
+        						}
+        						if(randomMaterial.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater))
+        						{
+        							isSmoothAreaAnchor = true;
+        							break;
+        						}
+	            			}
+			    		}
+
+			    		material = this.blocksMaterial[blockIndex];
+            			if(
+            					isSmoothAreaAnchor ||
+        						(
+    								!isRandomBlock &&
+    								material.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater)
+    							)
+        					)
+                			{
+    	            			if(
+    	            				(!(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && y == getminY()) ||
+    		        				((start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && (heightMap[x][z] == null || y > heightMap[x][z].y))
+    	    					)
+    	            			{
+    	            				BO4BlockFunction blockFunction = null;
+    	            				if(isRandomBlock)
+    	            				{
+    	            					blockFunction = new BO4RandomBlockFunction();
+    	    			    			((BO4RandomBlockFunction)blockFunction).blocks = this.randomBlocksBlocks[blockIndex];
+    	    			    			((BO4RandomBlockFunction)blockFunction).blockChances = this.randomBlocksBlockChances[blockIndex];
+    	    			    			((BO4RandomBlockFunction)blockFunction).metaDataNames = this.randomBlocksMetaDataNames[blockIndex];
+    	    			    			((BO4RandomBlockFunction)blockFunction).metaDataTags = this.randomBlocksMetaDataTags[blockIndex];
+    	    			    			((BO4RandomBlockFunction)blockFunction).blockCount = this.randomBlocksBlockCount[blockIndex];
+    	            				} else {
+    	            					blockFunction = new BO4BlockFunction();
+    	            				}
+    	            				blockFunction.material = material;
+    	            				blockFunction.x = x;
+    	            				blockFunction.y = (short) y;
+    	            				blockFunction.z = z;	    	            				
+    	            				blockFunction.metaDataName = this.blocksMetaDataName[blockIndex];
+    	            				blockFunction.metaDataTag = this.blocksMetaDataTag[blockIndex];
 	    	            				
-	    	            				this.heightMap[x][z] = blockFunction;
-	    	            			}
-	                			}
+    	            				heightMap[x][z] = blockFunction;
+    	            			}
+                			}
 				    		
-							blockIndex++;
-	    				}
-	    			}
-	    		}
-	    	}
+						blockIndex++;
+    				}
+    			}
+    		}
+    	}
+    	return heightMap;
+    }
+
+    /**
+     * Gets a BO4Config with the blocks of this .BO4Data file loaded. Decoded
+     * files are shared via the BO4DataCache, so the returned config must not
+     * be modified.
+     */
+    private BO4Config getDecodedBO4Data()
+    {
+    	if(this.bo4DataUnreadable)
+    	{
+    		return this.bo4FallbackConfig;
+    	}
+
+    	BO4DataCache cache = OTG.getCustomObjectManager().getBO4DataCache();
+    	File file = this.reader.getFile();
+    	BO4Config bo4Config = cache.isEnabled() ? cache.get(file) : null;
+    	if(bo4Config != null)
+    	{
+    		return bo4Config;
+    	}
+
+		try
+		{
+			bo4Config = new BO4Config(this.reader, false);
+			bo4Config.readFromBO4DataFile(true);
+		}
+		catch (InvalidConfigException e)
+		{
+			// Already logged, don't cache the partially read config.
+			this.bo4FallbackConfig = loadBO4Fallback();
+			this.bo4DataUnreadable = true;
+			return this.bo4FallbackConfig;
+		}
+		if(cache.isEnabled())
+		{
+			cache.put(file, bo4Config.bo4DataSize, bo4Config);
+		}
+		return bo4Config;
+    }
+
+    /**
+     * Loads the .BO4 file this .BO4Data file was exported from, if it's
+     * still next to it.
+     */
+    private BO4Config loadBO4Fallback()
+    {
+    	String bo4DataPath = this.reader.getFile().getAbsolutePath();
+    	// Strip "Data" from ".BO4Data", keeping the case of the extension
+    	File bo4File = new File(bo4DataPath.substring(0, bo4DataPath.length() - 4));
+    	if(!bo4File.isFile())
+    	{
+    		OTG.log(LogMarker.ERROR, "No .BO4 file found for " + bo4DataPath + ", BO4 " + this.getName() + " will be spawned without blocks.");
+    		return null;
+    	}
+    	try
+    	{
+    		BO4Config bo4Config = new BO4Config(new FileSettingsReaderOTGPlus(this.getName(), bo4File), true);
+    		OTG.log(LogMarker.WARN, "Using " + bo4File.getAbsolutePath() + " instead of its .BO4Data file.");
+    		return bo4Config;
+    	}
+    	catch (InvalidConfigException e)
+    	{
+    		OTG.log(LogMarker.ERROR, "Could not load " + bo4File.getAbsolutePath() + " instead of its .BO4Data file, BO4 " + this.getName() + " will be spawned without blocks.");
+    		return null;
     	}
-    	return this.heightMap;
     }
 
     public BO4BlockFunction[] getBlocks()
@@ -389,20 +492,16 @@ public class BO4Config extends CustomObjectConfigFile
     {
     	if(fromFile && this.isBO4Data)
     	{
-			BO4Config bo4Config = null;
-			try
-			{
-				bo4Config = new BO4Config(this.reader, false);
-			}
-			catch (InvalidConfigException e)
-			{
-				e.printStackTrace();
-			}
+			BO4Config bo4Config = getDecodedBO4Data();
 			if(bo4Config != null)
 			{
-				bo4Config.readFromBO4DataFile(true);
 				return bo4Config.getBlocks(false);
 			}
+			// The .BO4Data file is unreadable and there is no .BO4 file
+			if(this.blocks == null)
+			{
+				return new BO4BlockFunction[0];
+			}
     	}
     	
     	BO4BlockFunction[] blocksOTGPlus = new BO4BlockFunction[this.blocksMaterial.length];
@@ -1482,10 +1581,37 @@ public class BO4Config extends CustomObjectConfigFile
         }
     }
 
-    int bo4DataVersion = 1;
+    // .BO4Data files start with this magic number since version 2, version 1
+    // files are a single deflated blob and start with a zlib header instead.
+    private static final int BO4DATA_MAGIC = 0x42344432; // "B4D2"
+    private static final int BO4DATA_VERSION = 2;
+
+    /**
+     * Writes this BO4 in the .BO4Data format. The settings, bounds and
+     * functions are stored uncompressed at the start of the file so they can
+     * be read without decompressing anything. The blocks follow as a
+     * separately compressed section that is only read when spawning.
+     */
     public void writeToStream(DataOutput stream) throws IOException
     {
-    	stream.writeInt(this.bo4DataVersion);    	
+    	stream.writeInt(BO4DATA_MAGIC);
+    	stream.writeInt(BO4DATA_VERSION);
+    	writeSettingsToStream(stream);
+    	writeFunctionsToStream(stream);
+
+    	ByteArrayOutputStream blocksBytes = new ByteArrayOutputStream();
+    	DataOutputStream blocksStream = new DataOutputStream(blocksBytes);
+    	writeBlocksToStream(blocksStream);
+    	blocksStream.close();
+    	byte[] uncompressedBlocks = blocksBytes.toByteArray();
+    	byte[] compressedBlocks = CompressionUtils.compress(uncompressedBlocks);
+    	stream.writeInt(uncompressedBlocks.length);
+    	stream.writeInt(compressedBlocks.length);
+    	stream.write(compressedBlocks);
+    }
+
+    private void writeSettingsToStream(DataOutput stream) throws IOException
+    {
     	stream.writeInt(this.minimumSizeTop);
     	stream.writeInt(this.minimumSizeBottom);
     	stream.writeInt(this.minimumSizeLeft);
@@ -1539,7 +1665,10 @@ public class BO4Config extends CustomObjectConfigFile
         StreamHelper.writeStringToStream(stream, this.bo3Group);
         stream.writeBoolean(this.isSpawnPoint);        
         stream.writeBoolean(this.isCollidable);
+    }
 
+    private void writeBlocksToStream(DataOutput stream) throws IOException
+    {
         ArrayList<LocalMaterialData> materials = new ArrayList<LocalMaterialData>();
         ArrayList<String> metaDataNames = new ArrayList<String>();
         int randomBlockCount = 0;
@@ -1668,7 +1797,10 @@ public class BO4Config extends CustomObjectConfigFile
 		        }        	
 	        }
         }
-        
+    }
+
+    private void writeFunctionsToStream(DataOutput stream) throws IOException
+    {
         stream.writeInt(this.branchesOTGPlus.length);
         for(BO4BranchFunction func : Arrays.asList(this.branchesOTGPlus))
         {
@@ -1706,327 +1838,64 @@ public class BO4Config extends CustomObjectConfigFile
         }
     }
 
-    public BO4Config readFromBO4DataFile(boolean getBlocks)
+    public BO4Config readFromBO4DataFile(boolean getBlocks) throws InvalidConfigException
     {
     	FileInputStream fis;
-		try {			
-	    	fis = new FileInputStream(this.reader.getFile());			
-	    	try
-	    	{
-	    		ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());				
-				
+		try {
+	    	fis = new FileInputStream(this.reader.getFile());
+		}
+		catch (FileNotFoundException e2)
+		{
+			e2.printStackTrace();
+			return this;
+		}
+    	try
+    	{
+    		ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());
+
+			this.isBO4Data = true;
+        	this.inheritedBO3Loaded = true;
+
+    		if(buffer.remaining() >= 4 && buffer.getInt(0) == BO4DATA_MAGIC)
+    		{
+    			// Version 2+, read the header from the mapped file and only
+    			// decompress the blocks if they're needed.
+    			buffer.getInt();
+    			checkBO4DataVersion(buffer.getInt(), BO4DATA_VERSION);
+    			readSettingsFromBuffer(buffer);
+    			readFunctionsFromBuffer(buffer);
+    			int uncompressedBlocksLength = buffer.getInt();
+    			int compressedBlocksLength = buffer.getInt();
+    			this.bo4DataSize = buffer.position() + uncompressedBlocksLength;
+    			if(getBlocks)
+    			{
+    				byte[] compressedBlocks = new byte[compressedBlocksLength];
+    				buffer.get(compressedBlocks);
+    				readBlocksFromBuffer(ByteBuffer.wrap(decompressBO4Data(compressedBlocks)), true);
+    			}
+    		} else {
+    			// Version 1, the whole file is compressed.
 				byte[] compressedBytes = new byte[(int) fis.getChannel().size()];
 				buffer.get(compressedBytes);
-				try {
-					byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
-		    		buffer = ByteBuffer.wrap(decompressedBytes);
-				} catch (DataFormatException e1) {
-					// TODO Auto-generated catch block
-					e1.printStackTrace();
-				}				
-				
-				//buffer.get(data, 0, remaining);
-				// do something with data
-		      
-				this.isBO4Data = true;
-	        	this.inheritedBO3Loaded = true;
-	        	int bo4DataVersion = buffer.getInt();
-	        	this.minimumSizeTop = buffer.getInt();
-	        	this.minimumSizeBottom = buffer.getInt();
-	        	this.minimumSizeLeft = buffer.getInt();
-	        	this.minimumSizeRight = buffer.getInt();
-	        	
-	            this.minX = buffer.getInt();
-	            this.maxX = buffer.getInt();
-	            this.minY = buffer.getInt();
-	            this.maxY = buffer.getInt();
-	            this.minZ = buffer.getInt();
-	            this.maxZ = buffer.getInt();
-	
-				this.author = StreamHelper.readStringFromBuffer(buffer);
-				this.description = StreamHelper.readStringFromBuffer(buffer);
-				this.settingsMode = ConfigMode.valueOf(StreamHelper.readStringFromBuffer(buffer));
-				this.frequency = buffer.getInt();
-				this.spawnHeight = SpawnHeightEnum.valueOf(StreamHelper.readStringFromBuffer(buffer));
-				this.minHeight = buffer.getInt();
-				this.maxHeight = buffer.getInt();
-		        short inheritedBO3sSize = buffer.getShort();
-		        this.inheritedBO3s = new ArrayList<String>();
-		        for(int i = 0; i < inheritedBO3sSize; i++)
-		        {
-		        	this.inheritedBO3s.add(StreamHelper.readStringFromBuffer(buffer));
-		        }
-				this.inheritBO3 = StreamHelper.readStringFromBuffer(buffer);
-				this.inheritBO3Rotation = Rotation.valueOf(StreamHelper.readStringFromBuffer(buffer));
-				this.overrideChildSettings = buffer.get() != 0;
-				this.overrideParentHeight = buffer.get() != 0;
-				this.canOverride = buffer.get() != 0;
-				this.branchFrequency = buffer.getInt();
-				this.branchFrequencyGroup = StreamHelper.readStringFromBuffer(buffer);
-				this.mustBeBelowOther = buffer.get() != 0;
-				this.mustBeInsideWorldBorders = buffer.get() != 0;
-				this.mustBeInside = StreamHelper.readStringFromBuffer(buffer);
-				this.cannotBeInside = StreamHelper.readStringFromBuffer(buffer);
-				this.replacesBO3 = StreamHelper.readStringFromBuffer(buffer);
-				this.canSpawnOnWater = buffer.get() != 0;
-				this.spawnOnWaterOnly = buffer.get() != 0;
-				this.spawnUnderWater = buffer.get() != 0;
-				this.spawnAtWaterLevel = buffer.get() != 0;
-				this.heightOffset = buffer.getInt();
-				this.removeAir = buffer.get() != 0;
-				this.replaceAbove = StreamHelper.readStringFromBuffer(buffer);
-				this.replaceBelow = StreamHelper.readStringFromBuffer(buffer);
-				this.replaceWithBiomeBlocks = buffer.get() != 0;
-				this.replaceWithGroundBlock = StreamHelper.readStringFromBuffer(buffer);
-				this.replaceWithSurfaceBlock = StreamHelper.readStringFromBuffer(buffer);
-				this.smoothRadius = buffer.getInt();
-				this.smoothHeightOffset = buffer.getInt();
-				this.smoothStartTop = buffer.get() != 0;
-				this.smoothStartWood = buffer.get() != 0;
-				this.smoothingSurfaceBlock = StreamHelper.readStringFromBuffer(buffer);
-				this.smoothingGroundBlock = StreamHelper.readStringFromBuffer(buffer);
-				this.bo3Group = StreamHelper.readStringFromBuffer(buffer);
-				this.isSpawnPoint = buffer.get() != 0;        
-				this.isCollidable = buffer.get() != 0;
-		   			
-	            this.branchFrequencyGroups = new HashMap<String, Integer>();
-	            if(this.branchFrequencyGroup != null && this.branchFrequencyGroup.trim().length() > 0)
-	            {
-	    	        String[] groupStrings = this.branchFrequencyGroup.split(",");
-	    	        if(groupStrings != null && groupStrings.length > 0)
-	    	        {
-	    	        	for(int i = 0; i < groupStrings.length; i++)
-	    	        	{
-	    	            	String[] groupString = groupStrings[i].trim().length() > 0 ? groupStrings[i].split(":") : null;
-	    	            	if(groupString != null && groupString.length == 2)
-	    	            	{
-	    	            		this.branchFrequencyGroups.put(groupString[0].trim(), Integer.parseInt(groupString[1].trim()));
-	    	            	}
-	    	        	}
-	    	        }
-	            }
-	            
-	            this.bo3Groups = new HashMap<String, Integer>();
-	            if(this.bo3Group != null && this.bo3Group.trim().length() > 0)
-	            {
-	    	        String[] groupStrings = this.bo3Group.split(",");
-	    	        if(groupStrings != null && groupStrings.length > 0)
-	    	        {
-	    	        	for(int i = 0; i < groupStrings.length; i++)
-	    	        	{
-	    	            	String[] groupString = groupStrings[i].trim().length() > 0 ? groupStrings[i].split(":") : null;
-	    	            	if(groupString != null && groupString.length == 2)
-	    	            	{
-	    	            		this.bo3Groups.put(groupString[0].trim(), Integer.parseInt(groupString[1].trim()));
-	    	            	}
-	    	        	}
-	    	        }
-	            }           
-	                        
-	            this.mustBeInsideBranches = new ArrayList<String>();
-	            if(this.mustBeInside != null && this.mustBeInside.trim().length() > 0)
-	            {
-	    	        String[] mustBeInsideStrings = this.mustBeInside.split(",");
-	    	        if(mustBeInsideStrings != null && mustBeInsideStrings.length > 0)
-	    	        {
-	    	        	for(int i = 0; i < mustBeInsideStrings.length; i++)
-	    	        	{
-	    	            	String mustBeInsideString = mustBeInsideStrings[i].trim();
-	    	            	if(mustBeInsideString.length() > 0)
-	    	            	{
-	    	            		this.mustBeInsideBranches.add(mustBeInsideString);
-	    	            	}
-	    	        	}
-	    	        }
-	            }
-	            
-	            this.cannotBeInsideBranches = new ArrayList<String>();
-	            if(this.cannotBeInside != null && this.cannotBeInside.trim().length() > 0)
-	            {
-	    	        String[] cannotBeInsideStrings = this.cannotBeInside.split(",");
-	    	        if(cannotBeInsideStrings != null && cannotBeInsideStrings.length > 0)
-	    	        {
-	    	        	for(int i = 0; i < cannotBeInsideStrings.length; i++)
-	    	        	{
-	    	            	String cannotBeInsideString = cannotBeInsideStrings[i].trim();
-	    	            	if(cannotBeInsideString.length() > 0)
-	    	            	{
-	    	            		this.cannotBeInsideBranches.add(cannotBeInsideString);
-	    	            	}
-	    	        	}
-	    	        }
-	            }
-	            
-	            this.replacesBO3Branches = new ArrayList<String>();
-	            if(this.replacesBO3 != null && this.replacesBO3.trim().length() > 0)
-	            {
-	    	        String[] replacesBO3Strings = replacesBO3.split(",");
-	    	        if(replacesBO3Strings != null && replacesBO3Strings.length > 0)
-	    	        {
-	    	        	for(int i = 0; i < replacesBO3Strings.length; i++)
-	    	        	{
-	    	            	String replacesBO3String = replacesBO3Strings[i].trim();
-	    	            	if(replacesBO3String.length() > 0)
-	    	            	{
-	    	            		this.replacesBO3Branches.add(replacesBO3String);
-	    	            	}
-	    	        	}
-	    	        }
-	            }
-				            
-				// Reconstruct blocks
-				short metaDataNamesArrLength = buffer.getShort();
-				String[] metaDataNames = new String[metaDataNamesArrLength];
-		        for(int i = 0; i < metaDataNamesArrLength; i++)
-		        {
-		        	metaDataNames[i] = StreamHelper.readStringFromBuffer(buffer);
-		        }
-		        
-		        short blocksArrArrLength = buffer.getShort();
-		        LocalMaterialData[] blocksArr = new LocalMaterialData[blocksArrArrLength];
-		        for(int i = 0; i < blocksArrArrLength; i++)
-		        {
-		        	String materialName = StreamHelper.readStringFromBuffer(buffer);
-		        	try {
-						blocksArr[i] = MaterialHelper.readMaterial(materialName);
-					} catch (InvalidConfigException e) {
-						if(OTG.getPluginConfig().spawnLog)
-						{
-							OTG.log(LogMarker.WARN, "Could not read material \"" + materialName + "\" for BO4 \"" + this.getName() + "\"");
-							e.printStackTrace();
-						}
-					}
-		        }
-		        
-		        short[][] columnSizes = new short[xSize][zSize];
-		               
-		        // TODO: This assumes that loading blocks in a different order won't matter, which may not be true?
-		        // Anything that spawns on top, entities/spawners etc, should be spawned last tho, so shouldn't be a problem?
-		        int nonRandomBlockCount = buffer.getInt();
-		        int nonRandomBlockIndex = 0;
-		        ArrayList<BO4BlockFunction> nonRandomBlocks = new ArrayList<BO4BlockFunction>();
-		        if(nonRandomBlockCount > 0)
-		        {
-			        for(int x = this.getminX(); x < xSize; x++)
-			        {
-			        	for(int z = this.getminZ(); z < zSize; z++)
-			        	{
-				        	short blocksInColumnSize = buffer.getShort();
-				        	for(int j = 0; j < blocksInColumnSize; j++)
-				        	{
-				        		columnSizes[x][z]++;
-				        		nonRandomBlocks.add(BO4BlockFunction.fromStream(x, z, metaDataNames, blocksArr, this, buffer));
-				        		nonRandomBlockIndex++;
-				        		if(nonRandomBlockCount == nonRandomBlockIndex)
-				        		{
-				        			break;
-				        		}
-				        	}
-			        		if(nonRandomBlockCount == nonRandomBlockIndex)
-			        		{
-			        			break;
-			        		}
-			        	}
-		        		if(nonRandomBlockCount == nonRandomBlockIndex)
-		        		{
-		        			break;
-		        		}
-			        }
-		        }		       
-		        		        
-		        int randomBlockCount = buffer.getInt();
-		        int randomBlockIndex = 0;
-		        ArrayList<BO4RandomBlockFunction> randomBlocks = new ArrayList<BO4RandomBlockFunction>();
-		        if(randomBlockCount > 0)
-		        {
-			        for(int x = this.getminX(); x < xSize; x++)
-			        {
-			        	for(int z = this.getminZ(); z < zSize; z++)
-			        	{
-			        		short blocksInColumnSize = buffer.getShort();
-				        	for(int j = 0; j < blocksInColumnSize; j++)
-				        	{
-				        		columnSizes[x][z]++;
-				        		randomBlocks.add(BO4RandomBlockFunction.fromStream(x, z, metaDataNames, blocksArr, this, buffer));
-				        		randomBlockIndex++;
-				        		if(randomBlockCount == randomBlockIndex)
-				        		{
-				        			break;
-				        		}
-				        	}
-			        		if(randomBlockCount == randomBlockIndex)
-			        		{
-			        			break;
-			        		}
-			        	}
-		        		if(randomBlockCount == randomBlockIndex)
-		        		{
-		        			break;
-		        		}
-			        }
-		        }
-		        		        
-				ArrayList<BO4BlockFunction> newBlocks = new ArrayList<BO4BlockFunction>();				
-				newBlocks.addAll(nonRandomBlocks);
-				newBlocks.addAll(randomBlocks);
-				
-				if(getBlocks)
-				{
-					loadBlockArrays(newBlocks, columnSizes);
-				}
-								
-		        int branchesOTGPlusLength = buffer.getInt();
-		        boolean branchType;
-		        BO4BranchFunction branch;
-		        this.branchesOTGPlus = new BO4BranchFunction[branchesOTGPlusLength];
-		        for(int i = 0; i < branchesOTGPlusLength; i++)
-		        {
-		        	branchType = buffer.get() != 0;
-		        	if(branchType)
-		        	{       		
-		        		branch = BO4WeightedBranchFunction.fromStream(this, buffer);
-		        		
-		        	} else {
-		        		branch = BO4BranchFunction.fromStream(this, buffer);
-		        	}        	
-		        	this.branchesOTGPlus[i] = branch;
-		        }
-		        
-		        int entityDataOTGPlusLength = buffer.getInt();
-		        this.entityDataOTGPlus = new BO4EntityFunction[entityDataOTGPlusLength];
-		        for(int i = 0; i < entityDataOTGPlusLength; i++)
-		        {
-		        	this.entityDataOTGPlus[i] = BO4EntityFunction.fromStream(this, buffer);
-		        }
-		        
-		        int particleDataOTGPlusLength = buffer.getInt();
-		        this.particleDataOTGPlus = new BO4ParticleFunction[particleDataOTGPlusLength];
-		        for(int i = 0; i < particleDataOTGPlusLength; i++)
-		        {
-		        	this.particleDataOTGPlus[i] = BO4ParticleFunction.fromStream(this, buffer);
-		        }
-		
-		        int spawnerDataOTGPlusLength = buffer.getInt();
-		        this.spawnerDataOTGPlus = new BO4SpawnerFunction[spawnerDataOTGPlusLength];
-		        for(int i = 0; i < spawnerDataOTGPlusLength; i++)
-		        {
-		        	this.spawnerDataOTGPlus[i] = BO4SpawnerFunction.fromStream(this, buffer);
-		        }
-		
-		        int modDataOTGPlusLength = buffer.getInt();
-		        this.modDataOTGPlus = new BO4ModDataFunction[modDataOTGPlusLength];
-		        for(int i = 0; i < modDataOTGPlusLength; i++)
-		        {
-		        	this.modDataOTGPlus[i] = BO4ModDataFunction.fromStream(this, buffer);
-		        }
-				
-			}
-	    	catch (IOException e1)
-	    	{
-				e1.printStackTrace();
-			}
-	    	
-	    	// when finished	    	
+				byte[] decompressedBytes = decompressBO4Data(compressedBytes);
+	    		buffer = ByteBuffer.wrap(decompressedBytes);
+	    		this.bo4DataSize = decompressedBytes.length;
+
+	        	checkBO4DataVersion(buffer.getInt(), 1);
+	        	readSettingsFromBuffer(buffer);
+	        	readBlocksFromBuffer(buffer, getBlocks);
+	        	readFunctionsFromBuffer(buffer);
+    		}
+		}
+    	catch (IOException | RuntimeException e1)
+    	{
+    		// Truncated files end up here as a BufferUnderflowException
+			OTG.log(LogMarker.ERROR, "BO4Data file " + this.reader.getFile().getAbsolutePath() + " could not be read, it may be corrupt.");
+			OTG.printStackTrace(LogMarker.ERROR, e1);
+			throw new InvalidConfigException("BO4Data file " + this.reader.getFile().getAbsolutePath() + " could not be read.");
+		}
+    	finally
+    	{
     		try {
     			fis.getChannel().close();
     		}
@@ -2041,15 +1910,335 @@ public class BO4Config extends CustomObjectConfigFile
 			{
 				e.printStackTrace();
 			}
-		}
-		catch (FileNotFoundException e2)
-		{
-			e2.printStackTrace();
-		}
-               
+    	}
+
     	return this;
     }
+
+    private byte[] decompressBO4Data(byte[] compressedBytes) throws IOException, InvalidConfigException
+    {
+    	try
+    	{
+    		return CompressionUtils.decompress(compressedBytes);
+    	}
+    	catch (DataFormatException e)
+    	{
+    		OTG.log(LogMarker.ERROR, "BO4Data file " + this.reader.getFile().getAbsolutePath() + " could not be decompressed, it may be corrupt.");
+    		throw new InvalidConfigException("BO4Data file " + this.reader.getFile().getAbsolutePath() + " could not be decompressed.");
+    	}
+    }
+
+    /**
+     * Rejects .BO4Data files written in a format this version of OTG can't
+     * read, such as files exported by a newer version.
+     */
+    private void checkBO4DataVersion(int version, int expectedVersion) throws InvalidConfigException
+    {
+    	if(version != expectedVersion)
+    	{
+    		OTG.log(LogMarker.ERROR, "BO4Data file " + this.reader.getFile().getAbsolutePath() + " has unsupported version " + version + " (expected " + expectedVersion + "). Delete it and export it again from the .BO4 file with /otg exportBO4Data.");
+    		throw new InvalidConfigException("BO4Data file " + this.reader.getFile().getAbsolutePath() + " has unsupported version " + version + ".");
+    	}
+    }
         
+    private void readSettingsFromBuffer(ByteBuffer buffer) throws IOException
+    {
+    	this.minimumSizeTop = buffer.getInt();
+    	this.minimumSizeBottom = buffer.getInt();
+    	this.minimumSizeLeft = buffer.getInt();
+    	this.minimumSizeRight = buffer.getInt();
+
+        this.minX = buffer.getInt();
+        this.maxX = buffer.getInt();
+        this.minY = buffer.getInt();
+        this.maxY = buffer.getInt();
+        this.minZ = buffer.getInt();
+        this.maxZ = buffer.getInt();
+
+		this.author = StreamHelper.readStringFromBuffer(buffer);
+		this.description = StreamHelper.readStringFromBuffer(buffer);
+		this.settingsMode = ConfigMode.valueOf(StreamHelper.readStringFromBuffer(buffer));
+		this.frequency = buffer.getInt();
+		this.spawnHeight = SpawnHeightEnum.valueOf(StreamHelper.readStringFromBuffer(buffer));
+		this.minHeight = buffer.getInt();
+		this.maxHeight = buffer.getInt();
+        short inheritedBO3sSize = buffer.getShort();
+        this.inheritedBO3s = new ArrayList<String>();
+        for(int i = 0; i < inheritedBO3sSize; i++)
+        {
+        	this.inheritedBO3s.add(StreamHelper.readStringFromBuffer(buffer));
+        }
+		this.inheritBO3 = StreamHelper.readStringFromBuffer(buffer);
+		this.inheritBO3Rotation = Rotation.valueOf(StreamHelper.readStringFromBuffer(buffer));
+		this.overrideChildSettings = buffer.get() != 0;
+		this.overrideParentHeight = buffer.get() != 0;
+		this.canOverride = buffer.get() != 0;
+		this.branchFrequency = buffer.getInt();
+		this.branchFrequencyGroup = StreamHelper.readStringFromBuffer(buffer);
+		this.mustBeBelowOther = buffer.get() != 0;
+		this.mustBeInsideWorldBorders = buffer.get() != 0;
+		this.mustBeInside = StreamHelper.readStringFromBuffer(buffer);
+		this.cannotBeInside = StreamHelper.readStringFromBuffer(buffer);
+		this.replacesBO3 = StreamHelper.readStringFromBuffer(buffer);
+		this.canSpawnOnWater = buffer.get() != 0;
+		this.spawnOnWaterOnly = buffer.get() != 0;
+		this.spawnUnderWater = buffer.get() != 0;
+		this.spawnAtWaterLevel = buffer.get() != 0;
+		this.heightOffset = buffer.getInt();
+		this.removeAir = buffer.get() != 0;
+		this.replaceAbove = StreamHelper.readStringFromBuffer(buffer);
+		this.replaceBelow = StreamHelper.readStringFromBuffer(buffer);
+		this.replaceWithBiomeBlocks = buffer.get() != 0;
+		this.replaceWithGroundBlock = StreamHelper.readStringFromBuffer(buffer);
+		this.replaceWithSurfaceBlock = StreamHelper.readStringFromBuffer(buffer);
+		this.smoothRadius = buffer.getInt();
+		this.smoothHeightOffset = buffer.getInt();
+		this.smoothStartTop = buffer.get() != 0;
+		this.smoothStartWood = buffer.get() != 0;
+		this.smoothingSurfaceBlock = StreamHelper.readStringFromBuffer(buffer);
+		this.smoothingGroundBlock = StreamHelper.readStringFromBuffer(buffer);
+		this.bo3Group = StreamHelper.readStringFromBuffer(buffer);
+		this.isSpawnPoint = buffer.get() != 0;        
+		this.isCollidable = buffer.get() != 0;
+
+        this.branchFrequencyGroups = new HashMap<String, Integer>();
+        if(this.branchFrequencyGroup != null && this.branchFrequencyGroup.trim().length() > 0)
+        {
+	        String[] groupStrings = this.branchFrequencyGroup.split(",");
+	        if(groupStrings != null && groupStrings.length > 0)
+	        {
+	        	for(int i = 0; i < groupStrings.length; i++)
+	        	{
+	            	String[] groupString = groupStrings[i].trim().length() > 0 ? groupStrings[i].split(":") : null;
+	            	if(groupString != null && groupString.length == 2)
+	            	{
+	            		this.branchFrequencyGroups.put(groupString[0].trim(), Integer.parseInt(groupString[1].trim()));
+	            	}
+	        	}
+	        }
+        }
+
+        this.bo3Groups = new HashMap<String, Integer>();
+        if(this.bo3Group != null && this.bo3Group.trim().length() > 0)
+        {
+	        String[] groupStrings = this.bo3Group.split(",");
+	        if(groupStrings != null && groupStrings.length > 0)
+	        {
+	        	for(int i = 0; i < groupStrings.length; i++)
+	        	{
+	            	String[] groupString = groupStrings[i].trim().length() > 0 ? groupStrings[i].split(":") : null;
+	            	if(groupString != null && groupString.length == 2)
+	            	{
+	            		this.bo3Groups.put(groupString[0].trim(), Integer.parseInt(groupString[1].trim()));
+	            	}
+	        	}
+	        }
+        }           
+
+        this.mustBeInsideBranches = new ArrayList<String>();
+        if(this.mustBeInside != null && this.mustBeInside.trim().length() > 0)
+        {
+	        String[] mustBeInsideStrings = this.mustBeInside.split(",");
+	        if(mustBeInsideStrings != null && mustBeInsideStrings.length > 0)
+	        {
+	        	for(int i = 0; i < mustBeInsideStrings.length; i++)
+	        	{
+	            	String mustBeInsideString = mustBeInsideStrings[i].trim();
+	            	if(mustBeInsideString.length() > 0)
+	            	{
+	            		this.mustBeInsideBranches.add(mustBeInsideString);
+	            	}
+	        	}
+	        }
+        }
+
+        this.cannotBeInsideBranches = new ArrayList<String>();
+        if(this.cannotBeInside != null && this.cannotBeInside.trim().length() > 0)
+        {
+	        String[] cannotBeInsideStrings = this.cannotBeInside.split(",");
+	        if(cannotBeInsideStrings != null && cannotBeInsideStrings.length > 0)
+	        {
+	        	for(int i = 0; i < cannotBeInsideStrings.length; i++)
+	        	{
+	            	String cannotBeInsideString = cannotBeInsideStrings[i].trim();
+	            	if(cannotBeInsideString.length() > 0)
+	            	{
+	            		this.cannotBeInsideBranches.add(cannotBeInsideString);
+	            	}
+	        	}
+	        }
+        }
+
+        this.replacesBO3Branches = new ArrayList<String>();
+        if(this.replacesBO3 != null && this.replacesBO3.trim().length() > 0)
+        {
+	        String[] replacesBO3Strings = replacesBO3.split(",");
+	        if(replacesBO3Strings != null && replacesBO3Strings.length > 0)
+	        {
+	        	for(int i = 0; i < replacesBO3Strings.length; i++)
+	        	{
+	            	String replacesBO3String = replacesBO3Strings[i].trim();
+	            	if(replacesBO3String.length() > 0)
+	            	{
+	            		this.replacesBO3Branches.add(replacesBO3String);
+	            	}
+	        	}
+	        }
+        }
+    }
+
+    private void readBlocksFromBuffer(ByteBuffer buffer, boolean getBlocks) throws IOException
+    {
+		// Reconstruct blocks
+		short metaDataNamesArrLength = buffer.getShort();
+		String[] metaDataNames = new String[metaDataNamesArrLength];
+        for(int i = 0; i < metaDataNamesArrLength; i++)
+        {
+        	metaDataNames[i] = StreamHelper.readStringFromBuffer(buffer);
+        }
+
+        short blocksArrArrLength = buffer.getShort();
+        LocalMaterialData[] blocksArr = new LocalMaterialData[blocksArrArrLength];
+        for(int i = 0; i < blocksArrArrLength; i++)
+        {
+        	String materialName = StreamHelper.readStringFromBuffer(buffer);
+        	try {
+				blocksArr[i] = MaterialHelper.readMaterial(materialName);
+			} catch (InvalidConfigException e) {
+				if(OTG.getPluginConfig().spawnLog)
+				{
+					OTG.log(LogMarker.WARN, "Could not read material \"" + materialName + "\" for BO4 \"" + this.getName() + "\"");
+					e.printStackTrace();
+				}
+			}
+        }
+
+        short[][] columnSizes = new short[xSize][zSize];
+
+        // TODO: This assumes that loading blocks in a different order won't matter, which may not be true?
+        // Anything that spawns on top, entities/spawners etc, should be spawned last tho, so shouldn't be a problem?
+        int nonRandomBlockCount = buffer.getInt();
+        int nonRandomBlockIndex = 0;
+        ArrayList<BO4BlockFunction> nonRandomBlocks = new ArrayList<BO4BlockFunction>();
+        if(nonRandomBlockCount > 0)
+        {
+	        for(int x = this.getminX(); x < xSize; x++)
+	        {
+	        	for(int z = this.getminZ(); z < zSize; z++)
+	        	{
+		        	short blocksInColumnSize = buffer.getShort();
+		        	for(int j = 0; j < blocksInColumnSize; j++)
+		        	{
+		        		columnSizes[x][z]++;
+		        		nonRandomBlocks.add(BO4BlockFunction.fromStream(x, z, metaDataNames, blocksArr, this, buffer));
+		        		nonRandomBlockIndex++;
+		        		if(nonRandomBlockCount == nonRandomBlockIndex)
+		        		{
+		        			break;
+		        		}
+		        	}
+	        		if(nonRandomBlockCount == nonRandomBlockIndex)
+	        		{
+	        			break;
+	        		}
+	        	}
+        		if(nonRandomBlockCount == nonRandomBlockIndex)
+        		{
+        			break;
+        		}
+	        }
+        }		       
+
+        int randomBlockCount = buffer.getInt();
+        int randomBlockIndex = 0;
+        ArrayList<BO4RandomBlockFunction> randomBlocks = new ArrayList<BO4RandomBlockFunction>();
+        if(randomBlockCount > 0)
+        {
+	        for(int x = this.getminX(); x < xSize; x++)
+	        {
+	        	for(int z = this.getminZ(); z < zSize; z++)
+	        	{
+	        		short blocksInColumnSize = buffer.getShort();
+		        	for(int j = 0; j < blocksInColumnSize; j++)
+		        	{
+		        		columnSizes[x][z]++;
+		        		randomBlocks.add(BO4RandomBlockFunction.fromStream(x, z, metaDataNames, blocksArr, this, buffer));
+		        		randomBlockIndex++;
+		        		if(randomBlockCount == randomBlockIndex)
+		        		{
+		        			break;
+		        		}
+		        	}
+	        		if(randomBlockCount == randomBlockIndex)
+	        		{
+	        			break;
+	        		}
+	        	}
+        		if(randomBlockCount == randomBlockIndex)
+        		{
+        			break;
+        		}
+	        }
+        }
+
+		ArrayList<BO4BlockFunction> newBlocks = new ArrayList<BO4BlockFunction>();				
+		newBlocks.addAll(nonRandomBlocks);
+		newBlocks.addAll(randomBlocks);
+
+		if(getBlocks)
+		{
+			loadBlockArrays(newBlocks, columnSizes);
+		}
+    }
+
+    private void readFunctionsFromBuffer(ByteBuffer buffer) throws IOException
+    {
+        int branchesOTGPlusLength = buffer.getInt();
+        boolean branchType;
+        BO4BranchFunction branch;
+        this.branchesOTGPlus = new BO4BranchFunction[branchesOTGPlusLength];
+        for(int i = 0; i < branchesOTGPlusLength; i++)
+        {
+        	branchType = buffer.get() != 0;
+        	if(branchType)
+        	{       		
+        		branch = BO4WeightedBranchFunction.fromStream(this, buffer);
+
+        	} else {
+        		branch = BO4BranchFunction.fromStream(this, buffer);
+        	}        	
+        	this.branchesOTGPlus[i] = branch;
+        }
+
+        int entityDataOTGPlusLength = buffer.getInt();
+        this.entityDataOTGPlus = new BO4EntityFunction[entityDataOTGPlusLength];
+        for(int i = 0; i < entityDataOTGPlusLength; i++)
+        {
+        	this.entityDataOTGPlus[i] = BO4EntityFunction.fromStream(this, buffer);
+        }
+
+        int particleDataOTGPlusLength = buffer.getInt();
+        this.particleDataOTGPlus = new BO4ParticleFunction[particleDataOTGPlusLength];
+        for(int i = 0; i < particleDataOTGPlusLength; i++)
+        {
+        	this.particleDataOTGPlus[i] = BO4ParticleFunction.fromStream(this, buffer);
+        }
+
+        int spawnerDataOTGPlusLength = buffer.getInt();
+        this.spawnerDataOTGPlus = new BO4SpawnerFunction[spawnerDataOTGPlusLength];
+        for(int i = 0; i < spawnerDataOTGPlusLength; i++)
+        {
+        	this.spawnerDataOTGPlus[i] = BO4SpawnerFunction.fromStream(this, buffer);
+        }
+
+        int modDataOTGPlusLength = buffer.getInt();
+        this.modDataOTGPlus = new BO4ModDataFunction[modDataOTGPlusLength];
+        for(int i = 0; i < modDataOTGPlusLength; i++)
+        {
+        	this.modDataOTGPlus[i] = BO4ModDataFunction.fromStream(this, buffer);
+        }
+    }
+
     private void loadBlockArrays(ArrayList<BO4BlockFunction> newBlocks, short[][] columnSizes)
     {
         // Store blocks in arrays instead of as BO4BlockFunctions,
@@ -0,0 +1,139 @@
+package com.pg85.otg.customobjects.bo4;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Shared cache of decoded .BO4Data files, so spawning the same branch many
+ * times doesn't re-read, decompress and parse the file each time.
+ *
+ * Entries are keyed on the file's path. Files aren't checked for changes on
+ * each lookup, the cache is cleared when custom objects are reloaded instead
+ * (/otg flush or a config reload). The cache is bounded by the decoded
+ * size of the files it holds and evicts the least recently used files first.
+ * Entries are held via soft references, so the garbage collector can reclaim
+ * them when memory runs low.
+ */
+public class BO4DataCache
+{
+    private final long maxSize;
+
+    // Access ordered, eldest entry is the least recently used.
+    private final LinkedHashMap<String, CachedBO4Data> entries = new LinkedHashMap<String, CachedBO4Data>(16, 0.75f, true);
+    private long size = 0;
+
+    // Stats
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long collected = 0;
+
+    /**
+     * @param maxSize The maximum decoded size in bytes of all cached files, 0 disables the cache.
+     */
+    public BO4DataCache(long maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the decoded BO4Config for the given file. The returned config is
+     * shared and must not be modified by the caller.
+     * @return The config, or null if it isn't cached.
+     */
+    synchronized BO4Config get(File file)
+    {
+        String path = file.getAbsolutePath();
+        CachedBO4Data cached = this.entries.get(path);
+        if (cached != null)
+        {
+            BO4Config config = cached.config.get();
+            if (config != null)
+            {
+                this.hits++;
+                return config;
+            }
+            this.collected++;
+            this.entries.remove(path);
+            this.size -= cached.size;
+        }
+        this.misses++;
+        return null;
+    }
+
+    /**
+     * Caches a decoded BO4Config, the cache takes ownership of the config.
+     * @param file        The .BO4Data file the config was read from.
+     * @param decodedSize The decoded size of the file in bytes.
+     * @param config      The config.
+     */
+    synchronized void put(File file, long decodedSize, BO4Config config)
+    {
+        if (decodedSize > this.maxSize)
+        {
+            return;
+        }
+
+        CachedBO4Data previous = this.entries.put(file.getAbsolutePath(), new CachedBO4Data(decodedSize, config));
+        if (previous != null)
+        {
+            this.size -= previous.size;
+        }
+        this.size += decodedSize;
+
+        Iterator<Entry<String, CachedBO4Data>> it = this.entries.entrySet().iterator();
+        CachedBO4Data eldest;
+        while (it.hasNext())
+        {
+            eldest = it.next().getValue();
+            if (eldest.config.get() == null)
+            {
+                // Already reclaimed by the garbage collector
+                this.collected++;
+            }
+            else if (this.size > this.maxSize)
+            {
+                this.evictions++;
+            } else {
+                continue;
+            }
+            it.remove();
+            this.size -= eldest.size;
+        }
+    }
+
+    public synchronized void clear()
+    {
+        this.entries.clear();
+        this.size = 0;
+    }
+
+    public boolean isEnabled()
+    {
+        return this.maxSize > 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        long lookups = this.hits + this.misses;
+        return "Files: " + this.entries.size() + ", size: " + (this.size / 1024) + "KB, hits: " + this.hits + ", misses: " + this.misses
+                + ", evictions: " + this.evictions + ", collected: " + this.collected
+                + ", hit rate: " + (lookups > 0 ? Math.round(this.hits * 100d / lookups) : 0) + "%";
+    }
+
+    private static class CachedBO4Data
+    {
+        private final long size;
+        private final SoftReference<BO4Config> config;
+
+        CachedBO4Data(long size, BO4Config config)
+        {
+            this.size = size;
+            this.config = new SoftReference<BO4Config>(config);
+        }
+    }
+}
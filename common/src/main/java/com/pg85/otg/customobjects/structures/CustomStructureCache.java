@@ -12,6 +12,7 @@ import com.pg85.otg.customobjects.structures.bo3.BO3CustomStructure;
 import com.pg85.otg.customobjects.structures.bo3.BO3CustomStructureCoordinate;
 import com.pg85.otg.customobjects.structures.bo4.BO4CustomStructure;
 import com.pg85.otg.customobjects.structures.bo4.CustomStructurePlotter;
+import com.pg85.otg.generator.PopulationSaveLock;
 import com.pg85.otg.generator.resource.CustomStructureGen;
 import com.pg85.otg.logging.LogMarker;
 import com.pg85.otg.util.ChunkCoordinate;
@@ -19,9 +20,20 @@ import com.pg85.otg.util.FifoMap;
 import com.pg85.otg.util.helpers.RandomHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Each world has a CustomObjectStructureCache with data for spawned and unfinished structures
@@ -45,14 +57,41 @@ public class CustomStructureCache
 	// Used for the /otg BO3 command, stores information about every BO3 that has been spawned so that author and description information can be requested by chunk.
     // Also used to store location of spawners/particles/moddata.
 	public Map<ChunkCoordinate, CustomStructure> worldInfoChunks;
+	// Spawners/particles/moddata of the structures in worldInfoChunks by chunk, looked up every server tick.
+	private final StructureFunctionIndex functionIndex = new StructureFunctionIndex();
+	// Chunks in worldInfoChunks by region, and the regions that changed since the last save.
+	// Only changed regions are serialized when saving. The save task marks regions it
+	// couldn't write as changed again, so changedRegions is synchronized on.
+	private final HashMap<Long, ArrayList<ChunkCoordinate>> worldInfoChunksByRegion = new HashMap<Long, ArrayList<ChunkCoordinate>>();
+	private final HashSet<Long> changedRegions = new HashSet<Long>();
 	
     private LocalWorld world;
     private CustomStructurePlotter plotter;
+    private CustomStructureRegionFiles regionFiles;
+
+    // Structure data is written to disk in the background, one save at a time.
+    // The thread isn't a daemon so pending saves complete when the server stops.
+    private static final int SAVE_TIMEOUT_SECONDS = 30;
+    private static final ThreadPoolExecutor SAVE_EXECUTOR = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+    {
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			return new Thread(runnable, "OTG structure saver");
+		}
+	});
+    static
+    {
+    	SAVE_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+    private final Object saveLock = new Object();
+    private Future<?> pendingSave;
     
     public CustomStructureCache(LocalWorld world)
     {
         this.world = world;
         this.plotter = new CustomStructurePlotter();
+        this.regionFiles = new CustomStructureRegionFiles(world);
         loadStructureCache();
     }
     
@@ -76,6 +115,116 @@ public class CustomStructureCache
     	plotter.plotStructures(this.world, rand, chunkCoord, spawningStructureAtSpawn, this.bo4StructureCache, this.worldInfoChunks);
     }
 
+    /**
+     * Registers a structure for a chunk in worldInfoChunks. Call
+     * {@link #indexStructureFunctions(CustomStructure)} afterwards to index
+     * the spawners/particles/moddata the structure has in the chunk.
+     */
+    public void putWorldInfoChunk(ChunkCoordinate chunkCoord, CustomStructure structure)
+    {
+    	if(this.worldInfoChunks.put(chunkCoord, structure) == null)
+    	{
+    		addToRegion(chunkCoord);
+    	}
+    	markRegionChanged(chunkCoord);
+    	markStructureChanged(structure);
+    	this.functionIndex.remove(StructureFunctionIndex.toKey(chunkCoord.getChunkX(), chunkCoord.getChunkZ()));
+    }
+
+    /**
+     * Indexes the spawners/particles/moddata of a structure by chunk, for
+     * all chunks the structure is registered for in worldInfoChunks. Call
+     * this after adding functions to a structure or registering it for
+     * chunks.
+     */
+    public void indexStructureFunctions(CustomStructure structure)
+    {
+    	this.functionIndex.index(structure, this.worldInfoChunks, null);
+    	markStructureChanged(structure);
+    }
+
+    /**
+     * Indexes the spawners/particles/moddata of a structure in a single
+     * chunk, see {@link #indexStructureFunctions(CustomStructure)}.
+     */
+    public void indexStructureFunctions(CustomStructure structure, ChunkCoordinate chunkCoord)
+    {
+    	this.functionIndex.index(structure, this.worldInfoChunks, chunkCoord);
+    	markStructureChanged(structure);
+    }
+
+    /**
+     * @return The spawners of the structure in the given chunk, the list
+     *         must not be modified.
+     */
+    public List<SpawnerFunction<?>> getSpawnersInChunk(ChunkCoordinate chunkCoord)
+    {
+    	return this.functionIndex.getSpawners(StructureFunctionIndex.toKey(chunkCoord.getChunkX(), chunkCoord.getChunkZ()));
+    }
+
+    /**
+     * @return The particles of the structure in the given chunk, the list
+     *         must not be modified.
+     */
+    public List<ParticleFunction<?>> getParticlesInChunk(ChunkCoordinate chunkCoord)
+    {
+    	return this.functionIndex.getParticles(StructureFunctionIndex.toKey(chunkCoord.getChunkX(), chunkCoord.getChunkZ()));
+    }
+
+    /**
+     * @return The moddata of the structure in the given chunk by mod id,
+     *         the map and lists must not be modified.
+     */
+    public Map<String, List<ModDataFunction<?>>> getModDataInChunk(ChunkCoordinate chunkCoord)
+    {
+    	return this.functionIndex.getModData(StructureFunctionIndex.toKey(chunkCoord.getChunkX(), chunkCoord.getChunkZ()));
+    }
+
+    public void removeParticle(ChunkCoordinate chunkCoord, ParticleFunction<?> particle)
+    {
+		CustomStructure structure = this.worldInfoChunks.get(chunkCoord);
+		if(structure != null)
+		{
+			structure.particlesManager.particleData.remove(particle);
+			markStructureChanged(structure);
+		}
+    	this.functionIndex.removeParticle(StructureFunctionIndex.toKey(chunkCoord.getChunkX(), chunkCoord.getChunkZ()), particle);
+    }
+
+    /**
+     * Marks the region holding the start of a structure as changed, so it
+     * is saved with the next save. Structures are saved with their start
+     * chunk, call this after changing a structure's objectsToSpawn,
+     * smoothingAreasToSpawn, spawners, particles or moddata.
+     */
+    public void markStructureChanged(CustomStructure structure)
+    {
+    	if(structure != null && structure.start != null)
+    	{
+    		markRegionChanged(ChunkCoordinate.fromChunkCoords(structure.start.getChunkX(), structure.start.getChunkZ()));
+    	}
+    }
+
+    private void markRegionChanged(ChunkCoordinate chunkCoord)
+    {
+    	synchronized(this.changedRegions)
+    	{
+    		this.changedRegions.add(Long.valueOf(CustomStructureRegionFiles.getRegionKey(chunkCoord)));
+    	}
+    }
+
+    private void addToRegion(ChunkCoordinate chunkCoord)
+    {
+    	Long regionKey = Long.valueOf(CustomStructureRegionFiles.getRegionKey(chunkCoord));
+    	ArrayList<ChunkCoordinate> chunksInRegion = this.worldInfoChunksByRegion.get(regionKey);
+    	if(chunksInRegion == null)
+    	{
+    		chunksInRegion = new ArrayList<ChunkCoordinate>();
+    		this.worldInfoChunksByRegion.put(regionKey, chunksInRegion);
+    	}
+    	chunksInRegion.add(chunkCoord);
+    }
+
     public void reload(LocalWorld world)
     {
     	// Only used for Bukkit?
@@ -161,65 +310,113 @@ public class CustomStructureCache
     public void saveToDisk()
     {
     	OTG.log(LogMarker.DEBUG, "Saving structure data");
-    	boolean firstLog = false;
-    	long starTime = System.currentTimeMillis();
-		while(true)
-		{
-			synchronized(world.getObjectSpawner().lockingObject)
-			{
-				if(!world.getObjectSpawner().populating)
-				{
-					world.getObjectSpawner().saving = true;
-					break;
-				}
-			}
-			if(firstLog)
-			{
-				OTG.log(LogMarker.WARN, "SaveToDisk waiting on Populate. Although other mods could be causing this and there may not be any problem, this can potentially cause an endless loop!");
-				firstLog = false;
-			}
-			int interval = 300;
-			if(System.currentTimeMillis() - starTime > (interval * 1000))
+
+    	// Wait for chunks that are being populated, but don't stall the server
+    	// if population doesn't finish. saveRequired stays true so the next
+    	// save tries again.
+    	PopulationSaveLock populationSaveLock = world.getObjectSpawner().populationSaveLock;
+    	if(!populationSaveLock.beginSave(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+    	{
+    		OTG.log(LogMarker.WARN, "Skipped saving structure data, chunks were still being populated after " + SAVE_TIMEOUT_SECONDS + " seconds. Other mods could be causing this, saving will be retried later.");
+    		return;
+    	}
+
+    	// Take a snapshot while population is locked out, write it to disk afterwards.
+    	Runnable saveTask;
+    	long startTime = System.nanoTime();
+    	try
+    	{
+    		world.getObjectSpawner().saveRequired = false;
+			if(world.isOTGPlus())
 			{
-				OTG.log(LogMarker.FATAL, "SaveToDisk waited on populate longer than " + interval + " seconds, something went wrong!");
-				throw new RuntimeException("SaveToDisk waited on populate longer than " + interval + " seconds, something went wrong!");
+				compressCache();
 			}
-		}
+			saveTask = createSaveTask();
+    	}
+    	finally
+    	{
+    		populationSaveLock.endSave(System.nanoTime() - startTime);
+    	}
 
-		if(world.isOTGPlus())
-		{
-			compressCache();
-		}
-		saveStructureCache();
+    	synchronized(this.saveLock)
+    	{
+    		this.pendingSave = SAVE_EXECUTOR.submit(saveTask);
+    	}
+    }
 
-		synchronized(world.getObjectSpawner().lockingObject)
-		{
-	    	world.getObjectSpawner().saveRequired = false;
-	    	world.getObjectSpawner().saving = false;
-		}
+    /**
+     * Waits until structure data queued by {@link #saveToDisk()} has been
+     * written, call this before the world is unloaded.
+     */
+    public void waitForPendingSave()
+    {
+    	Future<?> pendingSave;
+    	synchronized(this.saveLock)
+    	{
+    		pendingSave = this.pendingSave;
+    	}
+    	if(pendingSave == null)
+    	{
+    		return;
+    	}
+    	try
+    	{
+    		pendingSave.get();
+    	}
+    	catch (InterruptedException e)
+    	{
+    		Thread.currentThread().interrupt();
+    	}
+    	catch (ExecutionException e)
+    	{
+    		OTG.log(LogMarker.ERROR, "Could not save structure data: " + e.getCause());
+    	}
     }
 
-    private void saveStructureCache()
+    /**
+     * Serializes the regions of the structure cache that changed since the
+     * last save. The returned task writes the data to disk and only accesses
+     * the structure cache to mark regions it couldn't write as changed again,
+     * so it can run while chunks are being populated.
+     */
+    private Runnable createSaveTask()
     {
-    	OTG.log(LogMarker.DEBUG, "Saving structures and pre-generator data");
+    	final HashSet<Long> regionsToSave;
+    	synchronized(this.changedRegions)
+    	{
+    		regionsToSave = new HashSet<Long>(this.changedRegions);
+    		this.changedRegions.clear();
+    	}
 
 	    Map<ChunkCoordinate, CustomStructure> worldInfoChunksToSave = new HashMap<ChunkCoordinate, CustomStructure>();
-
-	    for (Map.Entry<ChunkCoordinate, CustomStructure> cachedChunk : worldInfoChunks.entrySet()) // WorldInfo holds info on all BO3's ever spawned for this world, structurecache only holds those outside the pregenerated area and sets spawned chunks to null!
+	    ArrayList<ChunkCoordinate> chunksInRegion;
+	    CustomStructure structure;
+	    for (Long regionKey : regionsToSave) // WorldInfo holds info on all BO3's ever spawned for this world, structurecache only holds those outside the pregenerated area and sets spawned chunks to null!
 	    {
-	    	if(cachedChunk.getValue() != null)
+	    	chunksInRegion = this.worldInfoChunksByRegion.get(regionKey);
+	    	if(chunksInRegion == null)
+	    	{
+	    		continue;
+	    	}
+	    	for(ChunkCoordinate chunkCoord : chunksInRegion)
 	    	{
-	    		worldInfoChunksToSave.put(cachedChunk.getKey(), cachedChunk.getValue());
-	    	} else {
-	    		throw new RuntimeException();
+	    		structure = worldInfoChunks.get(chunkCoord);
+		    	if(structure != null)
+		    	{
+		    		worldInfoChunksToSave.put(chunkCoord, structure);
+		    	} else {
+		    		throw new RuntimeException();
+		    	}
 	    	}
 	    }
 
-	    CustomStructureFileManager.saveStructuresFile(worldInfoChunksToSave, this.world);
-	    
+	    final Map<Long, byte[]> regions = CustomStructureRegionFiles.serializeRegions(worldInfoChunksToSave);
+
+	    final ArrayList<ChunkCoordinate> nullChunks;
+	    final String spawnedStructures;
 	    if(this.world.isOTGPlus())
 	    {
-		    ArrayList<ChunkCoordinate> nullChunks = new ArrayList<ChunkCoordinate>();
+		    nullChunks = new ArrayList<ChunkCoordinate>();
 	    	for (Map.Entry<ChunkCoordinate, BO4CustomStructure> cachedChunk : bo4StructureCache.entrySet()) // Save null chunks from structurecache so that when loading we can reconstitute it based on worldInfoChunks, null chunks and the pregenerator border
 	    	{
 	    		if(cachedChunk.getValue() == null)
@@ -230,13 +427,55 @@ public class CustomStructureCache
 					}
 	    		}
 	    	}
+	    	spawnedStructures = this.plotter.getSpawnedStructuresData();
+	    } else {
+	    	nullChunks = null;
+	    	spawnedStructures = null;
+	    }
 
-	    	CustomStructureFileManager.saveChunksFile(nullChunks, WorldStandardValues.NullChunksFileName, this.world);
+	    return new Runnable()
+	    {
+	    	@Override
+	    	public void run()
+	    	{
+	    		OTG.log(LogMarker.DEBUG, "Saving structures and pre-generator data");
 
-	    	this.plotter.saveSpawnedStructures(this.world);
-	    }
+	    		// Nothing waits for this task during normal saves, so failures
+	    		// are logged here and the next save tries again.
+	    		try
+	    		{
+		    		Set<Long> failedRegions = regionFiles.writeRegions(regions);
+		    		if(!failedRegions.isEmpty())
+		    		{
+		    			markRegionsChanged(failedRegions);
+		    			world.getObjectSpawner().saveRequired = true;
+		    		}
+		    		if(nullChunks != null)
+		    		{
+		    			CustomStructureFileManager.saveChunksFile(nullChunks, WorldStandardValues.NullChunksFileName, world);
+		    			CustomStructureFileManager.writeChunksMapFile(WorldStandardValues.SpawnedStructuresFileName, world, spawnedStructures);
+		    		}
+	    		}
+	    		catch(RuntimeException e)
+	    		{
+	    			OTG.log(LogMarker.ERROR, "Could not save structure data, saving will be retried later.");
+	    			OTG.printStackTrace(LogMarker.ERROR, e);
+	    			markRegionsChanged(regions.keySet());
+	    			world.getObjectSpawner().saveRequired = true;
+	    			return;
+	    		}
 
-		OTG.log(LogMarker.DEBUG, "Saving done");
+	    		OTG.log(LogMarker.DEBUG, "Saving done");
+	    	}
+	    };
+    }
+
+    private void markRegionsChanged(Set<Long> regionKeys)
+    {
+    	synchronized(this.changedRegions)
+    	{
+    		this.changedRegions.addAll(regionKeys);
+    	}
     }
 
 	private void loadStructureCache()
@@ -246,10 +485,16 @@ public class CustomStructureCache
         this.bo3StructureCache = new FifoMap<ChunkCoordinate, BO3CustomStructure>(400);
         this.bo4StructureCache = new HashMap<ChunkCoordinate, BO4CustomStructure>();
         this.worldInfoChunks = new HashMap<ChunkCoordinate, CustomStructure>();
+        this.functionIndex.clear();
+        this.worldInfoChunksByRegion.clear();
+        synchronized(this.changedRegions)
+        {
+        	this.changedRegions.clear();
+        }
 		
     	int structuresLoaded = 0;
 
-		Map<ChunkCoordinate, CustomStructure> loadedStructures = CustomStructureFileManager.loadStructuresFile(this.world);
+		Map<ChunkCoordinate, CustomStructure> loadedStructures = this.regionFiles.load();
 		for(Map.Entry<ChunkCoordinate, CustomStructure> loadedStructure : loadedStructures.entrySet())
 		{
 			structuresLoaded += 1;
@@ -304,6 +549,21 @@ public class CustomStructureCache
 			}
 		}
 
+		// Index by chunk once all structures have been registered, functions
+		// are only indexed for the structure that ended up in worldInfoChunks.
+		Set<CustomStructure> indexedStructures = Collections.newSetFromMap(new IdentityHashMap<CustomStructure, Boolean>());
+		for(CustomStructure structure : worldInfoChunks.values())
+		{
+			if(indexedStructures.add(structure))
+			{
+				this.functionIndex.index(structure, this.worldInfoChunks, null);
+			}
+		}
+		for(ChunkCoordinate chunkCoord : worldInfoChunks.keySet())
+		{
+			addToRegion(chunkCoord);
+		}
+
 		OTG.log(LogMarker.DEBUG, "Loaded " + structuresLoaded + " structure chunks");
 
 		if(world.isOTGPlus())
@@ -31,212 +31,17 @@ import com.pg85.otg.customobjects.structures.bo4.BO4CustomStructure;
 import com.pg85.otg.customobjects.structures.bo4.BO4CustomStructureCoordinate;
 import com.pg85.otg.customobjects.structures.bo4.SmoothingAreaLine;
 import com.pg85.otg.customobjects.structures.bo4.SmoothingAreaLineDiagonal;
+import com.pg85.otg.customobjects.structures.bo4.StructureDistanceIndex;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.bo3.Rotation;
 
 public class CustomStructureFileManager
 {
-	static void saveStructuresFile(Map<ChunkCoordinate, CustomStructure> structures, LocalWorld world)
-	{
-		// When loading files we first load all the structure files and put them in worldInfoChunks and structurecache 
-		// (if they are outside the pregenerated region), then from any structures that have ObjectsToSpawn or 
-		// SmoothingAreas to spawn we create structures in the structure cache for each of those (overriding some of 
-		// the structures we added earlier). Then we load all the null chunks and add them to the structurecache (if 
-		// they are outside the pregenerated region), potentially overriding some of the structures we added earlier.
-
-		// So don't worry about saving structure files for structures that have already been spawned, they won't be added to the structure cache when loading
-
-		int dimensionId = world.getDimensionId();
-		File occupiedChunksFile = new File(world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : "") + WorldStandardValues.StructureDataFileName);
-    	if(occupiedChunksFile.exists())
-    	{
-    		occupiedChunksFile.delete();
-    	}
-
-    	StringBuilder stringbuilder = new StringBuilder();
-    	if(structures.size() > 0)
-    	{
-	    	stringbuilder.append("[");
-
-			for(Entry<ChunkCoordinate, CustomStructure> entry : structures.entrySet())
-			{
-				ChunkCoordinate chunkCoord = entry.getKey();
-				CustomStructure structure = entry.getValue();
-
-				if(stringbuilder.length() > 1)
-				{
-					stringbuilder.append(" ");
-				}
-
-		    	if(structure.start != null)
-		    	{
-		    		//stringbuilder.append("[" + entry.getKey().getChunkX() + "," + entry.getKey().getChunkZ() + "][" + structure.MinY + "," + structure.Start.isSpawned + "," + structure.Start.isBranch + "," + structure.Start.branchDepth + "," + structure.Start.isRequiredBranch + "," + structure.Start.BO3Name + "," + structure.Start.rotation.toString() + "," + structure.Start.getX() + "," + structure.Start.getY() + "," + structure.Start.getZ() + "," + structure.startChunkBlockChecksDone + "]");
-		    		stringbuilder.append("[" + entry.getKey().getChunkX() + "," + entry.getKey().getChunkZ() + "][" + structure.start.bo3Name + "," + structure.start.rotation.toString() + "," + structure.start.getX() + "," + structure.start.getY() + "," + structure.start.getZ() + "]");
-		    	} else {
-		    		stringbuilder.append("[" + entry.getKey().getChunkX() + "," + entry.getKey().getChunkZ() + "][Null structure]");
-		    	}
-
-				ChunkCoordinate key;
-				Stack<BO4CustomStructureCoordinate> coords;
-
-				// If this is the origin of this structure then save its ObjectsToSpawn and SmoothingAreasToSpawn
-				// All the chunks belonging to this structure will be reconstituted when this file is loaded				
-				stringbuilder.append("[");
-				if(structure instanceof BO4CustomStructure && ((BO4CustomStructure)structure).objectsToSpawn.entrySet().size() > 0 && chunkCoord.getChunkX() == ((BO4CustomStructureCoordinate)structure.start).getChunkX() && chunkCoord.getChunkZ() == ((BO4CustomStructureCoordinate)structure.start).getChunkZ())
-				{
-					boolean added = false;
-					for(Entry<ChunkCoordinate, Stack<BO4CustomStructureCoordinate>> objectToSpawn : ((BO4CustomStructure)structure).objectsToSpawn.entrySet())
-					{
-						if(added)
-						{
-							stringbuilder.append(";");
-						}
-						key = objectToSpawn.getKey();
-						stringbuilder.append(key.getChunkX() + "," + key.getChunkZ());
-						added = true;
-
-						coords = objectToSpawn.getValue();
-						for(CustomStructureCoordinate coord : coords)
-						{
-							//stringbuilder.append("," + coord.isSpawned + "," + coord.isBranch + "," + coord.branchDepth + "," + coord.isRequiredBranch + "," + coord.BO3Name + "," + coord.rotation.toString() + "," + coord.getX() + "," + coord.getY() + "," + coord.getZ());
-							stringbuilder.append("," + coord.bo3Name + "," + coord.rotation.toString() + "," + coord.getX() + "," + coord.getY() + "," + coord.getZ());
-						}
-					}
-				}
-
-				stringbuilder.append("][");
-
-				if(structure instanceof BO4CustomStructure && ((BO4CustomStructure)structure).smoothingAreasToSpawn.entrySet().size() > 0 && chunkCoord.getChunkX() == ((BO4CustomStructureCoordinate)structure.start).getChunkX() && chunkCoord.getChunkZ() == ((BO4CustomStructureCoordinate)structure.start).getChunkZ())
-				{
-					boolean added = false;
-					ArrayList<SmoothingAreaLine> coords2;
-					String append;
-					for(Entry<ChunkCoordinate, ArrayList<SmoothingAreaLine>> smoothingAreaToSpawn : ((BO4CustomStructure)structure).smoothingAreasToSpawn.entrySet())
-					{
-						if(added)
-						{
-							stringbuilder.append(";");
-						}
-						key = smoothingAreaToSpawn.getKey();
-						stringbuilder.append(key.getChunkX() + "," + key.getChunkZ());
-						added = true;
-
-						coords2 = smoothingAreaToSpawn.getValue();
-						for(SmoothingAreaLine coord : coords2)
-						{
-							append = ":";
-							
-							append += coord.beginPointX;
-							append += "," + coord.beginPointY;
-							append += "," + coord.beginPointZ;
-
-							append += "," + coord.endPointX;
-							append += "," + coord.endPointY;
-							append += "," + coord.endPointZ;
-
-							append += "," + coord.originPointX;
-							append += "," + coord.originPointY;
-							append += "," + coord.originPointZ;
-
-							append += "," + coord.finalDestinationPointX;
-							append += "," + coord.finalDestinationPointY;
-							append += "," + coord.finalDestinationPointZ;
-							
-							if(coord instanceof SmoothingAreaLineDiagonal)
-							{
-								append += "," + ((SmoothingAreaLineDiagonal)coord).diagonalLineOriginPointX; // 12;
-								append += "," + ((SmoothingAreaLineDiagonal)coord).diagonalLineoriginPointY; // 13;
-								append += "," + ((SmoothingAreaLineDiagonal)coord).diagonalLineOriginPointZ; // 14;
-								append += "," + ((SmoothingAreaLineDiagonal)coord).diagonalLineFinalDestinationPointX; // 15;
-								append += "," + ((SmoothingAreaLineDiagonal)coord).diagonalLineFinalDestinationPointY; // 16;
-								append += "," + ((SmoothingAreaLineDiagonal)coord).diagonalLineFinalDestinationPointZ; // 17;								
-							}
-							
-							stringbuilder.append(append);
-						}
-					}
-				}
-
-				stringbuilder.append("][");
-
-				if(structure.modDataManager.modData.size() > 0 && chunkCoord.getChunkX() == structure.start.getChunkX() && chunkCoord.getChunkZ() == structure.start.getChunkZ())
-				{
-					boolean added = false;
-					for(ModDataFunction<?> modData : structure.modDataManager.modData)
-					{
-						if(added)
-						{
-							stringbuilder.append(":");
-						}
-						stringbuilder.append(modData.x + "," + modData.y + "," + modData.z + "," + modData.modId.replace(":", "&#58;").replace(" ", "&nbsp;") + "," + modData.modData.replace(":", "&#58;").replace(" ", "&nbsp;"));
-						added = true;
-					}
-				}
-
-				stringbuilder.append("][");
-
-				if(structure.spawnerManager.spawnerData.size() > 0 && chunkCoord.getChunkX() == structure.start.getChunkX() && chunkCoord.getChunkZ() == structure.start.getChunkZ())
-				{
-					boolean added = false;
-					for(SpawnerFunction<?> spawnerData : structure.spawnerManager.spawnerData)
-					{
-						if(added)
-						{
-							stringbuilder.append(":");
-						}
-						stringbuilder.append(spawnerData.x + "," + spawnerData.y + "," + spawnerData.z + "," + spawnerData.mobName.replace(":", "&#58;").replace(" ", "&nbsp;") + "," + spawnerData.originalnbtFileName.replace(":", "&#58;").replace(" ", "&nbsp;") + "," + spawnerData.nbtFileName.replace(":", "&#58;").replace(" ", "&nbsp;") + "," + spawnerData.groupSize + "," + spawnerData.interval + "," + spawnerData.spawnChance + "," + spawnerData.maxCount + "," + spawnerData.despawnTime + "," + spawnerData.velocityX + "," + spawnerData.velocityY + "," + spawnerData.velocityZ + "," + spawnerData.velocityXSet + "," + spawnerData.velocityYSet + "," + spawnerData.velocityZSet + "," + spawnerData.yaw + "," + spawnerData.pitch);
-						added = true;
-					}
-				}
-
-				stringbuilder.append("][");
-
-				if(structure.particlesManager.particleData.size() > 0 && chunkCoord.getChunkX() == structure.start.getChunkX() && chunkCoord.getChunkZ() == structure.start.getChunkZ())
-				{
-					boolean added = false;
-					for(ParticleFunction<?> particleData : structure.particlesManager.particleData)
-					{
-						if(added)
-						{
-							stringbuilder.append(":");
-						}
-						stringbuilder.append(particleData.x + "," + particleData.y + "," + particleData.z + "," + particleData.particleName.replace(":", "&#58;").replace(" ", "&nbsp;")+ "," + particleData.interval + "," + particleData.velocityX + "," + particleData.velocityY + "," + particleData.velocityZ + "," + particleData.velocityXSet + "," + particleData.velocityYSet + "," + particleData.velocityZSet);
-						added = true;
-					}
-				}
-
-				stringbuilder.append("]");
-			}
-
-			stringbuilder.append("]");
-
-			BufferedWriter writer = null;
-	        try
-	        {
-	        	if(occupiedChunksFile.exists())
-	        	{
-	        		occupiedChunksFile.delete();
-	        	}
-	        	occupiedChunksFile.getParentFile().mkdirs();
-	        	writer = new BufferedWriter(new FileWriter(occupiedChunksFile));
-	            writer.write(stringbuilder.toString());
-	        }
-	        catch (IOException e)
-	        {
-	            e.printStackTrace();
-	        }
-	        finally
-	        {
-	            try
-	            {
-	                // Close the writer regardless of what happens...
-	                writer.close();
-	            } catch (Exception e) { }
-	        }
-    	}
-    }
-	
-	static Map<ChunkCoordinate, CustomStructure> loadStructuresFile(LocalWorld world)
+	/**
+	 * Loads a structure data file in the old text format, used to convert
+	 * it to structure region files, see CustomStructureRegionFiles.
+	 */
+	static Map<ChunkCoordinate, CustomStructure> loadLegacyStructuresFile(File occupiedChunksFile, LocalWorld world)
 	{		
 		// When loading files we first load all the structure files and put them in worldInfoChunks 
 		// and structurecache (if they are outside the pregenerated region), then from any structures 
@@ -247,9 +52,6 @@ public class CustomStructureFileManager
 		
 	    Map<ChunkCoordinate, CustomStructure> structuresFile = new HashMap<ChunkCoordinate, CustomStructure>();
 
-		int dimensionId = world.getDimensionId();
-		File occupiedChunksFile = new File(world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : "") + WorldStandardValues.StructureDataFileName);
-
 		StringBuilder stringbuilder = new StringBuilder();
 	    if(occupiedChunksFile.exists())
 	    {
@@ -627,20 +429,22 @@ public class CustomStructureFileManager
 		return chunks;
 	}
 
-	public static void saveChunksMapFile(String fileName, LocalWorld world, HashMap<String, ArrayList<ChunkCoordinate>> spawnedStructuresByName, HashMap<String, HashMap<ChunkCoordinate, Integer>> spawnedStructuresByGroup)
+	public static void saveChunksMapFile(String fileName, LocalWorld world, HashMap<String, StructureDistanceIndex> spawnedStructuresByName, HashMap<String, StructureDistanceIndex> spawnedStructuresByGroup)
 	{
-		int dimensionId = world.getDimensionId();
-		File occupiedChunksFile = new File(world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : "") + fileName);
-
-		if(occupiedChunksFile.exists())
-		{
-			occupiedChunksFile.delete();
-		}
+		writeChunksMapFile(fileName, world, chunksMapToString(spawnedStructuresByName, spawnedStructuresByGroup));
+	}
 
+	/**
+	 * Serializes the spawned structures for {@link #writeChunksMapFile(String, LocalWorld, String)}.
+	 * @return The file's contents, or null if no structures were spawned.
+	 */
+	public static String chunksMapToString(HashMap<String, StructureDistanceIndex> spawnedStructuresByName, HashMap<String, StructureDistanceIndex> spawnedStructuresByGroup)
+	{
 		if(spawnedStructuresByName.size() > 0)
 		{
 			StringBuilder stringbuilder = new StringBuilder();
-			for(Map.Entry<String, ArrayList<ChunkCoordinate>> entry : spawnedStructuresByName.entrySet())
+			int[] entries;
+			for(Map.Entry<String, StructureDistanceIndex> entry : spawnedStructuresByName.entrySet())
 			{
 				if(stringbuilder.length() == 0)
 				{
@@ -648,34 +452,57 @@ public class CustomStructureFileManager
 				} else {
 					stringbuilder.append("/" + entry.getKey().replace(",", "\\"));
 				}
-				for(ChunkCoordinate chunkCoord : entry.getValue())
+				entries = entry.getValue().toArray();
+				for(int i = 0; i < entries.length; i += 3)
 				{
-					stringbuilder.append("," + chunkCoord.getChunkX() + "," + chunkCoord.getChunkZ());
+					stringbuilder.append("," + entries[i] + "," + entries[i + 1]);
 				}
 			}
 			
 			stringbuilder.append("|");
 			
-			for(Entry<String, HashMap<ChunkCoordinate, Integer>> entry : spawnedStructuresByGroup.entrySet())
+			boolean firstGroup = true;
+			for(Entry<String, StructureDistanceIndex> entry : spawnedStructuresByGroup.entrySet())
 			{
-				if(stringbuilder.length() == 0)
+				if(firstGroup)
 				{
 					stringbuilder.append(entry.getKey().replace(",", "\\"));
+					firstGroup = false;
 				} else {
 					stringbuilder.append("/" + entry.getKey().replace(",", "\\"));
 				}
-				for(Entry<ChunkCoordinate, Integer> valueEntry : entry.getValue().entrySet())
-				{					
-					stringbuilder.append("," + valueEntry.getKey().getChunkX() + "," + valueEntry.getKey().getChunkZ() + "," + valueEntry.getValue().intValue() + ",");
+				entries = entry.getValue().toArray();
+				for(int i = 0; i < entries.length; i += 3)
+				{
+					stringbuilder.append("," + entries[i] + "," + entries[i + 1] + "," + entries[i + 2]);
 				}
 			}
+			return stringbuilder.toString();
+		}
+		return null;
+	}
+
+	/**
+	 * Replaces the spawned structures file with the given data, or deletes it if data is null.
+	 */
+	public static void writeChunksMapFile(String fileName, LocalWorld world, String data)
+	{
+		int dimensionId = world.getDimensionId();
+		File occupiedChunksFile = new File(world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : "") + fileName);
+
+		if(occupiedChunksFile.exists())
+		{
+			occupiedChunksFile.delete();
+		}
 
+		if(data != null)
+		{
 			BufferedWriter writer = null;
 	        try
 	        {
 	        	occupiedChunksFile.getParentFile().mkdirs();
 	        	writer = new BufferedWriter(new FileWriter(occupiedChunksFile));
-	            writer.write(stringbuilder.toString());
+	            writer.write(data);
 	        }
 	        catch (IOException e)
 	        {
@@ -692,13 +519,13 @@ public class CustomStructureFileManager
 		}
 	}
 
-	public static void loadChunksMapFile(String fileName, LocalWorld world, HashMap<String, ArrayList<ChunkCoordinate>> spawnedStructuresByName, HashMap<String, HashMap<ChunkCoordinate, Integer>> spawnedStructuresByGroup)
+	public static void loadChunksMapFile(String fileName, LocalWorld world, HashMap<String, StructureDistanceIndex> spawnedStructuresByName, HashMap<String, StructureDistanceIndex> spawnedStructuresByGroup)
 	{
 		int dimensionId = world.getDimensionId();
 		File occupiedChunksFile = new File(world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : "") + fileName);
 
-		HashMap<String, ArrayList<ChunkCoordinate>> chunksByName = new HashMap<String, ArrayList<ChunkCoordinate>>();
-		HashMap<String, HashMap<ChunkCoordinate, Integer>> chunksByGroup = new HashMap<String, HashMap<ChunkCoordinate, Integer>>();
+		HashMap<String, StructureDistanceIndex> chunksByName = new HashMap<String, StructureDistanceIndex>();
+		HashMap<String, StructureDistanceIndex> chunksByGroup = new HashMap<String, StructureDistanceIndex>();
 
 		StringBuilder stringbuilder = new StringBuilder();
 		String[] occupiedChunksByName = {};
@@ -748,14 +575,15 @@ public class CustomStructureFileManager
 			entry = entry.replace(",,", ","); // Legacy configs could have ,, in them.
 			occupiedChunkByNameCoords = entry.split(",");
 			String key = occupiedChunkByNameCoords[0].replace("\\", ",");
-			ArrayList<ChunkCoordinate> value = new ArrayList<ChunkCoordinate>();
+			if(key.length() == 0)
+			{
+				continue;
+			}
+			StructureDistanceIndex value = new StructureDistanceIndex();
 
-			if(occupiedChunkByNameCoords.length > 0)
+			for(int i = 1; i + 1 < occupiedChunkByNameCoords.length; i += 2)
 			{
-				for(int i = 1; i < occupiedChunkByNameCoords.length; i += 2)
-				{
-					value.add(ChunkCoordinate.fromChunkCoords(Integer.parseInt(occupiedChunkByNameCoords[i]),Integer.parseInt(occupiedChunkByNameCoords[i + 1])));
-				}
+				value.add(Integer.parseInt(occupiedChunkByNameCoords[i]), Integer.parseInt(occupiedChunkByNameCoords[i + 1]), 0);
 			}
 
 			chunksByName.put(key, value);
@@ -770,14 +598,17 @@ public class CustomStructureFileManager
 			entry = entry.replace(",,", ","); // Legacy configs could have ,, in them.
 			occupiedChunkByGroupCoords = entry.split(",");
 			String key = occupiedChunkByGroupCoords[0].replace("\\", ",");
-			HashMap<ChunkCoordinate, Integer> value = new HashMap<ChunkCoordinate, Integer>();
+			// Legacy files start the groups with a separator, resulting in an empty first entry.
+			if(key.length() == 0)
+			{
+				continue;
+			}
+			StructureDistanceIndex value = new StructureDistanceIndex();
 
-			if(occupiedChunkByGroupCoords.length > 0)
+			// Stored as x, z, frequency
+			for(int i = 1; i + 2 < occupiedChunkByGroupCoords.length; i += 3)
 			{
-				for(int i = 1; i < occupiedChunkByGroupCoords.length; i += 3)
-				{
-					value.put(ChunkCoordinate.fromChunkCoords(Integer.parseInt(occupiedChunkByGroupCoords[i]),Integer.parseInt(occupiedChunkByGroupCoords[i + 2])), Integer.valueOf(Integer.parseInt(occupiedChunkByGroupCoords[i + 1])));
-				}
+				value.add(Integer.parseInt(occupiedChunkByGroupCoords[i]), Integer.parseInt(occupiedChunkByGroupCoords[i + 1]), Integer.parseInt(occupiedChunkByGroupCoords[i + 2]));
 			}
 
 			chunksByGroup.put(key, value);
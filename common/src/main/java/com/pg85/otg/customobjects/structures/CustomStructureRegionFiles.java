@@ -0,0 +1,740 @@
+package com.pg85.otg.customobjects.structures;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.BufferedInputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.Stack;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.configuration.standard.WorldStandardValues;
+import com.pg85.otg.customobjects.bo3.bo3function.BO3ModDataFunction;
+import com.pg85.otg.customobjects.bo3.bo3function.BO3ParticleFunction;
+import com.pg85.otg.customobjects.bo3.bo3function.BO3SpawnerFunction;
+import com.pg85.otg.customobjects.bo4.bo4function.BO4ModDataFunction;
+import com.pg85.otg.customobjects.bo4.bo4function.BO4ParticleFunction;
+import com.pg85.otg.customobjects.bo4.bo4function.BO4SpawnerFunction;
+import com.pg85.otg.customobjects.bofunctions.ModDataFunction;
+import com.pg85.otg.customobjects.bofunctions.ParticleFunction;
+import com.pg85.otg.customobjects.bofunctions.SpawnerFunction;
+import com.pg85.otg.customobjects.structures.bo3.BO3CustomStructure;
+import com.pg85.otg.customobjects.structures.bo3.BO3CustomStructureCoordinate;
+import com.pg85.otg.customobjects.structures.bo4.BO4CustomStructure;
+import com.pg85.otg.customobjects.structures.bo4.BO4CustomStructureCoordinate;
+import com.pg85.otg.customobjects.structures.bo4.SmoothingAreaLine;
+import com.pg85.otg.customobjects.structures.bo4.SmoothingAreaLineDiagonal;
+import com.pg85.otg.logging.LogMarker;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.bo3.Rotation;
+
+/**
+ * Saves and loads the structure data of a world (see CustomStructureCache.worldInfoChunks)
+ * as binary region files, each holding a 32x32 chunk area, similar to Minecraft's
+ * region files.
+ *
+ * CustomStructureCache keeps track of the regions whose structures changed since the
+ * last save and only serializes and writes those, so saving a large world only writes
+ * the areas where structures were plotted or spawned since the last save.
+ *
+ * Region file layout: magic, version, then a deflate-compressed payload holding a string
+ * table (BO3 names, mob names etc) followed by the chunks in the region. Coordinates are
+ * stored as zigzag varints.
+ */
+class CustomStructureRegionFiles
+{
+	private static final int MAGIC = 0x4F544753; // "OTGS"
+	private static final int VERSION = 1;
+	private static final int REGION_SHIFT = 5;
+	private static final String FILE_EXTENSION = ".otgs";
+
+	private final LocalWorld world;
+
+	CustomStructureRegionFiles(LocalWorld world)
+	{
+		this.world = world;
+	}
+
+	private File getWorldDirectory()
+	{
+		int dimensionId = this.world.getDimensionId();
+		return new File(this.world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : ""));
+	}
+
+	private File getRegionDirectory()
+	{
+		return new File(getWorldDirectory(), WorldStandardValues.StructureDataDirectoryName);
+	}
+
+	private File getRegionFile(long regionKey)
+	{
+		return new File(getRegionDirectory(), "r." + (int)(regionKey >> 32) + "." + (int)regionKey + FILE_EXTENSION);
+	}
+
+	static long getRegionKey(ChunkCoordinate chunkCoord)
+	{
+		return ((long)(chunkCoord.getChunkX() >> REGION_SHIFT) << 32) | ((chunkCoord.getChunkZ() >> REGION_SHIFT) & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Serializes the structures of each region, without writing anything to disk.
+	 * The structures may be modified again once this returns, the result can be
+	 * written on another thread using {@link #writeRegions(Map)}.
+	 * @param structures The structures to save, must contain all chunks of each
+	 *                   region it has chunks in, since regions are rewritten completely.
+	 * @return The uncompressed contents of each region file, by region key.
+	 */
+	static Map<Long, byte[]> serializeRegions(Map<ChunkCoordinate, CustomStructure> structures)
+	{
+		HashMap<Long, ArrayList<Entry<ChunkCoordinate, CustomStructure>>> regions = groupByRegion(structures);
+		HashMap<Long, byte[]> serializedRegions = new HashMap<Long, byte[]>();
+		for(Entry<Long, ArrayList<Entry<ChunkCoordinate, CustomStructure>>> region : regions.entrySet())
+		{
+			try
+			{
+				serializedRegions.put(region.getKey(), writeRegion(region.getValue()));
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				// Keep the region's file as it is
+				serializedRegions.put(region.getKey(), null);
+			}
+		}
+		return serializedRegions;
+	}
+
+	/**
+	 * Writes the given regions to disk, replacing their existing files.
+	 * @param regions The regions as returned by {@link #serializeRegions(Map)}.
+	 * @return The keys of the regions that couldn't be serialized or written.
+	 */
+	synchronized Set<Long> writeRegions(Map<Long, byte[]> regions)
+	{
+		File regionDirectory = getRegionDirectory();
+		regionDirectory.mkdirs();
+
+		HashSet<Long> failedRegions = new HashSet<Long>();
+		for(Entry<Long, byte[]> region : regions.entrySet())
+		{
+			if(region.getValue() == null)
+			{
+				failedRegions.add(region.getKey());
+				continue;
+			}
+			try
+			{
+				writeRegionFile(getRegionFile(region.getKey().longValue()), region.getValue());
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				failedRegions.add(region.getKey());
+			}
+		}
+
+		OTG.log(LogMarker.DEBUG, "Saved " + (regions.size() - failedRegions.size()) + " structure regions");
+		return failedRegions;
+	}
+
+	/**
+	 * Loads all region files. If the world still has a structure data file in the
+	 * old text format, it is converted to region files first.
+	 */
+	synchronized Map<ChunkCoordinate, CustomStructure> load()
+	{
+		File legacyFile = new File(getWorldDirectory(), WorldStandardValues.StructureDataFileName);
+		if(legacyFile.exists())
+		{
+			return migrateLegacyFile(legacyFile);
+		}
+
+		Map<ChunkCoordinate, CustomStructure> structures = new HashMap<ChunkCoordinate, CustomStructure>();
+		File[] regionFiles = getRegionDirectory().listFiles();
+		if(regionFiles == null)
+		{
+			return structures;
+		}
+
+		for(File regionFile : regionFiles)
+		{
+			if(!regionFile.getName().endsWith(FILE_EXTENSION))
+			{
+				continue;
+			}
+			try
+			{
+				// Read into a separate map, so a region that is only partially
+				// read doesn't end up being saved over the original file.
+				Map<ChunkCoordinate, CustomStructure> regionStructures = new HashMap<ChunkCoordinate, CustomStructure>();
+				readRegionFile(regionFile, regionStructures);
+				structures.putAll(regionStructures);
+			}
+			catch (IOException e)
+			{
+				OTG.log(LogMarker.ERROR, "Could not read structure region file " + regionFile.getAbsolutePath() + ", structures in this region will be lost.");
+				e.printStackTrace();
+			}
+		}
+
+		return structures;
+	}
+
+	private Map<ChunkCoordinate, CustomStructure> migrateLegacyFile(File legacyFile)
+	{
+		OTG.log(LogMarker.INFO, "Converting " + legacyFile.getName() + " to structure region files");
+
+		Map<ChunkCoordinate, CustomStructure> structures = CustomStructureFileManager.loadLegacyStructuresFile(legacyFile, this.world);
+
+		// Start from a clean region directory, in case a previous conversion was interrupted.
+		File[] regionFiles = getRegionDirectory().listFiles();
+		if(regionFiles != null)
+		{
+			for(File regionFile : regionFiles)
+			{
+				regionFile.delete();
+			}
+		}
+
+		if(!writeRegions(serializeRegions(structures)).isEmpty())
+		{
+			OTG.log(LogMarker.ERROR, "Could not write all structure region files, " + legacyFile.getAbsolutePath() + " will be converted again next time the world is loaded.");
+			return structures;
+		}
+
+		File backupFile = new File(legacyFile.getAbsolutePath() + ".bak");
+		if(backupFile.exists())
+		{
+			backupFile.delete();
+		}
+		if(!legacyFile.renameTo(backupFile))
+		{
+			OTG.log(LogMarker.WARN, "Could not rename " + legacyFile.getAbsolutePath() + " after converting it, it will be converted again next time the world is loaded.");
+		}
+		OTG.log(LogMarker.INFO, "Converted " + structures.size() + " structure chunks");
+		return structures;
+	}
+
+	private static HashMap<Long, ArrayList<Entry<ChunkCoordinate, CustomStructure>>> groupByRegion(Map<ChunkCoordinate, CustomStructure> structures)
+	{
+		HashMap<Long, ArrayList<Entry<ChunkCoordinate, CustomStructure>>> regions = new HashMap<Long, ArrayList<Entry<ChunkCoordinate, CustomStructure>>>();
+		Long regionKey;
+		ArrayList<Entry<ChunkCoordinate, CustomStructure>> region;
+		for(Entry<ChunkCoordinate, CustomStructure> entry : structures.entrySet())
+		{
+			regionKey = Long.valueOf(getRegionKey(entry.getKey()));
+			region = regions.get(regionKey);
+			if(region == null)
+			{
+				region = new ArrayList<Entry<ChunkCoordinate, CustomStructure>>();
+				regions.put(regionKey, region);
+			}
+			region.add(entry);
+		}
+		return regions;
+	}
+
+	private static void writeRegionFile(File regionFile, byte[] data) throws IOException
+	{
+		// Write to a temporary file first so a crash while saving can't corrupt the region.
+		File tempFile = new File(regionFile.getAbsolutePath() + ".tmp");
+		FileOutputStream fos = new FileOutputStream(tempFile);
+		try
+		{
+			DataOutputStream header = new DataOutputStream(fos);
+			header.writeInt(MAGIC);
+			header.writeByte(VERSION);
+			Deflater deflater = new Deflater();
+			try
+			{
+				DeflaterOutputStream deflaterStream = new DeflaterOutputStream(fos, deflater);
+				deflaterStream.write(data);
+				deflaterStream.finish();
+			} finally {
+				// DeflaterOutputStream only releases the native zlib memory of deflaters it created itself
+				deflater.end();
+			}
+		} finally {
+			fos.close();
+		}
+		Files.move(tempFile.toPath(), regionFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void readRegionFile(File regionFile, Map<ChunkCoordinate, CustomStructure> structures) throws IOException
+	{
+		InputStream fis = new BufferedInputStream(new FileInputStream(regionFile));
+		try
+		{
+			DataInputStream header = new DataInputStream(fis);
+			if(header.readInt() != MAGIC)
+			{
+				throw new IOException("Not a structure region file");
+			}
+			int version = header.readUnsignedByte();
+			if(version != VERSION)
+			{
+				throw new IOException("Structure region file version " + version + " is not supported");
+			}
+			Inflater inflater = new Inflater();
+			try
+			{
+				readRegion(new DataInputStream(new InflaterInputStream(fis, inflater)), regionFile, structures);
+			} finally {
+				inflater.end();
+			}
+		} finally {
+			fis.close();
+		}
+	}
+
+	// Writing
+
+	private static byte[] writeRegion(ArrayList<Entry<ChunkCoordinate, CustomStructure>> chunks) throws IOException
+	{
+		// Sort the chunks, so the same contents always produce the same file.
+		Collections.sort(chunks, new Comparator<Entry<ChunkCoordinate, CustomStructure>>()
+		{
+			@Override
+			public int compare(Entry<ChunkCoordinate, CustomStructure> a, Entry<ChunkCoordinate, CustomStructure> b)
+			{
+				int compareX = Integer.compare(a.getKey().getChunkX(), b.getKey().getChunkX());
+				return compareX != 0 ? compareX : Integer.compare(a.getKey().getChunkZ(), b.getKey().getChunkZ());
+			}
+		});
+
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream();
+		DataOutputStream stream = new DataOutputStream(chunkBytes);
+		writeVarInt(stream, chunks.size());
+		for(Entry<ChunkCoordinate, CustomStructure> entry : chunks)
+		{
+			writeChunk(stream, strings, entry.getKey(), entry.getValue());
+		}
+		stream.flush();
+
+		ByteArrayOutputStream regionBytes = new ByteArrayOutputStream(chunkBytes.size() + strings.list.size() * 16 + 8);
+		DataOutputStream regionStream = new DataOutputStream(regionBytes);
+		// Index 0 is null, so it isn't written
+		writeVarInt(regionStream, strings.list.size());
+		for(String string : strings.list)
+		{
+			regionStream.writeUTF(string);
+		}
+		chunkBytes.writeTo(regionStream);
+		regionStream.flush();
+		return regionBytes.toByteArray();
+	}
+
+	private static void writeChunk(DataOutputStream stream, StringTable strings, ChunkCoordinate chunkCoord, CustomStructure structure) throws IOException
+	{
+		// Position within the region
+		writeVarInt(stream, ((chunkCoord.getChunkX() & 31) << 5) | (chunkCoord.getChunkZ() & 31));
+
+		if(structure.start == null)
+		{
+			stream.writeBoolean(false);
+			return;
+		}
+		stream.writeBoolean(true);
+		writeCoordinate(stream, strings, structure.start);
+
+		// If this is the origin of this structure then save its ObjectsToSpawn and SmoothingAreasToSpawn
+		// All the chunks belonging to this structure will be reconstituted when this file is loaded
+		boolean isStartChunk = chunkCoord.getChunkX() == structure.start.getChunkX() && chunkCoord.getChunkZ() == structure.start.getChunkZ();
+		if(isStartChunk && structure instanceof BO4CustomStructure)
+		{
+			Map<ChunkCoordinate, Stack<BO4CustomStructureCoordinate>> objectsToSpawn = ((BO4CustomStructure)structure).objectsToSpawn;
+			writeVarInt(stream, objectsToSpawn.size());
+			for(Entry<ChunkCoordinate, Stack<BO4CustomStructureCoordinate>> objectToSpawn : objectsToSpawn.entrySet())
+			{
+				writeSignedVarInt(stream, objectToSpawn.getKey().getChunkX());
+				writeSignedVarInt(stream, objectToSpawn.getKey().getChunkZ());
+				writeVarInt(stream, objectToSpawn.getValue().size());
+				for(CustomStructureCoordinate coord : objectToSpawn.getValue())
+				{
+					writeCoordinate(stream, strings, coord);
+				}
+			}
+
+			Map<ChunkCoordinate, ArrayList<SmoothingAreaLine>> smoothingAreasToSpawn = ((BO4CustomStructure)structure).smoothingAreasToSpawn;
+			writeVarInt(stream, smoothingAreasToSpawn.size());
+			for(Entry<ChunkCoordinate, ArrayList<SmoothingAreaLine>> smoothingAreaToSpawn : smoothingAreasToSpawn.entrySet())
+			{
+				writeSignedVarInt(stream, smoothingAreaToSpawn.getKey().getChunkX());
+				writeSignedVarInt(stream, smoothingAreaToSpawn.getKey().getChunkZ());
+				writeVarInt(stream, smoothingAreaToSpawn.getValue().size());
+				for(SmoothingAreaLine line : smoothingAreaToSpawn.getValue())
+				{
+					writeSmoothingAreaLine(stream, line);
+				}
+			}
+		} else {
+			writeVarInt(stream, 0);
+			writeVarInt(stream, 0);
+		}
+
+		if(!isStartChunk)
+		{
+			writeVarInt(stream, 0);
+			writeVarInt(stream, 0);
+			writeVarInt(stream, 0);
+			return;
+		}
+
+		writeVarInt(stream, structure.modDataManager.modData.size());
+		for(ModDataFunction<?> modData : structure.modDataManager.modData)
+		{
+			writeSignedVarInt(stream, modData.x);
+			writeSignedVarInt(stream, modData.y);
+			writeSignedVarInt(stream, modData.z);
+			writeVarInt(stream, strings.indexOf(modData.modId));
+			writeVarInt(stream, strings.indexOf(modData.modData));
+		}
+
+		writeVarInt(stream, structure.spawnerManager.spawnerData.size());
+		for(SpawnerFunction<?> spawnerData : structure.spawnerManager.spawnerData)
+		{
+			writeSignedVarInt(stream, spawnerData.x);
+			writeSignedVarInt(stream, spawnerData.y);
+			writeSignedVarInt(stream, spawnerData.z);
+			writeVarInt(stream, strings.indexOf(spawnerData.mobName));
+			writeVarInt(stream, strings.indexOf(spawnerData.originalnbtFileName));
+			writeVarInt(stream, strings.indexOf(spawnerData.nbtFileName));
+			writeSignedVarInt(stream, spawnerData.groupSize);
+			writeSignedVarInt(stream, spawnerData.interval);
+			writeSignedVarInt(stream, spawnerData.spawnChance);
+			writeSignedVarInt(stream, spawnerData.maxCount);
+			writeSignedVarInt(stream, spawnerData.despawnTime);
+			stream.writeDouble(spawnerData.velocityX);
+			stream.writeDouble(spawnerData.velocityY);
+			stream.writeDouble(spawnerData.velocityZ);
+			stream.writeByte((spawnerData.velocityXSet ? 1 : 0) | (spawnerData.velocityYSet ? 2 : 0) | (spawnerData.velocityZSet ? 4 : 0));
+			stream.writeFloat(spawnerData.yaw);
+			stream.writeFloat(spawnerData.pitch);
+		}
+
+		writeVarInt(stream, structure.particlesManager.particleData.size());
+		for(ParticleFunction<?> particleData : structure.particlesManager.particleData)
+		{
+			writeSignedVarInt(stream, particleData.x);
+			writeSignedVarInt(stream, particleData.y);
+			writeSignedVarInt(stream, particleData.z);
+			writeVarInt(stream, strings.indexOf(particleData.particleName));
+			stream.writeDouble(particleData.interval);
+			stream.writeDouble(particleData.velocityX);
+			stream.writeDouble(particleData.velocityY);
+			stream.writeDouble(particleData.velocityZ);
+			stream.writeByte((particleData.velocityXSet ? 1 : 0) | (particleData.velocityYSet ? 2 : 0) | (particleData.velocityZSet ? 4 : 0));
+		}
+	}
+
+	private static void writeCoordinate(DataOutputStream stream, StringTable strings, CustomStructureCoordinate coord) throws IOException
+	{
+		writeVarInt(stream, strings.indexOf(coord.bo3Name));
+		stream.writeByte(coord.rotation.getRotationId());
+		writeSignedVarInt(stream, coord.getX());
+		writeSignedVarInt(stream, coord.getY());
+		writeSignedVarInt(stream, coord.getZ());
+	}
+
+	private static void writeSmoothingAreaLine(DataOutputStream stream, SmoothingAreaLine line) throws IOException
+	{
+		boolean diagonal = line instanceof SmoothingAreaLineDiagonal;
+		stream.writeBoolean(diagonal);
+		writeSignedVarInt(stream, line.beginPointX);
+		writeSignedVarInt(stream, line.beginPointY);
+		writeSignedVarInt(stream, line.beginPointZ);
+		writeSignedVarInt(stream, line.endPointX);
+		writeSignedVarInt(stream, line.endPointY);
+		writeSignedVarInt(stream, line.endPointZ);
+		writeSignedVarInt(stream, line.originPointX);
+		writeSignedVarInt(stream, line.originPointY);
+		writeSignedVarInt(stream, line.originPointZ);
+		writeSignedVarInt(stream, line.finalDestinationPointX);
+		writeSignedVarInt(stream, line.finalDestinationPointY);
+		writeSignedVarInt(stream, line.finalDestinationPointZ);
+		if(diagonal)
+		{
+			SmoothingAreaLineDiagonal diagonalLine = (SmoothingAreaLineDiagonal)line;
+			writeSignedVarInt(stream, diagonalLine.diagonalLineOriginPointX);
+			writeSignedVarInt(stream, diagonalLine.diagonalLineoriginPointY);
+			writeSignedVarInt(stream, diagonalLine.diagonalLineOriginPointZ);
+			writeSignedVarInt(stream, diagonalLine.diagonalLineFinalDestinationPointX);
+			writeSignedVarInt(stream, diagonalLine.diagonalLineFinalDestinationPointY);
+			writeSignedVarInt(stream, diagonalLine.diagonalLineFinalDestinationPointZ);
+		}
+	}
+
+	// Reading
+
+	private void readRegion(DataInputStream stream, File regionFile, Map<ChunkCoordinate, CustomStructure> structures) throws IOException
+	{
+		String name = regionFile.getName();
+		String[] regionCoords = name.substring(2, name.length() - FILE_EXTENSION.length()).split("\\.");
+		int regionX = Integer.parseInt(regionCoords[0]);
+		int regionZ = Integer.parseInt(regionCoords[1]);
+
+		// Index 0 is reserved for null strings
+		String[] strings = new String[readVarInt(stream) + 1];
+		for(int i = 1; i < strings.length; i++)
+		{
+			strings[i] = stream.readUTF();
+		}
+
+		int chunkCount = readVarInt(stream);
+		int position;
+		for(int i = 0; i < chunkCount; i++)
+		{
+			position = readVarInt(stream);
+			ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords((regionX << REGION_SHIFT) | (position >> 5), (regionZ << REGION_SHIFT) | (position & 31));
+			structures.put(chunkCoord, readChunk(stream, strings));
+		}
+	}
+
+	private CustomStructure readChunk(DataInputStream stream, String[] strings) throws IOException
+	{
+		CustomStructureCoordinate structureStart = null;
+		Map<ChunkCoordinate, Stack<BO4CustomStructureCoordinate>> objectsToSpawn = new HashMap<ChunkCoordinate, Stack<BO4CustomStructureCoordinate>>();
+		Map<ChunkCoordinate, ArrayList<SmoothingAreaLine>> smoothingAreasToSpawn = new HashMap<ChunkCoordinate, ArrayList<SmoothingAreaLine>>();
+		HashSet<ModDataFunction<?>> modData = new HashSet<ModDataFunction<?>>();
+		HashSet<SpawnerFunction<?>> spawnerData = new HashSet<SpawnerFunction<?>>();
+		HashSet<ParticleFunction<?>> particleData = new HashSet<ParticleFunction<?>>();
+
+		if(stream.readBoolean())
+		{
+			if(this.world.isOTGPlus())
+			{
+				structureStart = new BO4CustomStructureCoordinate(this.world, null, null, null, 0, (short)0, 0, 0, false, false, null);
+			} else {
+				structureStart = new BO3CustomStructureCoordinate(this.world, null, null, null, 0, (short)0, 0);
+			}
+			readCoordinate(stream, strings, structureStart);
+
+			int count = readVarInt(stream);
+			ChunkCoordinate chunkCoord;
+			for(int i = 0; i < count; i++)
+			{
+				chunkCoord = ChunkCoordinate.fromChunkCoords(readSignedVarInt(stream), readSignedVarInt(stream));
+				int coordCount = readVarInt(stream);
+				Stack<BO4CustomStructureCoordinate> coords = new Stack<BO4CustomStructureCoordinate>();
+				for(int j = 0; j < coordCount; j++)
+				{
+					BO4CustomStructureCoordinate coord = new BO4CustomStructureCoordinate(this.world, null, null, null, 0, (short)0, 0, 0, false, false, null);
+					readCoordinate(stream, strings, coord);
+					coords.add(coord);
+				}
+				objectsToSpawn.put(chunkCoord, coords);
+			}
+
+			count = readVarInt(stream);
+			for(int i = 0; i < count; i++)
+			{
+				chunkCoord = ChunkCoordinate.fromChunkCoords(readSignedVarInt(stream), readSignedVarInt(stream));
+				int lineCount = readVarInt(stream);
+				ArrayList<SmoothingAreaLine> lines = new ArrayList<SmoothingAreaLine>(lineCount);
+				for(int j = 0; j < lineCount; j++)
+				{
+					lines.add(readSmoothingAreaLine(stream));
+				}
+				smoothingAreasToSpawn.put(chunkCoord, lines);
+			}
+
+			count = readVarInt(stream);
+			for(int i = 0; i < count; i++)
+			{
+				ModDataFunction<?> modDataFunction = this.world.isOTGPlus() ? new BO4ModDataFunction() : new BO3ModDataFunction();
+				modDataFunction.x = readSignedVarInt(stream);
+				modDataFunction.y = readSignedVarInt(stream);
+				modDataFunction.z = readSignedVarInt(stream);
+				modDataFunction.modId = strings[readVarInt(stream)];
+				modDataFunction.modData = strings[readVarInt(stream)];
+				modData.add(modDataFunction);
+			}
+
+			count = readVarInt(stream);
+			int flags;
+			for(int i = 0; i < count; i++)
+			{
+				SpawnerFunction<?> spawnerFunction = this.world.isOTGPlus() ? new BO4SpawnerFunction() : new BO3SpawnerFunction();
+				spawnerFunction.x = readSignedVarInt(stream);
+				spawnerFunction.y = readSignedVarInt(stream);
+				spawnerFunction.z = readSignedVarInt(stream);
+				spawnerFunction.mobName = strings[readVarInt(stream)];
+				spawnerFunction.originalnbtFileName = strings[readVarInt(stream)];
+				spawnerFunction.nbtFileName = strings[readVarInt(stream)];
+				spawnerFunction.groupSize = readSignedVarInt(stream);
+				spawnerFunction.interval = readSignedVarInt(stream);
+				spawnerFunction.spawnChance = readSignedVarInt(stream);
+				spawnerFunction.maxCount = readSignedVarInt(stream);
+				spawnerFunction.despawnTime = readSignedVarInt(stream);
+				spawnerFunction.velocityX = stream.readDouble();
+				spawnerFunction.velocityY = stream.readDouble();
+				spawnerFunction.velocityZ = stream.readDouble();
+				flags = stream.readUnsignedByte();
+				spawnerFunction.velocityXSet = (flags & 1) != 0;
+				spawnerFunction.velocityYSet = (flags & 2) != 0;
+				spawnerFunction.velocityZSet = (flags & 4) != 0;
+				spawnerFunction.yaw = stream.readFloat();
+				spawnerFunction.pitch = stream.readFloat();
+				spawnerData.add(spawnerFunction);
+			}
+
+			count = readVarInt(stream);
+			for(int i = 0; i < count; i++)
+			{
+				ParticleFunction<?> particleFunction = this.world.isOTGPlus() ? new BO4ParticleFunction() : new BO3ParticleFunction();
+				particleFunction.x = readSignedVarInt(stream);
+				particleFunction.y = readSignedVarInt(stream);
+				particleFunction.z = readSignedVarInt(stream);
+				particleFunction.particleName = strings[readVarInt(stream)];
+				particleFunction.interval = stream.readDouble();
+				particleFunction.velocityX = stream.readDouble();
+				particleFunction.velocityY = stream.readDouble();
+				particleFunction.velocityZ = stream.readDouble();
+				flags = stream.readUnsignedByte();
+				particleFunction.velocityXSet = (flags & 1) != 0;
+				particleFunction.velocityYSet = (flags & 2) != 0;
+				particleFunction.velocityZSet = (flags & 4) != 0;
+				particleData.add(particleFunction);
+			}
+		}
+
+		CustomStructure structure;
+		if(this.world.isOTGPlus())
+		{
+			structure = new BO4CustomStructure(this.world, (BO4CustomStructureCoordinate)structureStart, objectsToSpawn, smoothingAreasToSpawn, 0);
+			((BO4CustomStructure)structure).startChunkBlockChecksDone = true;
+		} else {
+			structure = new BO3CustomStructure((BO3CustomStructureCoordinate)structureStart);
+		}
+		structure.modDataManager.modData = modData;
+		structure.spawnerManager.spawnerData = spawnerData;
+		structure.particlesManager.particleData = particleData;
+		return structure;
+	}
+
+	private static void readCoordinate(DataInputStream stream, String[] strings, CustomStructureCoordinate coord) throws IOException
+	{
+		coord.bo3Name = strings[readVarInt(stream)];
+		coord.rotation = Rotation.getRotation(stream.readUnsignedByte());
+		coord.x = readSignedVarInt(stream);
+		coord.y = (short)readSignedVarInt(stream);
+		coord.z = readSignedVarInt(stream);
+	}
+
+	private static SmoothingAreaLine readSmoothingAreaLine(DataInputStream stream) throws IOException
+	{
+		boolean diagonal = stream.readBoolean();
+		SmoothingAreaLine line = diagonal ? new SmoothingAreaLineDiagonal() : new SmoothingAreaLine();
+		line.beginPointX = readSignedVarInt(stream);
+		line.beginPointY = (short)readSignedVarInt(stream);
+		line.beginPointZ = readSignedVarInt(stream);
+		line.endPointX = readSignedVarInt(stream);
+		line.endPointY = (short)readSignedVarInt(stream);
+		line.endPointZ = readSignedVarInt(stream);
+		line.originPointX = readSignedVarInt(stream);
+		line.originPointY = (short)readSignedVarInt(stream);
+		line.originPointZ = readSignedVarInt(stream);
+		line.finalDestinationPointX = readSignedVarInt(stream);
+		line.finalDestinationPointY = (short)readSignedVarInt(stream);
+		line.finalDestinationPointZ = readSignedVarInt(stream);
+		if(diagonal)
+		{
+			SmoothingAreaLineDiagonal diagonalLine = (SmoothingAreaLineDiagonal)line;
+			diagonalLine.diagonalLineOriginPointX = readSignedVarInt(stream);
+			diagonalLine.diagonalLineoriginPointY = (short)readSignedVarInt(stream);
+			diagonalLine.diagonalLineOriginPointZ = readSignedVarInt(stream);
+			diagonalLine.diagonalLineFinalDestinationPointX = readSignedVarInt(stream);
+			diagonalLine.diagonalLineFinalDestinationPointY = (short)readSignedVarInt(stream);
+			diagonalLine.diagonalLineFinalDestinationPointZ = readSignedVarInt(stream);
+		}
+		return line;
+	}
+
+	// Varints
+
+	private static void writeVarInt(DataOutputStream stream, int value) throws IOException
+	{
+		while((value & ~0x7F) != 0)
+		{
+			stream.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		stream.writeByte(value);
+	}
+
+	private static void writeSignedVarInt(DataOutputStream stream, int value) throws IOException
+	{
+		writeVarInt(stream, (value << 1) ^ (value >> 31));
+	}
+
+	private static int readVarInt(DataInputStream stream) throws IOException
+	{
+		int value = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			if(shift > 28)
+			{
+				throw new IOException("Varint too long");
+			}
+			b = stream.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while((b & 0x80) != 0);
+		return value;
+	}
+
+	private static int readSignedVarInt(DataInputStream stream) throws IOException
+	{
+		int value = readVarInt(stream);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Strings used in a region, each string is stored once and referenced by index.
+	 */
+	private static class StringTable
+	{
+		private final ArrayList<String> list = new ArrayList<String>();
+		private final HashMap<String, Integer> indices = new HashMap<String, Integer>();
+
+		int indexOf(String string)
+		{
+			// Index 0 is reserved for null
+			if(string == null)
+			{
+				return 0;
+			}
+			Integer index = this.indices.get(string);
+			if(index == null)
+			{
+				index = Integer.valueOf(this.list.size() + 1);
+				this.list.add(string);
+				this.indices.put(string, index);
+			}
+			return index.intValue();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package com.pg85.otg.customobjects.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pg85.otg.customobjects.bofunctions.ModDataFunction;
+import com.pg85.otg.customobjects.bofunctions.ParticleFunction;
+import com.pg85.otg.customobjects.bofunctions.SpawnerFunction;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.LongObjectMap;
+
+/**
+ * Spawners, particles and moddata of the structures in
+ * {@link CustomStructureCache#worldInfoChunks}, bucketed by chunk. Each
+ * bucket holds the functions of the structure registered for the chunk that
+ * are inside that chunk, so they can be looked up each server tick without
+ * going through all functions of the structure.
+ *
+ * Returned lists are never modified, changes replace them, so they can be
+ * iterated while the index is being updated.
+ */
+final class StructureFunctionIndex
+{
+    private static final List<SpawnerFunction<?>> NO_SPAWNERS = Collections.emptyList();
+    private static final List<ParticleFunction<?>> NO_PARTICLES = Collections.emptyList();
+    private static final Map<String, List<ModDataFunction<?>>> NO_MOD_DATA = Collections.emptyMap();
+
+    private final LongObjectMap<ChunkFunctions> chunks = new LongObjectMap<ChunkFunctions>();
+
+    static long toKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    synchronized List<SpawnerFunction<?>> getSpawners(long key)
+    {
+        ChunkFunctions functions = this.chunks.get(key);
+        return functions != null ? functions.spawners : NO_SPAWNERS;
+    }
+
+    synchronized List<ParticleFunction<?>> getParticles(long key)
+    {
+        ChunkFunctions functions = this.chunks.get(key);
+        return functions != null ? functions.particles : NO_PARTICLES;
+    }
+
+    synchronized Map<String, List<ModDataFunction<?>>> getModData(long key)
+    {
+        ChunkFunctions functions = this.chunks.get(key);
+        return functions != null ? functions.modData : NO_MOD_DATA;
+    }
+
+    synchronized void remove(long key)
+    {
+        this.chunks.remove(key);
+    }
+
+    synchronized void removeParticle(long key, ParticleFunction<?> particle)
+    {
+        ChunkFunctions functions = this.chunks.get(key);
+        if (functions != null && functions.particles.contains(particle))
+        {
+            List<ParticleFunction<?>> particles = new ArrayList<ParticleFunction<?>>(functions.particles);
+            particles.remove(particle);
+            functions.particles = particles.isEmpty() ? NO_PARTICLES : particles;
+        }
+    }
+
+    synchronized void clear()
+    {
+        this.chunks.clear();
+    }
+
+    /**
+     * Rebuilds the buckets of the chunks the given structure is registered
+     * for in worldInfoChunks and has functions in.
+     * @param structure       The structure.
+     * @param worldInfoChunks The structure registered for each chunk.
+     * @param onlyChunk       Only rebuild the bucket of this chunk, or null
+     *                        to rebuild all buckets of the structure.
+     */
+    void index(CustomStructure structure, Map<ChunkCoordinate, CustomStructure> worldInfoChunks, ChunkCoordinate onlyChunk)
+    {
+        LongObjectMap<ChunkFunctions> buckets = new LongObjectMap<ChunkFunctions>();
+        List<ChunkFunctions> ownedBuckets = new ArrayList<ChunkFunctions>();
+        ChunkFunctions bucket;
+
+        for (SpawnerFunction<?> spawner : structure.spawnerManager.spawnerData)
+        {
+            bucket = getBucket(buckets, ownedBuckets, structure, worldInfoChunks, onlyChunk, spawner.x >> 4, spawner.z >> 4);
+            if (bucket != null)
+            {
+                if (bucket.spawners == NO_SPAWNERS)
+                {
+                    bucket.spawners = new ArrayList<SpawnerFunction<?>>();
+                }
+                bucket.spawners.add(spawner);
+            }
+        }
+        for (ParticleFunction<?> particle : structure.particlesManager.particleData)
+        {
+            bucket = getBucket(buckets, ownedBuckets, structure, worldInfoChunks, onlyChunk, particle.x >> 4, particle.z >> 4);
+            if (bucket != null)
+            {
+                if (bucket.particles == NO_PARTICLES)
+                {
+                    bucket.particles = new ArrayList<ParticleFunction<?>>();
+                }
+                bucket.particles.add(particle);
+            }
+        }
+        List<ModDataFunction<?>> modDataForMod;
+        for (ModDataFunction<?> modData : structure.modDataManager.modData)
+        {
+            bucket = getBucket(buckets, ownedBuckets, structure, worldInfoChunks, onlyChunk, modData.x >> 4, modData.z >> 4);
+            if (bucket != null)
+            {
+                if (bucket.modData == NO_MOD_DATA)
+                {
+                    bucket.modData = new HashMap<String, List<ModDataFunction<?>>>();
+                }
+                modDataForMod = bucket.modData.get(modData.modId);
+                if (modDataForMod == null)
+                {
+                    modDataForMod = new ArrayList<ModDataFunction<?>>();
+                    bucket.modData.put(modData.modId, modDataForMod);
+                }
+                modDataForMod.add(modData);
+            }
+        }
+
+        synchronized (this)
+        {
+            if (onlyChunk != null)
+            {
+                long key = toKey(onlyChunk.getChunkX(), onlyChunk.getChunkZ());
+                bucket = buckets.get(key);
+                if (bucket != null && bucket.isOwned())
+                {
+                    this.chunks.put(key, bucket);
+                }
+                else if (worldInfoChunks.get(onlyChunk) == structure)
+                {
+                    this.chunks.remove(key);
+                }
+                return;
+            }
+            for (ChunkFunctions chunkFunctions : ownedBuckets)
+            {
+                this.chunks.put(chunkFunctions.key, chunkFunctions);
+            }
+        }
+    }
+
+    /**
+     * Gets the bucket for a function in the given chunk, creating it if
+     * needed.
+     * @return The bucket, or null if the function should not be indexed
+     *         because the chunk is registered to another structure.
+     */
+    private static ChunkFunctions getBucket(LongObjectMap<ChunkFunctions> buckets, List<ChunkFunctions> ownedBuckets, CustomStructure structure, Map<ChunkCoordinate, CustomStructure> worldInfoChunks, ChunkCoordinate onlyChunk, int chunkX, int chunkZ)
+    {
+        if (onlyChunk != null && (onlyChunk.getChunkX() != chunkX || onlyChunk.getChunkZ() != chunkZ))
+        {
+            return null;
+        }
+        long key = toKey(chunkX, chunkZ);
+        ChunkFunctions bucket = buckets.get(key);
+        if (bucket == null)
+        {
+            bucket = new ChunkFunctions(key, worldInfoChunks.get(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ)) == structure);
+            buckets.put(key, bucket);
+            if (bucket.isOwned())
+            {
+                ownedBuckets.add(bucket);
+            }
+        }
+        return bucket.isOwned() ? bucket : null;
+    }
+
+    /**
+     * The functions in a single chunk.
+     */
+    private static final class ChunkFunctions
+    {
+        final long key;
+        private final boolean owned;
+        List<SpawnerFunction<?>> spawners = NO_SPAWNERS;
+        List<ParticleFunction<?>> particles = NO_PARTICLES;
+        Map<String, List<ModDataFunction<?>>> modData = NO_MOD_DATA;
+
+        ChunkFunctions(long key, boolean owned)
+        {
+            this.key = key;
+            this.owned = owned;
+        }
+
+        /**
+         * Whether the structure being indexed is registered for this
+         * chunk, if not its functions in this chunk are ignored.
+         */
+        boolean isOwned()
+        {
+            return this.owned;
+        }
+    }
+}
@@ -55,6 +55,8 @@ public class BO4CustomStructure extends CustomStructure
 	private HashMap<String, ArrayList<ChunkCoordinate>> AllBranchesBranchDataByName = new HashMap<String, ArrayList<ChunkCoordinate>>(); // Used to find distance between branches and branch groups
 	private HashMap<String, HashMap<ChunkCoordinate, ArrayList<Integer>>> AllBranchesBranchDataByGroup = new HashMap<String, HashMap<ChunkCoordinate, ArrayList<Integer>>>(); // Used to find distance between branches and branch groups
     private HashSet<Integer> AllBranchesBranchDataHash = new HashSet<Integer>();
+    private HashMap<ChunkCoordinate, LocalBiome> BiomesByChunk = new HashMap<ChunkCoordinate, LocalBiome>(); // Biomes of the chunks checked while branching, a chunk's biome never changes
+    private int startStructureId = -1;
     private boolean SpawningCanOverrideBranches = false;
     private int Cycle = 0;
     
@@ -186,7 +188,7 @@ public class BO4CustomStructure extends CustomStructure
 				this.particlesManager.particleData.addAll(existingObject.particlesManager.particleData);
 				this.spawnerManager.spawnerData.addAll(existingObject.spawnerManager.spawnerData);
 			}
-			world.getStructureCache().worldInfoChunks.put(chunkCoord, this);
+			world.getStructureCache().putWorldInfoChunk(chunkCoord, this);
 		}
 
 		for(ChunkCoordinate chunkCoord : smoothingAreasToSpawn.keySet())
@@ -201,8 +203,9 @@ public class BO4CustomStructure extends CustomStructure
 				this.particlesManager.particleData.addAll(existingObject.particlesManager.particleData);
 				this.spawnerManager.spawnerData.addAll(existingObject.spawnerManager.spawnerData);
 			}
-			world.getStructureCache().worldInfoChunks.put(chunkCoord, this);
+			world.getStructureCache().putWorldInfoChunk(chunkCoord, this);
 		}
+		world.getStructureCache().indexStructureFunctions(this);
 
 		if(objectsToSpawn.size() > 0)
 		{
@@ -505,6 +508,7 @@ public class BO4CustomStructure extends CustomStructure
     	    	AllBranchesBranchDataByName.clear();
     	    	AllBranchesBranchDataByGroup.clear();
     	        AllBranchesBranchDataHash.clear();
+    	        BiomesByChunk.clear();
     			
     			return;
     		}
@@ -527,6 +531,7 @@ public class BO4CustomStructure extends CustomStructure
     	AllBranchesBranchDataByName.clear();
     	AllBranchesBranchDataByGroup.clear();
         AllBranchesBranchDataHash.clear();
+        BiomesByChunk.clear();
     }
 
     private void traverseAndSpawnChildBranches(BranchDataItem branchData, boolean minimumSize, boolean spawningRequiredBranchesOnly, LocalWorld world, ArrayList<String> targetBiomes, ChunkCoordinate chunkBeingPopulated)
@@ -1874,59 +1879,50 @@ public class BO4CustomStructure extends CustomStructure
 
 	// Returns null if the branch cannot spawn in the given biome or if there's another BO4 structure in the chunk, otherwise returns colliding branches. 
 	// CanOverride branches never collide with other branches, but may be unable to spawn if there's not enough space for smoothing areas.
+    /**
+     * Checks if the biome of the given chunk allows this structure to spawn.
+     * If targetBiomes isn't null, the biome must be in targetBiomes (an empty
+     * list allows all biomes). Otherwise the biome must have a CustomStructure
+     * resource for the start BO4, unless this is the structure at spawn.
+     */
+    private boolean canSpawnInChunk(LocalWorld world, ChunkCoordinate chunkCoord, ArrayList<String> targetBiomes)
+    {
+		if(targetBiomes != null)
+		{
+			return targetBiomes.size() == 0 || targetBiomes.contains(getBiome(world, chunkCoord).getName());
+		}
+		if(isStructureAtSpawn)
+		{
+			return true;
+		}
+		if(this.startStructureId == -1)
+		{
+			this.startStructureId = CustomStructureGen.getStructureId(this.start.getObject().getName());
+		}
+		return getBiome(world, chunkCoord).getBiomeConfig().canSpawnCustomStructure(this.startStructureId);
+    }
+
+    private LocalBiome getBiome(LocalWorld world, ChunkCoordinate chunkCoord)
+    {
+    	LocalBiome biome = BiomesByChunk.get(chunkCoord);
+    	if(biome == null)
+    	{
+    		biome = world.getBiome(chunkCoord.getChunkX() * 16 + 8, chunkCoord.getChunkZ() * 16 + 7);
+    		BiomesByChunk.put(chunkCoord, biome);
+    	}
+    	return biome;
+    }
+
     private Stack<BranchDataItem> checkSpawnRequirementsAndCollisions(BranchDataItem branchData, boolean minimumSize, LocalWorld world, ArrayList<String> targetBiomes)
     {
     	CustomStructureCoordinate coordObject = branchData.branch;
 
     	if(!minimumSize)
     	{
-    		// If targetbiomes isn't null, then check for targetbiomes
-    		if(targetBiomes != null)
+    		if(!canSpawnInChunk(world, branchData.chunkCoordinate, targetBiomes))
     		{
-    			// If targetbiomes size is 0, allow all biomes.
-    			if(targetBiomes.size() > 0)
-    			{
-        			LocalBiome biome3 = world.getBiome(branchData.chunkCoordinate.getChunkX() * 16 + 8, branchData.chunkCoordinate.getChunkZ() * 16 + 7);
-        			if(!targetBiomes.contains(biome3.getName()))
-        			{
-        				return null;
-        			}    				
-    			}
+    			return null;
     		}
-		    // Check if the structure can spawn in this biome
-    		else if(!isStructureAtSpawn)
-		    {
-		    	ArrayList<String> biomeStructures;
-
-            	LocalBiome biome3 = world.getBiome(branchData.chunkCoordinate.getChunkX() * 16 + 8, branchData.chunkCoordinate.getChunkZ() * 16 + 7);
-                BiomeConfig biomeConfig3 = biome3.getBiomeConfig();
-                // Get Bo3's for this biome
-                ArrayList<String> structuresToSpawn = new ArrayList<String>();
-                for (CustomStructureGen res : biomeConfig3.getCustomStructures())
-                {
-            		for(String bo3Name : res.objectNames)
-            		{
-            			structuresToSpawn.add(bo3Name);
-            		}
-                }
-
-                biomeStructures = structuresToSpawn;
-
-                boolean canSpawnHere = false;
-                for(String structureToSpawn : biomeStructures)
-                {
-                	if(structureToSpawn.equals(this.start.getObject().getName()))
-                	{
-                		canSpawnHere = true;
-                		break;
-                	}
-                }
-
-                if(!canSpawnHere)
-				{
-                	return null;
-				}
-		    }
 
 	    	int smoothRadius = ((BO4)this.start.getObject()).getConfig().smoothRadius; // For collision detection use Start's SmoothingRadius. TODO: Improve this and use smoothingradius of individual branches?
 	    	if(smoothRadius == -1 || ((BO4)coordObject.getObject()).getConfig().smoothRadius == -1)
@@ -1951,53 +1947,10 @@ public class BO4CustomStructure extends CustomStructure
 	            				return null;
 	            		    }
 
-	                		// If targetbiomes isn't null, then check for targetbiomes
-	                		if(targetBiomes != null)
+	                		if(!canSpawnInChunk(world, ChunkCoordinate.fromChunkCoords(x,z), targetBiomes))
 	                		{
-	                			// If targetbiomes size is 0, allow all biomes.
-	                			if(targetBiomes.size() > 0)
-	                			{
-	                				LocalBiome biome3 = world.getBiome(x * 16 + 8, z * 16 + 7);
-	                    			if(!targetBiomes.contains(biome3.getName()))
-	                    			{
-	                    				return null;
-	                    			}    				
-	                			}
+	                			return null;
 	                		}
-	                		else if(!isStructureAtSpawn)
-	            			{
-		            		    // Check if the structure can spawn in this biome
-		            			ArrayList<String> biomeStructures;
-
-	        	            	LocalBiome biome3 = world.getBiome(x * 16 + 8, z * 16 + 7);
-	        	                BiomeConfig biomeConfig3 = biome3.getBiomeConfig();
-	        	                // Get Bo3's for this biome
-	        	                ArrayList<String> structuresToSpawn = new ArrayList<String>();
-	        	                for (CustomStructureGen res : biomeConfig3.getCustomStructures())
-	        	                {
-	        	            		for(String bo3Name : res.objectNames)
-	        	            		{
-	        	            			structuresToSpawn.add(bo3Name);
-	        	            		}
-	        	                }
-
-	        	                biomeStructures = structuresToSpawn;
-
-		                        boolean canSpawnHere = false;
-		                        for(String structureToSpawn : biomeStructures)
-		                        {
-		                        	if(structureToSpawn.equals(this.start.getObject().getName()))
-		                        	{
-		                        		canSpawnHere = true;
-		                        		break;
-		                        	}
-		                        }
-
-		                        if(!canSpawnHere)
-		        				{
-		                        	return null;
-		        				}
-	            			}
 	            		}
 	            	}
 	        	}
@@ -2009,28 +1962,22 @@ public class BO4CustomStructure extends CustomStructure
     	
         if(!((BO4) coordObject.getObject()).getConfig().canOverride)
         {
-	        Stack<BranchDataItem> existingBranches = new Stack<BranchDataItem>();
-	        if(AllBranchesBranchDataByChunk.containsKey(branchData.chunkCoordinate))
+	        // Branches are indexed by chunk, only branches in the same chunk are checked for collisions.
+	        ArrayList<BranchDataItem> branchesInChunk = AllBranchesBranchDataByChunk.get(branchData.chunkCoordinate);
+	        if(branchesInChunk != null)
 	        {
-	        	for(BranchDataItem existingBranchData : AllBranchesBranchDataByChunk.get(branchData.chunkCoordinate))
+	        	for(BranchDataItem existingBranchData : branchesInChunk)
 		        {
-		        	if(branchData.chunkCoordinate.equals(existingBranchData.chunkCoordinate) && !((BO4)existingBranchData.branch.getObject()).getConfig().canOverride)
+		        	if(
+	        			branchData.chunkCoordinate.equals(existingBranchData.chunkCoordinate) &&
+	        			!((BO4)existingBranchData.branch.getObject()).getConfig().canOverride &&
+	        			checkCollision(coordObject, existingBranchData.branch)
+        			)
 		        	{
-		        		existingBranches.add(existingBranchData);
+		        		collidingObjects.add(existingBranchData);
 		        	}
 		        }
 	        }
-
-	        if (existingBranches.size() > 0)
-	        {
-	        	for (BranchDataItem cachedBranch : existingBranches)
-	        	{
-	        		if(checkCollision(coordObject, cachedBranch.branch))
-	        		{
-	        			collidingObjects.add(cachedBranch);
-	        		}
-	        	}
-	        }
         }
 
     	return collidingObjects;
@@ -2053,34 +2000,17 @@ public class BO4CustomStructure extends CustomStructure
     	}
 
     	// minX/maxX/minZ/maxZ are always positive.
-
-    	CustomStructureCoordinate branchData1BranchMinRotated = BO4CustomStructureCoordinate.getRotatedBO3CoordsJustified(((BO4)branchData1Branch.getObject()).getConfig().getminX(), ((BO4)branchData1Branch.getObject()).getConfig().getminY(), ((BO4)branchData1Branch.getObject()).getConfig().getminZ(), branchData1Branch.getRotation());
-    	CustomStructureCoordinate branchData1BranchMaxRotated = BO4CustomStructureCoordinate.getRotatedBO3CoordsJustified(((BO4)branchData1Branch.getObject()).getConfig().getmaxX(),((BO4)branchData1Branch.getObject()).getConfig().getmaxY(), ((BO4)branchData1Branch.getObject()).getConfig().getmaxZ(), branchData1Branch.getRotation());
-
-        int startX = branchData1Branch.getX() + Math.min(branchData1BranchMinRotated.getX(),branchData1BranchMaxRotated.getX());
-        int endX = branchData1Branch.getX() + Math.max(branchData1BranchMinRotated.getX(),branchData1BranchMaxRotated.getX());
-        int startY = branchData1Branch.getY() + Math.min(branchData1BranchMinRotated.getY(),branchData1BranchMaxRotated.getY());
-        int endY = branchData1Branch.getY() + Math.max(branchData1BranchMinRotated.getY(),branchData1BranchMaxRotated.getY());
-        int startZ = branchData1Branch.getZ() + Math.min(branchData1BranchMinRotated.getZ(),branchData1BranchMaxRotated.getZ());
-        int endZ = branchData1Branch.getZ() + Math.max(branchData1BranchMinRotated.getZ(),branchData1BranchMaxRotated.getZ());
-
-        CustomStructureCoordinate branchData2BranchMinRotated = BO4CustomStructureCoordinate.getRotatedBO3CoordsJustified(((BO4)branchData2Branch.getObject()).getConfig().getminX(), ((BO4)branchData2Branch.getObject()).getConfig().getminY(), ((BO4)branchData2Branch.getObject()).getConfig().getminZ(), branchData2Branch.getRotation());
-        CustomStructureCoordinate branchData2BranchMaxRotated = BO4CustomStructureCoordinate.getRotatedBO3CoordsJustified(((BO4)branchData2Branch.getObject()).getConfig().getmaxX(), ((BO4) branchData2Branch.getObject()).getConfig().getmaxY(), ((BO4)branchData2Branch.getObject()).getConfig().getmaxZ(), branchData2Branch.getRotation());
-
-        int cachedBranchStartX = branchData2Branch.getX() + Math.min(branchData2BranchMinRotated.getX(),branchData2BranchMaxRotated.getX());
-        int cachedBranchEndX = branchData2Branch.getX() + Math.max(branchData2BranchMinRotated.getX(),branchData2BranchMaxRotated.getX());
-        int cachedBranchStartY = branchData2Branch.getY() + Math.min(branchData2BranchMinRotated.getY(),branchData2BranchMaxRotated.getY());
-        int cachedBranchEndY = branchData2Branch.getY() + Math.max(branchData2BranchMinRotated.getY(),branchData2BranchMaxRotated.getY());
-        int cachedBranchStartZ = branchData2Branch.getZ() + Math.min(branchData2BranchMinRotated.getZ(),branchData2BranchMaxRotated.getZ());
-        int cachedBranchEndZ = branchData2Branch.getZ() + Math.max(branchData2BranchMinRotated.getZ(),branchData2BranchMaxRotated.getZ());
+    	// Bounds are {minX, maxX, minY, maxY, minZ, maxZ}, relative to the branch.
+    	int[] bounds1 = ((BO4)branchData1Branch.getObject()).getConfig().getRotatedBounds(branchData1Branch.getRotation());
+    	int[] bounds2 = ((BO4)branchData2Branch.getObject()).getConfig().getRotatedBounds(branchData2Branch.getRotation());
 
         if (
-    		cachedBranchEndX >= startX &&
-    		cachedBranchStartX <= endX &&
-    		cachedBranchEndY >= startY &&
-    		cachedBranchStartY <= endY &&
-    		cachedBranchEndZ >= startZ &&
-    		cachedBranchStartZ <= endZ
+    		branchData2Branch.getX() + bounds2[1] >= branchData1Branch.getX() + bounds1[0] &&
+    		branchData2Branch.getX() + bounds2[0] <= branchData1Branch.getX() + bounds1[1] &&
+    		branchData2Branch.getY() + bounds2[3] >= branchData1Branch.getY() + bounds1[2] &&
+    		branchData2Branch.getY() + bounds2[2] <= branchData1Branch.getY() + bounds1[3] &&
+    		branchData2Branch.getZ() + bounds2[5] >= branchData1Branch.getZ() + bounds1[4] &&
+    		branchData2Branch.getZ() + bounds2[4] <= branchData1Branch.getZ() + bounds1[5]
 		)
         {
             // Structures' bounding boxes are overlapping
@@ -2178,6 +2108,7 @@ public class BO4CustomStructure extends CustomStructure
                 	}
             		objectsToSpawn.remove(chunkCoordinate);
             		smoothingAreasToSpawn.remove(chunkCoordinate);	
+            		world.getStructureCache().markStructureChanged(this);
             		BO4.OriginalTopBlocks.clear();
                 	return;
                 }
@@ -2225,12 +2156,14 @@ public class BO4CustomStructure extends CustomStructure
                 	}
             		objectsToSpawn.remove(chunkCoordinate);
             		smoothingAreasToSpawn.remove(chunkCoordinate);	
+            		world.getStructureCache().markStructureChanged(this);
             		BO4.OriginalTopBlocks.clear();
                 	return;
                 } else {
                 	this.modDataManager.spawnModData(objectConfig.getModData(), coordObject, chunkCoordinate);
                 	this.spawnerManager.spawnSpawners(objectConfig.getSpawnerData(), coordObject, chunkCoordinate);
                 	this.particlesManager.spawnParticles(objectConfig.getParticleData(), coordObject, chunkCoordinate);
+                	world.getStructureCache().indexStructureFunctions(this, chunkCoordinate);
                 	this.entitiesManager.spawnEntities(world, objectConfig.getEntityData(), coordObject, chunkCoordinate);
                     coordObject.isSpawned = true;
                 }
@@ -2242,6 +2175,7 @@ public class BO4CustomStructure extends CustomStructure
 
 		objectsToSpawn.remove(chunkCoordinate);
 		smoothingAreasToSpawn.remove(chunkCoordinate);	
+		world.getStructureCache().markStructureChanged(this);
 		BO4.OriginalTopBlocks.clear();
     }
 }
@@ -17,6 +17,7 @@ import com.pg85.otg.customobjects.structures.CustomStructureFileManager;
 import com.pg85.otg.customobjects.structures.StructuredCustomObject;
 import com.pg85.otg.customobjects.structures.bo4.BO4CustomStructure;
 import com.pg85.otg.exception.InvalidConfigException;
+import com.pg85.otg.generator.PopulationProfiler;
 import com.pg85.otg.generator.resource.CustomStructureGen;
 import com.pg85.otg.logging.LogMarker;
 import com.pg85.otg.util.ChunkCoordinate;
@@ -28,14 +29,14 @@ public class CustomStructurePlotter
 	private Object processingLock = new Object();
     private boolean processing = false;
 	private FifoMap<ChunkCoordinate, ArrayList<String>> structuresPerChunk; // Used as a cache by the plotting code
-	private HashMap<String, ArrayList<ChunkCoordinate>> spawnedStructuresByName; // Used to find distance between structures and structure groups, only stores 1 chunk per structure in the calculated center of the structure. Does not clean itself when used with the pre-generator and will become slower as it fills up, use as little as possible! (can't clean itself because max radius for BO3 groups cannot be known)
-	private HashMap<String, HashMap<ChunkCoordinate, Integer>> spawnedStructuresByGroup; // Used to find distance between structures and structure groups, only stores 1 chunk per structure in the calculated center of the structure. Does not clean itself when used with the pre-generator and will become slower as it fills up, use as little as possible! (can't clean itself because max radius for BO3 groups cannot be known)
+	private HashMap<String, StructureDistanceIndex> spawnedStructuresByName; // Used to find distance between structures and structure groups, only stores 1 chunk per structure in the calculated center of the structure. Does not clean itself when used with the pre-generator (can't clean itself because max radius for BO3 groups cannot be known), lookups only check nearby chunks so they don't slow down as it fills up.
+	private HashMap<String, StructureDistanceIndex> spawnedStructuresByGroup; // Used to find distance between structures and structure groups, only stores 1 chunk per structure in the calculated center of the structure, with the BO3Group frequency as radius. Does not clean itself when used with the pre-generator (can't clean itself because max radius for BO3 groups cannot be known), lookups only check nearby chunks so they don't slow down as it fills up.
 	
 	public CustomStructurePlotter()
 	{
 		this.structuresPerChunk = new FifoMap<ChunkCoordinate, ArrayList<String>>(2048);
-        this.spawnedStructuresByName = new HashMap<String, ArrayList<ChunkCoordinate>>();
-        this.spawnedStructuresByGroup = new HashMap<String, HashMap<ChunkCoordinate, Integer>>();
+        this.spawnedStructuresByName = new HashMap<String, StructureDistanceIndex>();
+        this.spawnedStructuresByGroup = new HashMap<String, StructureDistanceIndex>();
 	}
 	
 	public int getStructureCount()
@@ -47,6 +48,15 @@ public class CustomStructurePlotter
 	{
 		CustomStructureFileManager.saveChunksMapFile(WorldStandardValues.SpawnedStructuresFileName, world, this.spawnedStructuresByName, spawnedStructuresByGroup);
 	}
+
+	/**
+	 * Serializes the spawned structures so they can be written to disk on
+	 * another thread, see {@link CustomStructureFileManager#writeChunksMapFile(String, LocalWorld, String)}.
+	 */
+	public String getSpawnedStructuresData()
+	{
+		return CustomStructureFileManager.chunksMapToString(this.spawnedStructuresByName, this.spawnedStructuresByGroup);
+	}
 	
 	public void loadSpawnedStructures(LocalWorld world)
 	{		
@@ -754,13 +764,21 @@ public class CustomStructurePlotter
 				                		if(isBO4AllowedToSpawnAtByFrequency(spawnChunk, (BO4)currentStructureSpawning[0]))
 				                		{
 						                	structureCoord = new BO4CustomStructureCoordinate(world, ((BO4)currentStructureSpawning[0]), null, rotation, spawnCoordX * 16, (short)0, spawnCoordZ * 16, 0, false, false, null);
+						                	PopulationProfiler profiler = world.getObjectSpawner().profiler;
+						                	boolean profiling = profiler.isEnabled();
+						                	long start = profiling ? System.nanoTime() : 0;
 						                	structureStart2 = new BO4CustomStructure(world, structureCoord, spawningStructureAtSpawn, targetBiomes, chunkCoord);
+						                	if(profiling)
+						                	{
+						                		profiler.recordObject(structureCoord.getObject().getName(), structureStart2.IsSpawned, System.nanoTime() - start);
+						                	}
 
 				            	        	if(structureStart2.IsSpawned)
 						                	{
 				            	        		structureCache.put(spawnChunk, structureStart2);
 				            	    			this.structuresPerChunk.put(spawnChunk, null);
-				            	    			worldInfoChunks.put(spawnChunk, structureStart2);
+				            	    			world.getStructureCache().putWorldInfoChunk(spawnChunk, structureStart2);
+				            	    			world.getStructureCache().indexStructureFunctions(structureStart2, spawnChunk);
 
 						                		((BO4)structureCoord.getObject()).getConfig().timesSpawned += 1;
 						                		if(OTG.getPluginConfig().spawnLog)
@@ -771,46 +789,34 @@ public class CustomStructurePlotter
 						                		if(((BO4)currentStructureSpawning[0]).getConfig().frequency > 0 || ((BO4)currentStructureSpawning[0]).getConfig().bo3Groups.size() > 0)
 						                		{
 						                			String bO3Name = ((BO4)currentStructureSpawning[0]).getName();
-						                			ChunkCoordinate bo4SpawnCoord = ChunkCoordinate.fromChunkCoords(spawnCoordX, spawnCoordZ);
 
-						                			ArrayList<ChunkCoordinate> chunkCoords = this.spawnedStructuresByName.get(bO3Name);
-					                				if(chunkCoords == null)
+						                			StructureDistanceIndex spawnedStructures = this.spawnedStructuresByName.get(bO3Name);
+					                				if(spawnedStructures == null)
 							                		{
-							                			chunkCoords = new ArrayList<ChunkCoordinate>();
-							                			spawnedStructuresByName.put(bO3Name, chunkCoords);
+					                					spawnedStructures = new StructureDistanceIndex();
+							                			spawnedStructuresByName.put(bO3Name, spawnedStructures);
 							                		}
-					                				chunkCoords.add(bo4SpawnCoord);
+					                				spawnedStructures.add(spawnCoordX, spawnCoordZ, 0);
 
 						                			if(((BO4)currentStructureSpawning[0]).getConfig().bo3Groups.size() > 0)
 						                			{
 									            		int structureCenterX = structureBBInsideAreaX + (int)Math.floor(((rotation == Rotation.NORTH || rotation == Rotation.SOUTH ? structureLeft + structureRight + 1 : structureBottom + structureTop + 1) / 2d));
 									            		int structureCenterZ = structureBBInsideAreaZ + (int)Math.floor(((rotation == Rotation.NORTH || rotation == Rotation.SOUTH ? structureTop + structureBottom + 1 : structureLeft + structureRight + 1) / 2d));
-									                	ChunkCoordinate bo4CenterSpawnCoord = ChunkCoordinate.fromChunkCoords(structureCenterX, structureCenterZ);
-						                				
+
 						                				for(Entry<String, Integer> entry : ((BO4)currentStructureSpawning[0]).getConfig().bo3Groups.entrySet())
 						                				{
 					                						String bo3GroupName = entry.getKey();
 					                						int bo3GroupFrequency = entry.getValue().intValue();
 					                						if(bo3GroupFrequency > 0)
 					                						{
-					                							HashMap<ChunkCoordinate, Integer> spawnedStructures = this.spawnedStructuresByGroup.get(bo3GroupName);
+					                							spawnedStructures = this.spawnedStructuresByGroup.get(bo3GroupName);
 					                							if(spawnedStructures == null)
 					                							{
-					                								spawnedStructures = new HashMap<ChunkCoordinate, Integer>();
-					                								spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue());
+					                								spawnedStructures = new StructureDistanceIndex();
 					                								this.spawnedStructuresByGroup.put(bo3GroupName, spawnedStructures);
-					                							} else {
-						                							Integer frequency = spawnedStructures.get(bo4CenterSpawnCoord);
-						                							if(frequency != null)
-						                							{
-						                								if(frequency.intValue() < bo3GroupFrequency)
-						                								{
-						                									spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue().intValue());
-						                								}
-						                							} else {
-						                								spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue().intValue());
-						                							}
 					                							}
+					                							// Keeps the highest frequency if another structure was already plotted here
+					                							spawnedStructures.add(structureCenterX, structureCenterZ, bo3GroupFrequency);
 					                						}
 						                				}
 						                			}
@@ -854,52 +860,27 @@ public class CustomStructurePlotter
     {
         // Check if no other structure of the same type (filename) is within the minimum radius (BO3 frequency)
 		int radius = BO3ToSpawn.getConfig().frequency;
-		String bO3Name = BO3ToSpawn.getName();
 		if(radius > 0)
 		{
-			float distanceBetweenStructures = 0;
-			
-			ArrayList<ChunkCoordinate> chunkCoords = spawnedStructuresByName.get(bO3Name);
-			if(chunkCoords != null)
+			StructureDistanceIndex spawnedStructures = spawnedStructuresByName.get(BO3ToSpawn.getName());
+			if(spawnedStructures != null && spawnedStructures.isAnyWithinRadius(chunkCoord.getChunkX(), chunkCoord.getChunkZ(), radius))
 			{
-            	// Check BO3 frequency
-       			for(ChunkCoordinate cachedChunk : chunkCoords)
-    			{
-                    // Find distance between two points
-                    distanceBetweenStructures = (int)Math.floor(Math.sqrt(Math.pow(chunkCoord.getChunkX() - cachedChunk.getChunkX(), 2) + Math.pow(chunkCoord.getChunkZ() - cachedChunk.getChunkZ(), 2)));
-                    if (distanceBetweenStructures <= radius)
-                    {
-                    	// Other BO3 of the same type is too nearby, cannot spawn here!
-                        return false;
-                    }
-    			}				
+            	// Other BO3 of the same type is too nearby, cannot spawn here!
+				return false;
 			}
 		}
 		
 		// Check if no other structures that are a member of the same group as this BO3 are within the minimum radius (BO3Group frequency)
 		if(BO3ToSpawn.getConfig().bo3Groups.size() > 0)
 		{
-        	float distanceBetweenStructures = 0;
-        	int cachedChunkRadius = 0;
-        	ChunkCoordinate cachedChunk = null;
         	for(Entry<String, Integer> entry : BO3ToSpawn.getConfig().bo3Groups.entrySet())
         	{
-        		HashMap<ChunkCoordinate, Integer> spawnedStructure = spawnedStructuresByGroup.get(entry.getKey());
-        		if(spawnedStructure != null)
+        		StructureDistanceIndex spawnedStructures = spawnedStructuresByGroup.get(entry.getKey());
+        		// The radius used is the highest of this BO3's and the other BO3's BO3Group frequency.
+        		if(spawnedStructures != null && spawnedStructures.isAnyWithinRadius(chunkCoord.getChunkX(), chunkCoord.getChunkZ(), entry.getValue().intValue()))
         		{
-        			for(Entry<ChunkCoordinate, Integer> cachedChunkEntry : spawnedStructure.entrySet())
-        			{
-        				cachedChunk = cachedChunkEntry.getKey();
-        				cachedChunkRadius = cachedChunkEntry.getValue().intValue();
-        				radius = entry.getValue().intValue() >= cachedChunkRadius ? entry.getValue().intValue() : cachedChunkRadius;
-                        // Find distance between two points
-        				distanceBetweenStructures = (int)Math.floor(Math.sqrt(Math.pow(chunkCoord.getChunkX() - cachedChunk.getChunkX(), 2) + Math.pow(chunkCoord.getChunkZ() - cachedChunk.getChunkZ(), 2)));
-                        if (distanceBetweenStructures <= radius)
-                        {
-                        	// Other BO3 using a shared BO3Group is too nearby, cannot spawn here!
-                        	return false;
-                        }
-        			}
+                	// Other BO3 using a shared BO3Group is too nearby, cannot spawn here!
+                	return false;
         		}
         	}
 		}
@@ -0,0 +1,173 @@
+package com.pg85.otg.customobjects.structures.bo4;
+
+import java.util.HashMap;
+
+/**
+ * Spatial index of the chunks structures (or structures in a BO3Group) were
+ * plotted at, used for the BO3 Frequency and BO3Group frequency checks.
+ *
+ * Chunks are bucketed in a grid of cells, so finding a structure within a
+ * radius only has to look at the cells overlapping that radius instead of
+ * at every structure plotted so far. Each chunk stores a radius, for groups
+ * this is the group frequency of the structure plotted there.
+ */
+public class StructureDistanceIndex
+{
+	// Cells are 16x16 chunks
+	private static final int CELL_SHIFT = 4;
+
+	private final HashMap<Long, Cell> cells = new HashMap<Long, Cell>();
+	private int size = 0;
+	private int maxRadius = 0;
+
+	/**
+	 * Adds a chunk to the index. If the chunk was already added, the
+	 * highest of both radiuses is kept.
+	 */
+	public void add(int chunkX, int chunkZ, int radius)
+	{
+		Long cellKey = Long.valueOf(getCellKey(chunkX >> CELL_SHIFT, chunkZ >> CELL_SHIFT));
+		Cell cell = this.cells.get(cellKey);
+		if(cell == null)
+		{
+			cell = new Cell();
+			this.cells.put(cellKey, cell);
+		}
+		if(cell.add(chunkX, chunkZ, radius))
+		{
+			this.size++;
+		}
+		if(radius > this.maxRadius)
+		{
+			this.maxRadius = radius;
+		}
+	}
+
+	/**
+	 * Checks if any chunk in the index is within the given radius of the
+	 * given chunk. For each chunk the highest of the given radius and the
+	 * radius stored for that chunk is used. Distances are rounded down,
+	 * the same way the frequency checks always did.
+	 */
+	public boolean isAnyWithinRadius(int chunkX, int chunkZ, int radius)
+	{
+		if(this.size == 0)
+		{
+			return false;
+		}
+
+		int searchRadius = radius > this.maxRadius ? radius : this.maxRadius;
+		int minCellX = (chunkX - searchRadius) >> CELL_SHIFT;
+		int maxCellX = (chunkX + searchRadius) >> CELL_SHIFT;
+		int minCellZ = (chunkZ - searchRadius) >> CELL_SHIFT;
+		int maxCellZ = (chunkZ + searchRadius) >> CELL_SHIFT;
+
+		// For very large radiuses it's faster to check all cells
+		if((long)(maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1) > this.cells.size())
+		{
+			for(Cell cell : this.cells.values())
+			{
+				if(cell.isAnyWithinRadius(chunkX, chunkZ, radius))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		Cell cell;
+		for(int cellX = minCellX; cellX <= maxCellX; cellX++)
+		{
+			for(int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++)
+			{
+				cell = this.cells.get(Long.valueOf(getCellKey(cellX, cellZ)));
+				if(cell != null && cell.isAnyWithinRadius(chunkX, chunkZ, radius))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Gets all chunks in the index as x, z, radius triplets, used when
+	 * saving the index to disk.
+	 */
+	public int[] toArray()
+	{
+		int[] entries = new int[this.size * 3];
+		int i = 0;
+		for(Cell cell : this.cells.values())
+		{
+			System.arraycopy(cell.entries, 0, entries, i, cell.count * 3);
+			i += cell.count * 3;
+		}
+		return entries;
+	}
+
+	private static long getCellKey(int cellX, int cellZ)
+	{
+		return ((long)cellX << 32) | (cellZ & 0xFFFFFFFFL);
+	}
+
+	private static class Cell
+	{
+		// x, z, radius triplets
+		private int[] entries = new int[3 * 4];
+		private int count = 0;
+
+		/**
+		 * @return True if the chunk was added, false if it was already in this cell.
+		 */
+		boolean add(int chunkX, int chunkZ, int radius)
+		{
+			for(int i = 0; i < this.count * 3; i += 3)
+			{
+				if(this.entries[i] == chunkX && this.entries[i + 1] == chunkZ)
+				{
+					if(radius > this.entries[i + 2])
+					{
+						this.entries[i + 2] = radius;
+					}
+					return false;
+				}
+			}
+			if(this.count * 3 == this.entries.length)
+			{
+				int[] newEntries = new int[this.entries.length * 2];
+				System.arraycopy(this.entries, 0, newEntries, 0, this.entries.length);
+				this.entries = newEntries;
+			}
+			this.entries[this.count * 3] = chunkX;
+			this.entries[this.count * 3 + 1] = chunkZ;
+			this.entries[this.count * 3 + 2] = radius;
+			this.count++;
+			return true;
+		}
+
+		boolean isAnyWithinRadius(int chunkX, int chunkZ, int radius)
+		{
+			long distanceX;
+			long distanceZ;
+			long maxDistance;
+			for(int i = 0; i < this.count * 3; i += 3)
+			{
+				distanceX = chunkX - this.entries[i];
+				distanceZ = chunkZ - this.entries[i + 1];
+				maxDistance = (radius > this.entries[i + 2] ? radius : this.entries[i + 2]) + 1L;
+				// Same as floor(sqrt(distance squared)) <= radius, without the sqrt
+				if(distanceX * distanceX + distanceZ * distanceZ < maxDistance * maxDistance)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
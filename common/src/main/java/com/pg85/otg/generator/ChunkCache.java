@@ -0,0 +1,76 @@
+package com.pg85.otg.generator;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Thread-safe cache of per-chunk terrain data, like heightmaps, keyed on
+ * packed chunk coordinates. Bounded by the amount of chunks, evicts the
+ * least recently used chunks first.
+ *
+ * @param <V> Type of the cached data, must be immutable.
+ */
+final class ChunkCache<V>
+{
+    private final LinkedHashMap<Long, V> entries;
+
+    // Stats
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param capacity The maximum amount of chunks held by the cache.
+     */
+    ChunkCache(final int capacity)
+    {
+        // Access ordered, eldest entry is the least recently used.
+        this.entries = new LinkedHashMap<Long, V>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<Long, V> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static long toKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The data, or null if the chunk is not cached.
+     */
+    synchronized V get(long key)
+    {
+        V value = this.entries.get(Long.valueOf(key));
+        if (value != null)
+        {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+        return value;
+    }
+
+    synchronized void put(long key, V value)
+    {
+        this.entries.put(Long.valueOf(key), value);
+    }
+
+    synchronized void clear()
+    {
+        this.entries.clear();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        long lookups = this.hits + this.misses;
+        return "Chunks: " + this.entries.size() + ", hits: " + this.hits + ", misses: " + this.misses
+                + ", hit rate: " + (lookups > 0 ? Math.round(this.hits * 100d / lookups) : 0) + "%";
+    }
+}
@@ -30,9 +30,10 @@ public class ChunkProviderOTG
     private static final int NOISE_MAX_X = CHUNK_X_SIZE / 4 + 1;
     private static final int NOISE_MAX_Z = CHUNK_Z_SIZE / 4 + 1;
 
+    private static final int DENSITY_CACHE_SIZE = 1024;
+
     private final LocalMaterialData air = MaterialHelper.toLocalMaterialData(DefaultMaterial.AIR, 0);
 
-    private final Random random;
     private final NoiseGeneratorPerlinOctaves vol1NoiseGen;
     private final NoiseGeneratorPerlinOctaves vol2NoiseGen;
     private final NoiseGeneratorPerlinOctaves volNoiseGen;
@@ -40,31 +41,35 @@ public class ChunkProviderOTG
     private final NoiseGeneratorPerlinOctaves oldTerrainGeneratorNoiseGen;
     private final NoiseGeneratorPerlinOctaves noiseHeightNoiseGen;
 
-    private double[] biomeBlocksNoise = new double[CHUNK_X_SIZE * CHUNK_Z_SIZE];
-
-    private double[] volNoise;
-    private double[] vol1Noise;
-    private double[] vol2Noise;
-    private double[] oldTerrainGeneratorNoise;
-    private double[] noiseHeightNoise;
-    private float[] nearBiomeWeightArray;
-
-    private double riverVol;
-    private double riverHeight;
-    // Always false if improved rivers disabled
-    private boolean riverFound = false;
+    /**
+     * The biome smoothing kernel for each smooth radius, listed in the order
+     * {@link #biomeFactor} visits the neighbouring biomes. The offsets point
+     * into the unzoomed biome grid of a chunk, relative to the column that is
+     * being smoothed.
+     */
+    private final float[][] smoothKernelWeights;
+    private final int[][] smoothKernelOffsets;
 
     private final LocalWorld localWorld;
-    private double volatilityFactor;
-    private double heightFactor;
 
     private final ConfigProvider configProvider;
 
     private final TerrainGenBase caveGen;
     private final TerrainGenBase canyonGen;
 
-    // Water level at lower resolution
-    private final byte[] waterLevelRaw = new byte[25];
+    // Per-thread working state, allows several chunks to be generated at once.
+    private final ThreadLocal<TerrainGenerationContext> contexts = new ThreadLocal<TerrainGenerationContext>()
+    {
+        @Override
+        protected TerrainGenerationContext initialValue()
+        {
+            return new TerrainGenerationContext();
+        }
+    };
+
+    // Biome generators and platform hooks (modded caves, events, default
+    // structures) are not thread-safe, calls to them are serialized.
+    private final Object worldAccessLock = new Object();
 
     private final int heightScale;
     private final int heightCap;
@@ -72,6 +77,11 @@ public class ChunkProviderOTG
     private final int maxSmoothDiameter;
     private final int maxSmoothRadius;
 
+    // Chunks whose blocks were needed before they were
+    // generated (BO4 plotting) can be generated later without evaluating
+    // the terrain noise again.
+    private final ChunkCache<TerrainDensity> densityCache = new ChunkCache<TerrainDensity>(DENSITY_CACHE_SIZE);
+
     // TODO: Should this really be limited to 1024?
     private BiomeConfig[] biomes = new BiomeConfig[1024];
     
@@ -82,14 +92,14 @@ public class ChunkProviderOTG
         this.heightCap = world.getHeightCap();
         this.heightScale = world.getHeightScale();
 
-        this.random = new Random(world.getSeed());
+        Random random = new Random(world.getSeed());
 
-        this.vol1NoiseGen = new NoiseGeneratorPerlinOctaves(this.random, 16);
-        this.vol2NoiseGen = new NoiseGeneratorPerlinOctaves(this.random, 16);
-        this.volNoiseGen = new NoiseGeneratorPerlinOctaves(this.random, 8);
-        this.biomeBlocksNoiseGen = new NoiseGeneratorPerlinMesaBlocks(this.random, 4);
-        this.oldTerrainGeneratorNoiseGen = new NoiseGeneratorPerlinOctaves(this.random, 10);
-        this.noiseHeightNoiseGen = new NoiseGeneratorPerlinOctaves(this.random, 16);
+        this.vol1NoiseGen = new NoiseGeneratorPerlinOctaves(random, 16);
+        this.vol2NoiseGen = new NoiseGeneratorPerlinOctaves(random, 16);
+        this.volNoiseGen = new NoiseGeneratorPerlinOctaves(random, 8);
+        this.biomeBlocksNoiseGen = new NoiseGeneratorPerlinMesaBlocks(random, 4);
+        this.oldTerrainGeneratorNoiseGen = new NoiseGeneratorPerlinOctaves(random, 10);
+        this.noiseHeightNoiseGen = new NoiseGeneratorPerlinOctaves(random, 16);
 
         this.caveGen = new CavesGen(configs.getWorldConfig(), this.localWorld);
         this.canyonGen = new RavinesGen(configs.getWorldConfig(), this.localWorld);
@@ -102,38 +112,108 @@ public class ChunkProviderOTG
         this.maxSmoothDiameter = worldConfig.maxSmoothRadius * 2 + 1;
         this.maxSmoothRadius = worldConfig.maxSmoothRadius;
 
-        this.nearBiomeWeightArray = new float[maxSmoothDiameter * maxSmoothDiameter];
+        float[] nearBiomeWeightArray = new float[maxSmoothDiameter * maxSmoothDiameter];
 
         for (int x = -maxSmoothRadius; x <= maxSmoothRadius; x++)
         {
             for (int z = -maxSmoothRadius; z <= maxSmoothRadius; z++)
             {
                 final float f1 = 10.0F / MathHelper.sqrt(x * x + z * z + 0.2F);
-                this.nearBiomeWeightArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * maxSmoothDiameter)] = f1;
+                nearBiomeWeightArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * maxSmoothDiameter)] = f1;
             }
         }
 
+        final int gridWidth = NOISE_MAX_X + maxSmoothDiameter;
+        this.smoothKernelWeights = new float[maxSmoothRadius + 1][];
+        this.smoothKernelOffsets = new int[maxSmoothRadius + 1][];
+        for (int radius = 0; radius <= maxSmoothRadius; radius++)
+        {
+            float[] weights = new float[(radius * 2 + 1) * (radius * 2 + 1)];
+            int[] offsets = new int[weights.length];
+            int i = 0;
+            for (int nextX = -radius; nextX <= radius; nextX++)
+            {
+                for (int nextZ = -radius; nextZ <= radius; nextZ++)
+                {
+                    weights[i] = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)];
+                    offsets[i] = nextX + nextZ * gridWidth;
+                    i++;
+                }
+            }
+            this.smoothKernelWeights[radius] = weights;
+            this.smoothKernelOffsets[radius] = offsets;
+        }
     }
     
+    /**
+     * Generates the terrain, caves and ravines for the given chunk and
+     * prepares the default Minecraft structures for it.
+     *
+     * @param chunkBuffer The chunk to generate.
+     * @see #generateWithoutStructures(ChunkBuffer)
+     */
     public void generate(ChunkBuffer chunkBuffer)
     {
+        boolean dry = generateWithoutStructures(chunkBuffer);
+        prepareDefaultStructures(chunkBuffer.getChunkCoordinate(), dry);
+    }
+
+    /**
+     * Generates the terrain, caves and ravines for the given chunk.
+     *
+     * This method is re-entrant: all working state lives in a per-thread
+     * {@link TerrainGenerationContext}, so it may be called for different
+     * chunks from several threads at once. The output is identical to
+     * generating the same chunks one at a time.
+     *
+     * @param chunkBuffer The chunk to generate.
+     * @return Whether there is little water on the surface of the chunk,
+     *         should be passed to {@link #prepareDefaultStructures(ChunkCoordinate, boolean)}.
+     */
+    public boolean generateWithoutStructures(ChunkBuffer chunkBuffer)
+    {
+        TerrainGenerationContext context = this.contexts.get();
+
         ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
         int x = chunkCoord.getChunkX();
         int z = chunkCoord.getChunkZ();
-        this.random.setSeed(x * 341873128712L + z * 132897987541L);
+        context.random.setSeed(x * 341873128712L + z * 132897987541L);
               
-        boolean dry = generateTerrainA(x, z, chunkBuffer);
-                
-        if(!this.localWorld.generateModdedCaveGen(x, z, chunkBuffer))
+        boolean dry = generateTerrainA(context, x, z, chunkBuffer);
+
+        boolean moddedCaves;
+        synchronized(this.worldAccessLock)
+        {
+            moddedCaves = this.localWorld.generateModdedCaveGen(x, z, chunkBuffer);
+        }
+        if(!moddedCaves)
         {
             this.caveGen.generate(chunkBuffer);        	
         }
         this.canyonGen.generate(chunkBuffer);
 
+        return dry;
+    }
+
+    /**
+     * Prepares the default Minecraft structures (villages, strongholds etc)
+     * for a chunk whose terrain was generated by
+     * {@link #generateWithoutStructures(ChunkBuffer)}. The structure generators are
+     * not thread-safe, so callers generating terrain on worker threads
+     * should call this on the server thread.
+     *
+     * @param chunkCoord The chunk.
+     * @param dry        Whether the chunk has little surface water.
+     */
+    public void prepareDefaultStructures(ChunkCoordinate chunkCoord, boolean dry)
+    {
         WorldConfig worldConfig = configProvider.getWorldConfig();
         if (worldConfig.modeTerrain == WorldConfig.TerrainMode.Normal)// || worldConfig.modeTerrain == WorldConfig.TerrainMode.OldGenerator)
         {
-            this.localWorld.prepareDefaultStructures(x, z, dry);
+            synchronized(this.worldAccessLock)
+            {
+                this.localWorld.prepareDefaultStructures(chunkCoord.getChunkX(), chunkCoord.getChunkZ(), dry);
+            }
         }
     }
 
@@ -146,7 +226,7 @@ public class ChunkProviderOTG
     // Renamed this to generateTerrainA for v8, since Streams injects code into generateTerrain for v6
     // to make it fire the ReplaceBiomeBlocks event. V8 fires the event itself, so just to make sure 
     // Streams doesnt crash when trying to inject code, have an empty generateTerrain method.
-    private boolean generateTerrainA(int x, int z, ChunkBuffer chunkBuffer)
+    private boolean generateTerrainA(TerrainGenerationContext context, int x, int z, ChunkBuffer chunkBuffer)
     {
         int[] biomeArray = null;
         byte[] waterLevel = new byte[CHUNK_X_SIZE * CHUNK_Z_SIZE];;
@@ -161,29 +241,12 @@ public class ChunkProviderOTG
         final int maxYSections = this.heightCap / 8 + 1;
         final int usedYSections = this.heightScale / 8 + 1;
 
-        WorldConfig worldConfig = configProvider.getWorldConfig();
-        BiomeGenerator biomeGenerator = this.localWorld.getBiomeGenerator();
-        int[] riverArray = null;
-        if (worldConfig.improvedRivers)
-        {
-            riverArray = biomeGenerator.getBiomesUnZoomed(riverArray, chunkX * 4 - maxSmoothRadius, chunkZ * 4 - maxSmoothRadius, NOISE_MAX_X + maxSmoothDiameter, NOISE_MAX_Z + maxSmoothDiameter, OutputType.ONLY_RIVERS);
-        }
-        
-        if (biomeGenerator.canGenerateUnZoomed())
-        {
-            biomeArray = biomeGenerator.getBiomesUnZoomed(biomeArray, chunkX * 4 - maxSmoothRadius, chunkZ * 4 - maxSmoothRadius, NOISE_MAX_X + maxSmoothDiameter, NOISE_MAX_Z + maxSmoothDiameter, OutputType.DEFAULT_FOR_WORLD);
-        } else {
-            biomeArray = biomeGenerator.getBiomes(biomeArray, chunkX * CHUNK_X_SIZE, chunkZ * CHUNK_Z_SIZE, CHUNK_X_SIZE, CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
-        }
+        TerrainDensity density = getTerrainDensity(context, chunkX, chunkZ, maxYSections, usedYSections);
+        double[] rawTerrain = density.rawTerrain;
 
-        double[] rawTerrain = generateTerrainNoise(chunkX * four, 0, chunkZ * four, maxYSections, usedYSections, biomeArray, riverArray);
+        biomeArray = getBiomeArray(chunkX, chunkZ);
 
-        // Now that the raw terrain is generated, replace raw biome array with
-        // fine-tuned one.
-        if (biomeGenerator.canGenerateUnZoomed())
-        {
-            biomeArray = biomeGenerator.getBiomes(biomeArray, chunkX * CHUNK_X_SIZE, chunkZ * CHUNK_Z_SIZE, CHUNK_X_SIZE, CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
-        }
+        fillWaterLevel(density.waterLevelRaw, waterLevel);
 
         final double oneEight = 0.125D;
         final double oneFourth = 0.25D;
@@ -192,30 +255,6 @@ public class ChunkProviderOTG
         {
             for (int z1 = 0; z1 < four; z1++)
             {
-                // Water level (fill final array based on smaller,
-                // non-smoothed
-                // array)
-                double waterLevel_x0z0 = this.waterLevelRaw[(x1 + 0) * NOISE_MAX_X + (z1 + 0)] & 0xFF;
-                double waterLevel_x0z1 = this.waterLevelRaw[(x1 + 0) * NOISE_MAX_X + (z1 + 1)] & 0xFF;
-                final double waterLevel_x1z0 = ((this.waterLevelRaw[(x1 + 1) * NOISE_MAX_X + (z1 + 0)] & 0xFF) - waterLevel_x0z0) * oneFourth;
-                final double waterLevel_x1z1 = ((this.waterLevelRaw[(x1 + 1) * NOISE_MAX_X + (z1 + 1)] & 0xFF) - waterLevel_x0z1) * oneFourth;
-
-                for (int piece_x = 0; piece_x < 4; piece_x++)
-                {
-                    double waterLevelForArray = waterLevel_x0z0;
-                    final double d17_1 = (waterLevel_x0z1 - waterLevel_x0z0) * oneFourth;
-
-                    for (int piece_z = 0; piece_z < 4; piece_z++)
-                    {
-                        // Fill water level array
-                        waterLevel[(z1 * 4 + piece_z) * 16 + (piece_x + x1 * 4)] = (byte) waterLevelForArray;
-                        waterLevelForArray += d17_1;
-                    }
-                    waterLevel_x0z0 += waterLevel_x1z0;
-                    waterLevel_x0z1 += waterLevel_x1z1;
-
-                }
-
                 // Terrain noise
                 for (int y = 0; y < oneEightOfHeight; y++)
                 {
@@ -272,13 +311,132 @@ public class ChunkProviderOTG
         }
         
         boolean dry = false;
-        if(OTG.fireReplaceBiomeBlocksEvent(x, z, chunkBuffer, localWorld))
+        boolean replaceBiomeBlocks;
+        synchronized(this.worldAccessLock)
+        {
+            replaceBiomeBlocks = OTG.fireReplaceBiomeBlocksEvent(x, z, chunkBuffer, localWorld);
+        }
+        if(replaceBiomeBlocks)
 		{
-        	dry = addBiomeBlocksAndCheckWater(chunkBuffer, biomeArray, waterLevel);
+        	dry = addBiomeBlocksAndCheckWater(context, chunkBuffer, biomeArray, waterLevel);
 		}
         return dry;
     }
 
+    /**
+     * Gets the rivers around a chunk at 1:4 scale, used by the terrain noise.
+     * @return The rivers, or null if improved rivers are disabled.
+     */
+    private int[] getRiverArray(int chunkX, int chunkZ)
+    {
+        if (!configProvider.getWorldConfig().improvedRivers)
+        {
+            return null;
+        }
+        synchronized(this.worldAccessLock)
+        {
+            return this.localWorld.getBiomeGenerator().getBiomesUnZoomed(null, chunkX * 4 - maxSmoothRadius, chunkZ * 4 - maxSmoothRadius, NOISE_MAX_X + maxSmoothDiameter, NOISE_MAX_Z + maxSmoothDiameter, OutputType.ONLY_RIVERS);
+        }
+    }
+
+    /**
+     * Gets the biomes around a chunk at 1:4 scale, used by the terrain noise.
+     * If the biome generator can't generate unzoomed biomes the biomes of the
+     * chunk itself are returned instead.
+     */
+    private int[] getRawBiomeArray(int chunkX, int chunkZ)
+    {
+        BiomeGenerator biomeGenerator = this.localWorld.getBiomeGenerator();
+        synchronized(this.worldAccessLock)
+        {
+            if (biomeGenerator.canGenerateUnZoomed())
+            {
+                return biomeGenerator.getBiomesUnZoomed(null, chunkX * 4 - maxSmoothRadius, chunkZ * 4 - maxSmoothRadius, NOISE_MAX_X + maxSmoothDiameter, NOISE_MAX_Z + maxSmoothDiameter, OutputType.DEFAULT_FOR_WORLD);
+            }
+            return biomeGenerator.getBiomes(null, chunkX * CHUNK_X_SIZE, chunkZ * CHUNK_Z_SIZE, CHUNK_X_SIZE, CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
+        }
+    }
+
+    /**
+     * Gets the terrain density of a chunk, from the density cache or by
+     * evaluating the terrain noise. The returned arrays must not be
+     * modified.
+     */
+    private TerrainDensity getTerrainDensity(TerrainGenerationContext context, int chunkX, int chunkZ, int maxYSections, int usedYSections)
+    {
+        long key = ChunkCache.toKey(chunkX, chunkZ);
+        TerrainDensity density = this.densityCache.get(key);
+        if (density == null)
+        {
+            int[] riverArray = getRiverArray(chunkX, chunkZ);
+            int[] biomeArray = getRawBiomeArray(chunkX, chunkZ);
+
+            double[] rawTerrain = generateTerrainNoise(context, chunkX * 4, 0, chunkZ * 4, maxYSections, usedYSections, biomeArray, riverArray);
+            density = new TerrainDensity(rawTerrain, context.waterLevelRaw.clone());
+            this.densityCache.put(key, density);
+        }
+        return density;
+    }
+
+    /**
+     * Gets the biomes of a chunk, used for the blocks once the terrain noise
+     * has been generated.
+     */
+    private int[] getBiomeArray(int chunkX, int chunkZ)
+    {
+        BiomeGenerator biomeGenerator = this.localWorld.getBiomeGenerator();
+        synchronized(this.worldAccessLock)
+        {
+            return biomeGenerator.getBiomes(null, chunkX * CHUNK_X_SIZE, chunkZ * CHUNK_Z_SIZE, CHUNK_X_SIZE, CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
+        }
+    }
+
+    /**
+     * Fills the water level of each column (indexed z * 16 + x) based on the
+     * smaller, non-smoothed water levels set by the terrain noise.
+     */
+    private void fillWaterLevel(byte[] waterLevelRaw, byte[] waterLevel)
+    {
+        final double oneFourth = 0.25D;
+
+        for (int x1 = 0; x1 < 4; x1++)
+        {
+            for (int z1 = 0; z1 < 4; z1++)
+            {
+                double waterLevel_x0z0 = waterLevelRaw[(x1 + 0) * NOISE_MAX_X + (z1 + 0)] & 0xFF;
+                double waterLevel_x0z1 = waterLevelRaw[(x1 + 0) * NOISE_MAX_X + (z1 + 1)] & 0xFF;
+                final double waterLevel_x1z0 = ((waterLevelRaw[(x1 + 1) * NOISE_MAX_X + (z1 + 0)] & 0xFF) - waterLevel_x0z0) * oneFourth;
+                final double waterLevel_x1z1 = ((waterLevelRaw[(x1 + 1) * NOISE_MAX_X + (z1 + 1)] & 0xFF) - waterLevel_x0z1) * oneFourth;
+
+                for (int piece_x = 0; piece_x < 4; piece_x++)
+                {
+                    double waterLevelForArray = waterLevel_x0z0;
+                    final double d17_1 = (waterLevel_x0z1 - waterLevel_x0z0) * oneFourth;
+
+                    for (int piece_z = 0; piece_z < 4; piece_z++)
+                    {
+                        // Fill water level array
+                        waterLevel[(z1 * 4 + piece_z) * 16 + (piece_x + x1 * 4)] = (byte) waterLevelForArray;
+                        waterLevelForArray += d17_1;
+                    }
+                    waterLevel_x0z0 += waterLevel_x1z0;
+                    waterLevel_x0z1 += waterLevel_x1z1;
+                }
+            }
+        }
+    }
+
+    // Called by /otg flush command to clear memory.
+    public void clearTerrainDensityCache()
+    {
+        this.densityCache.clear();
+    }
+
+    public String getTerrainDensityCacheStatistics()
+    {
+        return this.densityCache.toString();
+    }
+
     /**
      * Adds the biome blocks like grass, dirt, sand and sandstone. Also adds
      * bedrock at the bottom of the map.
@@ -287,16 +445,16 @@ public class ChunkProviderOTG
      * @return Whether there is a lot of water in this chunk. If yes, no
      *         villages will be placed.
      */
-    private boolean addBiomeBlocksAndCheckWater(ChunkBuffer chunkBuffer, int[] biomeArray, byte[] waterLevel)
+    private boolean addBiomeBlocksAndCheckWater(TerrainGenerationContext context, ChunkBuffer chunkBuffer, int[] biomeArray, byte[] waterLevel)
     {
         ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
 
         int dryBlocksOnSurface = 256;
 
         final double d1 = 0.03125D;
-        this.biomeBlocksNoise = this.biomeBlocksNoiseGen.getRegion(this.biomeBlocksNoise, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), CHUNK_X_SIZE, CHUNK_Z_SIZE, d1 * 2.0D, d1 * 2.0D, 1.0D);
+        context.biomeBlocksNoise = this.biomeBlocksNoiseGen.getRegion(context.biomeBlocksNoise, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), CHUNK_X_SIZE, CHUNK_Z_SIZE, d1 * 2.0D, d1 * 2.0D, 1.0D);
 
-        GeneratingChunk generatingChunk = new GeneratingChunk(this.random, waterLevel, this.biomeBlocksNoise, this.heightCap);
+        GeneratingChunk generatingChunk = new GeneratingChunk(context.random, waterLevel, context.biomeBlocksNoise, this.heightCap);
 
         for (int x = 0; x < CHUNK_X_SIZE; x++)
         {
@@ -322,7 +480,7 @@ public class ChunkProviderOTG
         return dryBlocksOnSurface > 250;
     }
 
-    private double[] generateTerrainNoise(int xOffset, int yOffset, int zOffset, int maxYSections, int usedYSections, int[] biomeArray, int[] riverArray)
+    private double[] generateTerrainNoise(TerrainGenerationContext context, int xOffset, int yOffset, int zOffset, int maxYSections, int usedYSections, int[] biomeArray, int[] riverArray)
     {
         double[] rawTerrain = new double[NOISE_MAX_X * maxYSections * NOISE_MAX_Z];
 
@@ -332,13 +490,18 @@ public class ChunkProviderOTG
 
         if (worldConfig.oldTerrainGenerator)
         {
-            this.oldTerrainGeneratorNoise = this.oldTerrainGeneratorNoiseGen.Noise2D(this.oldTerrainGeneratorNoise, xOffset, zOffset, NOISE_MAX_X, NOISE_MAX_Z, 1.121D, 1.121D);
+            context.oldTerrainGeneratorNoise = this.oldTerrainGeneratorNoiseGen.Noise2D(context.oldTerrainGeneratorNoise, xOffset, zOffset, NOISE_MAX_X, NOISE_MAX_Z, 1.121D, 1.121D);
         }
-        this.noiseHeightNoise = this.noiseHeightNoiseGen.Noise2D(this.noiseHeightNoise, xOffset, zOffset, NOISE_MAX_X, NOISE_MAX_Z, 200.0D, 200.0D);
+        context.noiseHeightNoise = this.noiseHeightNoiseGen.Noise2D(context.noiseHeightNoise, xOffset, zOffset, NOISE_MAX_X, NOISE_MAX_Z, 200.0D, 200.0D);
 
-        this.volNoise = this.volNoiseGen.Noise3D(this.volNoise, xOffset, yOffset, zOffset, NOISE_MAX_X, maxYSections, NOISE_MAX_Z, xzScale / 80.0D, yScale / 160.0D, xzScale / 80.0D);
-        this.vol1Noise = this.vol1NoiseGen.Noise3D(this.vol1Noise, xOffset, yOffset, zOffset, NOISE_MAX_X, maxYSections, NOISE_MAX_Z, xzScale, yScale, xzScale);
-        this.vol2Noise = this.vol2NoiseGen.Noise3D(this.vol2Noise, xOffset, yOffset, zOffset, NOISE_MAX_X, maxYSections, NOISE_MAX_Z, xzScale, yScale, xzScale);
+        context.volNoise = this.volNoiseGen.Noise3D(context.volNoise, xOffset, yOffset, zOffset, NOISE_MAX_X, maxYSections, NOISE_MAX_Z, xzScale / 80.0D, yScale / 160.0D, xzScale / 80.0D);
+        context.vol1Noise = this.vol1NoiseGen.Noise3D(context.vol1Noise, xOffset, yOffset, zOffset, NOISE_MAX_X, maxYSections, NOISE_MAX_Z, xzScale, yScale, xzScale);
+        context.vol2Noise = this.vol2NoiseGen.Noise3D(context.vol2Noise, xOffset, yOffset, zOffset, NOISE_MAX_X, maxYSections, NOISE_MAX_Z, xzScale, yScale, xzScale);
+
+        if (!worldConfig.oldTerrainGenerator)
+        {
+            fillBiomeGrid(context, biomeArray, riverArray);
+        }
 
         int i3D = 0;
         int i2D = 0;
@@ -351,7 +514,7 @@ public class ChunkProviderOTG
 
                 BiomeConfig biomeConfig = toBiomeConfig(biomeId);
 
-                double noiseHeight = this.noiseHeightNoise[i2D] / 8000.0D;
+                double noiseHeight = context.noiseHeightNoise[i2D] / 8000.0D;
                 if (noiseHeight < 0.0D)
                 {
                     noiseHeight = -noiseHeight * 0.3D;
@@ -381,12 +544,12 @@ public class ChunkProviderOTG
                 {
                     if (worldConfig.improvedRivers)
                     {
-                        this.biomeFactorWithRivers(x, z, usedYSections, noiseHeight, biomeArray, riverArray);
+                        this.biomeFactorWithRivers(context, x, z, usedYSections, noiseHeight, biomeArray, riverArray);
                     } else {
-                        this.biomeFactor(x, z, usedYSections, noiseHeight, biomeArray);
+                        this.biomeFactor(context, x, z, usedYSections, noiseHeight, biomeArray);
                     }
                 } else {
-                    this.oldBiomeFactor(x, z, i2D, usedYSections, noiseHeight, biomeArray);
+                    this.oldBiomeFactor(context, x, z, i2D, usedYSections, noiseHeight, biomeArray);
             	}
 
                 i2D++;
@@ -396,11 +559,11 @@ public class ChunkProviderOTG
                     double output;
                     double d8;
 
-                    if (this.riverFound)
+                    if (context.riverFound)
                     {
-                        d8 = (this.riverHeight - y) * 12.0D * 128.0D / this.heightCap / this.riverVol;
+                        d8 = (context.riverHeight - y) * 12.0D * 128.0D / this.heightCap / context.riverVol;
                     } else {
-                        d8 = (this.heightFactor - y) * 12.0D * 128.0D / this.heightCap / this.volatilityFactor;
+                        d8 = (context.heightFactor - y) * 12.0D * 128.0D / this.heightCap / context.volatilityFactor;
                     }
 
                     if (d8 > 0.0D)
@@ -408,10 +571,10 @@ public class ChunkProviderOTG
                         d8 *= 4.0D;
                     }
 
-                    final double vol1 = this.vol1Noise[i3D] / 512.0D * biomeConfig.volatility1;
-                    final double vol2 = this.vol2Noise[i3D] / 512.0D * biomeConfig.volatility2;
+                    final double vol1 = context.vol1Noise[i3D] / 512.0D * biomeConfig.volatility1;
+                    final double vol2 = context.vol2Noise[i3D] / 512.0D * biomeConfig.volatility2;
 
-                    final double noise = (this.volNoise[i3D] / 10.0D + 1.0D) / 2.0D;
+                    final double noise = (context.volNoise[i3D] / 10.0D + 1.0D) / 2.0D;
                     if (noise < biomeConfig.volatilityWeight1)
                     {
                         output = vol1;
@@ -434,7 +597,7 @@ public class ChunkProviderOTG
                             output = output * (1.0D - d12) + -10.0D * d12;
                         }
                     }
-                    if (this.riverFound)
+                    if (context.riverFound)
                     {
                     	output += biomeConfig.riverHeightMatrix[Math.min(biomeConfig.riverHeightMatrix.length - 1, y)];
                     } else {
@@ -449,69 +612,108 @@ public class ChunkProviderOTG
         return rawTerrain;
     }
 
-    private void oldBiomeFactor(int x, int z, int i4, int ySections, double noiseHeight, int[] biomeArray)
+    private void oldBiomeFactor(TerrainGenerationContext context, int x, int z, int i4, int ySections, double noiseHeight, int[] biomeArray)
     {
         final BiomeConfig biomeConfig = toBiomeConfig(biomeArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
-        this.volatilityFactor = (1.0D - Math.min(1, biomeConfig.biomeTemperature) * biomeConfig.biomeWetness);
+        context.volatilityFactor = (1.0D - Math.min(1, biomeConfig.biomeTemperature) * biomeConfig.biomeWetness);
 
-        this.volatilityFactor *= this.volatilityFactor;
-        this.volatilityFactor = 1.0D - this.volatilityFactor * this.volatilityFactor;
+        context.volatilityFactor *= context.volatilityFactor;
+        context.volatilityFactor = 1.0D - context.volatilityFactor * context.volatilityFactor;
 
-        this.volatilityFactor = (this.volNoise[i4] + 256.0D) / 512.0D * this.volatilityFactor;
-        if (this.volatilityFactor > 1.0D)
+        context.volatilityFactor = (context.volNoise[i4] + 256.0D) / 512.0D * context.volatilityFactor;
+        if (context.volatilityFactor > 1.0D)
+        {
+            context.volatilityFactor = 1.0D;
+        }
+        if (context.volatilityFactor < 0.0D || noiseHeight < 0.0D)
         {
-            this.volatilityFactor = 1.0D;
+            context.volatilityFactor = 0.0D;
         }
-        if (this.volatilityFactor < 0.0D || noiseHeight < 0.0D)
+
+        context.volatilityFactor += 0.5D;
+        context.heightFactor = ySections * (2.0D + noiseHeight) / 4.0D;
+    }
+
+    /**
+     * Looks up the height, volatility and river settings of every biome in
+     * the unzoomed biome grid once, so that the smoothing in
+     * {@link #biomeFactor} and {@link #biomeFactorWithRivers} only needs to
+     * read flat arrays for each neighbour.
+     */
+    private void fillBiomeGrid(TerrainGenerationContext context, int[] biomeArray, int[] riverArray)
+    {
+        final int gridSize = Math.min(biomeArray.length, (NOISE_MAX_X + this.maxSmoothDiameter) * (NOISE_MAX_Z + this.maxSmoothDiameter));
+        if (context.gridHeight == null || context.gridHeight.length < gridSize)
         {
-            this.volatilityFactor = 0.0D;
+            context.gridHeight = new float[gridSize];
+            context.gridHeightDivisor = new float[gridSize];
+            context.gridVolatility = new float[gridSize];
+            context.gridRiverHeight = new float[gridSize];
+            context.gridRiverHeightDivisor = new float[gridSize];
+            context.gridRiverVolatility = new float[gridSize];
         }
 
-        this.volatilityFactor += 0.5D;
-        this.heightFactor = ySections * (2.0D + noiseHeight) / 4.0D;
+        BiomeConfig biomeConfig;
+        boolean isRiver;
+        for (int i = 0; i < gridSize; i++)
+        {
+            biomeConfig = toBiomeConfig(biomeArray[i]);
+            context.gridHeight[i] = biomeConfig.biomeHeight;
+            context.gridHeightDivisor[i] = biomeConfig.biomeHeight + 2.0F;
+            context.gridVolatility[i] = biomeConfig.biomeVolatility;
+            if (riverArray != null)
+            {
+                isRiver = riverArray[i] == 1;
+                context.gridRiverHeight[i] = isRiver ? biomeConfig.riverHeight : biomeConfig.biomeHeight;
+                context.gridRiverHeightDivisor[i] = context.gridRiverHeight[i] + 2.0F;
+                context.gridRiverVolatility[i] = isRiver ? biomeConfig.riverVolatility : biomeConfig.biomeVolatility;
+            }
+        }
     }
 
-    private void biomeFactor(int x, int z, int ySections, double noiseHeight, int[] biomeArray)
+    private void biomeFactor(TerrainGenerationContext context, int x, int z, int ySections, double noiseHeight, int[] biomeArray)
     {
         float volatilitySum = 0.0F;
         double heightSum = 0.0F;
         float biomeWeightSum = 0.0F;
 
-        final BiomeConfig centerBiomeConfig = toBiomeConfig(biomeArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
-        final int lookRadius = centerBiomeConfig.smoothRadius;
+        final int center = x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter);
+        final BiomeConfig centerBiomeConfig = toBiomeConfig(biomeArray[center]);
+        final float[] kernelWeights = this.smoothKernelWeights[centerBiomeConfig.smoothRadius];
+        final int[] kernelOffsets = this.smoothKernelOffsets[centerBiomeConfig.smoothRadius];
 
-        float nextBiomeHeight, biomeWeight;
+        final float[] gridHeight = context.gridHeight;
+        final float[] gridHeightDivisor = context.gridHeightDivisor;
+        final float[] gridVolatility = context.gridVolatility;
 
-        for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
-        {
-            for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
-            {
-                final BiomeConfig nextBiomeConfig = toBiomeConfig(biomeArray[(x + nextX + this.maxSmoothRadius + (z + nextZ + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
+        int next;
+        float biomeWeight;
 
-                nextBiomeHeight = nextBiomeConfig.biomeHeight;
-
-                // TODO: Potential divide by zero, not sure what the outcome or the proper solution would be. Uses floats so won't necessarily cause exceptions.
-                biomeWeight = this.nearBiomeWeightArray[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
-                biomeWeight = Math.abs(biomeWeight);
-                volatilitySum += nextBiomeConfig.biomeVolatility * biomeWeight;
-                heightSum += nextBiomeHeight * biomeWeight;
-                biomeWeightSum += biomeWeight;
-            }
+        for (int i = 0; i < kernelWeights.length; i++)
+        {
+            next = center + kernelOffsets[i];
+
+            // TODO: Potential divide by zero, not sure what the outcome or the proper solution would be. Uses floats so won't necessarily cause exceptions.
+            biomeWeight = kernelWeights[i] / gridHeightDivisor[next];
+            biomeWeight = Math.abs(biomeWeight);
+            volatilitySum += gridVolatility[next] * biomeWeight;
+            heightSum += gridHeight[next] * biomeWeight;
+            biomeWeightSum += biomeWeight;
         }
 
         volatilitySum /= biomeWeightSum;
         heightSum /= biomeWeightSum;
 
-        this.waterLevelRaw[x * NOISE_MAX_X + z] = (byte) centerBiomeConfig.waterLevelMax;
+        context.waterLevelRaw[x * NOISE_MAX_X + z] = (byte) centerBiomeConfig.waterLevelMax;
 
         volatilitySum = volatilitySum * 0.9F + 0.1F;   // Must be != 0
         heightSum = (heightSum * 4.0F - 1.0F) / 8.0F;  // Silly magic numbers
 
-        this.volatilityFactor = volatilitySum;
-        this.heightFactor = ySections * (2.0D + heightSum + noiseHeight * 0.2D) / 4.0D;
+        context.volatilityFactor = volatilitySum;
+        context.heightFactor = ySections * (2.0D + heightSum + noiseHeight * 0.2D) / 4.0D;
     }
 
-    private void biomeFactorWithRivers(int x, int z, int ySections, double noiseHeight, int[] biomeArray, int[] riverArray)
+    private void biomeFactorWithRivers(TerrainGenerationContext context, int x, int z, int ySections, double noiseHeight, int[] biomeArray, int[] riverArray)
     {
         float volatilitySum = 0.0F;
         float heightSum = 0.0F;
@@ -521,52 +723,54 @@ public class ChunkProviderOTG
         float riverHeightSum = 0.0F;
         float riverWeightSum = 0.0F;
 
-        final BiomeConfig biomeConfig = toBiomeConfig(biomeArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
+        final int center = x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter);
+        final BiomeConfig biomeConfig = toBiomeConfig(biomeArray[center]);
+        final float[] kernelWeights = this.smoothKernelWeights[biomeConfig.smoothRadius];
+        final int[] kernelOffsets = this.smoothKernelOffsets[biomeConfig.smoothRadius];
 
-        final int lookRadius = biomeConfig.smoothRadius;
+        context.riverFound = riverArray[center] == 1;
 
-        this.riverFound = riverArray[(x + this.maxSmoothRadius + (z + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))] == 1;
+        final float riverCenterHeight = context.riverFound ? biomeConfig.riverHeight : biomeConfig.biomeHeight;
 
-        final float riverCenterHeight = this.riverFound ? biomeConfig.riverHeight : biomeConfig.biomeHeight;
+        final float[] gridHeight = context.gridHeight;
+        final float[] gridHeightDivisor = context.gridHeightDivisor;
+        final float[] gridVolatility = context.gridVolatility;
+        final float[] gridRiverHeight = context.gridRiverHeight;
+        final float[] gridRiverHeightDivisor = context.gridRiverHeightDivisor;
+        final float[] gridRiverVolatility = context.gridRiverVolatility;
 
-        BiomeConfig nextBiomeConfig;
-        float nextBiomeHeight, biomeWeight, nextRiverHeight, riverWeight;
+        int next;
+        float biomeWeight, nextRiverHeight, riverWeight;
 
-        for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
+        for (int i = 0; i < kernelWeights.length; i++)
         {
-            for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
-            {
-                nextBiomeConfig = toBiomeConfig(biomeArray[(x + nextX + this.maxSmoothRadius + (z + nextZ + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))]);
-                nextBiomeHeight = nextBiomeConfig.biomeHeight;
-                biomeWeight = this.nearBiomeWeightArray[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
+            next = center + kernelOffsets[i];
+            biomeWeight = kernelWeights[i] / gridHeightDivisor[next];
 
-                biomeWeight = Math.abs(biomeWeight);
-                volatilitySum += nextBiomeConfig.biomeVolatility * biomeWeight;
-                heightSum += nextBiomeHeight * biomeWeight;
-                WeightSum += biomeWeight;
+            biomeWeight = Math.abs(biomeWeight);
+            volatilitySum += gridVolatility[next] * biomeWeight;
+            heightSum += gridHeight[next] * biomeWeight;
+            WeightSum += biomeWeight;
 
-                // River part
+            // River part
 
-                boolean isRiver = false;
-                if (riverArray[(x + nextX + this.maxSmoothRadius + (z + nextZ + this.maxSmoothRadius) * (NOISE_MAX_X + this.maxSmoothDiameter))] == 1)
-                {
-                    this.riverFound = true;
-                    isRiver = true;
-                }
+            if (riverArray[next] == 1)
+            {
+                context.riverFound = true;
+            }
 
-                nextRiverHeight = (isRiver) ? nextBiomeConfig.riverHeight : nextBiomeHeight;
-                // TODO: Potential divide by zero, not sure what the outcome or the proper solution would be. Uses floats so won't necessarily cause exceptions.
-                riverWeight = this.nearBiomeWeightArray[(nextX + this.maxSmoothRadius + (nextZ + this.maxSmoothRadius) * this.maxSmoothDiameter)] / (nextRiverHeight + 2.0F);
+            // TODO: Potential divide by zero, not sure what the outcome or the proper solution would be. Uses floats so won't necessarily cause exceptions.
+            riverWeight = kernelWeights[i] / gridRiverHeightDivisor[next];
 
-                riverWeight = Math.abs(riverWeight);
-                if (nextRiverHeight > riverCenterHeight)
-                {
-                    nextRiverHeight = riverCenterHeight;
-                }
-                riverVolatilitySum += (isRiver ? nextBiomeConfig.riverVolatility : nextBiomeConfig.biomeVolatility) * riverWeight;
-                riverHeightSum += nextRiverHeight * riverWeight;
-                riverWeightSum += riverWeight;
+            riverWeight = Math.abs(riverWeight);
+            nextRiverHeight = gridRiverHeight[next];
+            if (nextRiverHeight > riverCenterHeight)
+            {
+                nextRiverHeight = riverCenterHeight;
             }
+            riverVolatilitySum += gridRiverVolatility[next] * riverWeight;
+            riverHeightSum += nextRiverHeight * riverWeight;
+            riverWeightSum += riverWeight;
         }
 
         volatilitySum /= WeightSum;
@@ -575,20 +779,20 @@ public class ChunkProviderOTG
         riverVolatilitySum /= riverWeightSum;
         riverHeightSum /= riverWeightSum;
 
-        int waterLevelSum = this.riverFound ? biomeConfig.riverWaterLevel : biomeConfig.waterLevelMax;
-        this.waterLevelRaw[x * NOISE_MAX_X + z] = (byte) waterLevelSum;
+        int waterLevelSum = context.riverFound ? biomeConfig.riverWaterLevel : biomeConfig.waterLevelMax;
+        context.waterLevelRaw[x * NOISE_MAX_X + z] = (byte) waterLevelSum;
 
         volatilitySum = volatilitySum * 0.9F + 0.1F;   // Must be != 0
         heightSum = (heightSum * 4.0F - 1.0F) / 8.0F;  // Silly magic numbers
 
-        this.volatilityFactor = volatilitySum;
-        this.heightFactor = ySections * (2.0D + heightSum + noiseHeight * 0.2D) / 4.0D;
+        context.volatilityFactor = volatilitySum;
+        context.heightFactor = ySections * (2.0D + heightSum + noiseHeight * 0.2D) / 4.0D;
 
         riverVolatilitySum = riverVolatilitySum * 0.9F + 0.1F; // Must be != 0
         riverHeightSum = (riverHeightSum * 4.0F - 1.0F) / 8.0F;
 
-        this.riverVol = riverVolatilitySum;
-        this.riverHeight = ySections * (2.0D + riverHeightSum + noiseHeight * 0.2D) / 4.0D;
+        context.riverVol = riverVolatilitySum;
+        context.riverHeight = ySections * (2.0D + riverHeightSum + noiseHeight * 0.2D) / 4.0D;
     }
 
     /**
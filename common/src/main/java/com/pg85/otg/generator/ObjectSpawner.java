@@ -45,17 +45,17 @@ import java.util.Random;
 
 public class ObjectSpawner
 {
-	public boolean populating;
     public boolean processing = false;
-	public boolean saving;
-	public boolean saveRequired;
+	// Set by population, cleared by CustomStructureCache.saveToDisk
+	public volatile boolean saveRequired;
     public boolean StructurePlottedAtSpawn = false;
 	public int populatingX = 0;
 	public int populatingZ = 0;
     private final ConfigProvider configProvider;
     private final Random rand;
     private final LocalWorld world;
-	public Object lockingObject = new Object();
+	public final PopulationSaveLock populationSaveLock = new PopulationSaveLock();
+	public final PopulationProfiler profiler = new PopulationProfiler();
     
     public ObjectSpawner(ConfigProvider configProvider, LocalWorld localWorld)
     {
@@ -70,69 +70,49 @@ public class ObjectSpawner
     	//int myPopulatingIndex;
     	//OTG.log(LogMarker.INFO, "ObjectSpawner populate X" + chunkCoord.getChunkX() + " Z" + chunkCoord.getChunkZ());
 
-    	boolean unlockWhenDone = false;
-		// Wait for another thread running SaveToDisk, then place a lock.
-		while(true)
+		// Wait for a structure cache save to finish taking its snapshot, then lock out saves.
+		// This can be called recursively (cascading chunk-gen), the lock is re-entrant.
+		populationSaveLock.beginPopulation();
+		try
 		{
-			//OTG.log(LogMarker.INFO, "Populate waiting on SaveToDisk.");
+			saveRequired = true;
 
-			synchronized(lockingObject)
+			if(world.isOTGPlus())
 			{
-				if(!saving)
+				if(!StructurePlottedAtSpawn)
 				{
-					// If populating then this method is being called recursively (indicating cascading chunk-gen).
-					// This method can be called recursively, but should never be called by two threads at once.
-					// TODO: Make sure that's the case.
-					if(!populating)
-					{
-						populating = true;
-						unlockWhenDone = true;
-					}
-					break;
+					world.getStructureCache().plotStructures(rand, world.getSpawnChunk(), true);
 				}
 			}
-		}
-		synchronized(lockingObject)
-		{
-			saveRequired = true;
-		}
+			StructurePlottedAtSpawn = true;
 
-		if(world.isOTGPlus())
-		{
-			if(!StructurePlottedAtSpawn)
+			// Light and client updates for the blocks placed during population
+			// are done once per chunk section when the session is committed.
+			world.beginBlockEdits();
+			try
 			{
-				world.getStructureCache().plotStructures(rand, world.getSpawnChunk(), true);
-			}
-		}
-		StructurePlottedAtSpawn = true;
+				if (!processing)
+				{
+					processing = true;
 
-		if (!processing)
-		{
-			processing = true;
+					profilePopulate(chunkCoord);
 
-			doPopulate(chunkCoord);
-			
-			processing = false;
-		} else {
-			
-			doPopulate(chunkCoord);
-			
-			OTG.log(LogMarker.INFO, "Cascading chunk generation detected.");
-			if(OTG.getPluginConfig().developerMode)
-			{			
-				OTG.log(LogMarker.INFO, Arrays.toString(Thread.currentThread().getStackTrace()));
-			}
-		}
+					processing = false;
+				} else {
 
-		// Release the lock
-		synchronized(lockingObject)
-		{
-			// This assumes that this method can only be called alone or recursively, never by 2 threads at once.
-			// TODO: Make sure that's the case.
-			if(unlockWhenDone)
-			{
-				populating = false;
+					profilePopulate(chunkCoord);
+
+					OTG.log(LogMarker.INFO, "Cascading chunk generation detected.");
+					if(OTG.getPluginConfig().developerMode)
+					{
+						OTG.log(LogMarker.INFO, Arrays.toString(Thread.currentThread().getStackTrace()));
+					}
+				}
+			} finally {
+				world.commitBlockEdits();
 			}
+		} finally {
+			populationSaveLock.endPopulation();
 		}
 
 		if(chunkCoord.equals(this.world.getSpawnChunk()))
@@ -143,14 +123,68 @@ public class ObjectSpawner
 		//OTG.log(LogMarker.INFO, "ObjectSpawner DONE populating X" + chunkCoord.getChunkX() + " Z" + chunkCoord.getChunkZ());
     }
     
+	private void profilePopulate(ChunkCoordinate chunkCoord)
+	{
+		if(!this.profiler.isEnabled())
+		{
+			doPopulate(chunkCoord);
+			return;
+		}
+		long start = System.nanoTime();
+		doPopulate(chunkCoord);
+		this.profiler.recordChunk(getBiomeName(chunkCoord), System.nanoTime() - start);
+	}
+
+	/**
+	 * Gets the name of the biome used for the chunk's resources, or "Unknown".
+	 */
+	private String getBiomeName(ChunkCoordinate chunkCoord)
+	{
+		LocalBiome biome = world.getBiome(chunkCoord.getBlockX() + 15, chunkCoord.getBlockZ() + 15);
+		return biome != null ? biome.getName() : "Unknown";
+	}
+
+	/**
+	 * Spawns a resource, measuring the time it takes if the profiler is enabled.
+	 */
+	private void processResource(Resource res, String biomeName, boolean hasVillage, ChunkCoordinate chunkCoord)
+	{
+		if(!this.profiler.isEnabled())
+		{
+			res.process(world, rand, hasVillage, chunkCoord);
+			return;
+		}
+		long start = System.nanoTime();
+		res.process(world, rand, hasVillage, chunkCoord);
+		this.profiler.recordResource(biomeName, res.getClass().getSimpleName(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Records the time a population step took, see {@link PopulationProfiler}.
+	 * @return The start time for the next step.
+	 */
+	private long profileStep(String biomeName, String step, long start)
+	{
+		this.profiler.recordResource(biomeName, step, System.nanoTime() - start);
+		return System.nanoTime();
+	}
+
     private void doPopulate(ChunkCoordinate chunkCoord)
     {
 		if(world.isOTGPlus())
 		{
+			boolean profiling = this.profiler.isEnabled();
+			String biomeName = profiling ? getBiomeName(chunkCoord) : null;
+			long start = profiling ? System.nanoTime() : 0;
+
 			world.getStructureCache().plotStructures(rand, ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + 1, chunkCoord.getChunkZ()), false);
 			world.getStructureCache().plotStructures(rand, ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX(), chunkCoord.getChunkZ() + 1), false);
 			world.getStructureCache().plotStructures(rand, ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + 1, chunkCoord.getChunkZ() + 1), false);
 			world.getStructureCache().plotStructures(rand, chunkCoord, false);
+			if(profiling)
+			{
+				start = profileStep(biomeName, PopulationProfiler.PLOT_STRUCTURES, start);
+			}
 
 	        ChunkCoordinate spawnChunk = this.world.getSpawnChunk();
 
@@ -186,6 +220,10 @@ public class ObjectSpawner
 	        } else {
 		        // Generate structures
 		        hasVillage = world.placeDefaultStructures(rand, chunkCoord);
+				if(profiling)
+				{
+					profileStep(biomeName, PopulationProfiler.DEFAULT_STRUCTURES, start);
+				}
 	        }
 
 			// Get the random generator
@@ -201,10 +239,18 @@ public class ObjectSpawner
 
 			processResourcesPhase2(chunkCoord);
 
+			if(profiling)
+			{
+				start = System.nanoTime();
+			}
 			spawnBO3s(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + 1, chunkCoord.getChunkZ()), chunkCoord);
 			spawnBO3s(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX(), chunkCoord.getChunkZ() + 1), chunkCoord);
 			spawnBO3s(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + 1, chunkCoord.getChunkZ() + 1), chunkCoord);
 			spawnBO3s(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX(), chunkCoord.getChunkZ()), chunkCoord);
+			if(profiling)
+			{
+				profileStep(biomeName, PopulationProfiler.SPAWN_STRUCTURES, start);
+			}
 
 			// Generate structures
 
@@ -229,6 +275,7 @@ public class ObjectSpawner
 	        }
 
 	        BiomeConfig biomeConfig = biome.getBiomeConfig();
+	        boolean profiling = this.profiler.isEnabled();
 
 	        // Get the random generator
 	        WorldConfig worldConfig = configProvider.getWorldConfig();
@@ -271,7 +318,12 @@ public class ObjectSpawner
 	        	}
 	        } else {
 		        // Generate structures
+	        	long start = profiling ? System.nanoTime() : 0;
 		        hasVillage = world.placeDefaultStructures(rand, chunkCoord);
+		        if(profiling)
+		        {
+		        	profileStep(biome.getName(), PopulationProfiler.DEFAULT_STRUCTURES, start);
+		        }
 	        }
 
 	        // Mark population started
@@ -283,19 +335,33 @@ public class ObjectSpawner
 	        {
 	            if (res instanceof Resource)
 	            {
-	                ((Resource)res).process(world, rand, hasVillage, chunkCoord);
+	                processResource((Resource)res, biome.getName(), hasVillage, chunkCoord);
 	            }
 	        }
 
+	        long start = profiling ? System.nanoTime() : 0;
+
 	        // Animals
 	        world.placePopulationMobs(biome, rand, chunkCoord);
+	        if(profiling)
+	        {
+	        	start = profileStep(biome.getName(), PopulationProfiler.MOBS, start);
+	        }
 
 	        // Snow and ice
 			// TODO: Fire PopulateChunkEvent.Populate.EventType.ICE for Forge
 	        new FrozenSurfaceHelper(world).freezeChunk(chunkCoord);
+	        if(profiling)
+	        {
+	        	start = profileStep(biome.getName(), PopulationProfiler.FROZEN_SURFACE, start);
+	        }
 
 	        // Replace blocks
 	        world.replaceBlocks(chunkCoord);
+	        if(profiling)
+	        {
+	        	profileStep(biome.getName(), PopulationProfiler.REPLACED_BLOCKS, start);
+	        }
 
 	        // Mark population ended
 	        OTG.firePopulationEndEvent(world, rand, hasVillage, chunkCoord);
@@ -343,7 +409,7 @@ public class ObjectSpawner
 				(res instanceof SurfacePatchGen)
 			)
 			{
-				res.process(world, rand, false, chunkCoord);
+				processResource(res, biome.getName(), false, chunkCoord);
 			}
 		}
 	}
@@ -402,7 +468,7 @@ public class ObjectSpawner
 
 		for (Resource res : customObjects)
 		{
-			res.process(world, rand, hasGeneratedAVillage, chunkCoord);
+			processResource(res, biome.getName(), hasGeneratedAVillage, chunkCoord);
 		}
 		for (Resource res : miscResources)
 		{
@@ -424,22 +490,37 @@ public class ObjectSpawner
 				(res instanceof FossilGen)
 			)
 			{
-				res.process(world, rand, hasGeneratedAVillage, chunkCoord);
+				processResource(res, biome.getName(), hasGeneratedAVillage, chunkCoord);
 			}
 		}
 
+		boolean profiling = this.profiler.isEnabled();
+		long start = profiling ? System.nanoTime() : 0;
+
 		// don't use world.placePopulationMobs, it bypasses EntityLiving.getCanSpawnHere() :(
 		//if(!worldConfig.improvedMobSpawning)
 		{
 			world.placePopulationMobs(biome, rand, chunkCoord);
 		}
+		if(profiling)
+		{
+			start = profileStep(biome.getName(), PopulationProfiler.MOBS, start);
+		}
 
 		// Snow and ice
 		// TODO: Fire PopulateChunkEvent.Populate.EventType.ICE for Forge
 		new FrozenSurfaceHelper(world).freezeChunk(chunkCoord);
+		if(profiling)
+		{
+			start = profileStep(biome.getName(), PopulationProfiler.FROZEN_SURFACE, start);
+		}
 
 		// Replace blocks
 		world.replaceBlocks(chunkCoord);
+		if(profiling)
+		{
+			profileStep(biome.getName(), PopulationProfiler.REPLACED_BLOCKS, start);
+		}
 	}
 
 	private void spawnBO3s(ChunkCoordinate chunkCoord, ChunkCoordinate chunkBeingPopulated)
@@ -0,0 +1,461 @@
+package com.pg85.otg.generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.pg85.otg.common.LocalWorld;
+
+/**
+ * Measures how long the steps of chunk population take, so slow biomes and
+ * resources can be found. Tracks the time spent per resource type, per
+ * biome and per resource type in each biome, and how often BO3s/BO4s were
+ * spawned compared to how often they were attempted.
+ *
+ * Disabled by default, callers check {@link #isEnabled()} before calling
+ * System.nanoTime(), so nothing is measured until the profiler is enabled
+ * with the /otg profile command. Times are inclusive: a chunk populated
+ * because of cascading chunk generation is counted in the resource that
+ * caused it as well.
+ */
+public class PopulationProfiler
+{
+	// Population steps that aren't resources
+	public static final String FROZEN_SURFACE = "FrozenSurface";
+	public static final String REPLACED_BLOCKS = "ReplacedBlocks";
+	public static final String MOBS = "PopulationMobs";
+	public static final String DEFAULT_STRUCTURES = "DefaultStructures";
+	public static final String PLOT_STRUCTURES = "PlotBO4Structures";
+	public static final String SPAWN_STRUCTURES = "SpawnBO4Structures";
+
+	private volatile boolean enabled;
+	private volatile long resetAt = System.currentTimeMillis();
+
+	private final ConcurrentMap<String, Timing> resources = new ConcurrentHashMap<String, Timing>();
+	private final ConcurrentMap<String, Timing> biomes = new ConcurrentHashMap<String, Timing>();
+	private final ConcurrentMap<String, ConcurrentMap<String, Timing>> resourcesByBiome = new ConcurrentHashMap<String, ConcurrentMap<String, Timing>>();
+	private final ConcurrentMap<String, ObjectStats> objects = new ConcurrentHashMap<String, ObjectStats>();
+
+	public boolean isEnabled()
+	{
+		return this.enabled;
+	}
+
+	/**
+	 * Enables or disables the profiler. Recorded data is kept until
+	 * {@link #reset()} is called.
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	public void reset()
+	{
+		this.resources.clear();
+		this.biomes.clear();
+		this.resourcesByBiome.clear();
+		this.objects.clear();
+		this.resetAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Records the time it took to populate a chunk.
+	 * @param biomeName The biome of the chunk.
+	 * @param nanos     The time population took.
+	 */
+	public void recordChunk(String biomeName, long nanos)
+	{
+		getTiming(this.biomes, biomeName).record(nanos);
+	}
+
+	/**
+	 * Records the time a resource or other population step took in a chunk.
+	 * @param biomeName The biome whose resources are being spawned.
+	 * @param resource  The resource type, or one of the population steps
+	 *                  defined in this class.
+	 * @param nanos     The time the resource took.
+	 */
+	public void recordResource(String biomeName, String resource, long nanos)
+	{
+		getTiming(this.resources, resource).record(nanos);
+
+		ConcurrentMap<String, Timing> biomeResources = this.resourcesByBiome.get(biomeName);
+		if (biomeResources == null)
+		{
+			biomeResources = new ConcurrentHashMap<String, Timing>();
+			ConcurrentMap<String, Timing> existing = this.resourcesByBiome.putIfAbsent(biomeName, biomeResources);
+			if (existing != null)
+			{
+				biomeResources = existing;
+			}
+		}
+		getTiming(biomeResources, resource).record(nanos);
+	}
+
+	/**
+	 * Records an attempt to spawn a BO2/BO3/BO4.
+	 * @param objectName The name of the object.
+	 * @param spawned    Whether the object was spawned.
+	 * @param nanos      The time the attempt took.
+	 */
+	public void recordObject(String objectName, boolean spawned, long nanos)
+	{
+		ObjectStats stats = this.objects.get(objectName);
+		if (stats == null)
+		{
+			stats = new ObjectStats();
+			ObjectStats existing = this.objects.putIfAbsent(objectName, stats);
+			if (existing != null)
+			{
+				stats = existing;
+			}
+		}
+		stats.record(spawned, nanos);
+	}
+
+	private static Timing getTiming(ConcurrentMap<String, Timing> timings, String name)
+	{
+		Timing timing = timings.get(name);
+		if (timing == null)
+		{
+			timing = new Timing();
+			Timing existing = timings.putIfAbsent(name, timing);
+			if (existing != null)
+			{
+				timing = existing;
+			}
+		}
+		return timing;
+	}
+
+	/**
+	 * Gets the names of the slowest entries, by total time spent.
+	 */
+	private static List<String> getSlowest(Map<String, Timing> timings, int count)
+	{
+		final Map<String, Timing> snapshot = new TreeMap<String, Timing>(timings);
+		List<String> names = new ArrayList<String>(snapshot.keySet());
+		Collections.sort(names, new Comparator<String>()
+		{
+			@Override
+			public int compare(String a, String b)
+			{
+				return Long.compare(snapshot.get(b).getTotalNanos(), snapshot.get(a).getTotalNanos());
+			}
+		});
+		return names.size() > count ? names.subList(0, count) : names;
+	}
+
+	/**
+	 * Gets a short summary to show in chat: the slowest resources and biomes.
+	 */
+	public List<String> getSummary(int count)
+	{
+		List<String> lines = new ArrayList<String>();
+		lines.add("Profiler " + (this.enabled ? "enabled" : "disabled") + ", last reset " + ((System.currentTimeMillis() - this.resetAt) / 1000) + "s ago.");
+		lines.add("Slowest resources:");
+		for (String name : getSlowest(this.resources, count))
+		{
+			lines.add("  " + name + ": " + this.resources.get(name));
+		}
+		lines.add("Slowest biomes:");
+		for (String name : getSlowest(this.biomes, count))
+		{
+			lines.add("  " + name + ": " + this.biomes.get(name));
+		}
+		return lines;
+	}
+
+	/**
+	 * Gets the file {@link #writeToFile(File, boolean)} writes to by default,
+	 * in the world's OpenTerrainGenerator folder.
+	 */
+	public static File getDefaultFile(LocalWorld world, boolean json)
+	{
+		int dimensionId = world.getDimensionId();
+		return new File(world.getWorldSaveDir().getAbsolutePath() + File.separator + "OpenTerrainGenerator" + File.separator + (dimensionId != 0 ? "DIM-" + dimensionId + File.separator : "") + "PopulationProfile" + (json ? ".json" : ".csv"));
+	}
+
+	/**
+	 * Writes all recorded data to a file.
+	 * @param file The file to write to, parent directories are created.
+	 * @param json True to write JSON, false to write CSV.
+	 * @throws IOException If the file couldn't be written.
+	 */
+	public void writeToFile(File file, boolean json) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		try
+		{
+			writer.write(json ? toJson() : toCsv());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * One line per entry, with a histogram column that lists how many times
+	 * each took up to 2^n nanoseconds, as "n:count" pairs.
+	 */
+	public String toCsv()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("category,biome,name,count,totalMs,avgUs,maxUs,p50Us,p99Us,attempts,spawned,histogram\n");
+		for (Entry<String, Timing> entry : new TreeMap<String, Timing>(this.resources).entrySet())
+		{
+			appendCsv(sb, "resource", "", entry.getKey(), entry.getValue());
+		}
+		for (Entry<String, Timing> entry : new TreeMap<String, Timing>(this.biomes).entrySet())
+		{
+			appendCsv(sb, "biome", entry.getKey(), "", entry.getValue());
+		}
+		for (Entry<String, ConcurrentMap<String, Timing>> biome : new TreeMap<String, ConcurrentMap<String, Timing>>(this.resourcesByBiome).entrySet())
+		{
+			for (Entry<String, Timing> entry : new TreeMap<String, Timing>(biome.getValue()).entrySet())
+			{
+				appendCsv(sb, "biomeResource", biome.getKey(), entry.getKey(), entry.getValue());
+			}
+		}
+		for (Entry<String, ObjectStats> entry : new TreeMap<String, ObjectStats>(this.objects).entrySet())
+		{
+			ObjectStats stats = entry.getValue();
+			synchronized (stats)
+			{
+				sb.append("object,,").append(csvEscape(entry.getKey())).append(',');
+				stats.timing.appendCsvColumns(sb);
+				sb.append(',').append(stats.attempts).append(',').append(stats.spawned).append(',');
+				stats.timing.appendHistogram(sb, ':', ' ');
+				sb.append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void appendCsv(StringBuilder sb, String category, String biome, String name, Timing timing)
+	{
+		synchronized (timing)
+		{
+			sb.append(category).append(',').append(csvEscape(biome)).append(',').append(csvEscape(name)).append(',');
+			timing.appendCsvColumns(sb);
+			sb.append(",,,");
+			timing.appendHistogram(sb, ':', ' ');
+			sb.append('\n');
+		}
+	}
+
+	private static String csvEscape(String value)
+	{
+		if (value.indexOf(',') != -1 || value.indexOf('"') != -1)
+		{
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+
+	public String toJson()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n  \"enabled\": ").append(this.enabled);
+		sb.append(",\n  \"sinceResetMs\": ").append(System.currentTimeMillis() - this.resetAt);
+		sb.append(",\n  \"resources\": ");
+		appendJson(sb, this.resources, "    ");
+		sb.append(",\n  \"biomes\": ");
+		appendJson(sb, this.biomes, "    ");
+		sb.append(",\n  \"resourcesByBiome\": {");
+		boolean first = true;
+		for (Entry<String, ConcurrentMap<String, Timing>> biome : new TreeMap<String, ConcurrentMap<String, Timing>>(this.resourcesByBiome).entrySet())
+		{
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("    ").append(jsonString(biome.getKey())).append(": ");
+			appendJson(sb, biome.getValue(), "      ");
+		}
+		sb.append("\n  },\n  \"objects\": {");
+		first = true;
+		for (Entry<String, ObjectStats> entry : new TreeMap<String, ObjectStats>(this.objects).entrySet())
+		{
+			ObjectStats stats = entry.getValue();
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			synchronized (stats)
+			{
+				sb.append("    ").append(jsonString(entry.getKey())).append(": {\"attempts\": ").append(stats.attempts).append(", \"spawned\": ").append(stats.spawned).append(", ");
+				stats.timing.appendJsonFields(sb);
+				sb.append('}');
+			}
+		}
+		sb.append("\n  }\n}\n");
+		return sb.toString();
+	}
+
+	private static void appendJson(StringBuilder sb, Map<String, Timing> timings, String indent)
+	{
+		sb.append('{');
+		boolean first = true;
+		for (Entry<String, Timing> entry : new TreeMap<String, Timing>(timings).entrySet())
+		{
+			Timing timing = entry.getValue();
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			synchronized (timing)
+			{
+				sb.append(indent).append(jsonString(entry.getKey())).append(": {");
+				timing.appendJsonFields(sb);
+				sb.append('}');
+			}
+		}
+		sb.append('\n').append(indent.substring(2)).append('}');
+	}
+
+	private static String jsonString(String value)
+	{
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private static String toMicros(long nanos)
+	{
+		return String.format(Locale.ROOT, "%.1f", nanos / 1000d);
+	}
+
+	/**
+	 * Invocation count, total and maximum time, and a histogram with one
+	 * bucket per power of two nanoseconds.
+	 */
+	private static class Timing
+	{
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+		private final long[] histogram = new long[64];
+
+		synchronized void record(long nanos)
+		{
+			if (nanos < 0)
+			{
+				nanos = 0;
+			}
+			this.count++;
+			this.totalNanos += nanos;
+			if (nanos > this.maxNanos)
+			{
+				this.maxNanos = nanos;
+			}
+			// Bucket n holds times up to 2^n nanoseconds
+			this.histogram[64 - Long.numberOfLeadingZeros(nanos)]++;
+		}
+
+		synchronized long getTotalNanos()
+		{
+			return this.totalNanos;
+		}
+
+		/**
+		 * Estimates a percentile from the histogram, as the upper bound of
+		 * the bucket it falls in.
+		 */
+		private long getPercentileNanos(double percentile)
+		{
+			long target = (long) Math.ceil(this.count * percentile);
+			long seen = 0;
+			for (int i = 0; i < this.histogram.length; i++)
+			{
+				seen += this.histogram[i];
+				if (seen >= target && seen > 0)
+				{
+					return Math.min(1L << i, this.maxNanos);
+				}
+			}
+			return this.maxNanos;
+		}
+
+		void appendCsvColumns(StringBuilder sb)
+		{
+			sb.append(this.count)
+				.append(',').append(String.format(Locale.ROOT, "%.3f", this.totalNanos / 1000000d))
+				.append(',').append(toMicros(this.count > 0 ? this.totalNanos / this.count : 0))
+				.append(',').append(toMicros(this.maxNanos))
+				.append(',').append(toMicros(getPercentileNanos(0.5)))
+				.append(',').append(toMicros(getPercentileNanos(0.99)));
+		}
+
+		void appendHistogram(StringBuilder sb, char keySeparator, char separator)
+		{
+			boolean first = true;
+			for (int i = 0; i < this.histogram.length; i++)
+			{
+				if (this.histogram[i] > 0)
+				{
+					if (!first)
+					{
+						sb.append(separator);
+					}
+					first = false;
+					sb.append(i).append(keySeparator).append(this.histogram[i]);
+				}
+			}
+		}
+
+		void appendJsonFields(StringBuilder sb)
+		{
+			sb.append("\"count\": ").append(this.count)
+				.append(", \"totalNanos\": ").append(this.totalNanos)
+				.append(", \"maxNanos\": ").append(this.maxNanos)
+				.append(", \"p50Nanos\": ").append(getPercentileNanos(0.5))
+				.append(", \"p99Nanos\": ").append(getPercentileNanos(0.99))
+				.append(", \"histogram\": {");
+			boolean first = true;
+			for (int i = 0; i < this.histogram.length; i++)
+			{
+				if (this.histogram[i] > 0)
+				{
+					if (!first)
+					{
+						sb.append(", ");
+					}
+					first = false;
+					sb.append('"').append(i).append("\": ").append(this.histogram[i]);
+				}
+			}
+			sb.append('}');
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return this.count + "x, total " + String.format(Locale.ROOT, "%.1f", this.totalNanos / 1000000d) + "ms"
+					+ ", avg " + toMicros(this.count > 0 ? this.totalNanos / this.count : 0) + "us"
+					+ ", p99 " + toMicros(getPercentileNanos(0.99)) + "us"
+					+ ", max " + toMicros(this.maxNanos) + "us";
+		}
+	}
+
+	private static class ObjectStats
+	{
+		private final Timing timing = new Timing();
+		private long attempts;
+		private long spawned;
+
+		synchronized void record(boolean spawned, long nanos)
+		{
+			this.attempts++;
+			if (spawned)
+			{
+				this.spawned++;
+			}
+			this.timing.record(nanos);
+		}
+	}
+}
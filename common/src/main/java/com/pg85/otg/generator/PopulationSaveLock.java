@@ -0,0 +1,130 @@
+package com.pg85.otg.generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Makes sure the structure cache isn't saved while a chunk is being
+ * populated. Population holds the read lock, which is re-entrant so
+ * cascading chunk generation can populate chunks recursively. Saving holds
+ * the write lock, but only while taking a snapshot of the structure cache;
+ * the snapshot is written to disk afterwards without holding the lock.
+ *
+ * Threads waiting for the lock are parked instead of spinning, and saves
+ * give up after a timeout instead of stalling the server. The time spent
+ * waiting is tracked, see {@link #toString()}.
+ */
+public class PopulationSaveLock
+{
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Stats
+    private final AtomicLong populations = new AtomicLong();
+    private final AtomicLong populationWaitNanos = new AtomicLong();
+    private final AtomicLong maxPopulationWaitNanos = new AtomicLong();
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong savesSkipped = new AtomicLong();
+    private final AtomicLong saveWaitNanos = new AtomicLong();
+    private final AtomicLong maxSaveWaitNanos = new AtomicLong();
+    private final AtomicLong snapshotNanos = new AtomicLong();
+
+    /**
+     * Waits until no save is taking a snapshot, then locks out saves until
+     * {@link #endPopulation()} is called. May be called recursively.
+     */
+    public void beginPopulation()
+    {
+        long start = System.nanoTime();
+        this.lock.readLock().lock();
+        long waited = System.nanoTime() - start;
+        this.populations.incrementAndGet();
+        this.populationWaitNanos.addAndGet(waited);
+        updateMax(this.maxPopulationWaitNanos, waited);
+    }
+
+    public void endPopulation()
+    {
+        this.lock.readLock().unlock();
+    }
+
+    /**
+     * Waits until no chunk is being populated, then locks out population
+     * until {@link #endSave(long)} is called.
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return True if the lock was acquired, false if population didn't
+     * finish in time or the current thread is populating a chunk, in which
+     * case {@link #endSave(long)} must not be called.
+     */
+    public boolean beginSave(long timeout, TimeUnit unit)
+    {
+        // The read lock can't be upgraded, waiting would never succeed.
+        if (this.lock.getReadHoldCount() > 0)
+        {
+            this.savesSkipped.incrementAndGet();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean locked;
+        try
+        {
+            locked = this.lock.writeLock().tryLock(timeout, unit);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        long waited = System.nanoTime() - start;
+        this.saveWaitNanos.addAndGet(waited);
+        updateMax(this.maxSaveWaitNanos, waited);
+        if (!locked)
+        {
+            this.savesSkipped.incrementAndGet();
+            return false;
+        }
+        this.saves.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Releases the lock acquired by {@link #beginSave(long, TimeUnit)}.
+     * @param heldNanos How long the lock was held, for the statistics.
+     */
+    public void endSave(long heldNanos)
+    {
+        this.snapshotNanos.addAndGet(heldNanos);
+        this.lock.writeLock().unlock();
+    }
+
+    private static void updateMax(AtomicLong max, long value)
+    {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+
+    private static String toMillis(long nanos)
+    {
+        return String.format("%.2f", nanos / 1000000d) + "ms";
+    }
+
+    @Override
+    public String toString()
+    {
+        long populations = this.populations.get();
+        long saves = this.saves.get();
+        long saveAttempts = saves + this.savesSkipped.get();
+        return "Populations: " + populations
+                + ", avg wait: " + toMillis(populations > 0 ? this.populationWaitNanos.get() / populations : 0)
+                + ", max wait: " + toMillis(this.maxPopulationWaitNanos.get())
+                + ". Saves: " + saves + ", skipped: " + this.savesSkipped.get()
+                + ", avg wait: " + toMillis(saveAttempts > 0 ? this.saveWaitNanos.get() / saveAttempts : 0)
+                + ", max wait: " + toMillis(this.maxSaveWaitNanos.get())
+                + ", avg snapshot: " + toMillis(saves > 0 ? this.snapshotNanos.get() / saves : 0);
+    }
+}
@@ -0,0 +1,27 @@
+package com.pg85.otg.generator;
+
+/**
+ * The output of {@link ChunkProviderOTG}'s terrain noise for a single chunk:
+ * the 5x5xN density grid and the unsmoothed 5x5 water levels. Everything
+ * else about the terrain of the chunk, before caves, ravines and surface
+ * blocks, is interpolated from these. Instances are immutable and shared
+ * between threads through the density cache.
+ */
+final class TerrainDensity
+{
+    /**
+     * Density of each point, indexed (x * 5 + z) * maxYSections + y.
+     * Positive values are solid.
+     */
+    final double[] rawTerrain;
+    /**
+     * Water level of each point, indexed x * 5 + z.
+     */
+    final byte[] waterLevelRaw;
+
+    TerrainDensity(double[] rawTerrain, byte[] waterLevelRaw)
+    {
+        this.rawTerrain = rawTerrain;
+        this.waterLevelRaw = waterLevelRaw;
+    }
+}
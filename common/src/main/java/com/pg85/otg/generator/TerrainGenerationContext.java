@@ -0,0 +1,49 @@
+package com.pg85.otg.generator;
+
+import static com.pg85.otg.util.ChunkCoordinate.CHUNK_X_SIZE;
+import static com.pg85.otg.util.ChunkCoordinate.CHUNK_Z_SIZE;
+
+import java.util.Random;
+
+/**
+ * Holds all mutable working state used by {@link ChunkProviderOTG} while
+ * generating the terrain of a single chunk. Each thread gets its own
+ * context, so several chunks can be generated at the same time by the same
+ * {@link ChunkProviderOTG}.
+ *
+ * Noise arrays are reused between chunks generated on the same thread,
+ * just like they were reused when this state lived in ChunkProviderOTG.
+ */
+final class TerrainGenerationContext
+{
+    // Reseeded for every chunk, see ChunkProviderOTG.generate
+    final Random random = new Random();
+
+    double[] biomeBlocksNoise = new double[CHUNK_X_SIZE * CHUNK_Z_SIZE];
+
+    double[] volNoise;
+    double[] vol1Noise;
+    double[] vol2Noise;
+    double[] oldTerrainGeneratorNoise;
+    double[] noiseHeightNoise;
+
+    // Biome settings of each column of the unzoomed biome grid around the
+    // chunk, filled by ChunkProviderOTG.fillBiomeGrid
+    float[] gridHeight;
+    float[] gridHeightDivisor;
+    float[] gridVolatility;
+    float[] gridRiverHeight;
+    float[] gridRiverHeightDivisor;
+    float[] gridRiverVolatility;
+
+    double riverVol;
+    double riverHeight;
+    // Always false if improved rivers disabled
+    boolean riverFound = false;
+
+    double volatilityFactor;
+    double heightFactor;
+
+    // Water level at lower resolution
+    final byte[] waterLevelRaw = new byte[25];
+}
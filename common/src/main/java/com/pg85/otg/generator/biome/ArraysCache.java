@@ -2,7 +2,15 @@ package com.pg85.otg.generator.biome;
 
 import java.util.ArrayList;
 
-// Used to prevent creating new arrays during biomegen.
+/**
+ * The state of a single evaluation of the biome layers: the int arrays the
+ * layers write into and the random seeds they're currently using. Caches
+ * are handed out per thread by {@link ArraysCacheManager}, so the layers
+ * themselves don't need any mutable state and can be shared by threads.
+ *
+ * <p>The arrays are kept between evaluations, so after the first few
+ * chunks no new arrays are created during biomegen.
+ */
 public class ArraysCache
 {
     private int[][] smallArrays = new int[128][];
@@ -14,6 +22,14 @@ public class ArraysCache
 
     public OutputType outputType = OutputType.FULL;
 
+    /**
+     * The scrambled world seed of the layer that last called initChunkSeed,
+     * added to the chunk seed on each nextInt.
+     */
+    public long scrambledWorldSeed;
+    public long scrambledChunkSeed;
+    public long scrambledGroupSeed;
+
     public ArraysCache()
     {
 
@@ -24,9 +40,10 @@ public class ArraysCache
         smallArraysNext = 0;
         bigArraysNext = 0;
         isFree = true;
-        outputType = OutputType.FULL;       
-        smallArrays = new int[128][];
-        bigArrays = new ArrayList<int[]>();
+        outputType = OutputType.FULL;
+        scrambledWorldSeed = 0;
+        scrambledChunkSeed = 0;
+        scrambledGroupSeed = 0;
     }
 
     public int[] getArray(int size)
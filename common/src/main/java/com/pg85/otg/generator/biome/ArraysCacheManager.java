@@ -1,44 +1,40 @@
 package com.pg85.otg.generator.biome;
 
-// TODO: Is this actually useful? Remove or rewrite this and document it.
+/**
+ * Hands out {@link ArraysCache}s to the layered biome generators. Each
+ * thread has its own cache that is reused for every evaluation on that
+ * thread, so no locking is needed. If the thread's cache is already in use
+ * (a biome generator called from inside another one) a fresh cache is
+ * returned instead.
+ */
 public class ArraysCacheManager
 {
-
-    private static final ArraysCache[] ARRAYS_CACHES = new ArraysCache[4];
-
-    static
+    private static final ThreadLocal<ArraysCache> ARRAYS_CACHES = new ThreadLocal<ArraysCache>()
     {
-        for (int i = 0; i < ARRAYS_CACHES.length; i++)
-            ARRAYS_CACHES[i] = new ArraysCache();
-
-    }
+        @Override
+        protected ArraysCache initialValue()
+        {
+            return new ArraysCache();
+        }
+    };
 
     static ArraysCache getCache()
     {
-        synchronized (ARRAYS_CACHES)
+        ArraysCache cache = ARRAYS_CACHES.get();
+        if (!cache.isFree)
         {
-            for (ArraysCache ArraysCache : ARRAYS_CACHES)
-            {
-                if (ArraysCache.isFree)
-                {
-                    ArraysCache.isFree = false;
-                    return ArraysCache;
-                }
-            }
-
+            cache = new ArraysCache();
         }
-        return null; // Exception ??
+        cache.isFree = false;
+        return cache;
     }
 
     static void releaseCache(ArraysCache cache)
     {
-        synchronized (ARRAYS_CACHES)
-        {
-            cache.release();
-        }
+        cache.release();
     }
 
     private ArraysCacheManager()
     {
     }
-}
\ No newline at end of file
+}
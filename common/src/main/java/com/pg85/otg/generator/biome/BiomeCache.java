@@ -0,0 +1,297 @@
+package com.pg85.otg.generator.biome;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe cache of chunk biome arrays, keyed on packed chunk coordinates.
+ *
+ * The cache is split into stripes, each with its own lock, so lookups for
+ * different chunks rarely contend. Each stripe stores a fixed number of
+ * entries in parallel arrays, indexed by an open-addressing hash table with
+ * linear probing. When a stripe is full an entry is evicted using the CLOCK
+ * algorithm, which approximates LRU without reordering entries on each hit.
+ * Lookups don't allocate.
+ */
+public class BiomeCache
+{
+    private static final int STRIPE_COUNT = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    // Stats
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity The maximum amount of chunks held by the cache.
+     */
+    public BiomeCache(int capacity)
+    {
+        int stripeCapacity = Math.max(1, (capacity + STRIPE_COUNT - 1) / STRIPE_COUNT);
+        for (int i = 0; i < STRIPE_COUNT; i++)
+        {
+            this.stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    /**
+     * Packs the given chunk coordinates into a single long.
+     */
+    public static long toKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Murmur3 finalizer, spreads neighbouring chunks over all stripes and slots.
+    private static long hash(long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Gets the cached biomes of a chunk. The returned array must not be
+     * modified by the caller.
+     * @param key The chunk, see {@link #toKey(int, int)}.
+     * @return The biomes, or null if the chunk is not cached.
+     */
+    public int[] get(long key)
+    {
+        long hash = hash(key);
+        Stripe stripe = this.stripes[(int) (hash >>> 60) & (STRIPE_COUNT - 1)];
+        int[] biomes;
+        synchronized (stripe)
+        {
+            biomes = stripe.get(key, (int) hash);
+        }
+        if (biomes != null)
+        {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+        }
+        return biomes;
+    }
+
+    /**
+     * Caches the biomes of a chunk. The cache takes ownership of the array.
+     * @param key    The chunk, see {@link #toKey(int, int)}.
+     * @param biomes The biomes.
+     */
+    public void put(long key, int[] biomes)
+    {
+        long hash = hash(key);
+        Stripe stripe = this.stripes[(int) (hash >>> 60) & (STRIPE_COUNT - 1)];
+        boolean evicted;
+        synchronized (stripe)
+        {
+            evicted = stripe.put(key, (int) hash, biomes);
+        }
+        if (evicted)
+        {
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    public void clear()
+    {
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public long getHits()
+    {
+        return this.hits.get();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return this.evictions.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return "Chunks: " + size() + ", hits: " + hits + ", misses: " + getMisses() + ", evictions: " + getEvictions()
+                + ", hit rate: " + (lookups > 0 ? Math.round(hits * 100d / lookups) : 0) + "%";
+    }
+
+    /**
+     * A fixed-size part of the cache. Not thread-safe, callers lock the
+     * stripe.
+     */
+    private static class Stripe
+    {
+        private final long[] keys;
+        private final int[][] values;
+        private final boolean[] referenced;
+        // Open-addressing table of entry index + 1, 0 means empty.
+        private final int[] table;
+        private final int tableMask;
+        private int size = 0;
+        private int clockHand = 0;
+
+        Stripe(int capacity)
+        {
+            this.keys = new long[capacity];
+            this.values = new int[capacity][];
+            this.referenced = new boolean[capacity];
+
+            // Keep the load factor at or below 0.5
+            int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.table = new int[tableSize];
+            this.tableMask = tableSize - 1;
+        }
+
+        int[] get(long key, int hash)
+        {
+            int slot = findSlot(key, hash);
+            int entry = this.table[slot];
+            if (entry == 0)
+            {
+                return null;
+            }
+            this.referenced[entry - 1] = true;
+            return this.values[entry - 1];
+        }
+
+        /**
+         * @return True if another entry was evicted.
+         */
+        boolean put(long key, int hash, int[] value)
+        {
+            int slot = findSlot(key, hash);
+            int entry = this.table[slot];
+            if (entry != 0)
+            {
+                // Already cached, replace
+                this.values[entry - 1] = value;
+                this.referenced[entry - 1] = true;
+                return false;
+            }
+
+            boolean evicted = false;
+            int index;
+            if (this.size < this.keys.length)
+            {
+                index = this.size++;
+            } else {
+                index = evict();
+                evicted = true;
+                // Removing the evicted entry may have moved other slots
+                slot = findSlot(key, hash);
+            }
+
+            this.keys[index] = key;
+            this.values[index] = value;
+            this.referenced[index] = false;
+            this.table[slot] = index + 1;
+            return evicted;
+        }
+
+        void clear()
+        {
+            for (int i = 0; i < this.table.length; i++)
+            {
+                this.table[i] = 0;
+            }
+            for (int i = 0; i < this.values.length; i++)
+            {
+                this.values[i] = null;
+            }
+            this.size = 0;
+            this.clockHand = 0;
+        }
+
+        /**
+         * Returns the slot in the table holding the given key, or the empty
+         * slot where it should be inserted.
+         */
+        private int findSlot(long key, int hash)
+        {
+            int slot = hash & this.tableMask;
+            int entry;
+            while ((entry = this.table[slot]) != 0 && this.keys[entry - 1] != key)
+            {
+                slot = (slot + 1) & this.tableMask;
+            }
+            return slot;
+        }
+
+        /**
+         * Picks an entry to evict using the CLOCK algorithm and removes it
+         * from the table.
+         * @return The index of the evicted entry, which can be reused.
+         */
+        private int evict()
+        {
+            while (this.referenced[this.clockHand])
+            {
+                this.referenced[this.clockHand] = false;
+                this.clockHand = (this.clockHand + 1) % this.keys.length;
+            }
+            int index = this.clockHand;
+            this.clockHand = (this.clockHand + 1) % this.keys.length;
+
+            removeFromTable(this.keys[index], (int) hash(this.keys[index]));
+            this.values[index] = null;
+            return index;
+        }
+
+        // Backward shift deletion, keeps probe sequences intact without tombstones.
+        private void removeFromTable(long key, int hash)
+        {
+            int slot = findSlot(key, hash);
+            int next = slot;
+            int entry;
+            int ideal;
+            while (true)
+            {
+                next = (next + 1) & this.tableMask;
+                entry = this.table[next];
+                if (entry == 0)
+                {
+                    break;
+                }
+                ideal = (int) hash(this.keys[entry - 1]) & this.tableMask;
+                // Move the entry back if its ideal slot is not cyclically in (slot, next]
+                if (slot <= next ? (slot >= ideal || ideal > next) : (slot >= ideal && ideal > next))
+                {
+                    this.table[slot] = entry;
+                    slot = next;
+                }
+            }
+            this.table[slot] = 0;
+        }
+    }
+}
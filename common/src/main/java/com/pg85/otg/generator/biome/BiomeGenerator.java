@@ -114,6 +114,17 @@ public abstract class BiomeGenerator
         return false;
     }
 
+    /**
+     * Gets a human-readable summary of the cache of this biome generator,
+     * like its size and hit rate.
+     * @return The summary, or null if this biome generator has no cache
+     * statistics.
+     */
+    public String getCacheStatistics()
+    {
+        return null;
+    }
+
     /**
      * Gets whether this biome generator is cached. Cached biome generators
      * have an implementation for {@link #getBiome(int, int)} and {@link #cleanupCache()}.
@@ -124,6 +135,17 @@ public abstract class BiomeGenerator
         return false;
     }
 
+    /**
+     * Gets whether the biome generation methods of this biome generator can
+     * be called by multiple threads at once. If not, callers must make sure
+     * only one thread uses this generator at a time.
+     * @return True if this biome generator is thread-safe, false otherwise.
+     */
+    public boolean isThreadSafe()
+    {
+        return false;
+    }
+
     /**
      * Biome generators can be wrapped, for example to cache another biome
      * generator. This method returns the unwrapped biome generator. If this
@@ -2,58 +2,35 @@ package com.pg85.otg.generator.biome;
 
 import com.pg85.otg.common.LocalWorld;
 import com.pg85.otg.util.ChunkCoordinate;
-import com.pg85.otg.util.FifoMap;
 
 /**
- * Wraps uncached biome generators.
+ * Wraps uncached biome generators. The cache is thread-safe, so biomes can
+ * be looked up from population, terrain worker threads and commands at the
+ * same time.
  * @see BiomeModeManager#createCached(Class, LocalWorld)
  */
 class CachedBiomeGenerator extends BiomeGenerator
 {
-    /**
-     * Caches the biomes of a single chunk.
-     *
-     */
-    private static class Chunk
-    {
-        /**
-         * The array of biome types stored in this BiomeCache.Block.
-         */
-        private int[] biomes = new int[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE];
-
-        Chunk(BiomeGenerator generator, ChunkCoordinate chunkCoord)
-        {
-            biomes = generator.getBiomes(biomes, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), ChunkCoordinate.CHUNK_X_SIZE,
-                    ChunkCoordinate.CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
-        }
-
-        /**
-         * Gets the biome type id of the column at the given location.
-         * @param blockX X location of the column, must fall in this cache
-         *               block.
-         * @param blockZ Z location of the column, must fall in this cache
-         *               block.
-         * @return The biome type id.
-         */
-        int getCalculatedBiomeId(int blockX, int blockZ)
-        {
-            return biomes[blockX & 15 | (blockZ & 15) << 4];
-        }
-    }
+    private static final int CACHE_SIZE = 4096;
 
     /**
-     * The map of cached BiomeCacheBlocks.
+     * The cached biome arrays, keyed on chunk coordinates.
      */
-    private FifoMap<ChunkCoordinate, CachedBiomeGenerator.Chunk> cacheMap = new FifoMap<ChunkCoordinate, Chunk>(4096);
+    private final BiomeCache cache = new BiomeCache(CACHE_SIZE);
     /**
      * The uncached biome generator.
      */
     private final BiomeGenerator generator;
+    /**
+     * Whether the uncached generator can be called without holding its lock.
+     */
+    private final boolean generatorIsThreadSafe;
 
     public CachedBiomeGenerator(BiomeGenerator generator)
     {
         super(generator.world);
         this.generator = generator;
+        this.generatorIsThreadSafe = generator.isThreadSafe();
     }
 
     /**
@@ -79,27 +56,7 @@ class CachedBiomeGenerator extends BiomeGenerator
     @Override
     public int getBiome(int x, int z)
     {
-        ChunkCoordinate chunkCoord = ChunkCoordinate.fromBlockCoords(x, z);
-        CachedBiomeGenerator.Chunk cacheBlock = getBiomeCacheChunk(chunkCoord);
-        return cacheBlock.getCalculatedBiomeId(x, z);
-    }
-
-    /**
-     * Returns a biome cache block at location specified.
-     * @param chunkCoord The chunk to get the cache entry for.
-     * @return The biome cache block.
-     */
-    private CachedBiomeGenerator.Chunk getBiomeCacheChunk(ChunkCoordinate chunkCoord)
-    {
-        CachedBiomeGenerator.Chunk chunk = this.cacheMap.get(chunkCoord);
-
-        if (chunk == null)
-        {
-        	chunk = new CachedBiomeGenerator.Chunk(generator, chunkCoord);
-            this.cacheMap.put(chunkCoord, chunk);
-        }
-
-        return chunk;
+        return getCachedBiomes(x >> 4, z >> 4)[x & 15 | (z & 15) << 4];
     }
 
     @Override
@@ -111,19 +68,41 @@ class CachedBiomeGenerator extends BiomeGenerator
             {
                 biomeArray = new int[xSize * zSize];
             }
-            int[] cachedBiomes = getCachedBiomes(ChunkCoordinate.fromBlockCoords(x, z));
+            int[] cachedBiomes = getCachedBiomes(x >> 4, z >> 4);
             // Avoid leaking references to the cached array - Minecraft likes
             // to change those arrays, corrupting the cache.
             System.arraycopy(cachedBiomes, 0, biomeArray, 0, xSize * zSize);
             return biomeArray;
         }
-        return generator.getBiomes(biomeArray, x, z, xSize, zSize, type);
+        return generateBiomes(biomeArray, x, z, xSize, zSize, type);
     }
 
     @Override
     public int[] getBiomesUnZoomed(int[] biomeArray, int x, int z, int xSize, int zSize, OutputType type)
     {
-        return generator.getBiomesUnZoomed(biomeArray, x, z, xSize, zSize, type);
+        if (this.generatorIsThreadSafe)
+        {
+            return this.generator.getBiomesUnZoomed(biomeArray, x, z, xSize, zSize, type);
+        }
+        synchronized (this.generator)
+        {
+            return this.generator.getBiomesUnZoomed(biomeArray, x, z, xSize, zSize, type);
+        }
+    }
+
+    /**
+     * Calls the uncached generator, holding its lock if it isn't thread-safe.
+     */
+    private int[] generateBiomes(int[] biomeArray, int x, int z, int xSize, int zSize, OutputType type)
+    {
+        if (this.generatorIsThreadSafe)
+        {
+            return this.generator.getBiomes(biomeArray, x, z, xSize, zSize, type);
+        }
+        synchronized (this.generator)
+        {
+            return this.generator.getBiomes(biomeArray, x, z, xSize, zSize, type);
+        }
     }
 
     @Override
@@ -133,14 +112,31 @@ class CachedBiomeGenerator extends BiomeGenerator
     }
 
     /**
-     * Returns the array of cached biome types in the BiomeCacheBlock at the
-     * given location.
-     * @param chunkCoord The chunk to get cached biomes for.
+     * Returns the array of cached biome types for the given chunk,
+     * generating it if it isn't cached yet. The array must not be modified.
+     * @param chunkX The chunk x coordinate.
+     * @param chunkZ The chunk z coordinate.
      * @return The biomes.
      */
-    private int[] getCachedBiomes(ChunkCoordinate chunkCoord)
+    private int[] getCachedBiomes(int chunkX, int chunkZ)
+    {
+        long key = BiomeCache.toKey(chunkX, chunkZ);
+        int[] biomes = this.cache.get(key);
+        if (biomes == null)
+        {
+            // Two threads may generate the same chunk at once, the result is
+            // identical so whichever is cached last wins.
+            biomes = generateBiomes(null, chunkX * ChunkCoordinate.CHUNK_X_SIZE, chunkZ * ChunkCoordinate.CHUNK_Z_SIZE, ChunkCoordinate.CHUNK_X_SIZE,
+                    ChunkCoordinate.CHUNK_Z_SIZE, OutputType.DEFAULT_FOR_WORLD);
+            this.cache.put(key, biomes);
+        }
+        return biomes;
+    }
+
+    @Override
+    public String getCacheStatistics()
     {
-        return this.getBiomeCacheChunk(chunkCoord).biomes;
+        return this.cache.toString();
     }
 
     @Override
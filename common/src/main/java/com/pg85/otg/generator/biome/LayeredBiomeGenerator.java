@@ -46,14 +46,21 @@ public abstract class LayeredBiomeGenerator extends BiomeGenerator
             biomeArray = new int[x_size * z_size];
         }
         ArraysCache cache = ArraysCacheManager.getCache();
-        if (outputType == OutputType.DEFAULT_FOR_WORLD)
-            cache.outputType = defaultOutputType;
-        else
-            cache.outputType = outputType;
-        int[] arrayOfInt = this.unZoomedLayer.getInts(world, cache, x, z, x_size, z_size);
-        ArraysCacheManager.releaseCache(cache);
-
-        System.arraycopy(arrayOfInt, 0, biomeArray, 0, x_size * z_size);
+        try
+        {
+            if (outputType == OutputType.DEFAULT_FOR_WORLD)
+                cache.outputType = defaultOutputType;
+            else
+                cache.outputType = outputType;
+            int[] arrayOfInt = this.unZoomedLayer.getInts(world, cache, x, z, x_size, z_size);
+            // The cache is reused, so copy the result before releasing it
+            System.arraycopy(arrayOfInt, 0, biomeArray, 0, x_size * z_size);
+        }
+        finally
+        {
+            // Otherwise an exception would leave the thread's cache marked as in use
+            ArraysCacheManager.releaseCache(cache);
+        }
 
         return biomeArray;
     }
@@ -67,14 +74,21 @@ public abstract class LayeredBiomeGenerator extends BiomeGenerator
         }
 
         ArraysCache cache = ArraysCacheManager.getCache();
-        if (outputType == OutputType.DEFAULT_FOR_WORLD)
-            cache.outputType = defaultOutputType;
-        else
-            cache.outputType = outputType;
-        int[] arrayOfInt = this.biomeLayer.getInts(world, cache, x, z, x_size, z_size);
-        ArraysCacheManager.releaseCache(cache);
-
-        System.arraycopy(arrayOfInt, 0, biomeArray, 0, x_size * z_size);
+        try
+        {
+            if (outputType == OutputType.DEFAULT_FOR_WORLD)
+                cache.outputType = defaultOutputType;
+            else
+                cache.outputType = outputType;
+            int[] arrayOfInt = this.biomeLayer.getInts(world, cache, x, z, x_size, z_size);
+            // The cache is reused, so copy the result before releasing it
+            System.arraycopy(arrayOfInt, 0, biomeArray, 0, x_size * z_size);
+        }
+        finally
+        {
+            // Otherwise an exception would leave the thread's cache marked as in use
+            ArraysCacheManager.releaseCache(cache);
+        }
 
         return biomeArray;
     }
@@ -85,4 +99,11 @@ public abstract class LayeredBiomeGenerator extends BiomeGenerator
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe()
+    {
+        // All state used during generation is in the thread's ArraysCache
+        return true;
+    }
+
 }
@@ -50,20 +50,6 @@ public abstract class Layer
      */
     protected long scrambledWorldSeed;
 
-    /**
-     * This seed is used for general random number generation within the Layers
-     * system. It is based off of both the scrambledWorldSeed and baseSeed.
-     * @see #initWorldGenSeed(long)
-     * @see #initChunkSeed(long, long)
-     */
-    private long scrambledChunkSeed;
-
-    /**
-     * This seed is used for generating random numbers for biome groups
-     * @see #initGroupSeed(long, long)
-     */
-    private long scrambledGroupSeed;
-
     /**
      * The layer to process before this one. getInts() should call
      * child.getInts() before doing any processing -- in most cases.
@@ -164,64 +150,90 @@ public abstract class Layer
         this.scrambledWorldSeed = getScrambledWorldSeed(this.baseSeed, worldSeed);
     }
 
-    protected void initChunkSeed(long x, long z)
+    /**
+     * Starts a new sequence of random numbers for the given position. The
+     * chunk seed is stored in the cache, not in the layer, so that multiple
+     * threads can use the same layer at once.
+     * @see #initWorldGenSeed(long)
+     */
+    protected void initChunkSeed(ArraysCache cache, long x, long z)
+    {
+        initChunkSeed(cache, this.scrambledWorldSeed, x, z);
+    }
+
+    /**
+     * Same as {@link #initChunkSeed(ArraysCache, long, long)}, but uses the
+     * given scrambled world seed instead of the one of this layer.
+     */
+    protected void initChunkSeed(ArraysCache cache, long scrambledWorldSeed, long x, long z)
     {
-        this.scrambledChunkSeed = this.scrambledWorldSeed;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += x;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += z;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += x;
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += z;
+        long scrambledChunkSeed = scrambledWorldSeed;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += x;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += z;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += x;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += z;
+        cache.scrambledWorldSeed = scrambledWorldSeed;
+        cache.scrambledChunkSeed = scrambledChunkSeed;
     }
 
-    protected void initGroupSeed(long x, long z)
+    /**
+     * Starts a new sequence of random numbers for biome groups, based on the
+     * current chunk seed.
+     */
+    protected void initGroupSeed(ArraysCache cache, long x, long z)
     {
-        this.scrambledGroupSeed = this.scrambledChunkSeed;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += x;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += z;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += x;
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += z;
+        long scrambledGroupSeed = cache.scrambledChunkSeed;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += x;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += z;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += x;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += z;
+        cache.scrambledGroupSeed = scrambledGroupSeed;
     }
 
-    protected int nextInt(int x)
+    protected int nextInt(ArraysCache cache, int x)
     {
-        int i = (int) ((this.scrambledChunkSeed >> 24) % x);
+        long scrambledChunkSeed = cache.scrambledChunkSeed;
+        int i = (int) ((scrambledChunkSeed >> 24) % x);
         if (i < 0)
         {
             i += x;
         }
-        this.scrambledChunkSeed *= (this.scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledChunkSeed += this.scrambledWorldSeed;
+        scrambledChunkSeed *= (scrambledChunkSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledChunkSeed += cache.scrambledWorldSeed;
+        cache.scrambledChunkSeed = scrambledChunkSeed;
         return i;
     }
 
-    protected int nextGroupInt(int x)
+    protected int nextGroupInt(ArraysCache cache, int x)
     {
-        int i = (int) ((this.scrambledGroupSeed >> 24) % x);
+        long scrambledGroupSeed = cache.scrambledGroupSeed;
+        int i = (int) ((scrambledGroupSeed >> 24) % x);
         if (i < 0)
         {
             i += x;
         }
-        this.scrambledGroupSeed *= (this.scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
-        this.scrambledGroupSeed += this.scrambledChunkSeed;
+        scrambledGroupSeed *= (scrambledGroupSeed * 6364136223846793005L + 1442695040888963407L);
+        scrambledGroupSeed += cache.scrambledChunkSeed;
+        cache.scrambledGroupSeed = scrambledGroupSeed;
         return i;
     }
 
     public abstract int[] getInts(LocalWorld world, ArraysCache cache, int x, int z, int xSize, int zSize);
 
-    protected int getRandomInArray(int... biomes)
+    protected int getRandomInArray(ArraysCache cache, int... biomes)
     {
-        return biomes[this.nextInt(biomes.length)];
+        return biomes[this.nextInt(cache, biomes.length)];
     }
 
-    protected int getRandomOf4(int a, int b, int c, int d)
+    protected int getRandomOf4(ArraysCache cache, int a, int b, int c, int d)
     {
         return b == c && c == d
                ? b
@@ -243,7 +255,7 @@ public abstract class Layer
                                        ? b
                                        : (c == d && a != b
                                           ? c
-                                          : this.getRandomInArray(new int[]
+                                          : this.getRandomInArray(cache, new int[]
                                           {
                                               a, b, c, d
         }))))))))));
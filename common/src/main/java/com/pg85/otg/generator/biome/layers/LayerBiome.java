@@ -39,7 +39,7 @@ public class LayerBiome extends Layer
         {
             for (int j = 0; j < xSize; j++)
             {
-                initChunkSeed(j + x, i + z);
+                initChunkSeed(cache, j + x, i + z);
                 currentPiece = childInts[(j + i * xSize)];
 
                 if ((currentPiece & BiomeGroupBits) != 0 && ((currentPiece & BiomeBitsAreSetBit) == 0 || (currentPiece & BiomeBits) == this.defaultOceanId))    // has biomegroup bits but not biome bits
@@ -49,7 +49,7 @@ public class LayerBiome extends Layer
                     // Get Max Rarity
                     if (!possibleBiomes.isEmpty())
                     {
-                        newBiomeRarity = nextInt(BiomeGroupManager.getMaxRarityFromPossibles(possibleBiomes));
+                        newBiomeRarity = nextInt(cache, BiomeGroupManager.getMaxRarityFromPossibles(possibleBiomes));
                         // Spawn the biome based on the rarity spectrum
                         for (Entry<Integer, LocalBiome> biome : possibleBiomes.entrySet())
                         {
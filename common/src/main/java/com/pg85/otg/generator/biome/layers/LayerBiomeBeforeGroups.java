@@ -35,14 +35,14 @@ public class LayerBiomeBeforeGroups extends Layer
         {
             for (int j = 0; j < xSize; j++)
             {
-                initChunkSeed(j + x, i + z);
+                initChunkSeed(cache, j + x, i + z);
                 currentPiece = childInts[(j + i * xSize)];
 
                 if ((currentPiece & BiomeBitsAreSetBit) == 0 || (currentPiece & BiomeBits) == this.defaultOceanId) // without biome
                 {
                     if (this.biomes.length > 0 && (currentPiece & IceBit) == 0) // Normal biome
                     {
-                        biome = this.biomes[nextInt(this.biomes.length)];
+                        biome = this.biomes[nextInt(cache, this.biomes.length)];
                         if (biome != null)
                         {
                             currentPiece |= biome.getIds().getOTGBiomeId() | BiomeBitsAreSetBit;
@@ -50,7 +50,7 @@ public class LayerBiomeBeforeGroups extends Layer
                     }
                     else if (this.ice_biomes.length > 0 && (currentPiece & IceBit) != 0) // Ice biome
                     {
-                        biome = this.ice_biomes[nextInt(this.ice_biomes.length)];
+                        biome = this.ice_biomes[nextInt(cache, this.ice_biomes.length)];
                         if (biome != null)
                         {
                             currentPiece |= biome.getIds().getOTGBiomeId() | BiomeBitsAreSetBit;
@@ -32,11 +32,15 @@ public class LayerBiomeGroups extends Layer
         int currentPiece;
         SortedMap<Integer, BiomeGroup> possibleGroups;
         int newGroupRarity;
+        // This layer has never initialized a chunk seed, so the group seeds
+        // have always been based on a chunk seed of 0. Keep it that way, or
+        // existing worlds would get different biome groups.
+        arraysCache.scrambledChunkSeed = 0;
         for (int i = 0; i < z_size; i++)
         {
             for (int j = 0; j < x_size; j++)
             {
-                initGroupSeed(j + x, i + z);
+                initGroupSeed(arraysCache, j + x, i + z);
                 currentPiece = childInts[(j + i * x_size)];
 
                 if ((currentPiece & LandBit) != 0 && (currentPiece & BiomeGroupBits) == 0) // land without biome group
@@ -44,7 +48,7 @@ public class LayerBiomeGroups extends Layer
                 	// TODO: even with rarity 1 this always spawns the biome
 
                     possibleGroups = biomeGroupManager.getGroupDepthMap(depth);
-                    newGroupRarity = nextGroupInt(BiomeGroupManager.getMaxRarityFromPossibles(possibleGroups)*Entropy);
+                    newGroupRarity = nextGroupInt(arraysCache, BiomeGroupManager.getMaxRarityFromPossibles(possibleGroups)*Entropy);
                         //>>	Spawn the biome based on the rarity spectrum
                         for (Entry<Integer, BiomeGroup> group : possibleGroups.entrySet())
                         {
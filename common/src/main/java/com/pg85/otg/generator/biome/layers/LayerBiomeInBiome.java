@@ -90,8 +90,7 @@ public class LayerBiomeInBiome extends Layer
                 {
                     // Make the scrambled world seed unique for each isle
                     // (each island used to have its own layer)
-                    this.scrambledWorldSeed = isle.scrambledWorldSeed;
-                    initChunkSeed(xi + x, zi + z);
+                    initChunkSeed(cache, isle.scrambledWorldSeed, xi + x, zi + z);
                     alreadySpawned = false;
                     if (isle.inOcean)
                     {
@@ -100,7 +99,7 @@ public class LayerBiomeInBiome extends Layer
                         swCheck = childInts[(xi + 0 + (zi + 2) * xSize0)] & LandBit;
                         seCheck = childInts[(xi + 2 + (zi + 2) * xSize0)] & LandBit;
 
-                        if (((selection & LandBit) == 0) && (nwCheck == 0) && (neCheck == 0) && (swCheck == 0) && (seCheck == 0) && nextInt(isle.chance) == 0)
+                        if (((selection & LandBit) == 0) && (nwCheck == 0) && (neCheck == 0) && (swCheck == 0) && (seCheck == 0) && nextInt(cache, isle.chance) == 0)
                         {
                             selection = (selection & IceBit) | (selection & RiverBits) | LandBit | isle.biomeId | IslandBit | BiomeBitsAreSetBit;
                             alreadySpawned = true;
@@ -119,7 +118,7 @@ public class LayerBiomeInBiome extends Layer
                     		isle.canSpawnIn[neCheck] && 
                     		isle.canSpawnIn[swCheck] && 
                     		isle.canSpawnIn[seCheck] && 
-                    		nextInt(isle.chance) == 0
+                    		nextInt(cache, isle.chance) == 0
                 		)
                         {
                             selection = (selection & LandBit) | (selection & IceBit) | (selection & RiverBits) | isle.biomeId | IslandBit | BiomeBitsAreSetBit;
@@ -6,16 +6,13 @@ import com.pg85.otg.configuration.world.WorldConfig;
 import com.pg85.otg.generator.biome.ArraysCache;
 import com.pg85.otg.logging.LogMarker;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 
-import javax.imageio.ImageIO;
-
 public class LayerFromImage extends Layer
 {
-    private int[] biomeMap;
+    private TiledBiomeMap biomeMap;
     private int mapHeight;
     private int mapWidth;
     private int fillBiome = 0;
@@ -33,85 +30,12 @@ public class LayerFromImage extends Layer
         
     	this.fillBiome = world.getBiomeByNameOrNull(config.imageFillBiome).getIds().getOTGBiomeId();
 
-        // Read from file
+        // Read from file, converted to a biome map the first time
         try
         {
-            final File image = new File(config.settingsDir, config.imageFile);
-            final BufferedImage map = ImageIO.read(image);
-
-            this.mapWidth = map.getWidth(null);
-            this.mapHeight = map.getHeight(null);
-            int[] colorMap = new int[this.mapHeight * this.mapWidth];
-
-            map.getRGB(0, 0, this.mapWidth, this.mapHeight, colorMap, 0, this.mapWidth);
-
-            // Rotate RGBs if need
-            switch (config.imageOrientation)
-            {
-                case North:
-                    // Default behavior - nothing to rotate
-                    break;
-                case South:
-                    // Rotate picture 180 degrees
-                    int[] colorMap180 = new int[colorMap.length];
-                    for (int y = 0; y < this.mapHeight; y++)
-                    {
-                        for (int x = 0; x < this.mapWidth; x++)
-                        {
-                            colorMap180[(this.mapHeight - 1 - y) * this.mapWidth + this.mapWidth - 1 - x] = colorMap[y * this.mapWidth + x];
-                        }
-                    }
-                    colorMap = colorMap180;
-                    break;
-                case West:
-                    // Rotate picture CW
-                    int[] colorMapCW = new int[colorMap.length];
-                    for (int y = 0; y < this.mapHeight; y++)
-                    {
-                        for (int x = 0; x < this.mapWidth; x++)
-                        {
-                            colorMapCW[x * this.mapHeight + this.mapHeight - 1 - y] = colorMap[y * this.mapWidth + x];
-                        }
-                    }
-                    colorMap = colorMapCW;
-                    this.mapWidth = map.getHeight(null);
-                    this.mapHeight = map.getWidth(null);
-                    break;
-                case East:
-                    // Rotate picture CCW
-                    int[] colorMapCCW = new int[colorMap.length];
-                    for (int y = 0; y < this.mapHeight; y++)
-                    {
-                        for (int x = 0; x < this.mapWidth; x++)
-                        {
-                            colorMapCCW[(this.mapWidth - 1 - x) * this.mapHeight + y] = colorMap[y * this.mapWidth + x];
-                        }
-                    }
-                    colorMap = colorMapCCW;
-                    this.mapWidth = map.getHeight(null);
-                    this.mapHeight = map.getWidth(null);
-                    break;
-            }
-
-            this.biomeMap = new int[colorMap.length];
-
-            for (int nColor = 0; nColor < colorMap.length; nColor++)
-            {
-                int color = colorMap[nColor] & 0x00FFFFFF;
-
-                if (config.biomeColorMap.containsKey(color))
-                {
-                    this.biomeMap[nColor] = config.biomeColorMap.get(color);
-                } else {
-                    // ContinueNormal interprets a -1 as "Use the childLayer"
-                    if (this.imageMode == WorldConfig.ImageMode.ContinueNormal)
-                    {
-                        this.biomeMap[nColor] = -1;
-                    } else {
-                        this.biomeMap[nColor] = fillBiome;
-                    }
-                }
-            }
+            this.biomeMap = TiledBiomeMap.open(new File(config.settingsDir, config.imageFile), config, this.fillBiome);
+            this.mapWidth = this.biomeMap.getWidth();
+            this.mapHeight = this.biomeMap.getHeight();
         }
         catch (IOException ioexception)
         {
@@ -146,7 +70,7 @@ public class LayerFromImage extends Layer
                         {
                             Buffer_z += this.mapHeight;
                         }
-                        resultBiomes[(xi + zi * xSize)] = this.biomeMap[Buffer_x + Buffer_z * this.mapWidth];
+                        resultBiomes[(xi + zi * xSize)] = this.biomeMap.getBiome(Buffer_x, Buffer_z);
                     }
                 }
                 return resultBiomes;
@@ -176,7 +100,7 @@ public class LayerFromImage extends Layer
                         {
                             Buffer_z = this.mapHeight - 1 - Buffer_z;
                         }
-                        resultBiomes[(xi + zi * xSize)] = this.biomeMap[Buffer_x + Buffer_z * this.mapWidth];
+                        resultBiomes[(xi + zi * xSize)] = this.biomeMap.getBiome(Buffer_x, Buffer_z);
                     }
                 }
                 return resultBiomes;
@@ -202,7 +126,7 @@ public class LayerFromImage extends Layer
                                 resultBiomes[(xi + zi * xSize)] = this.fillBiome;
                             }
                         } else {
-                            int biome_id_buffer = this.biomeMap[Buffer_x + Buffer_z * this.mapWidth];
+                            int biome_id_buffer = this.biomeMap.getBiome(Buffer_x, Buffer_z);
                             // If set to -1 in the constructor above, uses the childlayer instead of the fillbiome if it exists.
                             if (biome_id_buffer == -1)
                             {
@@ -230,7 +154,7 @@ public class LayerFromImage extends Layer
                         {
                             resultBiomes[(xi + zi * xSize)] = this.fillBiome;
                         } else {
-                            resultBiomes[(xi + zi * xSize)] = this.biomeMap[Buffer_x + Buffer_z * this.mapWidth];
+                            resultBiomes[(xi + zi * xSize)] = this.biomeMap.getBiome(Buffer_x, Buffer_z);
                         }
                     }
                 }
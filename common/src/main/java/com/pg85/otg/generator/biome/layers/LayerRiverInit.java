@@ -23,9 +23,9 @@ public class LayerRiverInit extends Layer
         {
             for (int xi = 0; xi < xSize; xi++)
             {
-                initChunkSeed(zi + z, xi + x);           // reversed
+                initChunkSeed(cache, zi + z, xi + x);           // reversed
                 currentPiece = childInts[(xi + zi * xSize)];
-                if (nextInt(2) == 0)
+                if (nextInt(cache, 2) == 0)
                 {
                     currentPiece |= RiverBitOne;
                 } else {
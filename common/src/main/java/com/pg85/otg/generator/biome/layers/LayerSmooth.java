@@ -40,9 +40,9 @@ public class LayerSmooth extends Layer
 
                 if (westCheck == eastCheck && northCheck == southCheck)
                 {
-                    this.initChunkSeed((long) (xi + x), (long) (zi + z));
+                    this.initChunkSeed(cache, (long) (xi + x), (long) (zi + z));
 
-                    if (this.nextInt(2) == 0)
+                    if (this.nextInt(cache, 2) == 0)
                     {
                         centerCheck = westCheck;
                     } else {
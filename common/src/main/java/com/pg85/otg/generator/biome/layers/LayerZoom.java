@@ -37,14 +37,14 @@ public class LayerZoom extends Layer
             i5 = childInts[((zi + 1) * xSize0)];
             for (int xi = 0; xi < xSize0 - 1; xi++)
             {
-                initChunkSeed((long) (xi + x0 << 1), (long) (zi + z0 << 1));
+                initChunkSeed(cache, (long) (xi + x0 << 1), (long) (zi + z0 << 1));
                 northCheck = childInts[(xi + 1 + (zi) * xSize0)];
                 centerCheck = childInts[(xi + 1 + (zi + 1) * xSize0)];
 
                 thisInts[i3] = i4;
-                thisInts[(i3++ + n)] = rndParam(i4, i5);
-                thisInts[i3] = rndParam(i4, northCheck);
-                thisInts[(i3++ + n)] = getRandomOf4(i4, northCheck, i5, centerCheck);
+                thisInts[(i3++ + n)] = rndParam(cache, i4, i5);
+                thisInts[i3] = rndParam(cache, i4, northCheck);
+                thisInts[(i3++ + n)] = getRandomOf4(cache, i4, northCheck, i5, centerCheck);
 
                 i4 = northCheck;
                 i5 = centerCheck;
@@ -58,9 +58,9 @@ public class LayerZoom extends Layer
         return ret;
     }
 
-    private int rndParam(int a, int b)
+    private int rndParam(ArraysCache cache, int a, int b)
     {
-        return nextInt(2) == 0 ? a : b;
+        return nextInt(cache, 2) == 0 ? a : b;
     }
 
 }
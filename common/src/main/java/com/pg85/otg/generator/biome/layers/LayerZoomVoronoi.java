@@ -54,18 +54,18 @@ public class LayerZoomVoronoi extends Layer
             for (int i7 = 0; i7 < n - 1; i7++)
             {
                 d1 = j * 0.9D;
-                initChunkSeed(i7 + k << i, i4 + m << i);
-                d2 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                d3 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                initChunkSeed(i7 + k + 1 << i, i4 + m << i);
-                d4 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
-                d5 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                initChunkSeed(i7 + k << i, i4 + m + 1 << i);
-                d6 = (nextInt(1024) / 1024.0D - 0.5D) * d1;
-                d7 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
-                initChunkSeed(i7 + k + 1 << i, i4 + m + 1 << i);
-                d8 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
-                d9 = (nextInt(1024) / 1024.0D - 0.5D) * d1 + j;
+                initChunkSeed(cache, i7 + k << i, i4 + m << i);
+                d2 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                d3 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                initChunkSeed(cache, i7 + k + 1 << i, i4 + m << i);
+                d4 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
+                d5 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                initChunkSeed(cache, i7 + k << i, i4 + m + 1 << i);
+                d6 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1;
+                d7 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
+                initChunkSeed(cache, i7 + k + 1 << i, i4 + m + 1 << i);
+                d8 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
+                d9 = (nextInt(cache, 1024) / 1024.0D - 0.5D) * d1 + j;
 
                 i8 = childInts[(i7 + 1 + (i4) * n)];
                 i9 = childInts[(i7 + 1 + (i4 + 1) * n)];
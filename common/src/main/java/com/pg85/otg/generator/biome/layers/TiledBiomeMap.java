@@ -0,0 +1,355 @@
+package com.pg85.otg.generator.biome.layers;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.configuration.world.WorldConfig;
+import com.pg85.otg.logging.LogMarker;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Biome ids of a FromImage biome map, converted once from the image and
+ * stored in a file next to it. The file holds one byte or short per pixel
+ * (depending on the highest biome id) with the image orientation already
+ * applied, split into square tiles so that nearby pixels are near each
+ * other in the file.
+ *
+ * The file is memory-mapped, the OS pages tiles in as they are accessed,
+ * so resident memory depends on the explored area instead of the size of
+ * the map. Instances are immutable and can be used from any thread.
+ */
+final class TiledBiomeMap
+{
+    private static final int MAGIC = 0x4F54474D; // "OTGM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int TILE_SHIFT = 8;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    // Largest part of the file mapped by a single buffer
+    private static final long MAX_SEGMENT_SIZE = 1 << 30;
+    // Largest amount of image pixels held in memory while converting
+    private static final int MAX_BAND_PIXELS = 1 << 24;
+
+    private final int width;
+    private final int height;
+    private final int bytesPerPixel;
+    private final int tilesX;
+    private final int tileBytes;
+    private final int tilesPerSegment;
+    private final ByteBuffer[] segments;
+
+    private TiledBiomeMap(File mapFile, long sourceHash) throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile(mapFile, "r");
+        try
+        {
+            if (file.length() < HEADER_SIZE || file.readInt() != MAGIC || file.readInt() != VERSION || file.readLong() != sourceHash)
+            {
+                throw new IOException("Biome map " + mapFile + " is outdated");
+            }
+            this.width = file.readInt();
+            this.height = file.readInt();
+            this.bytesPerPixel = file.readInt();
+
+            this.tilesX = (this.width + TILE_MASK) >> TILE_SHIFT;
+            int tileCount = this.tilesX * ((this.height + TILE_MASK) >> TILE_SHIFT);
+            this.tileBytes = TILE_SIZE * TILE_SIZE * this.bytesPerPixel;
+            if (file.length() != HEADER_SIZE + (long) tileCount * this.tileBytes)
+            {
+                throw new IOException("Biome map " + mapFile + " is incomplete");
+            }
+
+            // Map whole tiles per segment, so a tile never spans two buffers
+            this.tilesPerSegment = (int) Math.min(tileCount, MAX_SEGMENT_SIZE / this.tileBytes);
+            this.segments = new ByteBuffer[(tileCount + this.tilesPerSegment - 1) / this.tilesPerSegment];
+            FileChannel channel = file.getChannel();
+            for (int i = 0; i < this.segments.length; i++)
+            {
+                int tilesInSegment = Math.min(this.tilesPerSegment, tileCount - i * this.tilesPerSegment);
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) i * this.tilesPerSegment * this.tileBytes, (long) tilesInSegment * this.tileBytes);
+            }
+        } finally {
+            // Mappings stay valid after closing the file
+            file.close();
+        }
+    }
+
+    /**
+     * Opens the biome map of an image, converting the image first if it
+     * hasn't been converted yet or if the image or settings have changed
+     * since.
+     * @param image     The biome image.
+     * @param config    The world config, for the colors, orientation and
+     *                  image mode.
+     * @param fillBiome Biome id for colors without a biome.
+     * @return The biome map.
+     * @throws IOException If the image can't be read or the biome map can't
+     *                     be written.
+     */
+    static TiledBiomeMap open(File image, WorldConfig config, int fillBiome) throws IOException
+    {
+        File mapFile = new File(image.getPath() + ".biomemap");
+        long sourceHash = getSourceHash(image, config, fillBiome);
+        if (mapFile.exists())
+        {
+            try
+            {
+                return new TiledBiomeMap(mapFile, sourceHash);
+            }
+            catch (IOException e)
+            {
+                OTG.log(LogMarker.INFO, e.getMessage() + ", converting image again.");
+            }
+        }
+        convert(image, mapFile, sourceHash, config, fillBiome);
+        return new TiledBiomeMap(mapFile, sourceHash);
+    }
+
+    int getWidth()
+    {
+        return this.width;
+    }
+
+    int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * Gets the biome at the given position, 0 <= x < width and
+     * 0 <= z < height.
+     * @return The biome id, or -1 if the color has no biome and the
+     *         ContinueNormal image mode is used.
+     */
+    int getBiome(int x, int z)
+    {
+        int tile = (z >> TILE_SHIFT) * this.tilesX + (x >> TILE_SHIFT);
+        int index = (tile % this.tilesPerSegment) * this.tileBytes + (((z & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK)) * this.bytesPerPixel;
+        ByteBuffer segment = this.segments[tile / this.tilesPerSegment];
+        return this.bytesPerPixel == 1 ? segment.get(index) : segment.getShort(index);
+    }
+
+    /**
+     * Hash of everything the contents of the biome map depend on, used to
+     * find out whether the biome map needs to be converted again.
+     */
+    private static long getSourceHash(File image, WorldConfig config, int fillBiome)
+    {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + image.length();
+        hash = 31 * hash + image.lastModified();
+        hash = 31 * hash + config.imageOrientation.ordinal();
+        hash = 31 * hash + (config.imageMode == WorldConfig.ImageMode.ContinueNormal ? 1 : 0);
+        hash = 31 * hash + fillBiome;
+        if (config.biomeColorMap != null)
+        {
+            for (Map.Entry<Integer, Integer> entry : new TreeMap<Integer, Integer>(config.biomeColorMap).entrySet())
+            {
+                hash = 31 * hash + entry.getKey();
+                hash = 31 * hash + entry.getValue();
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Converts the image to a biome map. The image is read in bands of
+     * rows, so the whole image is never held in memory.
+     */
+    private static void convert(File image, File mapFile, long sourceHash, WorldConfig config, int fillBiome) throws IOException
+    {
+        OTG.log(LogMarker.INFO, "Converting biome map " + image.getName() + ", this may take a while.");
+        long startTime = System.currentTimeMillis();
+
+        ImageInputStream input = ImageIO.createImageInputStream(image);
+        if (input == null)
+        {
+            throw new IOException("Could not read " + image);
+        }
+        File tempFile = new File(mapFile.getPath() + ".tmp");
+        RandomAccessFile output = null;
+        try
+        {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+            {
+                throw new IOException("Unsupported image format: " + image);
+            }
+            ImageReader reader = readers.next();
+            reader.setInput(input, true, true);
+
+            int sourceWidth = reader.getWidth(0);
+            int sourceHeight = reader.getHeight(0);
+            WorldConfig.ImageOrientation orientation = config.imageOrientation;
+            boolean rotated = orientation == WorldConfig.ImageOrientation.West || orientation == WorldConfig.ImageOrientation.East;
+            int width = rotated ? sourceHeight : sourceWidth;
+            int height = rotated ? sourceWidth : sourceHeight;
+
+            // ContinueNormal interprets a -1 as "Use the childLayer"
+            int noBiome = config.imageMode == WorldConfig.ImageMode.ContinueNormal ? -1 : fillBiome;
+            int maxBiome = Math.max(fillBiome, noBiome);
+            if (config.biomeColorMap != null)
+            {
+                for (Integer biome : config.biomeColorMap.values())
+                {
+                    maxBiome = Math.max(maxBiome, biome);
+                }
+            }
+            int bytesPerPixel = maxBiome <= Byte.MAX_VALUE ? 1 : 2;
+
+            int tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+            int tilesZ = (height + TILE_MASK) >> TILE_SHIFT;
+            int tileBytes = TILE_SIZE * TILE_SIZE * bytesPerPixel;
+
+            output = new RandomAccessFile(tempFile, "rw");
+            output.setLength(0);
+            output.setLength(HEADER_SIZE + (long) tilesX * tilesZ * tileBytes);
+            FileChannel channel = output.getChannel();
+
+            // Rows of tiles for North/South, columns of tiles for East/West,
+            // each band of tiles comes from a band of rows in the image.
+            int bandCount = rotated ? tilesX : tilesZ;
+            int tilesPerBand = Math.max(1, MAX_BAND_PIXELS / (TILE_SIZE * sourceWidth));
+            int[] biomes = null;
+            ByteBuffer tileBuffer = ByteBuffer.allocate(tileBytes);
+            ImageReadParam param = reader.getDefaultReadParam();
+            int lastColor = -1;
+            int lastBiome = noBiome;
+            for (int band = 0; band < bandCount; band += tilesPerBand)
+            {
+                int bandStart = band * TILE_SIZE;
+                int bandEnd = Math.min((band + tilesPerBand) * TILE_SIZE, rotated ? width : height);
+                int sourceStart;
+                int sourceEnd;
+                if (orientation == WorldConfig.ImageOrientation.South || orientation == WorldConfig.ImageOrientation.West)
+                {
+                    sourceStart = sourceHeight - bandEnd;
+                    sourceEnd = sourceHeight - bandStart;
+                } else {
+                    sourceStart = bandStart;
+                    sourceEnd = bandEnd;
+                }
+
+                param.setSourceRegion(new Rectangle(0, sourceStart, sourceWidth, sourceEnd - sourceStart));
+                BufferedImage strip = reader.read(0, param);
+                biomes = strip.getRGB(0, 0, sourceWidth, sourceEnd - sourceStart, biomes, 0, sourceWidth);
+                for (int i = 0; i < (sourceEnd - sourceStart) * sourceWidth; i++)
+                {
+                    int color = biomes[i] & 0x00FFFFFF;
+                    if (color != lastColor)
+                    {
+                        Integer biome = config.biomeColorMap != null ? config.biomeColorMap.get(color) : null;
+                        lastColor = color;
+                        lastBiome = biome != null ? biome : noBiome;
+                    }
+                    biomes[i] = lastBiome;
+                }
+
+                int tileXStart = rotated ? band : 0;
+                int tileXEnd = rotated ? Math.min(band + tilesPerBand, tilesX) : tilesX;
+                int tileZStart = rotated ? 0 : band;
+                int tileZEnd = rotated ? tilesZ : Math.min(band + tilesPerBand, tilesZ);
+                for (int tileZ = tileZStart; tileZ < tileZEnd; tileZ++)
+                {
+                    for (int tileX = tileXStart; tileX < tileXEnd; tileX++)
+                    {
+                        tileBuffer.clear();
+                        for (int z = tileZ * TILE_SIZE; z < (tileZ + 1) * TILE_SIZE; z++)
+                        {
+                            for (int x = tileX * TILE_SIZE; x < (tileX + 1) * TILE_SIZE; x++)
+                            {
+                                int biome = noBiome;
+                                if (x < width && z < height)
+                                {
+                                    int sourceX;
+                                    int sourceZ;
+                                    switch (orientation)
+                                    {
+                                        case South:
+                                            sourceX = sourceWidth - 1 - x;
+                                            sourceZ = sourceHeight - 1 - z;
+                                            break;
+                                        case West:
+                                            sourceX = z;
+                                            sourceZ = sourceHeight - 1 - x;
+                                            break;
+                                        case East:
+                                            sourceX = sourceWidth - 1 - z;
+                                            sourceZ = x;
+                                            break;
+                                        default:
+                                            sourceX = x;
+                                            sourceZ = z;
+                                            break;
+                                    }
+                                    biome = biomes[(sourceZ - sourceStart) * sourceWidth + sourceX];
+                                }
+                                if (bytesPerPixel == 1)
+                                {
+                                    tileBuffer.put((byte) biome);
+                                } else {
+                                    tileBuffer.putShort((short) biome);
+                                }
+                            }
+                        }
+                        tileBuffer.flip();
+                        long position = HEADER_SIZE + ((long) tileZ * tilesX + tileX) * tileBytes;
+                        while (tileBuffer.hasRemaining())
+                        {
+                            position += channel.write(tileBuffer, position);
+                        }
+                    }
+                }
+            }
+            reader.dispose();
+
+            // Write the header last, so an interrupted conversion is never
+            // mistaken for a complete biome map.
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(sourceHash);
+            header.putInt(width);
+            header.putInt(height);
+            header.putInt(bytesPerPixel);
+            header.clear();
+            long position = 0;
+            while (header.hasRemaining())
+            {
+                position += channel.write(header, position);
+            }
+            output.close();
+            output = null;
+
+            if ((mapFile.exists() && !mapFile.delete()) || !tempFile.renameTo(mapFile))
+            {
+                throw new IOException("Could not write biome map " + mapFile);
+            }
+        } finally {
+            input.close();
+            if (output != null)
+            {
+                output.close();
+                tempFile.delete();
+            }
+        }
+
+        OTG.log(LogMarker.INFO, "Converted biome map " + image.getName() + " in " + (System.currentTimeMillis() - startTime) + "ms.");
+    }
+}
@@ -51,107 +51,217 @@ public class NoiseGeneratorPerlin
         return ((j & 1) != 0 ? -d3 : d3) + ((j & 2) != 0 ? -d4 : d4);
     }
 
-    void populateNoiseArray3D(double NoiseArray[], double xOffset, double yOffset, double zOffset, int xSize, int ySize, int zSize, double xScale, double yScale, double zScale, double noiseScale)
+    /**
+     * Adds one octave of 3D noise to the given array, indexed (x * zSize + z) * ySize + y.
+     *
+     * Coordinates and fade curves only depend on one axis each, so they are
+     * computed once per axis. Gradients only change when the y coordinate
+     * enters a new cell, so for each column they are computed first and the
+     * samples are then interpolated in a separate loop without any table
+     * lookups or branches, which the JIT can vectorize. Every sample uses the
+     * same floating point operations in the same order as the per-sample
+     * version this replaced, including using the y position of the first
+     * sample in a cell for the gradients of the entire cell, so the output is
+     * bit-for-bit identical.
+     */
+    void populateNoiseArray3D(double noiseArray[], double xOffset, double yOffset, double zOffset, int xSize, int ySize, int zSize, double xScale, double yScale, double zScale, double noiseScale, NoiseBuffers buffers)
     {
-        int i1 = 0;
-        double d7 = 1.0D / noiseScale;
-        int i2 = -1;
+        final double amplitude = 1.0D / noiseScale;
+
+        fillAxis(xOffset, xScale, this.xCoord, xSize, buffers.xCell, buffers.xFrac, buffers.xFade);
+        fillAxis(yOffset, yScale, this.yCoord, ySize, buffers.yCell, buffers.yFrac, buffers.yFade);
+        fillAxis(zOffset, zScale, this.zCoord, zSize, buffers.zCell, buffers.zFrac, buffers.zFade);
+
+        final int[] yCell = buffers.yCell;
+        final double[] yFrac = buffers.yFrac;
+        final double[] yFade = buffers.yFade;
+        final int[] xyPerm00 = buffers.xyPerm00;
+        final int[] xyPerm01 = buffers.xyPerm01;
+        final int[] xyPerm10 = buffers.xyPerm10;
+        final int[] xyPerm11 = buffers.xyPerm11;
+        final double[] lerpY0Z0 = buffers.lerpY0Z0;
+        final double[] lerpY1Z0 = buffers.lerpY1Z0;
+        final double[] lerpY0Z1 = buffers.lerpY0Z1;
+        final double[] lerpY1Z1 = buffers.lerpY1Z1;
+
+        int i = 0;
+        int cellX;
+        int cellZ;
+        int prevCellY;
+        int k2, l2, k3, l3;
+        double fracX, fadeX, fracY, fracZ, fadeZ;
         double d13 = 0.0D;
         double d15 = 0.0D;
         double d16 = 0.0D;
         double d18 = 0.0D;
-        for (int i5 = 0; i5 < xSize; i5++)
+        double d28, d29;
+        for (int x = 0; x < xSize; x++)
         {
-            double d20 = xOffset + (double) i5 * xScale + xCoord;
-            int k5 = (int) d20;
-            if (d20 < (double) k5)
+            cellX = buffers.xCell[x];
+            fracX = buffers.xFrac[x];
+            fadeX = buffers.xFade[x];
+
+            // Permutation lookups that don't depend on z
+            for (int y = 0; y < ySize; y++)
             {
-                k5--;
+                int j2 = this.permutations[cellX] + yCell[y];
+                int i3 = this.permutations[cellX + 1] + yCell[y];
+                xyPerm00[y] = this.permutations[j2];
+                xyPerm01[y] = this.permutations[j2 + 1];
+                xyPerm10[y] = this.permutations[i3];
+                xyPerm11[y] = this.permutations[i3 + 1];
             }
-            int i6 = k5 & 0xff;
-            d20 -= k5;
-            double d22 = d20 * d20 * d20 * (d20 * (d20 * 6D - 15D) + 10D);
-            for (int j6 = 0; j6 < zSize; j6++)
+
+            for (int z = 0; z < zSize; z++)
             {
-                double d24 = zOffset + (double) j6 * zScale + zCoord;
-                int k6 = (int) d24;
-                if (d24 < (double) k6)
-                {
-                    k6--;
-                }
-                int l6 = k6 & 0xff;
-                d24 -= k6;
-                double d25 = d24 * d24 * d24 * (d24 * (d24 * 6D - 15D) + 10D);
-                for (int i7 = 0; i7 < ySize; i7++)
+                cellZ = buffers.zCell[z];
+                fracZ = buffers.zFrac[z];
+                fadeZ = buffers.zFade[z];
+
+                // Gradients, only recalculated when entering a new y cell
+                prevCellY = -1;
+                for (int y = 0; y < ySize; y++)
                 {
-                    double d26 = yOffset + (double) i7 * yScale + yCoord;
-                    int j7 = (int) d26;
-                    if (d26 < (double) j7)
+                    if (y == 0 || yCell[y] != prevCellY)
                     {
-                        j7--;
+                        prevCellY = yCell[y];
+                        fracY = yFrac[y];
+                        k2 = xyPerm00[y] + cellZ;
+                        l2 = xyPerm01[y] + cellZ;
+                        k3 = xyPerm10[y] + cellZ;
+                        l3 = xyPerm11[y] + cellZ;
+                        d13 = lerp(fadeX, grad(this.permutations[k2], fracX, fracY, fracZ), grad(this.permutations[k3], fracX - 1.0D, fracY, fracZ));
+                        d15 = lerp(fadeX, grad(this.permutations[l2], fracX, fracY - 1.0D, fracZ), grad(this.permutations[l3], fracX - 1.0D, fracY - 1.0D, fracZ));
+                        d16 = lerp(fadeX, grad(this.permutations[k2 + 1], fracX, fracY, fracZ - 1.0D), grad(this.permutations[k3 + 1], fracX - 1.0D, fracY, fracZ - 1.0D));
+                        d18 = lerp(fadeX, grad(this.permutations[l2 + 1], fracX, fracY - 1.0D, fracZ - 1.0D), grad(this.permutations[l3 + 1], fracX - 1.0D, fracY - 1.0D, fracZ - 1.0D));
                     }
-                    int k7 = j7 & 0xff;
-                    d26 -= j7;
-                    double d27 = d26 * d26 * d26 * (d26 * (d26 * 6D - 15D) + 10D);
-                    if (i7 == 0 || k7 != i2)
-                    {
-                        i2 = k7;
-                        int j2 = permutations[i6] + k7;
-                        int k2 = permutations[j2] + l6;
-                        int l2 = permutations[j2 + 1] + l6;
-                        int i3 = permutations[i6 + 1] + k7;
-                        int k3 = permutations[i3] + l6;
-                        int l3 = permutations[i3 + 1] + l6;
-                        d13 = lerp(d22, grad(permutations[k2], d20, d26, d24), grad(permutations[k3], d20 - 1.0D, d26, d24));
-                        d15 = lerp(d22, grad(permutations[l2], d20, d26 - 1.0D, d24), grad(permutations[l3], d20 - 1.0D, d26 - 1.0D, d24));
-                        d16 = lerp(d22, grad(permutations[k2 + 1], d20, d26, d24 - 1.0D), grad(permutations[k3 + 1], d20 - 1.0D, d26, d24 - 1.0D));
-                        d18 = lerp(d22, grad(permutations[l2 + 1], d20, d26 - 1.0D, d24 - 1.0D), grad(permutations[l3 + 1], d20 - 1.0D, d26 - 1.0D, d24 - 1.0D));
-                    }
-                    double d28 = lerp(d27, d13, d15);
-                    double d29 = lerp(d27, d16, d18);
-                    double d30 = lerp(d25, d28, d29);
-                    NoiseArray[i1++] += d30 * d7;
+                    lerpY0Z0[y] = d13;
+                    lerpY1Z0[y] = d15;
+                    lerpY0Z1[y] = d16;
+                    lerpY1Z1[y] = d18;
                 }
+
+                // Interpolation, no lookups or branches
+                for (int y = 0; y < ySize; y++)
+                {
+                    d28 = lerpY0Z0[y] + yFade[y] * (lerpY1Z0[y] - lerpY0Z0[y]);
+                    d29 = lerpY0Z1[y] + yFade[y] * (lerpY1Z1[y] - lerpY0Z1[y]);
+                    noiseArray[i + y] += (d28 + fadeZ * (d29 - d28)) * amplitude;
+                }
+                i += ySize;
             }
         }
     }
 
-    void populateNoiseArray2D(double NoiseArray[], double xOffset, double zOffset, int xSize, int zSize, double xScale, double zScale, double noiseScale)
+    /**
+     * Adds one octave of 2D noise to the given array, indexed x * zSize + z.
+     * Like {@link #populateNoiseArray3D}, the output is bit-for-bit identical
+     * to the per-sample version this replaced.
+     */
+    void populateNoiseArray2D(double noiseArray[], double xOffset, double zOffset, int xSize, int zSize, double xScale, double zScale, double noiseScale, NoiseBuffers buffers)
     {
-        int j3 = 0;
-        double d12 = 1.0D / noiseScale;
-        for (int i4 = 0; i4 < xSize; i4++)
+        final double amplitude = 1.0D / noiseScale;
+
+        fillAxis(xOffset, xScale, this.xCoord, xSize, buffers.xCell, buffers.xFrac, buffers.xFade);
+        fillAxis(zOffset, zScale, this.zCoord, zSize, buffers.zCell, buffers.zFrac, buffers.zFade);
+
+        final int[] zCell = buffers.zCell;
+        final double[] zFrac = buffers.zFrac;
+        final double[] zFade = buffers.zFade;
+
+        int i = 0;
+        int cellX;
+        int l;
+        int k1;
+        int j1;
+        int l1;
+        double fracX, fadeX, d9, d11;
+        for (int x = 0; x < xSize; x++)
         {
-            double d14 = xOffset + (double) i4 * xScale + xCoord;
-            int j4 = (int) d14;
-            if (d14 < (double) j4)
+            cellX = buffers.xCell[x];
+            fracX = buffers.xFrac[x];
+            fadeX = buffers.xFade[x];
+            l = this.permutations[cellX];
+            k1 = this.permutations[cellX + 1];
+            for (int z = 0; z < zSize; z++)
             {
-                j4--;
+                j1 = this.permutations[l] + zCell[z];
+                l1 = this.permutations[k1] + zCell[z];
+                d9 = lerp(fadeX, func_4110_a(this.permutations[j1], fracX, zFrac[z]), grad(this.permutations[l1], fracX - 1.0D, 0.0D, zFrac[z]));
+                d11 = lerp(fadeX, grad(this.permutations[j1 + 1], fracX, 0.0D, zFrac[z] - 1.0D), grad(this.permutations[l1 + 1], fracX - 1.0D, 0.0D, zFrac[z] - 1.0D));
+                noiseArray[i++] += lerp(zFade[z], d9, d11) * amplitude;
             }
-            int k4 = j4 & 0xff;
-            d14 -= j4;
-            double d17 = d14 * d14 * d14 * (d14 * (d14 * 6D - 15D) + 10D);
-            for (int l4 = 0; l4 < zSize; l4++)
+        }
+    }
+
+    /**
+     * Calculates the cell, position in the cell and fade curve of each
+     * sample along one axis.
+     */
+    private static void fillAxis(double offset, double scale, double coord, int size, int[] cells, double[] fracs, double[] fades)
+    {
+        double d;
+        int cell;
+        for (int i = 0; i < size; i++)
+        {
+            d = offset + (double) i * scale + coord;
+            cell = (int) d;
+            if (d < (double) cell)
             {
-                double d19 = zOffset + (double) l4 * zScale + zCoord;
-                int j5 = (int) d19;
-                if (d19 < (double) j5)
-                {
-                    j5--;
-                }
-                int l5 = j5 & 0xff;
-                d19 -= j5;
-                double d21 = d19 * d19 * d19 * (d19 * (d19 * 6D - 15D) + 10D);
-                int l = permutations[k4];
-                int j1 = permutations[l] + l5;
-                int k1 = permutations[k4 + 1];
-                int l1 = permutations[k1] + l5;
-                double d9 = lerp(d17, func_4110_a(permutations[j1], d14, d19), grad(permutations[l1], d14 - 1.0D, 0.0D, d19));
-                double d11 = lerp(d17, grad(permutations[j1 + 1], d14, 0.0D, d19 - 1.0D), grad(permutations[l1 + 1], d14 - 1.0D, 0.0D, d19 - 1.0D));
-                double d23 = lerp(d21, d9, d11);
-                NoiseArray[j3++] += d23 * d12;
+                cell--;
             }
+            cells[i] = cell & 0xff;
+            d -= cell;
+            fracs[i] = d;
+            fades[i] = d * d * d * (d * (d * 6D - 15D) + 10D);
         }
+    }
+
+    /**
+     * Working arrays for {@link NoiseGeneratorPerlin}, shared by all octaves
+     * of a single noise request. Not thread-safe.
+     */
+    static final class NoiseBuffers
+    {
+        final int[] xCell;
+        final double[] xFrac;
+        final double[] xFade;
+        final int[] yCell;
+        final double[] yFrac;
+        final double[] yFade;
+        final int[] zCell;
+        final double[] zFrac;
+        final double[] zFade;
+
+        final int[] xyPerm00;
+        final int[] xyPerm01;
+        final int[] xyPerm10;
+        final int[] xyPerm11;
+        final double[] lerpY0Z0;
+        final double[] lerpY1Z0;
+        final double[] lerpY0Z1;
+        final double[] lerpY1Z1;
 
+        NoiseBuffers(int xSize, int ySize, int zSize)
+        {
+            this.xCell = new int[xSize];
+            this.xFrac = new double[xSize];
+            this.xFade = new double[xSize];
+            this.yCell = new int[ySize];
+            this.yFrac = new double[ySize];
+            this.yFade = new double[ySize];
+            this.zCell = new int[zSize];
+            this.zFrac = new double[zSize];
+            this.zFade = new double[zSize];
+
+            this.xyPerm00 = new int[ySize];
+            this.xyPerm01 = new int[ySize];
+            this.xyPerm10 = new int[ySize];
+            this.xyPerm11 = new int[ySize];
+            this.lerpY0Z0 = new double[ySize];
+            this.lerpY1Z0 = new double[ySize];
+            this.lerpY0Z1 = new double[ySize];
+            this.lerpY1Z1 = new double[ySize];
+        }
     }
 }
@@ -33,6 +33,8 @@ public class NoiseGeneratorPerlinOctaves
             }
         }
 
+        // Shared by all octaves
+        NoiseGeneratorPerlin.NoiseBuffers buffers = new NoiseGeneratorPerlin.NoiseBuffers(xSize, ySize, zSize);
         double d3 = 1.0D;
 
         for (int l1 = 0; l1 < this.numOctaves; ++l1)
@@ -49,7 +51,7 @@ public class NoiseGeneratorPerlinOctaves
             j2 %= 16777216L;
             d4 += (double) i2;
             d6 += (double) j2;
-            this.noiseArray[l1].populateNoiseArray3D(doubleArray, d4, d5, d6, xSize, ySize, zSize, xScale * d3, yScale * d3, zScale * d3, d3);
+            this.noiseArray[l1].populateNoiseArray3D(doubleArray, d4, d5, d6, xSize, ySize, zSize, xScale * d3, yScale * d3, zScale * d3, d3, buffers);
             d3 /= 2.0D;
         }
 
@@ -70,6 +72,8 @@ public class NoiseGeneratorPerlinOctaves
             }
         }
 
+        // Shared by all octaves
+        NoiseGeneratorPerlin.NoiseBuffers buffers = new NoiseGeneratorPerlin.NoiseBuffers(xSize, 0, zSize);
         double d3 = 1.0D;
 
         for (int l1 = 0; l1 < this.numOctaves; ++l1)
@@ -85,7 +89,7 @@ public class NoiseGeneratorPerlinOctaves
             j2 %= 16777216L;
             d4 += (double) i2;
             d6 += (double) j2;
-            this.noiseArray[l1].populateNoiseArray2D(doubleArray, d4, d6, xSize, zSize, xScale * d3, zScale * d3, d3);
+            this.noiseArray[l1].populateNoiseArray2D(doubleArray, d4, d6, xSize, zSize, xScale * d3, zScale * d3, d3, buffers);
             d3 /= 2.0D;
         }
 
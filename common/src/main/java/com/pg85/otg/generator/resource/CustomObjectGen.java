@@ -6,6 +6,7 @@ import com.pg85.otg.configuration.ConfigFunction;
 import com.pg85.otg.configuration.biome.BiomeConfig;
 import com.pg85.otg.customobjects.CustomObject;
 import com.pg85.otg.exception.InvalidConfigException;
+import com.pg85.otg.generator.PopulationProfiler;
 import com.pg85.otg.logging.LogMarker;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.helpers.StringHelper;
@@ -58,11 +59,19 @@ public class CustomObjectGen extends Resource
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
+        PopulationProfiler profiler = world.getObjectSpawner().profiler;
         for (CustomObject object : getObjects(world.getName()))
         {
         	if(object != null) // if null then BO2/BO3 file could not be found
         	{
-        		object.process(world, random, chunkCoord);
+        		if(profiler.isEnabled())
+        		{
+        			long start = System.nanoTime();
+        			boolean spawned = object.process(world, random, chunkCoord);
+        			profiler.recordObject(object.getName(), spawned, System.nanoTime() - start);
+        		} else {
+        			object.process(world, random, chunkCoord);
+        		}
         	}
         }
     }
@@ -17,9 +17,35 @@ import com.pg85.otg.util.ChunkCoordinate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CustomStructureGen extends Resource
 {
+    // Structure names by id, ids are assigned on first use and never change
+    private static final ConcurrentHashMap<String, Integer> structureIds = new ConcurrentHashMap<String, Integer>();
+    private static final AtomicInteger nextStructureId = new AtomicInteger();
+
+    /**
+     * Gets a small integer id for the given structure name, so that biomes can
+     * store the structures they spawn as a bitset. Names are case-sensitive.
+     * @see BiomeConfig#canSpawnCustomStructure(int)
+     */
+    public static int getStructureId(String name)
+    {
+        Integer id = structureIds.get(name);
+        if (id == null)
+        {
+            Integer newId = Integer.valueOf(nextStructureId.getAndIncrement());
+            id = structureIds.putIfAbsent(name, newId);
+            if (id == null)
+            {
+                id = newId;
+            }
+        }
+        return id.intValue();
+    }
+
     private List<StructuredCustomObject> objects;
     public List<Double> objectChances;
     public List<String> objectNames;
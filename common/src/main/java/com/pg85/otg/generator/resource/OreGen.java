@@ -2,6 +2,7 @@ package com.pg85.otg.generator.resource;
 
 import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.common.PopulationArea;
 import com.pg85.otg.configuration.biome.BiomeConfig;
 import com.pg85.otg.configuration.standard.PluginStandardValues;
 import com.pg85.otg.exception.InvalidConfigException;
@@ -96,6 +97,7 @@ public class OreGen extends Resource
     	// Make sure we stay within population bounds, anything outside won't be spawned (unless it's in an existing chunk).
     	
         parseMaterials(world, this.material, this.sourceBlocks);
+        PopulationArea area = world.getPopulationArea(chunkBeingPopulated);
         
         int y = RandomHelper.numberInRange(rand, this.minAltitude, this.maxAltitude);
        
@@ -211,7 +213,7 @@ public class OreGen extends Resource
 	                		highestSolidBlock = this.highestBlocksCache[i3 - chunkBeingPopulated.getBlockX()][i5 - chunkBeingPopulated.getBlockZ()] & 0xFF; // byte to int conversion
 	                		if(highestSolidBlock == 0)  // 0 is default / unset.
 	                		{
-	                			highestSolidBlock = world.getHeightMapHeight(i3, i5, chunkBeingPopulated);
+	                			highestSolidBlock = area.getHeightMapHeight(i3, i5);
 	                			// TODO: This causes getHeightMapHeight to be called every time on a 0 height column, 
 	                			// can't use -1 tho since we're using byte arrays. At least we're aborting the column 
 	                			// immediately, since OreGen shouldn't be used to spawn things in empty columns. If
@@ -237,7 +239,7 @@ public class OreGen extends Resource
                                 d15 = ((double)i5 + 0.5D - d8) / (d10 / 2.0D);
                                 if((d13 * d13 + d14 * d14 + d15 * d15 < 1.0D))
                                 {
-	                                material = world.getMaterial(i3, i4, i5, chunkBeingPopulated);
+	                                material = area.getMaterial(i3, i4, i5);
 	                                bFound = false;
 	                                for(MaterialSetEntry sourceBlockEntry : this.sourceBlocks.materials)
 	                                {
@@ -249,7 +251,7 @@ public class OreGen extends Resource
 	                                }
 	                                if(bFound)
 	                                {
-	                                    world.setBlock(i3, i4, i5, this.material, null, chunkBeingPopulated);
+	                                    area.setBlock(i3, i4, i5, this.material);
 	                                }
                                 }
                             }
@@ -2,6 +2,7 @@ package com.pg85.otg.generator.resource;
 
 import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.common.PopulationArea;
 import com.pg85.otg.configuration.ConfigFunction;
 import com.pg85.otg.configuration.biome.BiomeConfig;
 import com.pg85.otg.configuration.standard.PluginStandardValues;
@@ -113,10 +114,15 @@ public class SurfacePatchGen extends Resource
 
     @Override
     public void spawn(LocalWorld world, Random rand, boolean villageInChunk, int x, int z, ChunkCoordinate chunkBeingPopulated)
+    {
+        spawn(world, world.getPopulationArea(chunkBeingPopulated), x, z);
+    }
+
+    private void spawn(LocalWorld world, PopulationArea area, int x, int z)
     {
     	// Make sure we stay within population bounds, anything outside won't be spawned (unless it's in an existing chunk).
     	
-        int y = world.getHighestBlockAboveYAt(x, z, chunkBeingPopulated) - 1;
+        int y = area.getHighestBlockAboveYAt(x, z) - 1;
         if (y < minAltitude || y > maxAltitude)
             return;
         
@@ -125,14 +131,14 @@ public class SurfacePatchGen extends Resource
         double yNoise = noiseGen.getYNoise(x * 0.25D, z * 0.25D);
         if (yNoise > 0.0D)
         {
-            LocalMaterialData materialAtLocation = world.getMaterial(x, y, z, chunkBeingPopulated);
+            LocalMaterialData materialAtLocation = area.getMaterial(x, y, z);
             if (sourceBlocks.contains(materialAtLocation))
             {
-                world.setBlock(x, y, z, material, null, chunkBeingPopulated);
+                area.setBlock(x, y, z, material);
 
                 if (yNoise < 0.12D)
                 {
-                    world.setBlock(x, y + 1, z, decorationAboveReplacements, null, chunkBeingPopulated);
+                    area.setBlock(x, y + 1, z, decorationAboveReplacements);
                 }
             }
         }
@@ -143,13 +149,14 @@ public class SurfacePatchGen extends Resource
     {
         int chunkX = chunkCoord.getBlockXCenter();
         int chunkZ = chunkCoord.getBlockZCenter();
+        PopulationArea area = world.getPopulationArea(chunkCoord);
         for (int z0 = 0; z0 < ChunkCoordinate.CHUNK_Z_SIZE; z0++)
         {
             for (int x0 = 0; x0 < ChunkCoordinate.CHUNK_X_SIZE; x0++)
             {
                 int x = chunkX + x0;
                 int z = chunkZ + z0;
-                spawn(world, random, false, x, z, chunkCoord);
+                spawn(world, area, x, z);
             }
         }
     }
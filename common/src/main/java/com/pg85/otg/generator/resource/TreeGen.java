@@ -6,6 +6,7 @@ import com.pg85.otg.configuration.ConfigFunction;
 import com.pg85.otg.configuration.biome.BiomeConfig;
 import com.pg85.otg.customobjects.CustomObject;
 import com.pg85.otg.exception.InvalidConfigException;
+import com.pg85.otg.generator.PopulationProfiler;
 import com.pg85.otg.logging.LogMarker;
 import com.pg85.otg.util.ChunkCoordinate;
 
@@ -149,7 +150,7 @@ public class TreeGen extends Resource
     	        			maxHeight = Integer.parseInt(sMaxHeight);
             			} catch(NumberFormatException ex) {  }	        				        			
 
-                		if(tree.spawnAsTree(world, random, x, z, minHeight, maxHeight, chunkCoord))
+                		if(spawnAsTree(tree, world, random, x, z, minHeight, maxHeight, chunkCoord))
                 		{
         	                // Success!
         	                break;
@@ -166,7 +167,7 @@ public class TreeGen extends Resource
                     		}
                     		continue;
                         }                        	        		
-                		if(tree.spawnAsTree(world, random, x, z, -1, -1, chunkCoord))
+                		if(spawnAsTree(tree, world, random, x, z, -1, -1, chunkCoord))
                 		{
         	                // Success!
         	                break;
@@ -176,4 +177,20 @@ public class TreeGen extends Resource
             }
         }    		
     }	
+
+    /**
+     * Spawns a tree, recording the attempt if the population profiler is enabled.
+     */
+    private boolean spawnAsTree(CustomObject tree, LocalWorld world, Random random, int x, int z, int minHeight, int maxHeight, ChunkCoordinate chunkCoord)
+    {
+        PopulationProfiler profiler = world.getObjectSpawner().profiler;
+        if (!profiler.isEnabled())
+        {
+            return tree.spawnAsTree(world, random, x, z, minHeight, maxHeight, chunkCoord);
+        }
+        long start = System.nanoTime();
+        boolean spawned = tree.spawnAsTree(world, random, x, z, minHeight, maxHeight, chunkCoord);
+        profiler.recordObject(tree.getName(), spawned, System.nanoTime() - start);
+        return spawned;
+    }
 }
@@ -3,6 +3,7 @@ package com.pg85.otg.generator.surface;
 import com.pg85.otg.common.LocalBiome;
 import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.common.PopulationArea;
 import com.pg85.otg.configuration.biome.BiomeConfig;
 import com.pg85.otg.configuration.standard.PluginStandardValues;
 import com.pg85.otg.configuration.standard.WorldStandardValues;
@@ -17,6 +18,7 @@ public class FrozenSurfaceHelper
     private final WorldConfig worldConfig;
     private final int maxPropagationSize = 15;
     private int currentPropagationSize = 0;
+    private PopulationArea area;
 	private int maxLayersOnLeaves = 3;
 
     public FrozenSurfaceHelper(LocalWorld world)
@@ -31,6 +33,7 @@ public class FrozenSurfaceHelper
      */
     public void freezeChunk(ChunkCoordinate chunkCoord)
     {
+        this.area = this.world.getPopulationArea(chunkCoord);
         int x = chunkCoord.getBlockXCenter();
         int z = chunkCoord.getBlockZCenter();
         for (int i = 0; i < ChunkCoordinate.CHUNK_X_SIZE; i++)
@@ -39,7 +42,7 @@ public class FrozenSurfaceHelper
             {
                 int blockToFreezeX = x + i;
                 int blockToFreezeZ = z + j;
-                freezeColumn(blockToFreezeX, blockToFreezeZ, chunkCoord);
+                freezeColumn(blockToFreezeX, blockToFreezeZ);
             }
         }
     }
@@ -49,21 +52,21 @@ public class FrozenSurfaceHelper
      * @param x Location X
      * @param z Location Z
      */
-    private void freezeColumn(int x, int z, ChunkCoordinate chunkBeingPopulated)
+    private void freezeColumn(int x, int z)
     {
-        LocalBiome biome = world.getBiome(x, z);
+        LocalBiome biome = this.area.getBiome(x, z);
         if (biome != null)
         {
-            int blockToFreezeY = world.getHighestBlockAboveYAt(x, z, chunkBeingPopulated);
+            int blockToFreezeY = this.area.getHighestBlockAboveYAt(x, z);
             float tempAtBlockToFreeze = biome.getTemperatureAt(x, blockToFreezeY, z);
             if (blockToFreezeY > 0 && tempAtBlockToFreeze < WorldStandardValues.SNOW_AND_ICE_TEMP)
             {
                 this.currentPropagationSize = 0;
                 // Start to freeze liquids
-                if (!this.freezeLiquid(x, blockToFreezeY -1, z, chunkBeingPopulated))
+                if (!this.freezeLiquid(x, blockToFreezeY -1, z))
                 {
                     // Snow has to be placed on an empty space on a block that accepts snow in the world
-                    startSnowFall(x, blockToFreezeY, z, biome, chunkBeingPopulated);
+                    startSnowFall(x, blockToFreezeY, z, biome);
                 }
             }
         }
@@ -76,18 +79,18 @@ public class FrozenSurfaceHelper
      * @param z Location Z
      * @return If a liquid was present at the given location (not necessarily successful in freezing)
      */
-    private boolean freezeLiquid(int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    private boolean freezeLiquid(int x, int y, int z)
     {
-        LocalBiome biome = world.getBiome(x, z);
+        LocalBiome biome = this.area.getBiome(x, z);
         if (biome != null)
         {
-            LocalMaterialData materialToFreeze = world.getMaterial(x, y, z, chunkBeingPopulated);
+            LocalMaterialData materialToFreeze = this.area.getMaterial(x, y, z);
             if (materialToFreeze.isLiquid())
             {
                 // Water & Stationary Water => IceBlock
-                freezeType(x, y, z, materialToFreeze, biome.getBiomeConfig().iceBlock, DefaultMaterial.WATER, DefaultMaterial.STATIONARY_WATER, chunkBeingPopulated);
+                freezeType(x, y, z, materialToFreeze, biome.getBiomeConfig().iceBlock, DefaultMaterial.WATER, DefaultMaterial.STATIONARY_WATER);
                 // Lava & Stationary Lava => CooledLavaBlock
-                freezeType(x, y, z, materialToFreeze, biome.getBiomeConfig().cooledLavaBlock, DefaultMaterial.LAVA, DefaultMaterial.STATIONARY_LAVA, chunkBeingPopulated);
+                freezeType(x, y, z, materialToFreeze, biome.getBiomeConfig().cooledLavaBlock, DefaultMaterial.LAVA, DefaultMaterial.STATIONARY_LAVA);
                 return true;
             }
         }
@@ -106,15 +109,15 @@ public class FrozenSurfaceHelper
      * @param check1 The first material to check for
      * @param check2 The second meterial to check for
      */
-    private void freezeType(int x, int y, int z, LocalMaterialData thawedMaterial, LocalMaterialData frozenMaterial, DefaultMaterial check1, DefaultMaterial check2, ChunkCoordinate chunkBeingPopulated)
+    private void freezeType(int x, int y, int z, LocalMaterialData thawedMaterial, LocalMaterialData frozenMaterial, DefaultMaterial check1, DefaultMaterial check2)
     {
         if ((thawedMaterial.isMaterial(check1) || thawedMaterial.isMaterial(check2)) && !frozenMaterial.isMaterial(check1) && !frozenMaterial.isMaterial(check2))
         {
-            world.setBlock(x, y, z, frozenMaterial, null, chunkBeingPopulated);
+            this.area.setBlock(x, y, z, frozenMaterial);
             if (worldConfig.fullyFreezeLakes && this.currentPropagationSize < this.maxPropagationSize)
             {
                 this.currentPropagationSize++;
-                propagateFreeze(x, y, z, chunkBeingPopulated);
+                propagateFreeze(x, y, z);
             }
         }
 
@@ -128,7 +131,7 @@ public class FrozenSurfaceHelper
      * @param z Location Z
      * @param biome The biome associated with the chunk column
      */
-    private void startSnowFall(int x, int y, int z, LocalBiome biome, ChunkCoordinate chunkBeingPopulated)
+    private void startSnowFall(int x, int y, int z, LocalBiome biome)
     {
         int decreaseFactor = 0;
         BiomeConfig biomeConfig = biome.getBiomeConfig();
@@ -150,8 +153,8 @@ public class FrozenSurfaceHelper
 			snowHeight - decreaseFactor >= 0
 		)
         {
-            materialToSnowAt = world.getMaterial(x, y, z, chunkBeingPopulated);
-            materialToSnowOn = world.getMaterial(x, y - 1, z, chunkBeingPopulated);            
+            materialToSnowAt = this.area.getMaterial(x, y, z);
+            materialToSnowOn = this.area.getMaterial(x, y - 1, z);            
             if (
         		materialToSnowAt != null &&
         		materialToSnowOn != null &&
@@ -160,7 +163,7 @@ public class FrozenSurfaceHelper
     		)
             {
             	// If we've spawned all snow layers, exit.
-                if(this.setSnowFallAtLocation(x, y, z, snowHeight - decreaseFactor, materialToSnowOn, chunkBeingPopulated))
+                if(this.setSnowFallAtLocation(x, y, z, snowHeight - decreaseFactor, materialToSnowOn))
                 {
                 	break;
                 }
@@ -184,7 +187,7 @@ public class FrozenSurfaceHelper
      * @param baseSnowHeight The base height snow should be
      * @param materialToSnowOn The material that might have snow applied
      */
-    private boolean setSnowFallAtLocation(int x, int y, int z, int baseSnowHeight, LocalMaterialData materialToSnowOn, ChunkCoordinate chunkBeingPopulated)
+    private boolean setSnowFallAtLocation(int x, int y, int z, int baseSnowHeight, LocalMaterialData materialToSnowOn)
     {
         LocalMaterialData snowMass;
         if (materialToSnowOn.isMaterial(DefaultMaterial.LEAVES) || materialToSnowOn.isMaterial(DefaultMaterial.LEAVES_2))
@@ -192,13 +195,13 @@ public class FrozenSurfaceHelper
             // Snow Layer(s) for trees, let each leaf carry maxLayersOnLeaves or less layers of snow,
         	// any remaining layers will fall through.
         	snowMass = MaterialHelper.toLocalMaterialData(DefaultMaterial.SNOW, baseSnowHeight <= maxLayersOnLeaves - 1 ? baseSnowHeight : maxLayersOnLeaves - 1);
-            world.setBlock(x, y, z, snowMass, null, chunkBeingPopulated);
+            this.area.setBlock(x, y, z, snowMass);
             return baseSnowHeight <= maxLayersOnLeaves - 1;
         }
         
         // Basic Snow Layer(s)
         snowMass = MaterialHelper.toLocalMaterialData(DefaultMaterial.SNOW, baseSnowHeight);
-        world.setBlock(x, y, z, snowMass, null, chunkBeingPopulated);
+        this.area.setBlock(x, y, z, snowMass);
         return true;
     }
 
@@ -208,16 +211,16 @@ public class FrozenSurfaceHelper
      * @param y Location Y
      * @param z Location Z
      */
-    private void propagateFreeze(int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    private void propagateFreeze(int x, int y, int z)
     {
-        this.propagationHelper(x+1, y, z, chunkBeingPopulated);
-        this.propagationHelper(x+1, y, z+1, chunkBeingPopulated);
-        this.propagationHelper(x, y, z+1, chunkBeingPopulated);
-        this.propagationHelper(x-1, y, z+1, chunkBeingPopulated);
-        this.propagationHelper(x-1, y, z, chunkBeingPopulated);
-        this.propagationHelper(x-1, y, z-1, chunkBeingPopulated);
-        this.propagationHelper(x, y, z-1, chunkBeingPopulated);
-        this.propagationHelper(x+1, y, z-1, chunkBeingPopulated);
+        this.propagationHelper(x+1, y, z);
+        this.propagationHelper(x+1, y, z+1);
+        this.propagationHelper(x, y, z+1);
+        this.propagationHelper(x-1, y, z+1);
+        this.propagationHelper(x-1, y, z);
+        this.propagationHelper(x-1, y, z-1);
+        this.propagationHelper(x, y, z-1);
+        this.propagationHelper(x+1, y, z-1);
     }
 
     /**
@@ -226,11 +229,11 @@ public class FrozenSurfaceHelper
      * @param y Location Y
      * @param z Location Z
      */
-    private void propagationHelper(int x, int y, int z, ChunkCoordinate chunkBeingPopulated)
+    private void propagationHelper(int x, int y, int z)
     {
-        if (world.getHighestBlockAboveYAt(x, z, chunkBeingPopulated) - 1 > y && this.currentPropagationSize < this.maxPropagationSize)
+        if (this.area.getHighestBlockAboveYAt(x, z) - 1 > y && this.currentPropagationSize < this.maxPropagationSize)
         {
-            this.freezeLiquid(x, y, z, chunkBeingPopulated);
+            this.freezeLiquid(x, y, z);
         }
     }
 }
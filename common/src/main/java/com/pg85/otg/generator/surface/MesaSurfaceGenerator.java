@@ -19,7 +19,8 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
     public static final String NAME_BRYCE = "MesaBryce";
 
     private LocalMaterialData[] clayBands;
-    private long worldSeed;
+    private volatile long worldSeed;
+    private volatile boolean initialized;
     private boolean hasForest;
     private boolean brycePillars;
     private NoiseGeneratorPerlinMesaBlocks pillarNoise;
@@ -174,11 +175,15 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
         return this.clayBands[(yInWorld + l + 64) % 64];
     }
 
-    // net.minecraft.world.biome.BiomeMesa.genTerrainBlocks
-    @Override
-    public void spawn(LocalWorld world, GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, int xInWorld, int zInWorld)
-    {    	
-        long worldSeed = world.getSeed();
+    // Terrain may be generated on several threads at once, make sure the
+    // bands and noise are fully built before any thread uses them.
+    private synchronized void initNoise(long worldSeed)
+    {
+        if (this.initialized && this.worldSeed == worldSeed)
+        {
+            return;
+        }
+
         if (this.clayBands == null || this.worldSeed != worldSeed)
         {
             this.generateBands(worldSeed);
@@ -190,12 +195,25 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
             this.pillarNoise = new NoiseGeneratorPerlinMesaBlocks(random, 4);
             this.pillarRoofNoise = new NoiseGeneratorPerlinMesaBlocks(random, 1);
         }
+
+        this.worldSeed = worldSeed;
+        this.initialized = true;
+    }
+
+    // net.minecraft.world.biome.BiomeMesa.genTerrainBlocks
+    @Override
+    public void spawn(LocalWorld world, GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, int xInWorld, int zInWorld)
+    {    	
+        long worldSeed = world.getSeed();
+        if (!this.initialized || this.worldSeed != worldSeed)
+        {
+            this.initNoise(worldSeed);
+        }
         
         int x = xInWorld & 15;
         int z = zInWorld & 15;
         double noise = generatingChunk.getNoise(x, z);
         
-    	this.worldSeed = worldSeed;
         // Bryce spike calculations
         double bryceHeight = 0.0D;
         if (this.brycePillars)
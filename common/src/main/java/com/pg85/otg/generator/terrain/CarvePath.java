@@ -0,0 +1,68 @@
+package com.pg85.otg.generator.terrain;
+
+/**
+ * Path of a cave tunnel or ravine, the result of the random walk started in
+ * an origin chunk. The walk doesn't depend on the chunk being carved, so it
+ * is done once and then used to carve all chunks in range of the origin,
+ * see {@link TerrainGenBase#generate(com.pg85.otg.generator.ChunkBuffer)}.
+ *
+ * Only the steps that carve are stored. Instances are immutable once
+ * created, so they can be shared between threads.
+ */
+final class CarvePath
+{
+    /**
+     * Amount of steps of the walk, used to stop carving chunks that are
+     * too far away for the rest of the walk to reach.
+     */
+    final int length;
+    final float width;
+    /**
+     * Whether carving stops after the first step that could be carved into
+     * a chunk, used for the large cave nodes.
+     */
+    final boolean carveOnce;
+    /**
+     * Height of the walls at each y for ravines, null for caves.
+     */
+    final float[] wallProfile;
+    /**
+     * Paths that branch off at the end of this path, null if the path
+     * doesn't branch.
+     */
+    CarvePath[] branches;
+
+    int stepCount = 0;
+    int[] step;
+    double[] x;
+    double[] y;
+    double[] z;
+    double[] horizontalRadius;
+    double[] verticalRadius;
+
+    CarvePath(int length, float width, boolean carveOnce, float[] wallProfile, int maxSteps)
+    {
+        this.length = length;
+        this.width = width;
+        this.carveOnce = carveOnce;
+        this.wallProfile = wallProfile;
+        int capacity = Math.max(maxSteps, 0);
+        this.step = new int[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.z = new double[capacity];
+        this.horizontalRadius = new double[capacity];
+        this.verticalRadius = new double[capacity];
+    }
+
+    void addStep(int step, double x, double y, double z, double horizontalRadius, double verticalRadius)
+    {
+        this.step[this.stepCount] = step;
+        this.x[this.stepCount] = x;
+        this.y[this.stepCount] = y;
+        this.z[this.stepCount] = z;
+        this.horizontalRadius[this.stepCount] = horizontalRadius;
+        this.verticalRadius[this.stepCount] = verticalRadius;
+        this.stepCount++;
+    }
+}
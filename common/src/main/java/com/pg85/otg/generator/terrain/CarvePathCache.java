@@ -0,0 +1,103 @@
+package com.pg85.otg.generator.terrain;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Thread-safe cache of the carve paths started in each origin chunk, keyed
+ * on packed chunk coordinates. Bounded by the amount of origin chunks,
+ * evicts the least recently used origins first.
+ *
+ * Every chunk being carved looks up all origins in range, so the cache is
+ * split into stripes, each with its own lock, to keep threads generating
+ * chunks at the same time from contending on a single lock.
+ */
+final class CarvePathCache
+{
+    private static final int STRIPE_COUNT = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    /**
+     * @param capacity The maximum amount of origin chunks held by the cache.
+     */
+    CarvePathCache(int capacity)
+    {
+        int stripeCapacity = Math.max(1, (capacity + STRIPE_COUNT - 1) / STRIPE_COUNT);
+        for (int i = 0; i < STRIPE_COUNT; i++)
+        {
+            this.stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    static long toKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Murmur3 finalizer, spreads neighbouring origins over all stripes.
+    private Stripe getStripe(long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return this.stripes[(int) (key >>> 60) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * @return The paths, or null if the origin chunk is not cached.
+     */
+    CarvePath[] get(long key)
+    {
+        Stripe stripe = getStripe(key);
+        synchronized (stripe)
+        {
+            return stripe.get(Long.valueOf(key));
+        }
+    }
+
+    void put(long key, CarvePath[] paths)
+    {
+        Stripe stripe = getStripe(key);
+        synchronized (stripe)
+        {
+            stripe.put(Long.valueOf(key), paths);
+        }
+    }
+
+    void clear()
+    {
+        for (Stripe stripe : this.stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Access ordered, the eldest entry is the least recently used. Not
+     * thread-safe, callers lock the stripe.
+     */
+    private static class Stripe extends LinkedHashMap<Long, CarvePath[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<Long, CarvePath[]> eldest)
+        {
+            return size() > this.capacity;
+        }
+    }
+}
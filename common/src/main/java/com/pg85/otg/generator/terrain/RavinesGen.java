@@ -15,7 +15,6 @@ import java.util.Random;
 
 public class RavinesGen extends TerrainGenBase
 {
-    private float[] a = new float[1024];
     private WorldConfig worldSettings;
 
     public RavinesGen(WorldConfig wrk, LocalWorld world)
@@ -24,19 +23,14 @@ public class RavinesGen extends TerrainGenBase
         this.worldSettings = wrk;
     }
 
-    private void placeBlocks(long paramLong, ChunkBuffer generatingChunkBuffer, double paramDouble1, double paramDouble2, double paramDouble3, float paramFloat1, float paramFloat2, float paramFloat3, int size, double paramDouble4)
+    private CarvePath createRavine(long paramLong, double paramDouble1, double paramDouble2, double paramDouble3, float paramFloat1, float paramFloat2, float paramFloat3, int size, double paramDouble4)
     {
         Random localRandom = new Random(paramLong);
-
-        ChunkCoordinate generatingChunk = generatingChunkBuffer.getChunkCoordinate();
-        double d1 = generatingChunk.getBlockXCenter();
-        double d2 = generatingChunk.getBlockZCenter();
+        float[] a = new float[1024];
 
         float f1 = 0.0F;
         float f2 = 0.0F;
 
-        int i = 0;
-
         float f3 = 1.0F;
         for (int j = 0; ; j++)
         {
@@ -48,38 +42,16 @@ public class RavinesGen extends TerrainGenBase
             {
                 f3 = 1.0F + localRandom.nextFloat() * localRandom.nextFloat() * 1.0F;
             }
-            this.a[j] = (f3 * f3);
+            a[j] = (f3 * f3);
         }
 
+        CarvePath path = new CarvePath(size, paramFloat1, false, a, size);
+
         double d3;
         double d4;
         float f4;
         float f5;
-        double d5;
-        double d6;
-        double d7;
-        double d8;
-        double d9;
-        int k;
-        int m;
-        int maxDepth;
-        int minDepth;
-        int i2;
-        int i3;
-        int i4;
-        DefaultMaterial materialAtPosition;
-        
-        LocalBiome biome;
-        BiomeConfig biomeConfig;
-        DefaultMaterial surfaceblockDefaultMaterial;
-        double d10;
-        boolean surfaceBlockFound;
-        LocalMaterialData surfaceBlockMaterial;
-        
-    	LocalMaterialData material;
-        DefaultMaterial defaultMaterial;
-        DefaultMaterial block;
-        
+
         for (int stepCount = 0; stepCount < size; stepCount++)
         {
             d3 = 1.5D + MathHelper.sin(stepCount * 3.141593F / size) * paramFloat1 * 1.0F;
@@ -104,131 +76,157 @@ public class RavinesGen extends TerrainGenBase
             f2 += (localRandom.nextFloat() - localRandom.nextFloat()) * localRandom.nextFloat() * 2.0F;
             f1 += (localRandom.nextFloat() - localRandom.nextFloat()) * localRandom.nextFloat() * 4.0F;
 
-            if ((i == 0) && (localRandom.nextInt(4) == 0))
+            if (localRandom.nextInt(4) == 0)
             {
                 continue;
             }
-            d5 = paramDouble1 - d1;
-            d6 = paramDouble3 - d2;
-            d7 = size - stepCount;
-            d8 = paramFloat1 + 2.0F + 16.0F;
-            if (d5 * d5 + d6 * d6 - d7 * d7 > d8 * d8)
-            {
-                return;
-            }
 
-            if ((paramDouble1 < d1 - 16.0D - d3 * 2.0D) || (paramDouble3 < d2 - 16.0D - d3 * 2.0D) || (paramDouble1 > d1 + 16.0D + d3 * 2.0D) || (paramDouble3 > d2 + 16.0D + d3 * 2.0D))
-            {
-                continue;
-            }
-            k = MathHelper.floor(paramDouble1 - d3) - generatingChunk.getBlockX() - 1;
-            m = MathHelper.floor(paramDouble1 + d3) - generatingChunk.getBlockX() + 1;
+            path.addStep(stepCount, paramDouble1, paramDouble2, paramDouble3, d3, d4);
+        }
+        return path;
+    }
 
-            maxDepth = MathHelper.floor(paramDouble2 - d4) - 1;
-            minDepth = MathHelper.floor(paramDouble2 + d4) + 1;
+    @Override
+    protected boolean carveNode(CarvePath path, int node, ChunkBuffer generatingChunkBuffer)
+    {
+        ChunkCoordinate generatingChunk = generatingChunkBuffer.getChunkCoordinate();
+        float[] a = path.wallProfile;
 
-            i2 = MathHelper.floor(paramDouble3 - d3) - generatingChunk.getBlockZ() - 1;
-            i3 = MathHelper.floor(paramDouble3 + d3) - generatingChunk.getBlockZ() + 1;
+        double paramDouble1 = path.x[node];
+        double paramDouble2 = path.y[node];
+        double paramDouble3 = path.z[node];
+        double d3 = path.horizontalRadius[node];
+        double d4 = path.verticalRadius[node];
 
-            if (k < 0)
-            {
-                k = 0;
-            }
-            if (m > 16)
-            {
-                m = 16;
-            }
-            if (maxDepth < 1)
-            {
-                maxDepth = 1;
-            }
-            if (minDepth > worldSettings.worldHeightCap - 8)
-            {
-                minDepth = worldSettings.worldHeightCap - 8;
-            }
+        double d9;
+        int k;
+        int m;
+        int maxDepth;
+        int minDepth;
+        int i2;
+        int i3;
+        int i4;
+        DefaultMaterial materialAtPosition;
+        
+        LocalBiome biome;
+        BiomeConfig biomeConfig;
+        DefaultMaterial surfaceblockDefaultMaterial;
+        double d10;
+        boolean surfaceBlockFound;
+        LocalMaterialData surfaceBlockMaterial;
+        
+    	LocalMaterialData material;
+        DefaultMaterial defaultMaterial;
+        DefaultMaterial block;
 
-            if (i2 < 0)
-            {
-                i2 = 0;
-            }
-            if (i3 > 16)
-            {
-                i3 = 16;
-            }
+        k = MathHelper.floor(paramDouble1 - d3) - generatingChunk.getBlockX() - 1;
+        m = MathHelper.floor(paramDouble1 + d3) - generatingChunk.getBlockX() + 1;
+
+        maxDepth = MathHelper.floor(paramDouble2 - d4) - 1;
+        minDepth = MathHelper.floor(paramDouble2 + d4) + 1;
+
+        i2 = MathHelper.floor(paramDouble3 - d3) - generatingChunk.getBlockZ() - 1;
+        i3 = MathHelper.floor(paramDouble3 + d3) - generatingChunk.getBlockZ() + 1;
+
+        if (k < 0)
+        {
+            k = 0;
+        }
+        if (m > 16)
+        {
+            m = 16;
+        }
+        if (maxDepth < 1)
+        {
+            maxDepth = 1;
+        }
+        if (minDepth > worldSettings.worldHeightCap - 8)
+        {
+            minDepth = worldSettings.worldHeightCap - 8;
+        }
+
+        if (i2 < 0)
+        {
+            i2 = 0;
+        }
+        if (i3 > 16)
+        {
+            i3 = 16;
+        }
 
-            i4 = 0;
-            for (int localX = k; (i4 == 0) && (localX < m); localX++)
+        i4 = 0;
+        for (int localX = k; (i4 == 0) && (localX < m); localX++)
+        {
+            for (int localZ = i2; (i4 == 0) && (localZ < i3); localZ++)
             {
-                for (int localZ = i2; (i4 == 0) && (localZ < i3); localZ++)
+                for (int localY = minDepth + 1; (i4 == 0) && (localY >= maxDepth - 1); localY--)
                 {
-                    for (int localY = minDepth + 1; (i4 == 0) && (localY >= maxDepth - 1); localY--)
+                    if (localY < 0)
                     {
-                        if (localY < 0)
+                        continue;
+                    }
+                    if (localY < worldSettings.worldHeightCap)
+                    {
+                        materialAtPosition = generatingChunkBuffer.getBlock(localX, localY, localZ).toDefaultMaterial();
+                        if (
+                    		materialAtPosition == DefaultMaterial.WATER || 
+                    		materialAtPosition == DefaultMaterial.STATIONARY_WATER
+                		)
                         {
-                            continue;
+                            i4 = 1;
                         }
-                        if (localY < worldSettings.worldHeightCap)
+                        if ((localY != maxDepth - 1) && (localX != k) && (localX != m - 1) && (localZ != i2) && (localZ != i3 - 1))
                         {
-                            materialAtPosition = generatingChunkBuffer.getBlock(localX, localY, localZ).toDefaultMaterial();
-                            if (
-                        		materialAtPosition == DefaultMaterial.WATER || 
-                        		materialAtPosition == DefaultMaterial.STATIONARY_WATER
-                    		)
-                            {
-                                i4 = 1;
-                            }
-                            if ((localY != maxDepth - 1) && (localX != k) && (localX != m - 1) && (localZ != i2) && (localZ != i3 - 1))
-                            {
-                                localY = maxDepth;
-                            }
+                            localY = maxDepth;
                         }
                     }
                 }
             }
-            if (i4 != 0)
-            {
-                continue;
-            }
-            for (int localX = k; localX < m; localX++)
+        }
+        if (i4 != 0)
+        {
+            return false;
+        }
+        for (int localX = k; localX < m; localX++)
+        {
+            d9 = (localX + generatingChunk.getBlockX() + 0.5D - paramDouble1) / d3;
+            for (int localZ = i2; localZ < i3; localZ++)
             {
-                d9 = (localX + generatingChunk.getBlockX() + 0.5D - paramDouble1) / d3;
-                for (int localZ = i2; localZ < i3; localZ++)
+                biome = world.getBiome(localZ + generatingChunk.getBlockX(), localX + generatingChunk.getBlockZ());
+                biomeConfig = biome.getBiomeConfig();
+                surfaceblockDefaultMaterial = biomeConfig.surfaceBlock.toDefaultMaterial();
+                d10 = (localZ + generatingChunk.getBlockZ() + 0.5D - paramDouble3) / d3;
+                surfaceBlockFound = false;
+                surfaceBlockMaterial = null;
+                if (d9 * d9 + d10 * d10 < 1.0D)
                 {
-                    biome = world.getBiome(localZ + generatingChunk.getBlockX(), localX + generatingChunk.getBlockZ());
-                    biomeConfig = biome.getBiomeConfig();
-                    surfaceblockDefaultMaterial = biomeConfig.surfaceBlock.toDefaultMaterial();
-                    d10 = (localZ + generatingChunk.getBlockZ() + 0.5D - paramDouble3) / d3;
-                    surfaceBlockFound = false;
-                    surfaceBlockMaterial = null;
-                    if (d9 * d9 + d10 * d10 < 1.0D)
+                	// If surfaceBlock is found then replace the bottom block with surfaceblock
+                    for (int currentDepth = minDepth; currentDepth >= maxDepth; currentDepth--)
                     {
-                    	// If surfaceBlock is found then replace the bottom block with surfaceblock
-                        for (int currentDepth = minDepth; currentDepth >= maxDepth; currentDepth--)
+                        double d11 = ((currentDepth - 1) + 0.5D - paramDouble2) / d4;
+                        if ((d9 * d9 + d10 * d10) * a[currentDepth - 1] + d11 * d11 / 6.0D < 1.0D)
                         {
-                            double d11 = ((currentDepth - 1) + 0.5D - paramDouble2) / d4;
-                            if ((d9 * d9 + d10 * d10) * this.a[currentDepth - 1] + d11 * d11 / 6.0D < 1.0D)
+                        	material = generatingChunkBuffer.getBlock(localX, currentDepth, localZ);
+                            defaultMaterial = material.toDefaultMaterial();
+                            
+                            if (!surfaceBlockFound && defaultMaterial == surfaceblockDefaultMaterial)
                             {
-                            	material = generatingChunkBuffer.getBlock(localX, currentDepth, localZ);
-                                defaultMaterial = material.toDefaultMaterial();
-                                
-                                if (!surfaceBlockFound && defaultMaterial == surfaceblockDefaultMaterial)
-                                {
-                                	surfaceBlockFound = true;
-                                	surfaceBlockMaterial = material;
-                                }
-                                
-                                if (
-                            		defaultMaterial != DefaultMaterial.BEDROCK &&
-                    				!defaultMaterial.isAir()
-                        		)
-                                {                               	
-                                    generatingChunkBuffer.setBlock(localX, currentDepth, localZ, air);
-                                }
-                                
-                                block = generatingChunkBuffer.getBlock(localX, currentDepth - 1, localZ).toDefaultMaterial();
-                                if (
-                            		surfaceBlockFound &&
-                            		(
+                            	surfaceBlockFound = true;
+                            	surfaceBlockMaterial = material;
+                            }
+                            
+                            if (
+                        		defaultMaterial != DefaultMaterial.BEDROCK &&
+                				!defaultMaterial.isAir()
+                    		)
+                            {                               	
+                                generatingChunkBuffer.setBlock(localX, currentDepth, localZ, air);
+                            }
+                            
+                            block = generatingChunkBuffer.getBlock(localX, currentDepth - 1, localZ).toDefaultMaterial();
+                            if (
+                        		surfaceBlockFound &&
+                        		(
 	                                	block != DefaultMaterial.BEDROCK &&
 										block != DefaultMaterial.WATER &&
 										block != DefaultMaterial.STATIONARY_WATER &&
@@ -236,45 +234,43 @@ public class RavinesGen extends TerrainGenBase
 										block != DefaultMaterial.STATIONARY_LAVA &&
 										block != DefaultMaterial.MAGMA &&
 										!block.isAir()
-                    				)
-                                )
-                                {
-                                    generatingChunkBuffer.setBlock(localX, currentDepth - 1, localZ, surfaceBlockMaterial);
-                                }
+                				)
+                            )
+                            {
+                                generatingChunkBuffer.setBlock(localX, currentDepth - 1, localZ, surfaceBlockMaterial);
                             }
                         }
                     }
                 }
             }
-            if (i != 0)
-            {
-                break;
-            }
         }
+        return true;
     }
 
     @Override
-    protected void generateChunk(ChunkCoordinate currentChunk, ChunkBuffer generatingChunkBuffer)
+    protected CarvePath[] createPaths(Random random, ChunkCoordinate currentChunk)
     {
-        if (this.random.nextInt(100) >= this.worldSettings.ravineRarity)
+        if (random.nextInt(100) >= this.worldSettings.ravineRarity)
         {
-            return;
+            return NO_PATHS;
         }
-        double d1 = currentChunk.getBlockX() + this.random.nextInt(ChunkCoordinate.CHUNK_X_SIZE);
+        double d1 = currentChunk.getBlockX() + random.nextInt(ChunkCoordinate.CHUNK_X_SIZE);
         double d2 = RandomHelper.numberInRange(random, this.worldSettings.ravineMinAltitude, this.worldSettings.ravineMaxAltitude);
-        double d3 = currentChunk.getBlockZ() + this.random.nextInt(ChunkCoordinate.CHUNK_Z_SIZE);
+        double d3 = currentChunk.getBlockZ() + random.nextInt(ChunkCoordinate.CHUNK_Z_SIZE);
 
         int i = 1;
 
+        CarvePath[] paths = new CarvePath[i];
         for (int j = 0; j < i; j++)
         {
-            float f1 = this.random.nextFloat() * 3.141593F * 2.0F;
-            float f2 = (this.random.nextFloat() - 0.5F) * 2.0F / 8.0F;
-            float f3 = (this.random.nextFloat() * 2.0F + this.random.nextFloat()) * 2.0F;
+            float f1 = random.nextFloat() * 3.141593F * 2.0F;
+            float f2 = (random.nextFloat() - 0.5F) * 2.0F / 8.0F;
+            float f3 = (random.nextFloat() * 2.0F + random.nextFloat()) * 2.0F;
 
             int size = RandomHelper.numberInRange(random, this.worldSettings.ravineMinLength, this.worldSettings.ravineMaxLength);
 
-            placeBlocks(this.random.nextLong(), generatingChunkBuffer, d1, d2, d3, f3, f1, f2, size, this.worldSettings.ravineDepth);
+            paths[j] = createRavine(random.nextLong(), d1, d2, d3, f3, f1, f2, size, this.worldSettings.ravineDepth);
         }
+        return paths;
     }
 }
\ No newline at end of file
@@ -16,44 +16,143 @@ public abstract class TerrainGenBase
     protected final LocalMaterialData lava = MaterialHelper.toLocalMaterialData(DefaultMaterial.STATIONARY_LAVA, 0);
 
     protected int checkAreaSize = 8;
-    protected Random random = new Random();
     protected LocalWorld world;
     private final long worldLong1;
     private final long worldLong2;
+    private final CarvePathCache pathCache = new CarvePathCache(2048);
+    protected static final CarvePath[] NO_PATHS = new CarvePath[0];
 
     TerrainGenBase(LocalWorld world)
     {
         this.world = world;
-        this.random.setSeed(this.world.getSeed());
-        worldLong1 = this.random.nextLong();
-        worldLong2 = this.random.nextLong();
+        Random random = new Random(this.world.getSeed());
+        worldLong1 = random.nextLong();
+        worldLong2 = random.nextLong();
     }
 
+    /**
+     * Carves this structure into the given chunk. All random state is local
+     * to the call, so different chunks may be carved from several threads
+     * at once.
+     *
+     * The paths started in each origin chunk are cached, so the random walks
+     * are done once instead of once for every chunk in range of the origin.
+     *
+     * @param chunkBuffer The chunk that is currently being generated.
+     */
     public void generate(ChunkBuffer chunkBuffer)
     {
+        Random random = null;
         int i = this.checkAreaSize;
         ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
         int chunkX = chunkCoord.getChunkX();
         int chunkZ = chunkCoord.getChunkZ();
 
+        long key;
+        CarvePath[] paths;
         for (int x = chunkX - i; x <= chunkX + i; x++)
             for (int z = chunkZ - i; z <= chunkZ + i; z++)
             {
-                long l3 = x * worldLong1;
-                long l4 = z * worldLong2;
-                this.random.setSeed(l3 ^ l4 ^ this.world.getSeed());
-                generateChunk(ChunkCoordinate.fromChunkCoords(x, z), chunkBuffer);
+                key = CarvePathCache.toKey(x, z);
+                paths = this.pathCache.get(key);
+                if (paths == null)
+                {
+                    if (random == null)
+                    {
+                        random = new Random();
+                    }
+                    long l3 = x * worldLong1;
+                    long l4 = z * worldLong2;
+                    random.setSeed(l3 ^ l4 ^ this.world.getSeed());
+                    paths = createPaths(random, ChunkCoordinate.fromChunkCoords(x, z));
+                    this.pathCache.put(key, paths);
+                }
+                for (CarvePath path : paths)
+                {
+                    carvePath(path, chunkBuffer);
+                }
             }
     }
 
     /**
-     * Generates the structure for the given chunk. The terrain generator
-     * calls this method for all chunks not more than {@link #checkAreaSize}
-     * chunks away on either axis from the generatingChunk.
+     * Carves a path and its branches into the given chunk. Stops when the
+     * rest of the path can no longer reach the chunk.
+     *
+     * @param path                  The path to carve.
+     * @param generatingChunkBuffer The chunk that is currently being
+     *                              generated.
+     */
+    private void carvePath(CarvePath path, ChunkBuffer generatingChunkBuffer)
+    {
+        ChunkCoordinate generatingChunk = generatingChunkBuffer.getChunkCoordinate();
+        double real_x = generatingChunk.getBlockXCenter();
+        double real_z = generatingChunk.getBlockZCenter();
+        double d8 = path.width + 2.0F + 16.0F;
+
+        double x;
+        double z;
+        double d3;
+        double d5;
+        double d6;
+        double d7;
+        for (int node = 0; node < path.stepCount; node++)
+        {
+            x = path.x[node];
+            z = path.z[node];
+            d3 = path.horizontalRadius[node];
+
+            // Check if distance to working point (x and z) too larger than working radius (maybe ??)
+            d5 = x - real_x;
+            d6 = z - real_z;
+            d7 = path.length - path.step[node];
+            if (d5 * d5 + d6 * d6 - d7 * d7 > d8 * d8)
+            {
+                return;
+            }
+
+            //Boundaries check.
+            if ((x < real_x - 16.0D - d3 * 2.0D) || (z < real_z - 16.0D - d3 * 2.0D) || (x > real_x + 16.0D + d3 * 2.0D) || (z > real_z + 16.0D + d3 * 2.0D))
+            {
+                continue;
+            }
+
+            if (carveNode(path, node, generatingChunkBuffer) && path.carveOnce)
+            {
+                return;
+            }
+        }
+
+        if (path.branches != null)
+        {
+            for (CarvePath branch : path.branches)
+            {
+                carvePath(branch, generatingChunkBuffer);
+            }
+        }
+    }
+
+    /**
+     * Creates the paths that start in the given chunk. The terrain generator
+     * carves the paths into all chunks not more than {@link #checkAreaSize}
+     * chunks away on either axis from the origin chunk. Paths must not
+     * depend on the chunk being generated, as they are cached.
+     *
+     * @param random      Random seeded for the chunk we're searching.
+     * @param originChunk The chunk we're searching.
+     * @return The paths, in the order they must be carved.
+     */
+    protected abstract CarvePath[] createPaths(Random random, ChunkCoordinate originChunk);
+
+    /**
+     * Carves a single node of a path into the given chunk. Only called for
+     * nodes close enough to the chunk to affect it.
      *
-     * @param currentChunk          The chunk we're searching.
+     * @param path                  The path the node belongs to.
+     * @param node                  Index of the node in the path.
      * @param generatingChunkBuffer The chunk that is currently being
      *                              generated.
+     * @return False if the node was skipped because of nearby water, true
+     *         otherwise.
      */
-    protected abstract void generateChunk(ChunkCoordinate currentChunk, ChunkBuffer generatingChunkBuffer);
+    protected abstract boolean carveNode(CarvePath path, int node, ChunkBuffer generatingChunkBuffer);
 }
@@ -39,11 +39,23 @@ public class CompressionUtils
 		inflater.setInput(data);  
 		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);  
 		byte[] buffer = new byte[1024];  
-		while (!inflater.finished())
-		{  
-			int count = inflater.inflate(buffer);  
-			outputStream.write(buffer, 0, count);  
-		}  
+		try
+		{
+			while (!inflater.finished())
+			{  
+				int count = inflater.inflate(buffer);  
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				{
+					// Truncated data, would otherwise loop forever
+					throw new DataFormatException("Unexpected end of compressed data");
+				}
+				outputStream.write(buffer, 0, count);  
+			}  
+		}
+		finally
+		{
+			inflater.end();
+		}
 		outputStream.close();  
 		byte[] output = outputStream.toByteArray();  
 		if(OTG.getPluginConfig().spawnLog)
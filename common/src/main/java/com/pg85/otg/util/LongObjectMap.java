@@ -0,0 +1,161 @@
+package com.pg85.otg.util;
+
+/**
+ * Hash map with primitive long keys, so lookups don't box the key or
+ * allocate. Uses open addressing with linear probing, and grows when more
+ * than half full. Not thread-safe.
+ *
+ * @param <V> Type of the values, null values are not supported.
+ */
+public class LongObjectMap<V>
+{
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    public LongObjectMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize The amount of entries the map should hold without
+     *                     growing.
+     */
+    public LongObjectMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Murmur3 finalizer, spreads neighbouring chunks over the table.
+    private static int hash(long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it
+     * should be inserted.
+     */
+    private int findSlot(long key)
+    {
+        int slot = hash(key) & this.mask;
+        while (this.values[slot] != null && this.keys[slot] != key)
+        {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return The value, or null if the key is not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        return (V) this.values[findSlot(key)];
+    }
+
+    /**
+     * @return The previous value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int slot = findSlot(key);
+        V previous = (V) this.values[slot];
+        if (previous == null)
+        {
+            if ((this.size + 1) * 2 > this.keys.length)
+            {
+                grow();
+                slot = findSlot(key);
+            }
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] = value;
+        return previous;
+    }
+
+    /**
+     * @return The removed value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        int slot = findSlot(key);
+        V previous = (V) this.values[slot];
+        if (previous == null)
+        {
+            return null;
+        }
+        this.values[slot] = null;
+        this.size--;
+
+        // Move back entries after the removed one that would otherwise no
+        // longer be found, so no tombstones are needed.
+        int empty = slot;
+        int next = (slot + 1) & this.mask;
+        int home;
+        while (this.values[next] != null)
+        {
+            home = hash(this.keys[next]) & this.mask;
+            if (((next - home) & this.mask) >= ((next - empty) & this.mask))
+            {
+                this.keys[empty] = this.keys[next];
+                this.values[empty] = this.values[next];
+                this.values[next] = null;
+                empty = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        return previous;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public void clear()
+    {
+        for (int i = 0; i < this.values.length; i++)
+        {
+            this.values[i] = null;
+        }
+        this.size = 0;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new Object[oldValues.length * 2];
+        this.mask = this.keys.length - 1;
+        int slot;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldValues[i] != null)
+            {
+                slot = findSlot(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -11,7 +11,8 @@ public enum OTGPerm
     CMD_RELOAD("cmd.reload"),
     CMD_SPAWN("cmd.spawn"), 
     CMD_LOOKUP("cmd.lookup"), 
-    CMD_EXPORT("cmd.export");
+    CMD_EXPORT("cmd.export"),
+    CMD_PROFILE("cmd.profile");
 
     public final String node;
 
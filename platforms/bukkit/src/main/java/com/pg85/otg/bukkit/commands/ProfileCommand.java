@@ -0,0 +1,86 @@
+package com.pg85.otg.bukkit.commands;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.bukkit.OTGPerm;
+import com.pg85.otg.bukkit.OTGPlugin;
+import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.generator.PopulationProfiler;
+import com.pg85.otg.logging.LogMarker;
+
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class ProfileCommand extends BaseCommand
+{
+    ProfileCommand(OTGPlugin _plugin)
+    {
+        super(_plugin);
+        name = "profile";
+        perm = OTGPerm.CMD_PROFILE.node;
+        usage = "profile [start/stop/reset/dump] [csv/json]";
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, List<String> args)
+    {
+        LocalWorld world = this.getWorld(sender, "");
+        if (world == null)
+        {
+            sender.sendMessage(ERROR_COLOR + "You need to be in an OTG world to use this command.");
+            return true;
+        }
+        PopulationProfiler profiler = world.getObjectSpawner().profiler;
+
+        String action = args.isEmpty() ? "" : args.get(0).toLowerCase();
+        if (action.equals("start"))
+        {
+            profiler.setEnabled(true);
+            sender.sendMessage(MESSAGE_COLOR + "Population profiler started.");
+        }
+        else if (action.equals("stop"))
+        {
+            profiler.setEnabled(false);
+            sender.sendMessage(MESSAGE_COLOR + "Population profiler stopped.");
+            sendSummary(sender, profiler);
+        }
+        else if (action.equals("reset"))
+        {
+            profiler.reset();
+            sender.sendMessage(MESSAGE_COLOR + "Population profiler data cleared.");
+        }
+        else if (action.equals("dump"))
+        {
+            boolean json = args.size() > 1 && args.get(1).equalsIgnoreCase("json");
+            File file = PopulationProfiler.getDefaultFile(world, json);
+            try
+            {
+                profiler.writeToFile(file, json);
+                sender.sendMessage(MESSAGE_COLOR + "Population profile written to " + VALUE_COLOR + file.getAbsolutePath());
+            }
+            catch (IOException e)
+            {
+                OTG.log(LogMarker.ERROR, "Could not write population profile to " + file.getAbsolutePath());
+                OTG.printStackTrace(LogMarker.ERROR, e);
+                sender.sendMessage(ERROR_COLOR + "Could not write population profile, see the log for details.");
+            }
+        }
+        else if (action.isEmpty())
+        {
+            sendSummary(sender, profiler);
+        } else {
+            sender.sendMessage("Usage: /otg " + usage);
+        }
+        return true;
+    }
+
+    private void sendSummary(CommandSender sender, PopulationProfiler profiler)
+    {
+        for (String line : profiler.getSummary(5))
+        {
+            sender.sendMessage(MESSAGE_COLOR + line);
+        }
+    }
+}
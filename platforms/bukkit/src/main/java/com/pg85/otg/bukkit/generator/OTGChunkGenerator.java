@@ -32,6 +32,7 @@ import org.bukkit.generator.ChunkGenerator;
 import org.bukkit.material.MaterialData;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 
@@ -52,6 +53,10 @@ public class OTGChunkGenerator extends ChunkGenerator
 	private FifoMap<ChunkCoordinate, Chunk> lastUsedChunks;
     //
 
+    // Block edit sessions, see beginBlockEdits.
+    private int blockEditDepth = 0;
+    private final HashSet<Chunk> editedChunks = new HashSet<Chunk>();
+
     
     public OTGChunkGenerator(OTGPlugin _plugin, BukkitWorld world)
     {
@@ -71,6 +76,10 @@ public class OTGChunkGenerator extends ChunkGenerator
     	this.lastUsedChunks.clear();
    		this.blockColumnsCache.clear();
    		this.unloadedChunksCache.clear();
+   		if(this.chunkProviderTC != null)
+   		{
+   			this.chunkProviderTC.clearTerrainDensityCache();
+   		}
     }
 
     /**
@@ -189,6 +198,44 @@ public class OTGChunkGenerator extends ChunkGenerator
 
     public void endPopulation() { }
     
+    /**
+     * Starts a block edit session, see {@link com.pg85.otg.common.LocalWorld#beginBlockEdits()}.
+     */
+    public void beginBlockEdits()
+    {
+    	this.blockEditDepth++;
+    }
+
+    /**
+     * Ends a block edit session, see {@link com.pg85.otg.common.LocalWorld#commitBlockEdits()}.
+     *
+     * <p>Unlike Forge, blocks are still lit when they are set. The fields
+     * needed to do that later (the precipitation heightmap and the light
+     * populated flag) can't be reached on Bukkit, so only client updates are
+     * batched.
+     */
+    @SuppressWarnings("deprecation")
+    public void commitBlockEdits()
+    {
+    	if (this.blockEditDepth == 0)
+    	{
+    		throw new IllegalStateException("No block edit session was started");
+    	}
+    	this.blockEditDepth--;
+    	if (this.blockEditDepth > 0)
+    	{
+    		return;
+    	}
+
+    	// Resends the chunk to players who can see it, does nothing for
+    	// chunks that weren't sent yet.
+    	for (Chunk chunk : this.editedChunks)
+    	{
+    		this.world.getWorld().getWorld().refreshChunk(chunk.locX, chunk.locZ);
+    	}
+    	this.editedChunks.clear();
+    }
+
     public void setBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag)
     {
         if (y < PluginStandardValues.WORLD_DEPTH || y >= PluginStandardValues.WORLD_HEIGHT)
@@ -238,8 +285,14 @@ public class OTGChunkGenerator extends ChunkGenerator
     	    	attachMetadata(x, y, z, metaDataTag);
     	    }
 
-            // Notify world: (2 | 16) == update client, don't update observers
-    	    notifyAndUpdatePhysics(this.world.getWorld(), blockPos, chunk, oldBlockData, blockData, 2 | 16);
+    	    if (this.blockEditDepth > 0)
+    	    {
+    	    	// Clients are updated once per chunk in commitBlockEdits
+    	    	this.editedChunks.add(chunk);
+    	    } else {
+	            // Notify world: (2 | 16) == update client, don't update observers
+	    	    notifyAndUpdatePhysics(this.world.getWorld(), blockPos, chunk, oldBlockData, blockData, 2 | 16);
+    	    }
         } catch (Throwable t) {
         	// TODO: What is this? remove?
         	/*
@@ -339,7 +392,6 @@ public class OTGChunkGenerator extends ChunkGenerator
     		return cachedColumn;
     	}
     	
-		cachedColumn = new LocalMaterialData[256];
     	LocalMaterialData[] blocksInColumn = new LocalMaterialData[256];
 		
     	Chunk chunk = this.world.getWorld().getChunkProvider().getLoadedChunkAt(chunkX, chunkZ);
@@ -374,7 +426,7 @@ public class OTGChunkGenerator extends ChunkGenerator
 	        	}
 	        }    		
     	}    	
-        blockColumnsCache.put(blockPos, cachedColumn);		
+        blockColumnsCache.put(blockPos, blocksInColumn);		
         return blocksInColumn;
     }
     
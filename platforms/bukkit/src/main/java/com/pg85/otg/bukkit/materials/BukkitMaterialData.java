@@ -20,6 +20,14 @@ import net.minecraft.server.v1_12_R1.IBlockData;
  */
 public class BukkitMaterialData implements LocalMaterialData
 {
+    /**
+     * Shared instances for every block id and data, indexed by
+     * {@link #combinedBlockId}. Built once by {@link #initBlockTable()} and
+     * never modified afterwards, so it can be read from any thread. Null
+     * until the first world is enabled.
+     */
+    private static volatile BukkitMaterialData[] blockTable;
+
     /**
      * Block id and data, calculated as {@code blockId << 4 | blockData}, or
      * without binary operators: {@code blockId * 16 + blockData}.
@@ -46,6 +54,41 @@ public class BukkitMaterialData implements LocalMaterialData
 		this.rawEntry = input;
 		this.checkFallbacks = true;
 	}
+
+    /**
+     * Creates the shared instances for all registered blocks. Should be
+     * called when a world is enabled. Does nothing if the table was already
+     * created.
+     */
+    public static void initBlockTable()
+    {
+    	if(blockTable != null)
+    	{
+    		return;
+    	}
+
+    	BukkitMaterialData[] table = new BukkitMaterialData[PluginStandardValues.SUPPORTED_BLOCK_IDS + 1];
+    	for(Block block : Block.REGISTRY)
+    	{
+    		int blockId = Block.getId(block);
+    		for(int blockData = 0; blockData < 16; blockData++)
+    		{
+    			int combinedBlockId = blockId << 4 | blockData;
+    			if(combinedBlockId < 0 || combinedBlockId >= table.length)
+    			{
+    				continue;
+    			}
+
+    			// Fill in all lazily calculated fields, instances in the table
+    			// are shared between threads.
+    			BukkitMaterialData material = new BukkitMaterialData(blockId, blockData);
+    			material.toDefaultMaterial();
+    			material.getName();
+    			table[combinedBlockId] = material;
+    		}
+    	}
+    	blockTable = table;
+    }
 	      
     public static BukkitMaterialData getBlank()
     {
@@ -207,6 +250,17 @@ public class BukkitMaterialData implements LocalMaterialData
      */
     public static BukkitMaterialData ofIds(int id, int data)
     {
+    	// Called for every block when generating and spawning objects, so
+    	// return the shared instance if there is one.
+    	BukkitMaterialData[] table = blockTable;
+    	if(table != null)
+    	{
+    		int combinedBlockId = id << 4 | data;
+    		if(id >= 0 && data >= 0 && data < 16 && combinedBlockId < table.length && table[combinedBlockId] != null)
+    		{
+    			return table[combinedBlockId];
+    		}
+    	}
         return new BukkitMaterialData(id, data);
     }
 
@@ -240,7 +294,7 @@ public class BukkitMaterialData implements LocalMaterialData
     public static BukkitMaterialData ofMinecraftBlockData(IBlockData blockData)
     {
         Block block = blockData.getBlock();
-        return new BukkitMaterialData(Block.getId(block), block.toLegacyData(blockData));
+        return ofIds(Block.getId(block), block.toLegacyData(blockData));
     } 
     
     @SuppressWarnings("deprecation")
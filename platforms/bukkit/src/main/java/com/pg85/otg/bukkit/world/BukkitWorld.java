@@ -53,9 +53,10 @@ import com.pg85.otg.bukkit.util.NBTException;
 import com.pg85.otg.common.LocalBiome;
 import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.common.PopulationArea;
 import com.pg85.otg.common.WorldSession;
 import com.pg85.otg.configuration.biome.BiomeConfig;
-import com.pg85.otg.configuration.biome.settings.ReplacedBlocksMatrix.ReplacedBlocksInstruction;
+import com.pg85.otg.configuration.biome.settings.ReplacedBlocksMatrix;
 import com.pg85.otg.configuration.standard.PluginStandardValues;
 import com.pg85.otg.configuration.world.WorldConfig;
 import com.pg85.otg.customobjects.SpawnableObject;
@@ -311,6 +312,7 @@ public class BukkitWorld implements LocalWorld
         // Do the things that always need to happen, whether we are enabling
         // for the first time or reloading
         this.world = mcWorld;
+        BukkitMaterialData.initBlockTable();
 
         // Inject our own WorldProvider
         if (mcWorld.worldProvider.getDimensionManager().equals(DimensionManager.OVERWORLD))
@@ -444,6 +446,24 @@ public class BukkitWorld implements LocalWorld
     {
     	this.getChunkGenerator().endPopulation();
     }
+
+    @Override
+    public void beginBlockEdits()
+    {
+    	this.getChunkGenerator().beginBlockEdits();
+    }
+
+    @Override
+    public void commitBlockEdits()
+    {
+    	this.getChunkGenerator().commitBlockEdits();
+    }
+
+    @Override
+    public PopulationArea getPopulationArea(ChunkCoordinate chunkBeingPopulated)
+    {
+    	return new PopulationArea(this, chunkBeingPopulated);
+    }
     
     // Biomes
     
@@ -747,16 +767,34 @@ public class BukkitWorld implements LocalWorld
         int worldStartX = rawChunk.locX * 16;
         int worldStartZ = rawChunk.locZ * 16;
 
+        // Get the compiled ReplacedBlocks of each column's biome
+        ReplacedBlocksMatrix[] replacedBlocksByColumn = new ReplacedBlocksMatrix[16 * 16];
+        ReplacedBlocksMatrix replacedBlocks;
+        LocalBiome biome;
+        boolean hasReplacedBlocks = false;
+        for (int sectionX = 0; sectionX < 16; sectionX++)
+        {
+            for (int sectionZ = 0; sectionZ < 16; sectionZ++)
+            {
+            	biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
+            	if (biome != null && biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+            	{
+            		replacedBlocksByColumn[sectionX * 16 + sectionZ] = biome.getBiomeConfig().replacedBlocks;
+            		hasReplacedBlocks = true;
+            	}
+            }
+        }
+        if (!hasReplacedBlocks)
+        {
+        	return;
+        }
+
         ChunkSection[] sectionsArray = rawChunk.getSections();
-        ReplacedBlocksInstruction[] replaceArray;
+        LocalMaterialData[] replacements;
+        LocalMaterialData replacement;
         IBlockData block;
-        int blockId = 0;
-        int minHeight;
-    	int maxHeight;
-    	LocalBiome biome;
-    	int y;
-    	ReplacedBlocksInstruction[][][] replaceInstructionsCache = new ReplacedBlocksInstruction[16][16][];
-    	
+        int blockId;
+        int sectionStartY;
         for (ChunkSection section : sectionsArray)
         {
             if (section == null)
@@ -764,67 +802,33 @@ public class BukkitWorld implements LocalWorld
                 continue;
             }
 
+            sectionStartY = section.getYPosition();
             for (int sectionX = 0; sectionX < 16; sectionX++)
             {
                 for (int sectionZ = 0; sectionZ < 16; sectionZ++)
                 {
-                	replaceArray = replaceInstructionsCache[sectionX][sectionZ];
-                    if(replaceArray == null)
+                	replacedBlocks = replacedBlocksByColumn[sectionX * 16 + sectionZ];
+                	if (replacedBlocks == null || !replacedBlocks.hasReplaceSettingsBetween(sectionStartY, sectionStartY + 15))
+                	{
+                		continue;
+                	}
+                    for (int sectionY = 0; sectionY < 16; sectionY++)
                     {
-                    	biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
-                    	if (biome == null || !biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                    	replacements = replacedBlocks.getReplacements(sectionStartY + sectionY);
+                    	if (replacements == null)
                     	{
-                    		replaceArray = new ReplacedBlocksInstruction[0];
-                    	} else {
-                    		replaceArray = new ReplacedBlocksInstruction[biome.getBiomeConfig().replacedBlocks.getInstructions().size()];
-                    		replaceArray = (ReplacedBlocksInstruction[])biome.getBiomeConfig().replacedBlocks.getInstructions().toArray(replaceArray);
+                    		continue;
+                    	}
+                    	block = section.getType(sectionX, sectionY, sectionZ);
+                    	blockId = Block.getId(block.getBlock());
+                    	if (blockId < replacements.length)
+                    	{
+                    		replacement = replacements[blockId];
+                    		if (replacement != null)
+                    		{
+                    			section.setType(sectionX, sectionY, sectionZ, ((BukkitMaterialData)replacement).internalBlock());
+                    		}
                     	}
-                    	replaceInstructionsCache[sectionX][sectionZ] = replaceArray;
-                    }
-                    if (replaceArray != null && replaceArray.length > 0)
-                    {
-                    	minHeight = PluginStandardValues.WORLD_HEIGHT;
-                    	maxHeight = PluginStandardValues.WORLD_DEPTH;
-                        for(ReplacedBlocksInstruction instruction : replaceArray)
-                        {
-                        	if(instruction.getFrom() != null && instruction.getTo() != null)
-                        	{
-	                        	if(instruction.getMinHeight() < minHeight)
-	                        	{
-	                        		minHeight = instruction.getMinHeight();
-	                        	}
-	                        	if(instruction.getMaxHeight() > maxHeight)
-	                        	{
-	                        		maxHeight = instruction.getMaxHeight();
-	                    		}
-                        	}
-                        }
-                        for (int sectionY = 0; sectionY < 16; sectionY++)
-                        {
-                        	block = null;
-                        	y = section.getYPosition() + sectionY;                    
-                        	if(y >= minHeight && y <= maxHeight)
-                        	{
-	                            for(ReplacedBlocksInstruction instruction : replaceArray)
-	                            {
-	                            	if(instruction.getFrom() != null && instruction.getTo() != null)
-	                            	{
-	                            		if(y >= instruction.getMinHeight() && y <= instruction.getMaxHeight())
-	                            		{
-	                            			if(block == null)
-	                            			{
-		                                    	block = section.getType(sectionX, sectionY, sectionZ);
-		                                    	blockId = Block.getId(block.getBlock());
-	                            			}
-			                            	if(instruction.getFrom().getBlockId() == blockId)
-			                            	{
-			                                    section.setType(sectionX, sectionY, sectionZ, ((BukkitMaterialData)instruction.getTo()).internalBlock());                            		
-			                            	}
-	                            		}
-	                            	}
-	                            }
-                        	}
-                        }
                     }
                 }
             }
@@ -70,6 +70,17 @@ public class ForgeEngine extends OTGEngine
     		forgeWorld.getStructureCache().saveToDisk();
     	}
     }
+
+    public void onUnload(World world)
+    {
+    	onSave(world);
+    	// Structure data is written in the background, make sure it's on disk before the world is gone.
+    	ForgeWorld forgeWorld = (ForgeWorld) this.worldLoader.getWorld(world);
+    	if(forgeWorld != null)
+    	{
+    		forgeWorld.getStructureCache().waitForPendingSave();
+    	}
+    }
 	
     // Pregenerator
     
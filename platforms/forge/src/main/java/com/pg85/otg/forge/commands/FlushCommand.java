@@ -23,9 +23,19 @@ public class FlushCommand extends BaseCommand
     {
         ForgeWorld world = (ForgeWorld) this.getWorld(sender, "");
 
+        // Get the statistics before the objects are unloaded, which clears the cache.
+        String bo4DataCacheStatistics = OTG.getEngine().getCustomObjectManager().getBO4DataCache().toString();
         OTG.log(LogMarker.INFO, "Unloading BO2/BO3/BO4 files");
         OTG.getEngine().getCustomObjectManager().reloadCustomObjectFiles();
         sender.sendMessage(new TextComponentString("Objects unloaded."));
+        String biomeCacheStatistics = world.getBiomeGenerator().getCacheStatistics();
+        if(biomeCacheStatistics != null)
+        {
+        	sender.sendMessage(new TextComponentString("Biome cache: " + biomeCacheStatistics));
+        }
+        sender.sendMessage(new TextComponentString("BO4Data cache: " + bo4DataCacheStatistics));
+        sender.sendMessage(new TextComponentString("Terrain density cache: " + world.getChunkGenerator().getTerrainDensityCacheStatistics()));
+        sender.sendMessage(new TextComponentString("Population/save: " + world.getObjectSpawner().populationSaveLock));
         OTG.log(LogMarker.INFO, "Clearing chunkgenerator cache");
         world.getChunkGenerator().clearChunkCache();
         OTG.log(LogMarker.INFO, "Caches cleared.");
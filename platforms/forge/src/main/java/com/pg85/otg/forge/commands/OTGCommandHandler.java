@@ -63,6 +63,7 @@ public final class OTGCommandHandler implements ICommand
         this.addCommand(new MapCommand());
         this.addCommand(new StructureCommand());
         this.addCommand(new FlushCommand());
+        this.addCommand(new ProfileCommand());
         this.addCommand(new ExportDataCommand());
         this.addCommand(new ModsCommand());
         this.addCommand(new BiomesCommand());
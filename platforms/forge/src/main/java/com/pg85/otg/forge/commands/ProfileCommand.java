@@ -0,0 +1,84 @@
+package com.pg85.otg.forge.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.generator.PopulationProfiler;
+import com.pg85.otg.logging.LogMarker;
+
+import net.minecraft.command.ICommandSender;
+import net.minecraft.util.text.TextComponentString;
+
+public class ProfileCommand extends BaseCommand
+{
+    ProfileCommand()
+    {
+        name = "profile";
+        usage = "profile [start/stop/reset/dump] [csv/json]";
+        description = "Measures how long population takes per resource, biome and BO3/BO4 in the current world. Without arguments, shows the slowest resources and biomes. Dump writes all data to the world's OpenTerrainGenerator folder.";
+    }
+
+    @Override
+    public boolean onCommand(ICommandSender sender, List<String> args)
+    {
+        LocalWorld world = this.getWorld(sender, "");
+        if (world == null)
+        {
+            sender.sendMessage(new TextComponentString(ERROR_COLOR + "OTG is not enabled in this world."));
+            return true;
+        }
+        PopulationProfiler profiler = world.getObjectSpawner().profiler;
+
+        String action = args.isEmpty() ? "" : args.get(0).toLowerCase();
+        if (action.equals("start"))
+        {
+            profiler.setEnabled(true);
+            sender.sendMessage(new TextComponentString(MESSAGE_COLOR + "Population profiler started."));
+        }
+        else if (action.equals("stop"))
+        {
+            profiler.setEnabled(false);
+            sender.sendMessage(new TextComponentString(MESSAGE_COLOR + "Population profiler stopped."));
+            sendSummary(sender, profiler);
+        }
+        else if (action.equals("reset"))
+        {
+            profiler.reset();
+            sender.sendMessage(new TextComponentString(MESSAGE_COLOR + "Population profiler data cleared."));
+        }
+        else if (action.equals("dump"))
+        {
+            boolean json = args.size() > 1 && args.get(1).equalsIgnoreCase("json");
+            File file = PopulationProfiler.getDefaultFile(world, json);
+            try
+            {
+                profiler.writeToFile(file, json);
+                sender.sendMessage(new TextComponentString(MESSAGE_COLOR + "Population profile written to " + VALUE_COLOR + file.getAbsolutePath()));
+            }
+            catch (IOException e)
+            {
+                OTG.log(LogMarker.ERROR, "Could not write population profile to " + file.getAbsolutePath());
+                OTG.printStackTrace(LogMarker.ERROR, e);
+                sender.sendMessage(new TextComponentString(ERROR_COLOR + "Could not write population profile, see the log for details."));
+            }
+        }
+        else if (action.isEmpty())
+        {
+            sendSummary(sender, profiler);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void sendSummary(ICommandSender sender, PopulationProfiler profiler)
+    {
+        for (String line : profiler.getSummary(5))
+        {
+            sender.sendMessage(new TextComponentString(MESSAGE_COLOR + line));
+        }
+    }
+}
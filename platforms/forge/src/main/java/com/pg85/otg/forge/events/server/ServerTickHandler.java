@@ -3,6 +3,7 @@ package com.pg85.otg.forge.events.server;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Stack;
 import java.util.Map.Entry;
@@ -128,10 +129,10 @@ public class ServerTickHandler
 
                     			// Return modData to sender.
                         		String messageString = "";
-		                    	HashMap<String, ArrayList<ModDataFunction<?>>> modDataInChunk = forgeWorld.getWorldSession().getModDataForChunk(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ));
+		                    	Map<String, List<ModDataFunction<?>>> modDataInChunk = forgeWorld.getWorldSession().getModDataForChunk(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ));
 		                    	if(modDataInChunk != null && modDataInChunk.entrySet().size() > 0)
 		                    	{
-			                    	for(Entry<String, ArrayList<ModDataFunction<?>>> modNameAndData : modDataInChunk.entrySet())
+			                    	for(Entry<String, List<ModDataFunction<?>>> modNameAndData : modDataInChunk.entrySet())
 			                    	{
 			                    		if(modNameAndData.getKey().equalsIgnoreCase(imcMessage.getSender()))
 			                    		{
@@ -349,7 +350,7 @@ public class ServerTickHandler
             {
                 if (!this.eligibleChunksForSpawning.get(chunkcoordintpair1))
                 {
-                	ArrayList<SpawnerFunction<?>> spawnerDataForOTG = world.getWorldSession().getSpawnersForChunk(ChunkCoordinate.fromChunkCoords(chunkcoordintpair1.getChunkX(), chunkcoordintpair1.getChunkZ()));
+                	List<SpawnerFunction<?>> spawnerDataForOTG = world.getWorldSession().getSpawnersForChunk(ChunkCoordinate.fromChunkCoords(chunkcoordintpair1.getChunkX(), chunkcoordintpair1.getChunkZ()));
 
                 	if(spawnerDataForOTG != null && spawnerDataForOTG.size() > 0)
                 	{
@@ -707,7 +708,7 @@ public class ServerTickHandler
                     if (!this.eligibleChunksForSpawning.get(chunkcoordintpair1))
                     {
                     	ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkcoordintpair1.getChunkX(), chunkcoordintpair1.getChunkZ());
-                    	ArrayList<ParticleFunction<?>> particleDataForOTG = world.getWorldSession().getParticlesForChunk(chunkCoord);
+                    	List<ParticleFunction<?>> particleDataForOTG = world.getWorldSession().getParticlesForChunk(chunkCoord);
 
                     	if(particleDataForOTG != null && particleDataForOTG.size() > 0)
                     	{
@@ -14,7 +14,7 @@ public class UnloadServerHandler
 	{
 		if(!event.getWorld().isRemote)
 		{
-			((ForgeEngine)OTG.getEngine()).onSave(event.getWorld());
+			((ForgeEngine)OTG.getEngine()).onUnload(event.getWorld());
 			if(OTG.getPluginConfig().developerMode && event.getWorld().provider.getDimension() == 0)
 			{
 	    		OTG.log(LogMarker.DEBUG, "Unloading BO2's/BO3's");
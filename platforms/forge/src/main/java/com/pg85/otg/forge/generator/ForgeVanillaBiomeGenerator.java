@@ -33,7 +33,7 @@ public class ForgeVanillaBiomeGenerator extends VanillaBiomeGenerator
     }
 
     @Override
-    public int[] getBiomesUnZoomed(int[] biomeArray, int x, int z, int x_size, int z_size, OutputType outputType)
+    public synchronized int[] getBiomesUnZoomed(int[] biomeArray, int x, int z, int x_size, int z_size, OutputType outputType)
     {
         this.BiomeArray = this.worldChunkManager.getBiomesForGeneration(this.BiomeArray, x, z, x_size, z_size);
         if (biomeArray == null || biomeArray.length < x_size * z_size)
@@ -56,7 +56,7 @@ public class ForgeVanillaBiomeGenerator extends VanillaBiomeGenerator
     }
 
     @Override
-    public int[] getBiomes(int[] biomeArray, int x, int z, int x_size, int z_size, OutputType outputType)
+    public synchronized int[] getBiomes(int[] biomeArray, int x, int z, int x_size, int z_size, OutputType outputType)
     {
         this.BiomeArray = this.worldChunkManager.getBiomes(this.BiomeArray, x, z, x_size, z_size, true);
         if (biomeArray == null || biomeArray.length < x_size * z_size)
@@ -79,7 +79,7 @@ public class ForgeVanillaBiomeGenerator extends VanillaBiomeGenerator
     }
 
     @Override
-    public int getBiome(int x, int z)
+    public synchronized int getBiome(int x, int z)
     {
     	int biomeId = ((ForgeEngine)OTG.getEngine()).getBiomeRegistryManager().getBiomeRegistryId(this.worldChunkManager.getBiome(new BlockPos(x, 0, z)));
     	if(biomeId == -1)
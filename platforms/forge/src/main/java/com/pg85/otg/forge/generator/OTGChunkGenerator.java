@@ -4,8 +4,9 @@ import static com.pg85.otg.util.ChunkCoordinate.CHUNK_X_SIZE;
 import static com.pg85.otg.util.ChunkCoordinate.CHUNK_Z_SIZE;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.pg85.otg.OTG;
@@ -16,8 +17,10 @@ import com.pg85.otg.configuration.world.WorldConfig;
 import com.pg85.otg.customobjects.bofunctions.ModDataFunction;
 import com.pg85.otg.forge.OTGPlugin;
 import com.pg85.otg.forge.materials.ForgeMaterialData;
+import com.pg85.otg.forge.pregenerator.PregeneratedChunk;
 import com.pg85.otg.forge.util.NBTHelper;
 import com.pg85.otg.forge.world.ForgeWorld;
+import com.pg85.otg.forge.world.ForgeWorldSession;
 import com.pg85.otg.generator.ChunkProviderOTG;
 import com.pg85.otg.generator.ObjectSpawner;
 import com.pg85.otg.generator.biome.OutputType;
@@ -33,15 +36,21 @@ import net.minecraft.block.BlockGravel;
 import net.minecraft.block.BlockSand;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.EnumCreatureType;
+import net.minecraft.init.Blocks;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.datafix.DataFixer;
 import net.minecraft.util.datafix.DataFixesManager;
 import net.minecraft.util.datafix.FixTypes;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraft.world.biome.Biome.SpawnListEntry;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.IChunkGenerator;
 import net.minecraftforge.fml.common.event.FMLInterModComms;
 
@@ -56,10 +65,15 @@ public class OTGChunkGenerator implements IChunkGenerator
 	private FifoMap<BlockPos2D, LocalMaterialData[]> blockColumnsCache;
 	private FifoMap<ChunkCoordinate, Chunk> unloadedChunksCache;
 	private FifoMap<ChunkCoordinate, Chunk> lastUsedChunks;
-    ForgeChunkBuffer chunkBuffer;
-    Object chunkBufferLock = new Object();
     //
 
+    // Block edit sessions, see beginBlockEdits.
+    private int blockEditDepth = 0;
+    // Bitmask of the edited sections of each chunk, in the first element.
+    private final IdentityHashMap<Chunk, int[]> editedChunks = new IdentityHashMap<Chunk, int[]>();
+    // Positions where a light emitting block was placed or removed.
+    private final ArrayList<BlockPos> blockLightChanges = new ArrayList<BlockPos>();
+
     private	DataFixer dataFixer = DataFixesManager.createFixer();
     
     public OTGChunkGenerator(ForgeWorld _world)
@@ -83,8 +97,20 @@ public class OTGChunkGenerator implements IChunkGenerator
     public void clearChunkCache()
     {
     	this.lastUsedChunks.clear();
-   		this.blockColumnsCache.clear();
-   		this.unloadedChunksCache.clear();
+    	synchronized(this.blockColumnsCache)
+    	{
+    		this.blockColumnsCache.clear();
+    	}
+    	synchronized(this.unloadedChunksCache)
+    	{
+    		this.unloadedChunksCache.clear();
+    	}
+    	this.generator.clearTerrainDensityCache();
+    }
+
+    public String getTerrainDensityCacheStatistics()
+    {
+    	return this.generator.getTerrainDensityCacheStatistics();
     }
 
     @Override
@@ -97,7 +123,10 @@ public class OTGChunkGenerator implements IChunkGenerator
     public void populate(int chunkX, int chunkZ)
     {
         ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
-        this.unloadedChunksCache.remove(chunkCoord);
+        synchronized(this.unloadedChunksCache)
+        {
+        	this.unloadedChunksCache.remove(chunkCoord);
+        }
     	if(this.testMode)
         {
             return;
@@ -111,10 +140,10 @@ public class OTGChunkGenerator implements IChunkGenerator
         BlockSand.fallInstantly = false;
         BlockGravel.fallInstantly = false;
 
-        HashMap<String,ArrayList<ModDataFunction<?>>> MessagesPerMod = world.getWorldSession().getModDataForChunk(chunkCoord);
+        Map<String, List<ModDataFunction<?>>> MessagesPerMod = world.getWorldSession().getModDataForChunk(chunkCoord);
         if(MessagesPerMod != null && MessagesPerMod.entrySet().size() > 0)
         {
-        	for(Entry<String, ArrayList<ModDataFunction<?>>> modNameAndData : MessagesPerMod.entrySet())
+        	for(Entry<String, List<ModDataFunction<?>>> modNameAndData : MessagesPerMod.entrySet())
         	{
         		String messageString = "";
 				if(modNameAndData.getKey().equals("OTG"))
@@ -186,18 +215,22 @@ public class OTGChunkGenerator implements IChunkGenerator
     
     private Chunk getBlocks(int chunkX, int chunkZ, boolean provideChunk)
     {
-    	Chunk chunk = unloadedChunksCache.get(ChunkCoordinate.fromChunkCoords(chunkX,chunkZ));
+    	Chunk chunk;
+    	synchronized(this.unloadedChunksCache)
+    	{
+    		chunk = this.unloadedChunksCache.get(ChunkCoordinate.fromChunkCoords(chunkX,chunkZ));
+    	}
     	if(chunk == null)
     	{
-    		chunk = new Chunk(this.world.getWorld(), chunkX, chunkZ);
-
     		ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
-    		synchronized(chunkBufferLock)
+    		// The pre-generator may already have generated the terrain on a worker thread
+    		PregeneratedChunk pregeneratedChunk = ((ForgeWorldSession)this.world.getWorldSession()).getPregenerator().takePregeneratedChunk(chunkCoord);
+    		if(pregeneratedChunk != null)
     		{
-	    		chunkBuffer = new ForgeChunkBuffer(chunkCoord);
-	    		this.generator.generate(chunkBuffer);
-	    		chunk = chunkBuffer.toChunk(this.world.getWorld());
-		        chunkBuffer = null;
+    			this.generator.prepareDefaultStructures(chunkCoord, pregeneratedChunk.dry);
+    			chunk = pregeneratedChunk.chunk;
+    		} else {
+    			chunk = generateUnpopulatedChunk(chunkCoord);
     		}
 	        fillBiomeArray(chunk);
 	        //if(world.getConfigs().getWorldConfig().ModeTerrain == TerrainMode.TerrainTest)
@@ -215,6 +248,35 @@ public class OTGChunkGenerator implements IChunkGenerator
     	return chunk;
     }
     
+    /**
+     * Generates the terrain, caves and ravines of a chunk without populating
+     * it or adding it to the world. ChunkProviderOTG is re-entrant, so this
+     * may be called for different chunks from several threads at once.
+     * @param chunkCoord The chunk to generate.
+     * @return The generated chunk.
+     */
+    public Chunk generateUnpopulatedChunk(ChunkCoordinate chunkCoord)
+    {
+    	ForgeChunkBuffer chunkBuffer = new ForgeChunkBuffer(chunkCoord);
+    	this.generator.generate(chunkBuffer);
+    	return chunkBuffer.toChunk(this.world.getWorld());
+    }
+
+    /**
+     * Generates the terrain, caves and ravines of a chunk without preparing
+     * default structures, populating it or adding it to the world. Used by
+     * the pre-generator's worker threads, the default structures are
+     * prepared on the server thread once the chunk is requested.
+     * @param chunkCoord The chunk to generate.
+     * @return The generated chunk.
+     */
+    public PregeneratedChunk generateTerrainWithoutStructures(ChunkCoordinate chunkCoord)
+    {
+    	ForgeChunkBuffer chunkBuffer = new ForgeChunkBuffer(chunkCoord);
+    	boolean dry = this.generator.generateWithoutStructures(chunkBuffer);
+    	return new PregeneratedChunk(chunkBuffer.toChunk(this.world.getWorld()), dry);
+    }
+
     /**
      * Fills the biome array of a chunk with the proper saved ids (no
      * generation ids).
@@ -247,7 +309,11 @@ public class OTGChunkGenerator implements IChunkGenerator
     	byte blockX = (byte)(x &= 0xF);
     	byte blockZ = (byte)(z &= 0xF);
 
-    	LocalMaterialData[] cachedColumn = this.blockColumnsCache.get(blockPos);
+    	LocalMaterialData[] cachedColumn;
+    	synchronized(this.blockColumnsCache)
+    	{
+    		cachedColumn = this.blockColumnsCache.get(blockPos);
+    	}
 
     	if(cachedColumn != null)
     	{
@@ -255,27 +321,24 @@ public class OTGChunkGenerator implements IChunkGenerator
     	}
     	
     	Chunk chunk = this.world.getWorld().getChunkProvider().getLoadedChunk(chunkX, chunkZ);
-    	if(chunk == null)
+    	synchronized(this.unloadedChunksCache)
     	{
-    		chunk = this.unloadedChunksCache.get(chunkCoord);
-    	} else {
-    		this.unloadedChunksCache.remove(chunkCoord);
+	    	if(chunk == null)
+	    	{
+	    		chunk = this.unloadedChunksCache.get(chunkCoord);
+	    	} else {
+	    		this.unloadedChunksCache.remove(chunkCoord);
+	    	}
     	}
     	if(chunk == null)
     	{
 			// Generate a chunk without populating it
-	    	chunk = new Chunk(this.world.getWorld(), chunkX, chunkZ);
-	    	synchronized(chunkBufferLock)
+	    	chunk = generateUnpopulatedChunk(chunkCoord);
+	    	synchronized(this.unloadedChunksCache)
 	    	{
-				chunkBuffer = new ForgeChunkBuffer(chunkCoord);
-				this.generator.generate(chunkBuffer);
-				chunk = chunkBuffer.toChunk(this.world.getWorld());
-				chunkBuffer = null;
+	    		this.unloadedChunksCache.put(chunkCoord, chunk);
 	    	}
-			unloadedChunksCache.put(chunkCoord, chunk);
     	}
-		
-		cachedColumn = new LocalMaterialData[256];
 
     	LocalMaterialData[] blocksInColumn = new LocalMaterialData[256];
     	IBlockState blockInChunk;
@@ -289,7 +352,10 @@ public class OTGChunkGenerator implements IChunkGenerator
         		break;
         	}
         }
-		blockColumnsCache.put(blockPos, cachedColumn);
+		synchronized(this.blockColumnsCache)
+		{
+			this.blockColumnsCache.put(blockPos, blocksInColumn);
+		}
 		
         return blocksInColumn;
     }
@@ -350,15 +416,32 @@ public class OTGChunkGenerator implements IChunkGenerator
 
         IBlockState newState = ((ForgeMaterialData) material).internalBlock();
 
-        BlockPos pos = new BlockPos(x, y, z);
-
         // Get chunk from (faster) custom cache
         Chunk chunk = this.getChunk(x, z);
         if (chunk == null)
         {
         	throw new RuntimeException("Could not provide chunk.");
         }
-        
+
+        setBlock(chunk, x, y, z, newState, metaDataTag);
+    }
+
+    /**
+     * Sets a block in a chunk that was already looked up by the caller,
+     * see {@link com.pg85.otg.forge.world.ForgePopulationArea}.
+     */
+    public void setBlock(Chunk chunk, int x, int y, int z, IBlockState newState, NamedBinaryTag metaDataTag)
+    {
+        // Inside a block edit session, write blocks without tile entities
+        // straight into the chunk. Light and client updates are done once
+        // per chunk in commitBlockEdits.
+        if (this.blockEditDepth > 0 && metaDataTag == null && setBlockInSession(chunk, x, y, z, newState))
+        {
+        	return;
+        }
+
+        BlockPos pos = new BlockPos(x, y, z);
+
         // Disable nearby block physics
         //IBlockState iblockstate = setBlockState(chunk, pos, newState);
         
@@ -383,6 +466,141 @@ public class OTGChunkGenerator implements IChunkGenerator
     	this.world.getWorld().markAndNotifyBlock(pos, chunk, iblockstate, newState, 2 | 16);
     }
     
+    /**
+     * Starts a block edit session, see {@link com.pg85.otg.common.LocalWorld#beginBlockEdits()}.
+     */
+    public void beginBlockEdits()
+    {
+    	this.blockEditDepth++;
+    }
+
+    /**
+     * Ends a block edit session, see {@link com.pg85.otg.common.LocalWorld#commitBlockEdits()}.
+     */
+    public void commitBlockEdits()
+    {
+    	if (this.blockEditDepth == 0)
+    	{
+    		throw new IllegalStateException("No block edit session was started");
+    	}
+    	this.blockEditDepth--;
+    	if (this.blockEditDepth > 0)
+    	{
+    		return;
+    	}
+
+    	World world = this.world.getWorld();
+    	for (Entry<Chunk, int[]> editedChunk : this.editedChunks.entrySet())
+    	{
+    		Chunk chunk = editedChunk.getKey();
+
+    		// Light the chunk once instead of for every block. The chunk is
+    		// marked as not lit, so Minecraft spreads the light to neighbouring
+    		// chunks the next time it ticks the chunk. This only covers sky
+    		// light, see below for block light.
+    		chunk.generateSkylightMap();
+    		chunk.setLightPopulated(false);
+    		chunk.markDirty();
+
+    		// Only chunks that were already sent to players need an update,
+    		// other chunks are sent including the edits.
+    		if (world instanceof WorldServer)
+    		{
+    			PlayerChunkMapEntry playerChunk = ((WorldServer) world).getPlayerChunkMap().getEntry(chunk.x, chunk.z);
+    			if (playerChunk != null && playerChunk.isSentToPlayers())
+    			{
+    				playerChunk.sendPacket(new SPacketChunkData(chunk, editedChunk.getValue()[0]));
+    			}
+    		}
+    	}
+    	this.editedChunks.clear();
+
+    	// Neither generateSkylightMap nor the light populated flag recompute
+    	// block light, and in dimensions without sky light (HasSkyLight:false)
+    	// nothing else would. Relight every placed or removed light source, so
+    	// torches, glowstone and lava light up and removed ones go dark.
+    	for (BlockPos pos : this.blockLightChanges)
+    	{
+    		world.checkLightFor(EnumSkyBlock.BLOCK, pos);
+    	}
+    	this.blockLightChanges.clear();
+    }
+
+    /**
+     * Sets a block during a block edit session, without updating light or
+     * notifying clients. Only the heightmaps are updated, they are used by
+     * getHighestBlockYAt during population. Placed or removed light sources
+     * are remembered, so commitBlockEdits can update their block light.
+     *
+     * @return False if the block or the block being replaced has a tile
+     *         entity, those have to be set the normal way.
+     */
+    @SuppressWarnings("deprecation")
+    private boolean setBlockInSession(Chunk chunk, int x, int y, int z, IBlockState newState)
+    {
+    	int internalX = x & 0xF;
+    	int internalZ = z & 0xF;
+    	IBlockState oldState = chunk.getBlockState(internalX, y, internalZ);
+    	if (oldState == newState)
+    	{
+    		return true;
+    	}
+    	if (newState.getBlock().hasTileEntity(newState) || oldState.getBlock().hasTileEntity(oldState))
+    	{
+    		return false;
+    	}
+
+    	ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+    	ExtendedBlockStorage section = sections[y >> 4];
+    	if (section == Chunk.NULL_BLOCK_STORAGE)
+    	{
+    		if (newState.getBlock() == Blocks.AIR)
+    		{
+    			return true;
+    		}
+    		section = new ExtendedBlockStorage(y >> 4 << 4, this.world.getWorld().provider.hasSkyLight());
+    		sections[y >> 4] = section;
+    	}
+    	section.set(internalX, y & 0xF, internalZ, newState);
+
+    	if (newState.getLightValue() > 0 || oldState.getLightValue() > 0)
+    	{
+    		this.blockLightChanges.add(new BlockPos(x, y, z));
+    	}
+
+    	int column = internalZ << 4 | internalX;
+    	int[] heightMap = chunk.getHeightMap();
+    	if (newState.getLightOpacity() > 0)
+    	{
+    		if (y >= heightMap[column])
+    		{
+    			heightMap[column] = y + 1;
+    		}
+    	}
+    	else if (y == heightMap[column] - 1)
+    	{
+    		int height = y;
+    		while (height > 0 && chunk.getBlockState(internalX, height - 1, internalZ).getLightOpacity() == 0)
+    		{
+    			height--;
+    		}
+    		heightMap[column] = height;
+    	}
+    	if (y >= chunk.precipitationHeightMap[column] - 1)
+    	{
+    		chunk.precipitationHeightMap[column] = -999;
+    	}
+
+    	int[] editedSections = this.editedChunks.get(chunk);
+    	if (editedSections == null)
+    	{
+    		editedSections = new int[1];
+    		this.editedChunks.put(chunk, editedSections);
+    	}
+    	editedSections[0] |= 1 << (y >> 4);
+    	return true;
+    }
+
     //TODO: Remove this after testing captureBlockSnapshots
     /*
     private IBlockState setBlockState(Chunk _this, BlockPos pos, IBlockState state)
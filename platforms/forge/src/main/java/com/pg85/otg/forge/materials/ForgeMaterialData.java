@@ -20,6 +20,14 @@ import net.minecraft.init.Blocks;
  */
 public class ForgeMaterialData implements LocalMaterialData
 {
+    /**
+     * Shared instances for every block state, indexed by the id Minecraft
+     * gives the state in {@link Block#BLOCK_STATE_IDS}. Built once by
+     * {@link #initBlockStateTable()} and never modified afterwards, so it
+     * can be read from any thread. Null until the first world is loaded.
+     */
+    private static volatile ForgeMaterialData[] blockStateTable;
+
 	DefaultMaterial defaultMaterial;
     private IBlockState blockData;
     private boolean checkFallbacks = false;
@@ -44,6 +52,56 @@ public class ForgeMaterialData implements LocalMaterialData
     {
         this.blockData = blockData;
     }
+
+    /**
+     * Creates the shared instances for all registered block states. Should
+     * be called when a world is loaded, after all mods have registered their
+     * blocks. Does nothing if the table was already created.
+     *
+     * <p>States that aren't in the table (modded states registered later,
+     * or states that only exist as actual states, like fence connections)
+     * still work, {@link #ofMinecraftBlockState(IBlockState)} creates a new
+     * instance for them.
+     */
+    @SuppressWarnings("deprecation")
+    public static void initBlockStateTable()
+    {
+    	if(blockStateTable != null)
+    	{
+    		return;
+    	}
+
+    	ForgeMaterialData[] table = new ForgeMaterialData[PluginStandardValues.SUPPORTED_BLOCK_IDS + 1];
+    	for(Block block : Block.REGISTRY)
+    	{
+    		int blockId = Block.getIdFromBlock(block);
+    		for(int meta = 0; meta < 16; meta++)
+    		{
+    			IBlockState blockState;
+    			try
+    			{
+    				blockState = block.getStateFromMeta(meta);
+    			}
+    			catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+    			{
+    				continue;
+    			}
+    			int stateId = Block.BLOCK_STATE_IDS.get(blockState);
+    			if(stateId < 0 || stateId >= table.length || table[stateId] != null)
+    			{
+    				continue;
+    			}
+
+    			// Fill in all lazily calculated fields, instances in the table
+    			// are shared between threads.
+    			ForgeMaterialData material = new ForgeMaterialData(blockState, blockId, block.getMetaFromState(blockState));
+    			material.toDefaultMaterial();
+    			material.getName();
+    			table[stateId] = material;
+    		}
+    	}
+    	blockStateTable = table;
+    }
     
     private ForgeMaterialData(String raw)
     {
@@ -212,7 +270,7 @@ public class ForgeMaterialData implements LocalMaterialData
     {
         Block block = Block.getBlockById(id);
         IBlockState blockData = block.getStateFromMeta(data);
-        return new ForgeMaterialData(blockData, id, data);
+        return ofMinecraftBlockState(blockData);
     }
 
     /**
@@ -244,6 +302,21 @@ public class ForgeMaterialData implements LocalMaterialData
      */
     public static ForgeMaterialData ofMinecraftBlockState(IBlockState blockData)
     {
+    	// Called for every block when generating and spawning objects, so
+    	// return the shared instance if there is one.
+    	ForgeMaterialData[] table = blockStateTable;
+    	if(table != null)
+    	{
+    		int stateId = Block.BLOCK_STATE_IDS.get(blockData);
+    		if(stateId >= 0 && stateId < table.length)
+    		{
+    			ForgeMaterialData material = table[stateId];
+    			if(material != null && material.blockData == blockData)
+    			{
+    				return material;
+    			}
+    		}
+    	}
         return new ForgeMaterialData(blockData);
     }
     
@@ -562,8 +635,9 @@ public class ForgeMaterialData implements LocalMaterialData
         {
             return false;
         }
+        // Minecraft only creates one instance of each block state
         ForgeMaterialData other = (ForgeMaterialData) obj;
-        return this.blockData.equals(other.blockData);
+        return this.blockData == other.blockData;
     }
     
     @Override
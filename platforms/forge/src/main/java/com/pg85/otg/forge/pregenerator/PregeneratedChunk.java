@@ -0,0 +1,20 @@
+package com.pg85.otg.forge.pregenerator;
+
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * A chunk whose terrain, caves and ravines were generated by one of the
+ * pre-generator's worker threads. The default structures still have to be
+ * prepared on the server thread before the chunk is used.
+ */
+public class PregeneratedChunk
+{
+	public final Chunk chunk;
+	public final boolean dry;
+
+	public PregeneratedChunk(Chunk chunk, boolean dry)
+	{
+		this.chunk = chunk;
+		this.dry = dry;
+	}
+}
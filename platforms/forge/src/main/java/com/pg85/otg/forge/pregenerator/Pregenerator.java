@@ -44,6 +44,20 @@ public class Pregenerator
 	private boolean pregeneratorIsRunning;
 	private int maxSpawnPerTick;
 
+	// Worker threads that generate terrain ahead of the server thread
+	private final int workerThreads;
+	private final int workerQueueSize;
+	private PregeneratorWorkerPool workerPool;
+	// Null until checked, see canUseWorkerThreads
+	private Boolean workerThreadsAllowed;
+
+	// Throughput
+	private long throughputWindowStart = System.currentTimeMillis();
+	private int spawnedAtWindowStart;
+	private long generatedAtWindowStart;
+	private long generationTimeAtWindowStart;
+	private String throughput = "";
+
 	// In-game UI
 	public String pregenerationWorld = "";
 	public String preGeneratorProgressStatus = "";
@@ -73,6 +87,8 @@ public class Pregenerator
 		}
 
 		this.maxSpawnPerTick = OTG.getPluginConfig().pregeneratorMaxChunksPerTick;
+		this.workerThreads = OTG.getPluginConfig().pregeneratorWorkerThreads;
+		this.workerQueueSize = OTG.getPluginConfig().pregeneratorWorkerQueueSize;
 		this.pregenerationWorld = world.getConfigs().getWorldConfig().getName();
 	}
 
@@ -201,6 +217,15 @@ public class Pregenerator
     		}
     		
     		this.pregeneratorIsRunning = true;
+
+    		if(this.workerThreads > 0 && canUseWorkerThreads())
+    		{
+    			if(this.workerPool == null)
+    			{
+    				this.workerPool = new PregeneratorWorkerPool(this.world.getChunkGenerator(), this.pregenerationWorld, this.workerThreads, this.workerQueueSize);
+    			}
+    			queueUpcomingChunks(chunkProvider);
+    		}
     		
    			this.currentX = -this.pregenerationRadius;
    			this.currentZ = -this.pregenerationRadius;
@@ -227,6 +252,11 @@ public class Pregenerator
 	    		// Generate the center block
 				if(this.cycle == 0 && this.spawned == 0)
 				{
+					if(isAreaGenerating(spawnChunkX, spawnChunkZ))
+					{
+						pause();
+						return;
+					}
 					pregenerateChunk(spawnChunkX, spawnChunkZ);
 					this.cycle += 1;
 	    			if(this.spawnedThisTick >= this.maxSpawnPerTick)
@@ -245,6 +275,12 @@ public class Pregenerator
 
 						if(i > this.iRight) // Check if we haven't generated this chunk in a previous server tick
 						{
+							// Wait for the next tick instead of generating a chunk that a worker thread is still busy with
+							if(isAreaGenerating(this.currentX, this.currentZ))
+							{
+								pause();
+								return;
+							}
 							this.iRight = i;
 							
 							pregenerateChunk(this.currentX, this.currentZ);
@@ -280,6 +316,12 @@ public class Pregenerator
 
 						if(i > this.iLeft) // Check if we haven't generated this chunk in a previous server tick
 						{
+							// Wait for the next tick instead of generating a chunk that a worker thread is still busy with
+							if(isAreaGenerating(this.currentX, this.currentZ))
+							{
+								pause();
+								return;
+							}
 							this.iLeft = i;
 							
 							pregenerateChunk(this.currentX, this.currentZ);
@@ -315,6 +357,12 @@ public class Pregenerator
 
 						if(i > this.iBottom) // Check if we haven't generated this chunk in a previous server tick
 						{
+							// Wait for the next tick instead of generating a chunk that a worker thread is still busy with
+							if(isAreaGenerating(this.currentX, this.currentZ))
+							{
+								pause();
+								return;
+							}
 							this.iBottom = i;
 							
 							pregenerateChunk(this.currentX, this.currentZ);
@@ -350,6 +398,12 @@ public class Pregenerator
 
 						if(i > this.iTop) // Check if we haven't generated this chunk in a previous server tick
 						{
+							// Wait for the next tick instead of generating a chunk that a worker thread is still busy with
+							if(isAreaGenerating(this.currentX, this.currentZ))
+							{
+								pause();
+								return;
+							}
 							this.iTop = i;
 
 							pregenerateChunk(this.currentX, this.currentZ);
@@ -391,6 +445,166 @@ public class Pregenerator
 			savePregeneratorData(false);
         }
         this.pregeneratorIsRunning = false;
+        shutDownWorkerPool();
+	}
+
+	/**
+	 * Queues terrain generation on the worker threads for the chunks the
+	 * pre-generator will provide next, following the same order as
+	 * pregenerate(), for the current and the next cycle.
+	 */
+	private void queueUpcomingChunks(ChunkProviderServer chunkProvider)
+	{
+		int spawnChunkX = this.preGeneratorCenterPoint.getChunkX();
+		int spawnChunkZ = this.preGeneratorCenterPoint.getChunkZ();
+
+		// Chunks in cycles that have been completed will never be requested.
+		this.workerPool.discardChunksOutside(this.preGeneratorCenterPoint, this.cycle - 1, this.pregenerationRadius + 1);
+
+		if(this.cycle == 0 && this.spawned == 0)
+		{
+			if(!queueArea(chunkProvider, spawnChunkX, spawnChunkZ))
+			{
+				return;
+			}
+		}
+
+		int left = this.left;
+		int right = this.right;
+		int top = this.top;
+		int bottom = this.bottom;
+		int iLeft = this.iLeft;
+		int iRight = this.iRight;
+		int iTop = this.iTop;
+		int iBottom = this.iBottom;
+		for(int cycle = Math.max(this.cycle, 1); cycle <= this.cycle + 1; cycle++)
+		{
+			if(right < this.pregenerationRadius && iBottom == Integer.MIN_VALUE && iTop == Integer.MIN_VALUE && iRight < bottom)
+			{
+				for(int i = Math.max(-top, iRight + 1); i <= bottom; i++)
+				{
+					if(!queueArea(chunkProvider, spawnChunkX + cycle, spawnChunkZ + i))
+					{
+						return;
+					}
+				}
+				right++;
+			}
+			if(left < this.pregenerationRadius && iBottom == Integer.MIN_VALUE && iTop == Integer.MIN_VALUE && iLeft < bottom)
+			{
+				for(int i = Math.max(-top, iLeft + 1); i <= bottom; i++)
+				{
+					if(!queueArea(chunkProvider, spawnChunkX - cycle, spawnChunkZ + i))
+					{
+						return;
+					}
+				}
+				left++;
+			}
+			if(bottom < this.pregenerationRadius && iBottom < right)
+			{
+				for(int i = Math.max(-left, iBottom + 1); i <= right; i++)
+				{
+					if(!queueArea(chunkProvider, spawnChunkX + i, spawnChunkZ + cycle))
+					{
+						return;
+					}
+				}
+				bottom++;
+			}
+			if(top < this.pregenerationRadius && iTop < right)
+			{
+				for(int i = Math.max(-left, iTop + 1); i <= right; i++)
+				{
+					if(!queueArea(chunkProvider, spawnChunkX + i, spawnChunkZ - cycle))
+					{
+						return;
+					}
+				}
+				top++;
+			}
+			iLeft = Integer.MIN_VALUE;
+			iRight = Integer.MIN_VALUE;
+			iTop = Integer.MIN_VALUE;
+			iBottom = Integer.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * Queues the 2x2 chunk area that pregenerateChunk provides.
+	 * @return False if the worker queue is full.
+	 */
+	private boolean queueArea(ChunkProviderServer chunkProvider, int chunkX, int chunkZ)
+	{
+		return
+			queueChunk(chunkProvider, chunkX, chunkZ) &&
+			queueChunk(chunkProvider, chunkX + 1, chunkZ) &&
+			queueChunk(chunkProvider, chunkX, chunkZ + 1) &&
+			queueChunk(chunkProvider, chunkX + 1, chunkZ + 1)
+		;
+	}
+
+	private boolean queueChunk(ChunkProviderServer chunkProvider, int chunkX, int chunkZ)
+	{
+		if(chunkProvider.getLoadedChunk(chunkX, chunkZ) != null || chunkProvider.isChunkGeneratedAt(chunkX, chunkZ))
+		{
+			return true;
+		}
+		return this.workerPool.queueChunk(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ));
+	}
+
+	/**
+	 * Checks if the terrain of any chunk in the 2x2 chunk area that
+	 * pregenerateChunk provides is still being generated by a worker thread.
+	 */
+	private boolean isAreaGenerating(int chunkX, int chunkZ)
+	{
+		PregeneratorWorkerPool workerPool = this.workerPool;
+		return workerPool != null && (
+			workerPool.isGenerating(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ)) ||
+			workerPool.isGenerating(ChunkCoordinate.fromChunkCoords(chunkX + 1, chunkZ)) ||
+			workerPool.isGenerating(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ + 1)) ||
+			workerPool.isGenerating(ChunkCoordinate.fromChunkCoords(chunkX + 1, chunkZ + 1))
+		);
+	}
+
+	/**
+	 * The worker threads run the ReplaceBiomeBlocks event and modded cave
+	 * generators, which mods expect on the server thread. Worker threads are
+	 * only used if no mod hooks into terrain generation.
+	 */
+	private boolean canUseWorkerThreads()
+	{
+		if(this.workerThreadsAllowed == null)
+		{
+			this.workerThreadsAllowed = !this.world.hasModdedTerrainGenerationHooks();
+			if(!this.workerThreadsAllowed)
+			{
+				OTG.log(LogMarker.INFO, "Pre-generator worker threads are disabled for world " + this.pregenerationWorld + ", mods hook into terrain generation and expect to be called on the server thread.");
+			}
+		}
+		return this.workerThreadsAllowed;
+	}
+
+	/**
+	 * Called by the chunk generator on the server thread, returns the chunk
+	 * if its terrain was already generated by one of the worker threads.
+	 * @param chunkCoord The chunk.
+	 * @return The chunk, or null if it wasn't queued or isn't generated yet.
+	 */
+	public PregeneratedChunk takePregeneratedChunk(ChunkCoordinate chunkCoord)
+	{
+		PregeneratorWorkerPool workerPool = this.workerPool;
+		return workerPool != null ? workerPool.takeChunk(chunkCoord) : null;
+	}
+
+	private void shutDownWorkerPool()
+	{
+		if(this.workerPool != null)
+		{
+			this.workerPool.shutDown();
+			this.workerPool = null;
+		}
 	}
 
 	private void pause()
@@ -410,6 +624,7 @@ public class Pregenerator
 			//this.world.getChunkGenerator().clearChunkCache(false);
 			this.world.getStructureCache().compressCache();
 			savePregeneratorData(false);
+			shutDownWorkerPool();
 		} else {
 			// Pre-generation cycle cannot be completed.
 			// Save progress so we can continue and retry on the next server tick.
@@ -487,8 +702,13 @@ public class Pregenerator
 	        long l = j - k;
 	        String memoryUsage = " Mem: " + Long.valueOf(l * 100L / i) + "% " + Long.valueOf(bytesToMb(l)) + " / " +  Long.valueOf(bytesToMb(i)) + " MB ";
 
+	        if(!dontLog)
+	        {
+	        	updateThroughput();
+	        }
+
 	        this.progressScreenWorldSizeInBlocks = (this.pregenerationRadius * 2 + 1) * 16;
-	        this.preGeneratorProgressStatus = (int)this.spawned + "/" + (int)this.total;
+	        this.preGeneratorProgressStatus = (int)this.spawned + "/" + (int)this.total + this.throughput;
 	        this.preGeneratorProgress = (int)Math.round(((this.spawned / (double)(this.total)) * 100)) + "";
 	        this.progressScreenElapsedTime = sElapsedTime;
 	        this.progressScreenEstimatedTime = estimatedTime;
@@ -496,7 +716,7 @@ public class Pregenerator
 	        this.progressScreenRadius = this.pregenerationRadius + "";
 			if(!dontLog)
 			{
-				OTG.log(LogMarker.INFO, "Pre-generating world \"" + this.pregenerationWorld + "\". Radius: " + this.cycle + "/" + this.pregenerationRadius + " Spawned: " + (int)this.spawned + "/" + (int)this.total + " " + (int)Math.round(((this.spawned / (double)(this.total)) * 100)) + "% done. Elapsed: " + sElapsedTime + " ETA: " + estimatedTime + memoryUsage);
+				OTG.log(LogMarker.INFO, "Pre-generating world \"" + this.pregenerationWorld + "\". Radius: " + this.cycle + "/" + this.pregenerationRadius + " Spawned: " + (int)this.spawned + "/" + (int)this.total + " " + (int)Math.round(((this.spawned / (double)(this.total)) * 100)) + "% done. Elapsed: " + sElapsedTime + " ETA: " + estimatedTime + this.throughput + memoryUsage);
 			}
 		} else {
 
@@ -516,6 +736,46 @@ public class Pregenerator
 		}
 	}
 
+	/**
+	 * Measures chunks/s for each stage: terrain generation on the worker
+	 * threads (if enabled) and population on the server thread.
+	 */
+	private void updateThroughput()
+	{
+		long timeNow = System.currentTimeMillis();
+		long elapsed = timeNow - this.throughputWindowStart;
+		if(elapsed < 1000l)
+		{
+			return;
+		}
+
+		double populatedPerSecond = (this.spawned - this.spawnedAtWindowStart) * 1000d / elapsed;
+		this.spawnedAtWindowStart = this.spawned;
+		if(this.workerPool != null)
+		{
+			long generated = this.workerPool.getChunksGenerated();
+			long generationTime = this.workerPool.getGenerationTimeNanos();
+			// The worker pool is recreated when pre-generation is resumed
+			if(generated < this.generatedAtWindowStart)
+			{
+				this.generatedAtWindowStart = 0;
+				this.generationTimeAtWindowStart = 0;
+			}
+			long generatedInWindow = generated - this.generatedAtWindowStart;
+			double generatedPerSecond = generatedInWindow * 1000d / elapsed;
+			// Average time a worker thread spent on one chunk
+			double msPerChunk = generatedInWindow > 0 ? (generationTime - this.generationTimeAtWindowStart) / 1000000d / generatedInWindow : 0;
+			this.generatedAtWindowStart = generated;
+			this.generationTimeAtWindowStart = generationTime;
+			this.throughput = String.format(" (gen %.1f/s at %.1f ms/chunk, pop %.1f/s)", generatedPerSecond, msPerChunk, populatedPerSecond);
+		} else {
+			this.generatedAtWindowStart = 0;
+			this.generationTimeAtWindowStart = 0;
+			this.throughput = String.format(" (%.1f/s)", populatedPerSecond);
+		}
+		this.throughputWindowStart = timeNow;
+	}
+
     private long bytesToMb(long bytes)
     {
         return bytes / 1024L / 1024L;
@@ -532,6 +792,7 @@ public class Pregenerator
     		}	    	
     		this.pregeneratorIsRunning = false;
     	}
+    	shutDownWorkerPool();
     }
 
     // Saving / Loading
@@ -0,0 +1,206 @@
+package com.pg85.otg.forge.pregenerator;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.forge.generator.OTGChunkGenerator;
+import com.pg85.otg.logging.LogMarker;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Generates raw terrain for the pre-generator on a pool of worker threads,
+ * ahead of the server thread. Generated chunks are held until the server
+ * thread asks for them via {@link #takeChunk(ChunkCoordinate)}, at most
+ * maxQueued chunks are held or being generated at any time.
+ *
+ * The worker threads run the whole terrain generation path, including the
+ * ReplaceBiomeBlocks event and modded cave generators, see
+ * {@link Pregenerator} for when the pool is used.
+ */
+class PregeneratorWorkerPool
+{
+	// How long unloading a world waits for chunks that are being generated
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+	private final OTGChunkGenerator generator;
+	private final ExecutorService executor;
+	private final int maxQueued;
+	private final ConcurrentHashMap<ChunkCoordinate, Future<PregeneratedChunk>> queuedChunks = new ConcurrentHashMap<ChunkCoordinate, Future<PregeneratedChunk>>();
+
+	// Stats
+	private final AtomicLong chunksGenerated = new AtomicLong();
+	private final AtomicLong generationTimeNanos = new AtomicLong();
+
+	PregeneratorWorkerPool(OTGChunkGenerator generator, final String worldName, int threads, int maxQueued)
+	{
+		this.generator = generator;
+		this.maxQueued = maxQueued;
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "OTG pre-generator " + worldName + " #" + this.threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+	}
+
+	boolean isFull()
+	{
+		return this.queuedChunks.size() >= this.maxQueued;
+	}
+
+	/**
+	 * Queues terrain generation for the given chunk, unless it is already
+	 * queued or the queue is full.
+	 * @param chunkCoord The chunk to generate.
+	 * @return False if the queue is full, true otherwise.
+	 */
+	boolean queueChunk(final ChunkCoordinate chunkCoord)
+	{
+		if(isFull())
+		{
+			return false;
+		}
+		if(!this.queuedChunks.containsKey(chunkCoord))
+		{
+			this.queuedChunks.put(chunkCoord, this.executor.submit(new Callable<PregeneratedChunk>()
+			{
+				@Override
+				public PregeneratedChunk call()
+				{
+					long startTime = System.nanoTime();
+					PregeneratedChunk chunk = PregeneratorWorkerPool.this.generator.generateTerrainWithoutStructures(chunkCoord);
+					PregeneratorWorkerPool.this.generationTimeNanos.addAndGet(System.nanoTime() - startTime);
+					PregeneratorWorkerPool.this.chunksGenerated.incrementAndGet();
+					return chunk;
+				}
+			}));
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if a chunk is queued but its terrain isn't generated yet. The
+	 * pre-generator then waits for the next server tick instead of
+	 * generating the chunk on the server thread.
+	 */
+	boolean isGenerating(ChunkCoordinate chunkCoord)
+	{
+		Future<PregeneratedChunk> future = this.queuedChunks.get(chunkCoord);
+		return future != null && !future.isDone();
+	}
+
+	/**
+	 * Removes a chunk from the queue. Never waits for the worker threads, a
+	 * chunk that isn't generated yet is cancelled so the server thread can
+	 * generate it instead.
+	 * @param chunkCoord The chunk.
+	 * @return The generated chunk, or null if the chunk was never queued,
+	 * isn't generated yet or failed to generate.
+	 */
+	PregeneratedChunk takeChunk(ChunkCoordinate chunkCoord)
+	{
+		Future<PregeneratedChunk> future = this.queuedChunks.remove(chunkCoord);
+		if(future == null)
+		{
+			return null;
+		}
+		if(!future.isDone())
+		{
+			future.cancel(false);
+			return null;
+		}
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			OTG.log(LogMarker.ERROR, "Pre-generator worker thread failed to generate chunk " + chunkCoord + ", generating it on the server thread instead.");
+			OTG.printStackTrace(LogMarker.ERROR, e.getCause());
+		}
+		return null;
+	}
+
+	/**
+	 * Drops queued chunks that are further than maxDistance chunks away
+	 * from the given center on both axes, or closer than minDistance on both
+	 * axes. The pre-generator never asks for these chunks anymore, most
+	 * likely because they were already generated before it reached them.
+	 */
+	void discardChunksOutside(ChunkCoordinate center, int minDistance, int maxDistance)
+	{
+		Iterator<Entry<ChunkCoordinate, Future<PregeneratedChunk>>> iterator = this.queuedChunks.entrySet().iterator();
+		Entry<ChunkCoordinate, Future<PregeneratedChunk>> entry;
+		ChunkCoordinate chunkCoord;
+		int distance;
+		while(iterator.hasNext())
+		{
+			entry = iterator.next();
+			chunkCoord = entry.getKey();
+			distance = Math.max(Math.abs(chunkCoord.getChunkX() - center.getChunkX()), Math.abs(chunkCoord.getChunkZ() - center.getChunkZ()));
+			if(distance < minDistance || distance > maxDistance)
+			{
+				// Chunks that a worker thread is already generating are finished and thrown away
+				entry.getValue().cancel(false);
+				iterator.remove();
+			}
+		}
+	}
+
+	long getChunksGenerated()
+	{
+		return this.chunksGenerated.get();
+	}
+
+	/**
+	 * Gets the total time the worker threads spent generating chunks, used
+	 * with {@link #getChunksGenerated()} to show the time per chunk.
+	 */
+	long getGenerationTimeNanos()
+	{
+		return this.generationTimeNanos.get();
+	}
+
+	/**
+	 * Stops the worker threads, waiting a while for chunks that are being
+	 * generated so they don't use the world after it was unloaded.
+	 */
+	void shutDown()
+	{
+		this.executor.shutdownNow();
+		this.queuedChunks.clear();
+		try
+		{
+			if(!this.executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+			{
+				OTG.log(LogMarker.WARN, "Pre-generator worker threads did not stop within " + SHUTDOWN_TIMEOUT_SECONDS + " seconds.");
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.pg85.otg.forge.world;
+
+import com.pg85.otg.common.LocalMaterialData;
+import com.pg85.otg.common.PopulationArea;
+import com.pg85.otg.configuration.standard.PluginStandardValues;
+import com.pg85.otg.forge.materials.ForgeMaterialData;
+import com.pg85.otg.util.ChunkCoordinate;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Reads and writes the blocks of the 2x2 chunks being populated straight
+ * from their sections. Each chunk is looked up once, the first time a block
+ * in it is accessed, instead of for every block.
+ */
+class ForgePopulationArea extends PopulationArea
+{
+	private final ForgeWorld forgeWorld;
+	// Indexed by (chunkX - minChunkX) + (chunkZ - minChunkZ) * 2
+	private final Chunk[] chunks = new Chunk[4];
+	private final ExtendedBlockStorage[][] sections = new ExtendedBlockStorage[4][];
+
+	ForgePopulationArea(ForgeWorld world, ChunkCoordinate chunkBeingPopulated)
+	{
+		super(world, chunkBeingPopulated);
+		this.forgeWorld = world;
+	}
+
+	/**
+	 * Gets whether this area can be used to populate the given chunk, which
+	 * isn't the case when any of its chunks was unloaded in the meantime.
+	 */
+	boolean isValidFor(ChunkCoordinate chunkBeingPopulated)
+	{
+		if (!this.chunkBeingPopulated.equals(chunkBeingPopulated))
+		{
+			return false;
+		}
+		for (Chunk chunk : this.chunks)
+		{
+			if (chunk != null && !chunk.isLoaded())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int getChunkIndex(int x, int z)
+	{
+		return ((x - this.minX) >> 4) + ((z - this.minZ) >> 4) * 2;
+	}
+
+	private Chunk getChunk(int index, int x, int z)
+	{
+		Chunk chunk = this.chunks[index];
+		if (chunk == null)
+		{
+			chunk = this.forgeWorld.getChunkGenerator().getChunk(x, z);
+			if (chunk != null)
+			{
+				this.chunks[index] = chunk;
+				// The array is kept up to date by the chunk when sections
+				// are added, so it only has to be fetched once.
+				this.sections[index] = chunk.getBlockStorageArray();
+			}
+		}
+		return chunk;
+	}
+
+	@Override
+	public LocalMaterialData getMaterial(int x, int y, int z)
+	{
+		if (!isInside(x, z))
+		{
+			return super.getMaterial(x, y, z);
+		}
+		if (y >= PluginStandardValues.WORLD_HEIGHT || y < PluginStandardValues.WORLD_DEPTH)
+		{
+			return null;
+		}
+		int index = getChunkIndex(x, z);
+		if (getChunk(index, x, z) == null)
+		{
+			return null;
+		}
+		ExtendedBlockStorage section = this.sections[index][y >> 4];
+		if (section == Chunk.NULL_BLOCK_STORAGE)
+		{
+			return ForgeMaterialData.ofMinecraftBlockState(Blocks.AIR.getDefaultState());
+		}
+		return ForgeMaterialData.ofMinecraftBlockState(section.get(x & 0xF, y & 0xF, z & 0xF));
+	}
+
+	@Override
+	public void setBlock(int x, int y, int z, LocalMaterialData material)
+	{
+		if (!isInside(x, z))
+		{
+			super.setBlock(x, y, z, material);
+			return;
+		}
+		if (y >= PluginStandardValues.WORLD_HEIGHT || y < PluginStandardValues.WORLD_DEPTH)
+		{
+			return;
+		}
+		Chunk chunk = getChunk(getChunkIndex(x, z), x, z);
+		if (chunk == null)
+		{
+			throw new RuntimeException("Could not provide chunk.");
+		}
+		this.forgeWorld.getChunkGenerator().setBlock(chunk, x, y, z, ((ForgeMaterialData) material).internalBlock(), null);
+	}
+
+	@Override
+	public int getHeightMapHeight(int x, int z)
+	{
+		if (!isInside(x, z))
+		{
+			return super.getHeightMapHeight(x, z);
+		}
+		Chunk chunk = getChunk(getChunkIndex(x, z), x, z);
+		if (chunk == null)
+		{
+			return -1;
+		}
+		return this.forgeWorld.getHeightMapHeight(chunk, x, z);
+	}
+}
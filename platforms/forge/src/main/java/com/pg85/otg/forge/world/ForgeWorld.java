@@ -4,9 +4,10 @@ import com.pg85.otg.*;
 import com.pg85.otg.common.LocalBiome;
 import com.pg85.otg.common.LocalMaterialData;
 import com.pg85.otg.common.LocalWorld;
+import com.pg85.otg.common.PopulationArea;
 import com.pg85.otg.common.WorldSession;
 import com.pg85.otg.configuration.biome.BiomeConfig;
-import com.pg85.otg.configuration.biome.settings.ReplacedBlocksMatrix.ReplacedBlocksInstruction;
+import com.pg85.otg.configuration.biome.settings.ReplacedBlocksMatrix;
 import com.pg85.otg.configuration.dimensions.DimensionConfig;
 import com.pg85.otg.configuration.standard.PluginStandardValues;
 import com.pg85.otg.configuration.world.WorldConfig;
@@ -92,6 +93,7 @@ public class ForgeWorld implements LocalWorld
     public World world;
     private ConfigProvider settings;
     private CustomStructureCache structureCache;
+    private ForgePopulationArea populationArea;
     private String name;
     private long seed;
     private BiomeGenerator biomeGenerator;
@@ -141,6 +143,7 @@ public class ForgeWorld implements LocalWorld
 
         this.world = world;
         OTGDimensionManager.ApplyGameRulesToWorld(world, dimConfig);
+        ForgeMaterialData.initBlockStateTable();
         this.seed = world.getWorldInfo().getSeed();
         world.setSeaLevel(configs.getWorldConfig().waterLevelMax);
 
@@ -327,6 +330,32 @@ public class ForgeWorld implements LocalWorld
 
     @Override
     public void endPopulation() { }
+
+    @Override
+    public void beginBlockEdits()
+    {
+    	this.getChunkGenerator().beginBlockEdits();
+    }
+
+    @Override
+    public void commitBlockEdits()
+    {
+    	this.getChunkGenerator().commitBlockEdits();
+    }
+
+    @Override
+    public PopulationArea getPopulationArea(ChunkCoordinate chunkBeingPopulated)
+    {
+    	// Resources ask for the area every time they spawn, reuse it for
+    	// the whole population step instead of looking up the chunks again.
+    	ForgePopulationArea populationArea = this.populationArea;
+    	if (populationArea == null || !populationArea.isValidFor(chunkBeingPopulated))
+    	{
+    		populationArea = new ForgePopulationArea(this, chunkBeingPopulated);
+    		this.populationArea = populationArea;
+    	}
+    	return populationArea;
+    }
     
     // World session
     
@@ -665,7 +694,12 @@ public class ForgeWorld implements LocalWorld
     	{
             return -1;
     	}
-    	
+
+    	return getHeightMapHeight(chunk, x, z);
+	}
+
+	int getHeightMapHeight(Chunk chunk, int x, int z)
+	{
 		// Get internal coordinates for block in chunk
         int internalX = x & 0xF;    	
         int internalZ = z & 0xF;
@@ -1067,16 +1101,34 @@ public class ForgeWorld implements LocalWorld
         int worldStartX = rawChunk.x * 16;
         int worldStartZ = rawChunk.z * 16;
 
+        // Get the compiled ReplacedBlocks of each column's biome
+        ReplacedBlocksMatrix[] replacedBlocksByColumn = new ReplacedBlocksMatrix[16 * 16];
+        ReplacedBlocksMatrix replacedBlocks;
+        LocalBiome biome;
+        boolean hasReplacedBlocks = false;
+        for (int sectionX = 0; sectionX < 16; sectionX++)
+        {
+            for (int sectionZ = 0; sectionZ < 16; sectionZ++)
+            {
+            	biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
+            	if (biome != null && biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+            	{
+            		replacedBlocksByColumn[sectionX * 16 + sectionZ] = biome.getBiomeConfig().replacedBlocks;
+            		hasReplacedBlocks = true;
+            	}
+            }
+        }
+        if (!hasReplacedBlocks)
+        {
+        	return;
+        }
+
         ExtendedBlockStorage[] sectionsArray = rawChunk.getBlockStorageArray();
-        ReplacedBlocksInstruction[] replaceArray;
+        LocalMaterialData[] replacements;
+        LocalMaterialData replacement;
         IBlockState block;
-        int blockId = 0;
-    	int minHeight;
-    	int maxHeight;
-    	LocalBiome biome;
-    	int y;
-    	ReplacedBlocksInstruction[][][] replaceInstructionsCache = new ReplacedBlocksInstruction[16][16][];
-        
+        int blockId;
+        int sectionStartY;
         for (ExtendedBlockStorage section : sectionsArray)
         {
             if (section == null)
@@ -1084,67 +1136,33 @@ public class ForgeWorld implements LocalWorld
                 continue;
             }
 
+            sectionStartY = section.getYLocation();
             for (int sectionX = 0; sectionX < 16; sectionX++)
             {
                 for (int sectionZ = 0; sectionZ < 16; sectionZ++)
                 {
-                	replaceArray = replaceInstructionsCache[sectionX][sectionZ];
-                    if(replaceArray == null)
+                	replacedBlocks = replacedBlocksByColumn[sectionX * 16 + sectionZ];
+                	if (replacedBlocks == null || !replacedBlocks.hasReplaceSettingsBetween(sectionStartY, sectionStartY + 15))
+                	{
+                		continue;
+                	}
+                    for (int sectionY = 0; sectionY < 16; sectionY++)
                     {
-                    	biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
-                    	if (biome == null || !biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                    	replacements = replacedBlocks.getReplacements(sectionStartY + sectionY);
+                    	if (replacements == null)
                     	{
-                    		replaceArray = new ReplacedBlocksInstruction[0];
-                    	} else {
-                    		replaceArray = new ReplacedBlocksInstruction[biome.getBiomeConfig().replacedBlocks.getInstructions().size()];
-                    		replaceArray = (ReplacedBlocksInstruction[])biome.getBiomeConfig().replacedBlocks.getInstructions().toArray(replaceArray);
+                    		continue;
+                    	}
+                    	block = section.getData().get(sectionX, sectionY, sectionZ);
+                    	blockId = Block.getIdFromBlock(block.getBlock());
+                    	if (blockId < replacements.length)
+                    	{
+                    		replacement = replacements[blockId];
+                    		if (replacement != null)
+                    		{
+                    			section.set(sectionX, sectionY, sectionZ, ((ForgeMaterialData)replacement).internalBlock());
+                    		}
                     	}
-                    	replaceInstructionsCache[sectionX][sectionZ] = replaceArray;
-                    }
-                    if (replaceArray != null && replaceArray.length > 0)
-                    {
-                    	minHeight = PluginStandardValues.WORLD_HEIGHT;
-                    	maxHeight = PluginStandardValues.WORLD_DEPTH;
-                        for(ReplacedBlocksInstruction instruction : replaceArray)
-                        {
-                        	if(instruction.getFrom() != null && instruction.getTo() != null)
-                        	{
-	                        	if(instruction.getMinHeight() < minHeight)
-	                        	{
-	                        		minHeight = instruction.getMinHeight();
-	                        	}
-	                        	if(instruction.getMaxHeight() > maxHeight)
-	                        	{
-	                        		maxHeight = instruction.getMaxHeight();
-	                    		}
-                        	}
-                        }
-                        for (int sectionY = 0; sectionY < 16; sectionY++)
-                        {
-                        	block = null;
-                        	y = section.getYLocation() + sectionY;                    
-                        	if(y >= minHeight && y <= maxHeight)
-                        	{
-	                            for(ReplacedBlocksInstruction instruction : replaceArray)
-	                            {
-	                            	if(instruction.getFrom() != null && instruction.getTo() != null)
-	                            	{
-	                            		if(y >= instruction.getMinHeight() && y <= instruction.getMaxHeight())
-	                            		{
-	                            			if(block == null)
-	                            			{
-		                                    	block = section.getData().get(sectionX, sectionY, sectionZ);
-		                                    	blockId = Block.getIdFromBlock(block.getBlock());
-	                            			}
-			                            	if(instruction.getFrom().getBlockId() == blockId)
-			                            	{	                            		
-			                                    section.set(sectionX, sectionY, sectionZ, ((ForgeMaterialData)instruction.getTo()).internalBlock());                            		
-			                            	}
-	                            		}
-	                            	}
-	                            }
-                        	}
-                        }
                     }
                 }
             }
@@ -1478,6 +1496,35 @@ public class ForgeWorld implements LocalWorld
 		}
     }
 
+	/**
+	 * Checks if mods hook into terrain generation, through the
+	 * ReplaceBiomeBlocks event or by replacing the cave generator. Mods don't
+	 * expect those hooks to be called off the server thread, so the
+	 * pre-generator's worker threads aren't used when they exist.
+	 */
+	public boolean hasModdedTerrainGenerationHooks()
+	{
+		if(this.cavesGen != null)
+		{
+			return true;
+		}
+		try
+		{
+			// The listeners are registered per event bus, the bus id isn't exposed
+			java.lang.reflect.Field busIdField = net.minecraftforge.fml.common.eventhandler.EventBus.class.getDeclaredField("busID");
+			busIdField.setAccessible(true);
+			int busId = busIdField.getInt(net.minecraftforge.common.MinecraftForge.EVENT_BUS);
+			net.minecraftforge.event.terraingen.ChunkGeneratorEvent.ReplaceBiomeBlocks event = new net.minecraftforge.event.terraingen.ChunkGeneratorEvent.ReplaceBiomeBlocks(this.getChunkGenerator(), 0, 0, new ChunkPrimer(), this.world);
+			return event.getListenerList().getListeners(busId).length > 0;
+		}
+		catch (ReflectiveOperationException e)
+		{
+			// Assume there are listeners
+			OTG.log(LogMarker.DEBUG, "Could not check for ReplaceBiomeBlocks event listeners: " + e);
+			return true;
+		}
+	}
+
 	@Override
 	public boolean generateModdedCaveGen(int x, int z, ChunkBuffer chunkBuffer)
 	{